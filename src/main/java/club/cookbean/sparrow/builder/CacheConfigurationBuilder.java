@@ -15,21 +15,46 @@
 package club.cookbean.sparrow.builder;
 
 
+import club.cookbean.sparrow.config.BloomFilterConfiguration;
 import club.cookbean.sparrow.config.CacheConfiguration;
+import club.cookbean.sparrow.config.CompressionConfiguration;
+import club.cookbean.sparrow.config.InvalidationConfiguration;
+import club.cookbean.sparrow.config.LoadBatchingConfiguration;
+import club.cookbean.sparrow.config.LoadLockConfiguration;
+import club.cookbean.sparrow.config.MultiplexingConfiguration;
+import club.cookbean.sparrow.config.NearCacheConfiguration;
+import club.cookbean.sparrow.config.PipeliningConfiguration;
 import club.cookbean.sparrow.config.ServiceConfiguration;
+import club.cookbean.sparrow.config.SingleFlightConfiguration;
 import club.cookbean.sparrow.config.WriteBehindConfiguration;
 import club.cookbean.sparrow.config.impl.BaseCacheConfiguration;
+import club.cookbean.sparrow.config.impl.DefaultBloomFilterConfiguration;
+import club.cookbean.sparrow.config.impl.DefaultBulkConfiguration;
 import club.cookbean.sparrow.config.impl.DefaultCacheLoaderConfiguration;
 import club.cookbean.sparrow.config.impl.DefaultCacheWriterConfiguration;
+import club.cookbean.sparrow.config.impl.DefaultCompressionConfiguration;
+import club.cookbean.sparrow.config.impl.DefaultInvalidationConfiguration;
+import club.cookbean.sparrow.config.impl.DefaultLoadBatchingConfiguration;
+import club.cookbean.sparrow.config.impl.DefaultLoadLockConfiguration;
+import club.cookbean.sparrow.config.impl.DefaultMultiplexingConfiguration;
+import club.cookbean.sparrow.config.impl.DefaultNearCacheConfiguration;
+import club.cookbean.sparrow.config.impl.DefaultNegativeCacheConfiguration;
+import club.cookbean.sparrow.config.impl.DefaultPipeliningConfiguration;
+import club.cookbean.sparrow.config.impl.DefaultRefreshAheadConfiguration;
+import club.cookbean.sparrow.config.impl.DefaultSingleFlightConfiguration;
+import club.cookbean.sparrow.config.impl.DefaultStaleWhileRevalidateConfiguration;
+import club.cookbean.sparrow.config.impl.DefaultValueSerializerConfiguration;
 import club.cookbean.sparrow.loader.CacheLoader;
 import club.cookbean.sparrow.redis.RedisConnector;
 import club.cookbean.sparrow.redis.RedisResource;
+import club.cookbean.sparrow.serializer.Serializer;
 import club.cookbean.sparrow.writer.CacheWriter;
 
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 public class CacheConfigurationBuilder implements Builder<CacheConfiguration> {
 
@@ -158,6 +183,198 @@ public class CacheConfigurationBuilder implements Builder<CacheConfiguration> {
         return otherBuilder;
     }
 
+    public CacheConfigurationBuilder withAutoPipelining(PipeliningConfiguration pipeliningConfiguration) {
+        if (null == pipeliningConfiguration) {
+            throw new IllegalArgumentException("Null pipelining configuration");
+        }
+        CacheConfigurationBuilder otherBuilder = new CacheConfigurationBuilder(this);
+        DefaultPipeliningConfiguration existServiceConfiguration = getExistingServiceConfiguration(DefaultPipeliningConfiguration.class);
+        if (null != existServiceConfiguration) {
+            otherBuilder.serviceConfigurations.remove(existServiceConfiguration);
+        }
+        otherBuilder.serviceConfigurations.add(pipeliningConfiguration);
+        return otherBuilder;
+    }
+
+    public CacheConfigurationBuilder withMultiplexing(int connections, int maxInFlight) {
+        return withMultiplexing(new DefaultMultiplexingConfiguration(connections, maxInFlight));
+    }
+
+    public CacheConfigurationBuilder withMultiplexing(MultiplexingConfiguration multiplexingConfiguration) {
+        if (null == multiplexingConfiguration) {
+            throw new IllegalArgumentException("Null multiplexing configuration");
+        }
+        CacheConfigurationBuilder otherBuilder = new CacheConfigurationBuilder(this);
+        DefaultMultiplexingConfiguration existServiceConfiguration = getExistingServiceConfiguration(DefaultMultiplexingConfiguration.class);
+        if (null != existServiceConfiguration) {
+            otherBuilder.serviceConfigurations.remove(existServiceConfiguration);
+        }
+        otherBuilder.serviceConfigurations.add(multiplexingConfiguration);
+        return otherBuilder;
+    }
+
+    public CacheConfigurationBuilder withCompression(int threshold) {
+        return withCompression(new DefaultCompressionConfiguration(threshold));
+    }
+
+    public CacheConfigurationBuilder withCompression(CompressionConfiguration compressionConfiguration) {
+        if (null == compressionConfiguration) {
+            throw new IllegalArgumentException("Null compression configuration");
+        }
+        CacheConfigurationBuilder otherBuilder = new CacheConfigurationBuilder(this);
+        DefaultCompressionConfiguration existServiceConfiguration = getExistingServiceConfiguration(DefaultCompressionConfiguration.class);
+        if (null != existServiceConfiguration) {
+            otherBuilder.serviceConfigurations.remove(existServiceConfiguration);
+        }
+        otherBuilder.serviceConfigurations.add(compressionConfiguration);
+        return otherBuilder;
+    }
+
+    public <T> CacheConfigurationBuilder withValueSerializer(Class<T> valueType, Serializer<T> serializer) {
+        CacheConfigurationBuilder otherBuilder = new CacheConfigurationBuilder(this);
+        DefaultValueSerializerConfiguration<?> existServiceConfiguration = getExistingServiceConfiguration(DefaultValueSerializerConfiguration.class);
+        if (null != existServiceConfiguration) {
+            otherBuilder.serviceConfigurations.remove(existServiceConfiguration);
+        }
+        otherBuilder.serviceConfigurations.add(new DefaultValueSerializerConfiguration<>(valueType, serializer));
+        return otherBuilder;
+    }
+
+    public CacheConfigurationBuilder withBulkChunkSize(int chunkSize) {
+        CacheConfigurationBuilder otherBuilder = new CacheConfigurationBuilder(this);
+        DefaultBulkConfiguration existServiceConfiguration = getExistingServiceConfiguration(DefaultBulkConfiguration.class);
+        if (null != existServiceConfiguration) {
+            otherBuilder.serviceConfigurations.remove(existServiceConfiguration);
+        }
+        otherBuilder.serviceConfigurations.add(new DefaultBulkConfiguration(chunkSize));
+        return otherBuilder;
+    }
+
+    public CacheConfigurationBuilder withSingleFlight(long timeout, TimeUnit timeoutUnit, SingleFlightConfiguration.FailurePolicy failurePolicy) {
+        CacheConfigurationBuilder otherBuilder = new CacheConfigurationBuilder(this);
+        DefaultSingleFlightConfiguration existServiceConfiguration = getExistingServiceConfiguration(DefaultSingleFlightConfiguration.class);
+        if (null != existServiceConfiguration) {
+            otherBuilder.serviceConfigurations.remove(existServiceConfiguration);
+        }
+        otherBuilder.serviceConfigurations.add(new DefaultSingleFlightConfiguration(timeout, timeoutUnit, failurePolicy));
+        return otherBuilder;
+    }
+
+    public CacheConfigurationBuilder withLoadLock(LoadLockConfiguration loadLockConfiguration) {
+        if (null == loadLockConfiguration) {
+            throw new IllegalArgumentException("Null load lock configuration");
+        }
+        CacheConfigurationBuilder otherBuilder = new CacheConfigurationBuilder(this);
+        DefaultLoadLockConfiguration existServiceConfiguration = getExistingServiceConfiguration(DefaultLoadLockConfiguration.class);
+        if (null != existServiceConfiguration) {
+            otherBuilder.serviceConfigurations.remove(existServiceConfiguration);
+        }
+        otherBuilder.serviceConfigurations.add(loadLockConfiguration);
+        return otherBuilder;
+    }
+
+    public CacheConfigurationBuilder withRefreshAhead(double refreshFraction) {
+        return withRefreshAhead(refreshFraction, null);
+    }
+
+    public CacheConfigurationBuilder withRefreshAhead(double refreshFraction, String threadPoolAlias) {
+        CacheConfigurationBuilder otherBuilder = new CacheConfigurationBuilder(this);
+        DefaultRefreshAheadConfiguration existServiceConfiguration = getExistingServiceConfiguration(DefaultRefreshAheadConfiguration.class);
+        if (null != existServiceConfiguration) {
+            otherBuilder.serviceConfigurations.remove(existServiceConfiguration);
+        }
+        otherBuilder.serviceConfigurations.add(new DefaultRefreshAheadConfiguration(refreshFraction, threadPoolAlias));
+        return otherBuilder;
+    }
+
+    public CacheConfigurationBuilder withStaleWhileRevalidate(long gracePeriod, TimeUnit gracePeriodUnit) {
+        return withStaleWhileRevalidate(gracePeriod, gracePeriodUnit, null);
+    }
+
+    public CacheConfigurationBuilder withStaleWhileRevalidate(long gracePeriod, TimeUnit gracePeriodUnit, String threadPoolAlias) {
+        CacheConfigurationBuilder otherBuilder = new CacheConfigurationBuilder(this);
+        DefaultStaleWhileRevalidateConfiguration existServiceConfiguration = getExistingServiceConfiguration(DefaultStaleWhileRevalidateConfiguration.class);
+        if (null != existServiceConfiguration) {
+            otherBuilder.serviceConfigurations.remove(existServiceConfiguration);
+        }
+        otherBuilder.serviceConfigurations.add(new DefaultStaleWhileRevalidateConfiguration(gracePeriod, gracePeriodUnit, threadPoolAlias));
+        return otherBuilder;
+    }
+
+    public CacheConfigurationBuilder withNegativeCaching(long ttl, TimeUnit ttlUnit) {
+        CacheConfigurationBuilder otherBuilder = new CacheConfigurationBuilder(this);
+        DefaultNegativeCacheConfiguration existServiceConfiguration = getExistingServiceConfiguration(DefaultNegativeCacheConfiguration.class);
+        if (null != existServiceConfiguration) {
+            otherBuilder.serviceConfigurations.remove(existServiceConfiguration);
+        }
+        otherBuilder.serviceConfigurations.add(new DefaultNegativeCacheConfiguration(ttl, ttlUnit));
+        return otherBuilder;
+    }
+
+    public CacheConfigurationBuilder withBloomFilter(BloomFilterConfiguration bloomFilterConfiguration) {
+        if (null == bloomFilterConfiguration) {
+            throw new IllegalArgumentException("Null bloom filter configuration");
+        }
+        CacheConfigurationBuilder otherBuilder = new CacheConfigurationBuilder(this);
+        DefaultBloomFilterConfiguration existServiceConfiguration = getExistingServiceConfiguration(DefaultBloomFilterConfiguration.class);
+        if (null != existServiceConfiguration) {
+            otherBuilder.serviceConfigurations.remove(existServiceConfiguration);
+        }
+        otherBuilder.serviceConfigurations.add(bloomFilterConfiguration);
+        return otherBuilder;
+    }
+
+    public CacheConfigurationBuilder withNearCache(long maxEntries, long ttl, TimeUnit ttlUnit) {
+        return withNearCache(new DefaultNearCacheConfiguration(maxEntries, ttl, ttlUnit));
+    }
+
+    public CacheConfigurationBuilder withNearCache(NearCacheConfiguration nearCacheConfiguration) {
+        if (null == nearCacheConfiguration) {
+            throw new IllegalArgumentException("Null near cache configuration");
+        }
+        CacheConfigurationBuilder otherBuilder = new CacheConfigurationBuilder(this);
+        DefaultNearCacheConfiguration existServiceConfiguration = getExistingServiceConfiguration(DefaultNearCacheConfiguration.class);
+        if (null != existServiceConfiguration) {
+            otherBuilder.serviceConfigurations.remove(existServiceConfiguration);
+        }
+        otherBuilder.serviceConfigurations.add(nearCacheConfiguration);
+        return otherBuilder;
+    }
+
+    public CacheConfigurationBuilder withInvalidation(int maxBatchSize, long maxDelay, TimeUnit maxDelayUnit) {
+        return withInvalidation(new DefaultInvalidationConfiguration(maxBatchSize, maxDelay, maxDelayUnit));
+    }
+
+    public CacheConfigurationBuilder withInvalidation(InvalidationConfiguration invalidationConfiguration) {
+        if (null == invalidationConfiguration) {
+            throw new IllegalArgumentException("Null invalidation configuration");
+        }
+        CacheConfigurationBuilder otherBuilder = new CacheConfigurationBuilder(this);
+        DefaultInvalidationConfiguration existServiceConfiguration = getExistingServiceConfiguration(DefaultInvalidationConfiguration.class);
+        if (null != existServiceConfiguration) {
+            otherBuilder.serviceConfigurations.remove(existServiceConfiguration);
+        }
+        otherBuilder.serviceConfigurations.add(invalidationConfiguration);
+        return otherBuilder;
+    }
+
+    public CacheConfigurationBuilder withLoadBatching(int maxBatchSize, long maxDelay, TimeUnit maxDelayUnit) {
+        return withLoadBatching(new DefaultLoadBatchingConfiguration(maxBatchSize, maxDelay, maxDelayUnit));
+    }
+
+    public CacheConfigurationBuilder withLoadBatching(LoadBatchingConfiguration loadBatchingConfiguration) {
+        if (null == loadBatchingConfiguration) {
+            throw new IllegalArgumentException("Null load batching configuration");
+        }
+        CacheConfigurationBuilder otherBuilder = new CacheConfigurationBuilder(this);
+        DefaultLoadBatchingConfiguration existServiceConfiguration = getExistingServiceConfiguration(DefaultLoadBatchingConfiguration.class);
+        if (null != existServiceConfiguration) {
+            otherBuilder.serviceConfigurations.remove(existServiceConfiguration);
+        }
+        otherBuilder.serviceConfigurations.add(loadBatchingConfiguration);
+        return otherBuilder;
+    }
+
     /*public CacheConfigurationBuilder withLoadBehind(LoadBehindConfiguration loadBehindConfiguration) {
         CacheConfigurationBuilder otherBuilder = new CacheConfigurationBuilder(this);
         otherBuilder.serviceConfigurations.add(loadBehindConfiguration);
@@ -0,0 +1,124 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.builder;
+
+
+import club.cookbean.sparrow.config.RetryConfiguration;
+import club.cookbean.sparrow.config.impl.DefaultRetryConfiguration;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+public class RetryConfigurationBuilder implements Builder<RetryConfiguration> {
+
+    private int maxAttempts;
+    private long initialDelay;
+    private long maxDelay;
+    private TimeUnit delayUnit;
+    private double multiplier = 2;
+    private double jitter = 0.5;
+    private Set<Class<? extends Exception>> retryableExceptions = new LinkedHashSet<>();
+    private int deadLetterCapacity = 1000;
+
+    private RetryConfigurationBuilder(int maxAttempts, long initialDelay, long maxDelay, TimeUnit delayUnit) {
+        this.maxAttempts = maxAttempts;
+        this.initialDelay = initialDelay;
+        this.maxDelay = maxDelay;
+        this.delayUnit = delayUnit;
+    }
+
+    private RetryConfigurationBuilder(RetryConfigurationBuilder other) {
+        this.maxAttempts = other.maxAttempts;
+        this.initialDelay = other.initialDelay;
+        this.maxDelay = other.maxDelay;
+        this.delayUnit = other.delayUnit;
+        this.multiplier = other.multiplier;
+        this.jitter = other.jitter;
+        this.retryableExceptions = new LinkedHashSet<>(other.retryableExceptions);
+        this.deadLetterCapacity = other.deadLetterCapacity;
+    }
+
+    /**
+     * Creates a new builder for {@link RetryConfiguration} doubling the delay after each attempt, with a jitter
+     * of half the delay, retrying every exception and keeping up to 1000 dead operations.
+     *
+     * @param maxAttempts the maximum attempts, the first one included
+     * @param initialDelay the delay before the first retry
+     * @param maxDelay the maximum delay between two attempts
+     * @param delayUnit the delay unit
+     * @return a new builder
+     */
+    public static RetryConfigurationBuilder newRetryConfiguration(int maxAttempts, long initialDelay, long maxDelay, TimeUnit delayUnit) {
+        return new RetryConfigurationBuilder(maxAttempts, initialDelay, maxDelay, delayUnit);
+    }
+
+    /**
+     * Sets the factor applied to the delay after each attempt on the returned builder.
+     *
+     * @param multiplier the backoff multiplier
+     * @return a new builder with the updated multiplier
+     */
+    public RetryConfigurationBuilder multiplier(double multiplier) {
+        RetryConfigurationBuilder otherBuilder = new RetryConfigurationBuilder(this);
+        otherBuilder.multiplier = multiplier;
+        return otherBuilder;
+    }
+
+    /**
+     * Sets the fraction of the delay randomly taken off on the returned builder.
+     *
+     * @param jitter the jitter, between 0 and 1
+     * @return a new builder with the updated jitter
+     */
+    public RetryConfigurationBuilder jitter(double jitter) {
+        RetryConfigurationBuilder otherBuilder = new RetryConfigurationBuilder(this);
+        otherBuilder.jitter = jitter;
+        return otherBuilder;
+    }
+
+    /**
+     * Adds exceptions worth a retry on the returned builder, once one is added the others are not retried.
+     *
+     * @param exceptions the retryable exceptions
+     * @return a new builder with the added exceptions
+     */
+    @SafeVarargs
+    public final RetryConfigurationBuilder retryOn(Class<? extends Exception>... exceptions) {
+        RetryConfigurationBuilder otherBuilder = new RetryConfigurationBuilder(this);
+        for (Class<? extends Exception> exception : exceptions) {
+            otherBuilder.retryableExceptions.add(exception);
+        }
+        return otherBuilder;
+    }
+
+    /**
+     * Sets the maximum dead operations kept on the returned builder.
+     *
+     * @param capacity the dead letter capacity, 0 keeps none
+     * @return a new builder with the updated capacity
+     */
+    public RetryConfigurationBuilder deadLetterCapacity(int capacity) {
+        RetryConfigurationBuilder otherBuilder = new RetryConfigurationBuilder(this);
+        otherBuilder.deadLetterCapacity = capacity;
+        return otherBuilder;
+    }
+
+    @Override
+    public RetryConfiguration build() {
+        return new DefaultRetryConfiguration(maxAttempts, initialDelay, maxDelay, delayUnit,
+                multiplier, jitter, retryableExceptions, deadLetterCapacity);
+    }
+}
@@ -15,9 +15,16 @@
 package club.cookbean.sparrow.builder;
 
 
+import club.cookbean.sparrow.config.AdaptiveBatchingConfiguration;
+import club.cookbean.sparrow.config.BackpressureConfiguration;
 import club.cookbean.sparrow.config.BatchingConfiguration;
+import club.cookbean.sparrow.config.JournalConfiguration;
+import club.cookbean.sparrow.config.RetryConfiguration;
 import club.cookbean.sparrow.config.WriteBehindConfiguration;
+import club.cookbean.sparrow.config.impl.DefaultAdaptiveBatchingConfiguration;
+import club.cookbean.sparrow.config.impl.DefaultBackpressureConfiguration;
 import club.cookbean.sparrow.config.impl.DefaultBatchingConfiguration;
+import club.cookbean.sparrow.config.impl.DefaultJournalConfiguration;
 import club.cookbean.sparrow.config.impl.DefaultWriteBehindConfiguration;
 
 import java.util.concurrent.TimeUnit;
@@ -27,6 +34,9 @@ public abstract class WriteBehindConfigurationBuilder implements Builder<WriteBe
     protected int concurrency = 1;
     protected int queueSize = Integer.MAX_VALUE;
     protected String threadPoolAlias = null;
+    protected JournalConfiguration journalConfiguration = null;
+    protected RetryConfiguration retryConfiguration = null;
+    protected BackpressureConfiguration backpressureConfiguration = null;
 
     private WriteBehindConfigurationBuilder() {}
 
@@ -34,6 +44,9 @@ public abstract class WriteBehindConfigurationBuilder implements Builder<WriteBe
         this.concurrency = other.concurrency;
         this.queueSize = other.queueSize;
         this.threadPoolAlias = other.threadPoolAlias;
+        this.journalConfiguration = other.journalConfiguration;
+        this.retryConfiguration = other.retryConfiguration;
+        this.backpressureConfiguration = other.backpressureConfiguration;
     }
 
     /**
@@ -58,7 +71,8 @@ public abstract class WriteBehindConfigurationBuilder implements Builder<WriteBe
     }
 
     WriteBehindConfiguration buildWith(BatchingConfiguration batchingConfiguration) {
-        return new DefaultWriteBehindConfiguration(threadPoolAlias, concurrency, queueSize, batchingConfiguration);
+        return new DefaultWriteBehindConfiguration(threadPoolAlias, concurrency, queueSize, batchingConfiguration, journalConfiguration, retryConfiguration,
+                backpressureConfiguration);
     }
 
     /**
@@ -91,12 +105,77 @@ public abstract class WriteBehindConfigurationBuilder implements Builder<WriteBe
      */
     public abstract WriteBehindConfigurationBuilder useThreadPool(String alias);
 
+    /**
+     * Journals the pending operations in the given directory on the returned builder, operations not yet
+     * written when the process stops are written again on the next start.
+     *
+     * @param directory the journal directory
+     * @return a new builder with the configured journal
+     */
+    public WriteBehindConfigurationBuilder journal(String directory) {
+        return journal(new DefaultJournalConfiguration(directory));
+    }
+
+    /**
+     * Sets the journal of pending operations on the returned builder.
+     *
+     * @param journalConfiguration the journal configuration
+     * @return a new builder with the configured journal
+     */
+    public abstract WriteBehindConfigurationBuilder journal(JournalConfiguration journalConfiguration);
+
+    /**
+     * Retries the failed operations on the returned builder, the ones exhausting their attempts are kept in a
+     * dead letter queue.
+     *
+     * @param retryConfiguration the retry configuration
+     * @return a new builder with the configured retries
+     *
+     * @see RetryConfigurationBuilder
+     */
+    public abstract WriteBehindConfigurationBuilder retry(RetryConfiguration retryConfiguration);
+
+    /**
+     * Sets what a write does when its queue is full on the returned builder, the policies falling back to
+     * blocking wait for room without limit.
+     * <p>
+     * Default is to wait for room without limit.
+     *
+     * @param policy the overflow policy
+     * @return a new builder with the configured overflow policy
+     */
+    public WriteBehindConfigurationBuilder backpressure(BackpressureConfiguration.Policy policy) {
+        return backpressure(new DefaultBackpressureConfiguration(policy));
+    }
+
+    /**
+     * Sets what a write does when its queue is full on the returned builder, the policies falling back to
+     * blocking fail once they waited for room up to the timeout.
+     *
+     * @param policy the overflow policy
+     * @param timeout the maximum wait for room
+     * @param timeoutUnit the timeout unit
+     * @return a new builder with the configured overflow policy
+     */
+    public WriteBehindConfigurationBuilder backpressure(BackpressureConfiguration.Policy policy, long timeout, TimeUnit timeoutUnit) {
+        return backpressure(new DefaultBackpressureConfiguration(policy, timeout, timeoutUnit));
+    }
+
+    /**
+     * Sets the overflow policy of full queues on the returned builder.
+     *
+     * @param backpressureConfiguration the backpressure configuration
+     * @return a new builder with the configured overflow policy
+     */
+    public abstract WriteBehindConfigurationBuilder backpressure(BackpressureConfiguration backpressureConfiguration);
+
 
     public static final class BatchedWriteBehindConfigurationBuilder extends WriteBehindConfigurationBuilder {
         private TimeUnit maxDelayUnit;
         private long maxDelay;
         private int batchSize;
         private boolean coalescing = false;
+        private AdaptiveBatchingConfiguration adaptiveConfiguration = null;
 
         private BatchedWriteBehindConfigurationBuilder(long maxDelay, TimeUnit maxDelayUnit, int batchSize) {
             setMaxWriteDelay(maxDelay, maxDelayUnit);
@@ -109,6 +188,7 @@ public abstract class WriteBehindConfigurationBuilder implements Builder<WriteBe
             maxDelayUnit = other.maxDelayUnit;
             coalescing = other.coalescing;
             batchSize = other.batchSize;
+            adaptiveConfiguration = other.adaptiveConfiguration;
         }
 
         /**
@@ -177,6 +257,37 @@ public abstract class WriteBehindConfigurationBuilder implements Builder<WriteBe
             this.maxDelayUnit = maxDelayUnit;
         }
 
+        /**
+         * Tunes the batch size and max write delay to the writer on the returned builder, the batch size between
+         * the given bounds and the delay up to the current max write delay, so that operations wait no longer
+         * than the target dwell time at the 99th percentile.
+         *
+         * @param minBatchSize the minimum batch size
+         * @param maxBatchSize the maximum batch size
+         * @param targetDwell the target p99 dwell time
+         * @param targetDwellUnit the target dwell time unit
+         * @return a new builder with adaptive batching
+         */
+        public BatchedWriteBehindConfigurationBuilder adaptive(int minBatchSize, int maxBatchSize, long targetDwell, TimeUnit targetDwellUnit) {
+            return adaptive(new DefaultAdaptiveBatchingConfiguration(minBatchSize, maxBatchSize,
+                    0, maxDelay, maxDelayUnit, targetDwell, targetDwellUnit));
+        }
+
+        /**
+         * Tunes the batch size and max write delay to the writer within the given bounds on the returned builder.
+         *
+         * @param adaptiveConfiguration the adaptive batching configuration
+         * @return a new builder with adaptive batching
+         */
+        public BatchedWriteBehindConfigurationBuilder adaptive(AdaptiveBatchingConfiguration adaptiveConfiguration) {
+            if (null == adaptiveConfiguration) {
+                throw new IllegalArgumentException("Null adaptive batching configuration");
+            }
+            BatchedWriteBehindConfigurationBuilder otherBuilder = new BatchedWriteBehindConfigurationBuilder(this);
+            otherBuilder.adaptiveConfiguration = adaptiveConfiguration;
+            return otherBuilder;
+        }
+
         @Override
         public BatchedWriteBehindConfigurationBuilder queueSize(int size) {
             if (size < 1) {
@@ -204,9 +315,54 @@ public abstract class WriteBehindConfigurationBuilder implements Builder<WriteBe
             return otherBuilder;
         }
 
+        @Override
+        public BatchedWriteBehindConfigurationBuilder journal(String directory) {
+            return journal(new DefaultJournalConfiguration(directory));
+        }
+
+        @Override
+        public BatchedWriteBehindConfigurationBuilder journal(JournalConfiguration journalConfiguration) {
+            if (null == journalConfiguration) {
+                throw new IllegalArgumentException("Null journal configuration");
+            }
+            BatchedWriteBehindConfigurationBuilder otherBuilder = new BatchedWriteBehindConfigurationBuilder(this);
+            otherBuilder.journalConfiguration = journalConfiguration;
+            return otherBuilder;
+        }
+
+        @Override
+        public BatchedWriteBehindConfigurationBuilder retry(RetryConfiguration retryConfiguration) {
+            if (null == retryConfiguration) {
+                throw new IllegalArgumentException("Null retry configuration");
+            }
+            BatchedWriteBehindConfigurationBuilder otherBuilder = new BatchedWriteBehindConfigurationBuilder(this);
+            otherBuilder.retryConfiguration = retryConfiguration;
+            return otherBuilder;
+        }
+
+        @Override
+        public BatchedWriteBehindConfigurationBuilder backpressure(BackpressureConfiguration.Policy policy) {
+            return backpressure(new DefaultBackpressureConfiguration(policy));
+        }
+
+        @Override
+        public BatchedWriteBehindConfigurationBuilder backpressure(BackpressureConfiguration.Policy policy, long timeout, TimeUnit timeoutUnit) {
+            return backpressure(new DefaultBackpressureConfiguration(policy, timeout, timeoutUnit));
+        }
+
+        @Override
+        public BatchedWriteBehindConfigurationBuilder backpressure(BackpressureConfiguration backpressureConfiguration) {
+            if (null == backpressureConfiguration) {
+                throw new IllegalArgumentException("Null backpressure configuration");
+            }
+            BatchedWriteBehindConfigurationBuilder otherBuilder = new BatchedWriteBehindConfigurationBuilder(this);
+            otherBuilder.backpressureConfiguration = backpressureConfiguration;
+            return otherBuilder;
+        }
+
         @Override
         public WriteBehindConfiguration build() {
-            return buildWith(new DefaultBatchingConfiguration(maxDelay, maxDelayUnit, batchSize, coalescing));
+            return buildWith(new DefaultBatchingConfiguration(maxDelay, maxDelayUnit, batchSize, coalescing, adaptiveConfiguration));
         }
     }
 
@@ -247,6 +403,50 @@ public abstract class WriteBehindConfigurationBuilder implements Builder<WriteBe
             return otherBuilder;
         }
 
+        @Override
+        public UnBatchedWriteBehindConfigurationBuilder journal(String directory) {
+            return journal(new DefaultJournalConfiguration(directory));
+        }
+
+        @Override
+        public UnBatchedWriteBehindConfigurationBuilder journal(JournalConfiguration journalConfiguration) {
+            if (null == journalConfiguration) {
+                throw new IllegalArgumentException("Null journal configuration");
+            }
+            UnBatchedWriteBehindConfigurationBuilder otherBuilder = new UnBatchedWriteBehindConfigurationBuilder(this);
+            otherBuilder.journalConfiguration = journalConfiguration;
+            return otherBuilder;
+        }
+
+        @Override
+        public UnBatchedWriteBehindConfigurationBuilder retry(RetryConfiguration retryConfiguration) {
+            if (null == retryConfiguration) {
+                throw new IllegalArgumentException("Null retry configuration");
+            }
+            UnBatchedWriteBehindConfigurationBuilder otherBuilder = new UnBatchedWriteBehindConfigurationBuilder(this);
+            otherBuilder.retryConfiguration = retryConfiguration;
+            return otherBuilder;
+        }
+
+        @Override
+        public UnBatchedWriteBehindConfigurationBuilder backpressure(BackpressureConfiguration.Policy policy) {
+            return backpressure(new DefaultBackpressureConfiguration(policy));
+        }
+
+        @Override
+        public UnBatchedWriteBehindConfigurationBuilder backpressure(BackpressureConfiguration.Policy policy, long timeout, TimeUnit timeoutUnit) {
+            return backpressure(new DefaultBackpressureConfiguration(policy, timeout, timeoutUnit));
+        }
+
+        @Override
+        public UnBatchedWriteBehindConfigurationBuilder backpressure(BackpressureConfiguration backpressureConfiguration) {
+            if (null == backpressureConfiguration) {
+                throw new IllegalArgumentException("Null backpressure configuration");
+            }
+            UnBatchedWriteBehindConfigurationBuilder otherBuilder = new UnBatchedWriteBehindConfigurationBuilder(this);
+            otherBuilder.backpressureConfiguration = backpressureConfiguration;
+            return otherBuilder;
+        }
 
         @Override
         public WriteBehindConfiguration build() {
@@ -0,0 +1,121 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.cache;
+
+import club.cookbean.sparrow.loader.CacheLoader;
+import club.cookbean.sparrow.redis.Cacheable;
+
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Asynchronous view of a {@link Cache}, obtained by {@link CacheManager#getAsyncCache(String)}.
+ * On a multiplexed storage the basic, list and set operations hold no thread while redis answers: the command
+ * is sent and the reply completes the future on the connection's reader thread, so listeners must not block
+ * and must not wait for another operation of the cache. Loader and writer operations, and every operation of
+ * the other storages, run the blocking {@link Cache} call on a thread of the cache's executor. The result, or the
+ * {@link club.cookbean.sparrow.exception.CacheLoadingException} / {@link club.cookbean.sparrow.exception.CacheWritingException}
+ * it failed with, is delivered through the returned {@link CacheFuture}.
+ * Operations are not ordered against each other, chain them through {@link CacheFuture.Listener} when needed.
+ */
+public interface AsyncCache {
+
+    // -----------------------  basic operation -----------------------
+    CacheFuture<Boolean> exist(String key);
+
+    CacheFuture<Boolean> expire(String key, long millisecond);
+
+    CacheFuture<Boolean> expireAt(String key, long timestamp);
+
+    CacheFuture<Void> delete(String key);
+
+    CacheFuture<Void> delete(String... keys);
+
+    CacheFuture<String> get(String key);
+
+    CacheFuture<byte[]> getBytes(String key);
+
+    CacheFuture<ByteBuffer> getByteBuffer(String key);
+
+    CacheFuture<Boolean> set(String key, Cacheable value);
+
+    CacheFuture<Map<String, String>> getAll(Collection<String> keys);
+
+    CacheFuture<Set<String>> setAll(Map<String, ? extends Cacheable> values);
+
+    // -----------------------  list operation -----------------------
+    CacheFuture<Long> llen(String key);
+
+    CacheFuture<List<String>> lrang(String key, long start, long end);
+
+    CacheFuture<String> lindex(String key, long index);
+
+    CacheFuture<Long> lrem(String key, int count, String valueToRemove);
+
+    CacheFuture<Long> lpush(String key, Cacheable... values);
+
+    CacheFuture<String> lpop(String key);
+
+    CacheFuture<Long> rpush(String key, Cacheable... values);
+
+    CacheFuture<String> rpop(String key);
+
+    // -----------------------  set operation -----------------------
+    CacheFuture<Long> scard(String key);
+
+    CacheFuture<Boolean> sismember(String key, Cacheable value);
+
+    CacheFuture<Set<String>> smembers(String key);
+
+    CacheFuture<Long> sadd(String key, Cacheable... values);
+
+    CacheFuture<Set<String>> sunion(String... keys);
+
+    // -----------------------  loader operation -----------------------
+    CacheFuture<String> getWithLoader(String key);
+
+    CacheFuture<String> getWithLoader(String key, CacheLoader definedCacheLoader);
+
+    CacheFuture<Map<String, String>> getAllWithLoader(Collection<String> keys);
+
+    CacheFuture<Map<String, String>> getAllWithLoader(Collection<String> keys, CacheLoader definedCacheLoader);
+
+    CacheFuture<List<String>> lrangeWithLoader(String key, long start, long end);
+
+    CacheFuture<List<String>> lrangeWithLoader(String key, long start, long end, CacheLoader definedCacheLoader);
+
+    CacheFuture<Set<String>> smembersWithLoader(String key);
+
+    CacheFuture<Set<String>> smembersWithLoader(String key, CacheLoader definedCacheLoader);
+
+    // -----------------------  writer operation -----------------------
+    CacheFuture<Void> deleteWithWriter(String key);
+
+    CacheFuture<Void> deleteAllWithWriter(String... keys);
+
+    CacheFuture<Void> setWithWriter(String key, Cacheable value);
+
+    CacheFuture<Long> lpushWithWriter(String key, Cacheable... values);
+
+    CacheFuture<Long> saddWithWriter(String key, Cacheable... values);
+
+    /**
+     * @return the blocking cache this view runs its operations against
+     */
+    Cache getCache();
+}
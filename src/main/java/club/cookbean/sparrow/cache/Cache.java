@@ -22,7 +22,10 @@ import club.cookbean.sparrow.loader.impl.SingleCacheLoader;
 import club.cookbean.sparrow.redis.Cacheable;
 import club.cookbean.sparrow.writer.CacheWriter;
 
+import java.nio.ByteBuffer;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -46,8 +49,26 @@ public interface Cache extends Loadable, Writable {
 
     String get(String key) throws CacheLoadingException;
 
+    /**
+     * Get a value as raw bytes, e.g. one set by a {@link club.cookbean.sparrow.redis.BinaryCacheable}
+     * @param key key to get
+     * @return value bytes, or null when absent
+     */
+    byte[] getBytes(String key) throws CacheLoadingException;
+
+    /**
+     * Get a value as a read-only buffer over its raw bytes
+     * @param key key to get
+     * @return value buffer, or null when absent
+     */
+    ByteBuffer getByteBuffer(String key) throws CacheLoadingException;
+
     boolean set(String key, Cacheable value) throws CacheWritingException;
 
+    Map<String, String> getAll(Collection<String> keys) throws CacheLoadingException;
+
+    Set<String> setAll(Map<String, ? extends Cacheable> values) throws CacheWritingException;
+
     // -----------------------  list operation -----------------------
     long llen(String key) throws CacheLoadingException;
 
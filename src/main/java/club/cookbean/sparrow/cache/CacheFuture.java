@@ -0,0 +1,38 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.cache;
+
+import java.util.concurrent.Future;
+
+/**
+ * A {@link Future} of an {@link AsyncCache} operation which can notify
+ * {@link Listener}s on completion instead of blocking a caller thread.
+ * A listener registered after completion is notified immediately on the registering thread.
+ */
+public interface CacheFuture<V> extends Future<V> {
+
+    void addListener(Listener<? super V> listener);
+
+    interface Listener<V> {
+
+        void onSuccess(V value);
+
+        /**
+         * @param cause the exception thrown by the cache operation,
+         *              or a {@link java.util.concurrent.CancellationException} when cancelled
+         */
+        void onFailure(Throwable cause);
+    }
+}
@@ -18,6 +18,9 @@ package club.cookbean.sparrow.cache;
 import club.cookbean.sparrow.builder.Builder;
 import club.cookbean.sparrow.config.CacheConfiguration;
 import club.cookbean.sparrow.exception.StateTransitionException;
+import club.cookbean.sparrow.storage.compress.CompressionStatistics;
+import club.cookbean.sparrow.writer.BackpressureStatistics;
+import club.cookbean.sparrow.writer.DeadLetterQueue;
 
 import java.io.Closeable;
 
@@ -38,4 +41,54 @@ public interface CacheManager extends Closeable {
 
     Cache getCache(String alias);
 
+    /**
+     * Get the asynchronous view of a cache, operations without a reply path run on an executor of the
+     * {@link club.cookbean.sparrow.service.ExecutionService} default pool
+     * @param alias alias of the cache
+     * @return the async view, or null when no cache is registered under the alias
+     */
+    AsyncCache getAsyncCache(String alias);
+
+    /**
+     * Get a view of a cache storing values of the given type, serialized by the
+     * {@link club.cookbean.sparrow.config.ValueSerializerConfiguration} of the cache, or by a
+     * built-in serializer (raw bytes, UTF-8 strings, compact binary otherwise) when none is configured
+     * @param alias alias of the cache
+     * @param valueType type of the values
+     * @return the typed view, or null when no cache is registered under the alias
+     * @throws IllegalArgumentException if the configured serializer handles another type, super types included
+     */
+    <V> TypedCache<V> getTypedCache(String alias, Class<V> valueType);
+
+    /**
+     * Get the counters of the near-cache of a cache
+     * @param alias alias of the cache
+     * @return the statistics, or null when no cache is registered under the alias or it has no
+     * {@link club.cookbean.sparrow.config.NearCacheConfiguration}
+     */
+    NearCacheStatistics getNearCacheStatistics(String alias);
+
+    /**
+     * Get the counters of the value compression of a cache
+     * @param alias alias of the cache
+     * @return the statistics, or null when no cache is registered under the alias or it has no
+     * {@link club.cookbean.sparrow.config.CompressionConfiguration}
+     */
+    CompressionStatistics getCompressionStatistics(String alias);
+
+    /**
+     * Get the write behind operations of a cache given up after their retries
+     * @param alias alias of the cache
+     * @return the dead letter queue, or null when no cache is registered under the alias or its
+     * {@link club.cookbean.sparrow.config.WriteBehindConfiguration} has no retry configuration
+     */
+    DeadLetterQueue getWriteBehindDeadLetters(String alias);
+
+    /**
+     * Get the counters of the writes of a cache finding their write behind queue full
+     * @param alias alias of the cache
+     * @return the statistics, or null when no cache is registered under the alias or its
+     * {@link club.cookbean.sparrow.config.WriteBehindConfiguration} has no backpressure configuration
+     */
+    BackpressureStatistics getWriteBehindBackpressureStatistics(String alias);
 }
@@ -17,7 +17,9 @@ package club.cookbean.sparrow.cache;
 import club.cookbean.sparrow.exception.CacheLoadingException;
 import club.cookbean.sparrow.loader.CacheLoader;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -32,6 +34,17 @@ public interface Loadable {
 
     String getWithLoader(String key, CacheLoader definedCacheLoader) throws CacheLoadingException;
 
+    /**
+     * Get multiple keys, the missing ones are loaded in one
+     * {@link club.cookbean.sparrow.loader.BulkCacheLoader#loadAll(Iterable)} call
+     * when the loader supports it
+     * @param keys keys to get
+     * @return every requested key mapped to its value, or to null when absent
+     */
+    Map<String, String> getAllWithLoader(Collection<String> keys) throws CacheLoadingException;
+
+    Map<String, String> getAllWithLoader(Collection<String> keys, CacheLoader definedCacheLoader) throws CacheLoadingException;
+
     // list
 
     List<String> lrangeWithLoader(String key, long start, long end) throws CacheLoadingException;
@@ -0,0 +1,51 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.cache;
+
+/**
+ * Desc: Counters of the near-cache of a cache.
+ */
+public interface NearCacheStatistics {
+
+    /**
+     * @return the number of reads served locally
+     */
+    long getHitCount();
+
+    /**
+     * @return the number of reads that went to redis
+     */
+    long getMissCount();
+
+    /**
+     * @return the number of entries evicted to stay within the bounds
+     */
+    long getEvictionCount();
+
+    /**
+     * @return the number of entries dropped because their key was written or deleted
+     */
+    long getInvalidationCount();
+
+    /**
+     * @return the number of entries held
+     */
+    long getSize();
+
+    /**
+     * @return the total weight of the entries held
+     */
+    long getWeight();
+}
@@ -0,0 +1,59 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.cache;
+
+import club.cookbean.sparrow.exception.CacheLoadingException;
+import club.cookbean.sparrow.exception.CacheWritingException;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Cache of domain objects, obtained by {@link CacheManager#getTypedCache(String, Class)}.
+ * Values are turned into bytes by the {@link club.cookbean.sparrow.serializer.Serializer} configured
+ * for the cache, on the caller thread, and stored through the binary path of the underlying {@link Cache}.
+ *
+ * @param <V> the type of the values
+ */
+public interface TypedCache<V> {
+
+    boolean exist(String key) throws CacheLoadingException;
+
+    boolean expire(String key, long millisecond) throws CacheWritingException;
+
+    void delete(String key) throws CacheWritingException;
+
+    V get(String key) throws CacheLoadingException;
+
+    /**
+     * @param key key to set
+     * @param value value to set
+     * @param expireTime expire duration in millisecond
+     * @return true if the value is set
+     */
+    boolean set(String key, V value, long expireTime) throws CacheWritingException;
+
+    /**
+     * @param values key and value pairs to set
+     * @param expireTime expire duration in millisecond, shared by all values
+     * @return keys failed to set, empty when all succeed
+     */
+    Set<String> setAll(Map<String, ? extends V> values, long expireTime) throws CacheWritingException;
+
+    /**
+     * @return the cache this view stores its values in
+     */
+    Cache getCache();
+}
@@ -0,0 +1,106 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.cache.impl;
+
+import club.cookbean.sparrow.cache.CacheFuture;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * {@link FutureTask} backed {@link CacheFuture}, listeners are notified once by whichever of
+ * {@link #done()} and {@link #addListener(Listener)} drains them first.
+ * A future created without a task is completed by {@link #complete(Object)} or {@link #fail(Throwable)}.
+ */
+class CacheFutureTask<V> extends FutureTask<V> implements CacheFuture<V> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CacheFutureTask.class);
+
+    private static final Runnable NO_TASK = new Runnable() {
+        @Override
+        public void run() {
+            throw new IllegalStateException("Cache future is completed by a reply, not run");
+        }
+    };
+
+    private final Queue<Listener<? super V>> listeners = new ConcurrentLinkedQueue<>();
+
+    CacheFutureTask() {
+        super(NO_TASK, null);
+    }
+
+    CacheFutureTask(Callable<V> callable) {
+        super(callable);
+    }
+
+    @Override
+    public void addListener(Listener<? super V> listener) {
+        if (null == listener) {
+            throw new NullPointerException("Listener cannot be null");
+        }
+        listeners.add(listener);
+        if (isDone()) {
+            notifyListeners();
+        }
+    }
+
+    @Override
+    protected void done() {
+        notifyListeners();
+    }
+
+    void complete(V value) {
+        set(value);
+    }
+
+    void fail(Throwable cause) {
+        setException(cause);
+    }
+
+    private void notifyListeners() {
+        Listener<? super V> listener;
+        while (null != (listener = listeners.poll())) {
+            try {
+                notifyListener(listener);
+            } catch (RuntimeException e) {
+                LOGGER.warn("Listener {} of cache future threw", listener, e);
+            }
+        }
+    }
+
+    private void notifyListener(Listener<? super V> listener) {
+        V value;
+        try {
+            value = get();
+        } catch (ExecutionException e) {
+            listener.onFailure(e.getCause());
+            return;
+        } catch (CancellationException e) {
+            listener.onFailure(e);
+            return;
+        } catch (InterruptedException e) {
+            // never blocks here, the task is already done
+            Thread.currentThread().interrupt();
+            listener.onFailure(e);
+            return;
+        }
+        listener.onSuccess(value);
+    }
+}
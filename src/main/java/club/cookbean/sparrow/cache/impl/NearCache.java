@@ -0,0 +1,229 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.cache.impl;
+
+import club.cookbean.sparrow.cache.NearCacheStatistics;
+import club.cookbean.sparrow.config.NearCacheConfiguration;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Desc: Bounded on-heap tier of a {@link RedisCache}. <br>
+ * Reads are lock free. Eviction is a CLOCK sweep over the map: an entry read since the hand
+ * last passed gets a second chance. <br>
+ * A read through to redis first parks a placeholder under the key, and only replaces that
+ * placeholder with the value read. An invalidation removes the placeholder, so a value read before a
+ * concurrent write is dropped instead of outliving the write.
+ */
+class NearCache implements NearCacheStatistics {
+
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final long maxEntries;
+    private final long maxWeight;
+    private final long ttlNanos;
+
+    private final AtomicLong size = new AtomicLong();
+    private final AtomicLong weight = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private final Lock evictionLock = new ReentrantLock();
+    // guarded by evictionLock
+    private Iterator<Entry> hand;
+
+    NearCache(NearCacheConfiguration configuration) {
+        this.maxEntries = configuration.getMaxEntries() > 0 ? configuration.getMaxEntries() : Long.MAX_VALUE;
+        this.maxWeight = configuration.getMaxWeight() > 0 ? configuration.getMaxWeight() : Long.MAX_VALUE;
+        this.ttlNanos = configuration.getTtlUnit().toNanos(configuration.getTtl());
+    }
+
+    /**
+     * @return the value held for the key, null on a miss
+     */
+    String get(String key) {
+        Entry entry = entries.get(key);
+        if (null != entry && !entry.isPlaceholder()) {
+            if (entry.expireAt - System.nanoTime() > 0) {
+                entry.accessed = true;
+                hits.incrementAndGet();
+                return entry.value;
+            }
+            remove(key, entry);
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Announce a read through to redis
+     * @return the token to complete the read with, null if another read of the key is in flight
+     */
+    Object startLoad(String key) {
+        Entry placeholder = new Entry(key, null, 0, 0);
+        return null == entries.putIfAbsent(key, placeholder) ? placeholder : null;
+    }
+
+    /**
+     * Keep the value read through to redis, unless the key was invalidated meanwhile
+     * @param token token from {@link #startLoad(String)}, may be null
+     * @param value value read, null if absent
+     * @param ttlMillis TTL the value has left in redis, negative if it has none
+     */
+    void completeLoad(String key, Object token, String value, long ttlMillis) {
+        if (null == token) {
+            return;
+        }
+        if (null == value || ttlMillis == 0) {
+            entries.remove(key, token);
+            return;
+        }
+        long ttl = ttlMillis > 0 ? Math.min(ttlNanos, TimeUnit.MILLISECONDS.toNanos(ttlMillis)) : ttlNanos;
+        Entry entry = new Entry(key, value, key.length() + value.length(), System.nanoTime() + ttl);
+        if (entries.replace(key, (Entry) token, entry)) {
+            size.incrementAndGet();
+            weight.addAndGet(entry.weight);
+            if (size.get() > maxEntries || weight.get() > maxWeight) {
+                evict();
+            }
+        }
+    }
+
+    void cancelLoad(String key, Object token) {
+        if (null != token) {
+            entries.remove(key, token);
+        }
+    }
+
+    void invalidate(String key) {
+        Entry entry = entries.remove(key);
+        if (null != entry && !entry.isPlaceholder()) {
+            removed(entry);
+            invalidations.incrementAndGet();
+        }
+    }
+
+    void invalidate(Iterable<String> keys) {
+        for (String key : keys) {
+            invalidate(key);
+        }
+    }
+
+    void clear() {
+        for (String key : entries.keySet()) {
+            invalidate(key);
+        }
+    }
+
+    private void remove(String key, Entry entry) {
+        if (entries.remove(key, entry)) {
+            removed(entry);
+        }
+    }
+
+    private void removed(Entry entry) {
+        size.decrementAndGet();
+        weight.addAndGet(-entry.weight);
+    }
+
+    private void evict() {
+        // one sweeper at a time, the others go on and leave the bounds to it
+        if (!evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            long scanned = 0;
+            while (size.get() > maxEntries || weight.get() > maxWeight) {
+                if (null == hand || !hand.hasNext()) {
+                    hand = entries.values().iterator();
+                    if (!hand.hasNext()) {
+                        return;
+                    }
+                }
+                Entry entry = hand.next();
+                if (entry.isPlaceholder()) {
+                    continue;
+                }
+                // readers may keep flagging entries, give up on second chances after two rounds
+                boolean secondChance = entry.accessed && scanned++ < 2 * size.get()
+                        && entry.expireAt - System.nanoTime() > 0;
+                if (secondChance) {
+                    entry.accessed = false;
+                } else if (entries.remove(entry.key, entry)) {
+                    removed(entry);
+                    evictions.incrementAndGet();
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    @Override
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    @Override
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    @Override
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    @Override
+    public long getInvalidationCount() {
+        return invalidations.get();
+    }
+
+    @Override
+    public long getSize() {
+        return size.get();
+    }
+
+    @Override
+    public long getWeight() {
+        return weight.get();
+    }
+
+    private static final class Entry {
+        private final String key;
+        private final String value;
+        private final long weight;
+        private final long expireAt;
+        private volatile boolean accessed;
+
+        Entry(String key, String value, long weight, long expireAt) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+            this.expireAt = expireAt;
+        }
+
+        boolean isPlaceholder() {
+            return null == value;
+        }
+    }
+}
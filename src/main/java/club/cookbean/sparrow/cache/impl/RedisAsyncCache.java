@@ -0,0 +1,897 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.cache.impl;
+
+import club.cookbean.sparrow.cache.AsyncCache;
+import club.cookbean.sparrow.cache.Cache;
+import club.cookbean.sparrow.cache.CacheFuture;
+import club.cookbean.sparrow.exception.CacheLoadingException;
+import club.cookbean.sparrow.exception.CacheWritingException;
+import club.cookbean.sparrow.exception.StorageAccessException;
+import club.cookbean.sparrow.loader.CacheLoader;
+import club.cookbean.sparrow.redis.Cacheable;
+import club.cookbean.sparrow.storage.AsyncStorage;
+import club.cookbean.sparrow.storage.ExpiringValue;
+import club.cookbean.sparrow.storage.Storage;
+import club.cookbean.sparrow.storage.StorageFuture;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * {@link AsyncCache} of a {@link RedisCache}. Over an {@link AsyncStorage} the basic, list and set operations
+ * send their commands without waiting, the reply completes the future on the thread reading it, near-cache
+ * fill, decompression and tombstone filtering included. Loader and writer operations, and every operation of a
+ * storage without a reply path, run the blocking {@link Cache} call on an executor taken from the
+ * {@link club.cookbean.sparrow.service.ExecutionService}.
+ */
+public class RedisAsyncCache implements AsyncCache {
+
+    private static final StorageFuture.Stage<String, String> NO_TOMBSTONE = new StorageFuture.Stage<String, String>() {
+        @Override
+        public String apply(String value) {
+            return Storage.TOMBSTONE.equals(value) ? null : value;
+        }
+    };
+    private static final StorageFuture.Stage<byte[], byte[]> NO_TOMBSTONE_BYTES = new StorageFuture.Stage<byte[], byte[]>() {
+        @Override
+        public byte[] apply(byte[] value) {
+            return Arrays.equals(RedisCache.TOMBSTONE_BYTES, value) ? null : value;
+        }
+    };
+    private static final StorageFuture.Stage<Map<String, String>, Map<String, String>> NO_TOMBSTONES =
+            new StorageFuture.Stage<Map<String, String>, Map<String, String>>() {
+                @Override
+                public Map<String, String> apply(Map<String, String> values) {
+                    for (Map.Entry<String, String> entry : values.entrySet()) {
+                        if (Storage.TOMBSTONE.equals(entry.getValue())) {
+                            entry.setValue(null);
+                        }
+                    }
+                    return values;
+                }
+            };
+    private static final StorageFuture.Stage<byte[], ByteBuffer> READ_ONLY_BUFFER = new StorageFuture.Stage<byte[], ByteBuffer>() {
+        @Override
+        public ByteBuffer apply(byte[] value) {
+            return null == value ? null : ByteBuffer.wrap(value).asReadOnlyBuffer();
+        }
+    };
+
+    private final Cache cache;
+    private final ExecutorService executor;
+    private final RedisCache redisCache;
+    private final AsyncStorage storage;
+
+    RedisAsyncCache(Cache cache, ExecutorService executor) {
+        this.cache = cache;
+        this.executor = executor;
+        this.redisCache = cache instanceof RedisCache ? (RedisCache) cache : null;
+        this.storage = null != redisCache && redisCache.storage instanceof AsyncStorage
+                && ((AsyncStorage) redisCache.storage).isAsync() ? (AsyncStorage) redisCache.storage : null;
+    }
+
+    /**
+     * A storage command sent without waiting, its reply completes the cache future
+     */
+    private interface Command<V> {
+
+        StorageFuture<V> send();
+    }
+
+    // -----------------------  basic operation -----------------------
+    @Override
+    public CacheFuture<Boolean> exist(final String key) {
+        if (null != storage) {
+            return load(new Command<Boolean>() {
+                @Override
+                public StorageFuture<Boolean> send() {
+                    RedisCache.checkNonNull(key);
+                    return storage.existAsync(key);
+                }
+            }, "Get exception");
+        }
+        return submit(new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                return cache.exist(key);
+            }
+        });
+    }
+
+    @Override
+    public CacheFuture<Boolean> expire(final String key, final long millisecond) {
+        if (null != storage) {
+            return write(new Command<Boolean>() {
+                @Override
+                public StorageFuture<Boolean> send() {
+                    RedisCache.checkNonNull(key);
+                    return storage.expireAsync(key, millisecond);
+                }
+            }, "Expire exception", key);
+        }
+        return submit(new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                return cache.expire(key, millisecond);
+            }
+        });
+    }
+
+    @Override
+    public CacheFuture<Boolean> expireAt(final String key, final long timestamp) {
+        if (null != storage) {
+            return write(new Command<Boolean>() {
+                @Override
+                public StorageFuture<Boolean> send() {
+                    RedisCache.checkNonNull(key);
+                    return storage.expireAtAsync(key, timestamp);
+                }
+            }, "ExpireAt exception", key);
+        }
+        return submit(new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                return cache.expireAt(key, timestamp);
+            }
+        });
+    }
+
+    @Override
+    public CacheFuture<Void> delete(final String key) {
+        if (null != storage) {
+            return write(new Command<Void>() {
+                @Override
+                public StorageFuture<Void> send() {
+                    RedisCache.checkNonNull(key);
+                    return storage.deleteAsync(key);
+                }
+            }, "Delete exception", key);
+        }
+        return submit(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                cache.delete(key);
+                return null;
+            }
+        });
+    }
+
+    @Override
+    public CacheFuture<Void> delete(final String... keys) {
+        if (null != storage) {
+            return write(new Command<Void>() {
+                @Override
+                public StorageFuture<Void> send() {
+                    RedisCache.checkNonNull(keys);
+                    return storage.deleteAsync(keys);
+                }
+            }, "Multiple delete exception", keys);
+        }
+        return submit(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                cache.delete(keys);
+                return null;
+            }
+        });
+    }
+
+    @Override
+    public CacheFuture<String> get(final String key) {
+        if (null != storage) {
+            return load(new Command<String>() {
+                @Override
+                public StorageFuture<String> send() {
+                    RedisCache.checkNonNull(key);
+                    NearCache nearCache = redisCache.nearCache;
+                    return null == nearCache ? storage.getAsync(key).then(NO_TOMBSTONE) : nearGet(nearCache, key);
+                }
+            }, "Get exception");
+        }
+        return submit(new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                return cache.get(key);
+            }
+        });
+    }
+
+    @Override
+    public CacheFuture<byte[]> getBytes(final String key) {
+        if (null != storage) {
+            return load(new Command<byte[]>() {
+                @Override
+                public StorageFuture<byte[]> send() {
+                    RedisCache.checkNonNull(key);
+                    return storage.getBytesAsync(key).then(NO_TOMBSTONE_BYTES);
+                }
+            }, "Get bytes exception");
+        }
+        return submit(new Callable<byte[]>() {
+            @Override
+            public byte[] call() throws Exception {
+                return cache.getBytes(key);
+            }
+        });
+    }
+
+    @Override
+    public CacheFuture<ByteBuffer> getByteBuffer(final String key) {
+        if (null != storage) {
+            return load(new Command<ByteBuffer>() {
+                @Override
+                public StorageFuture<ByteBuffer> send() {
+                    RedisCache.checkNonNull(key);
+                    return storage.getBytesAsync(key).then(NO_TOMBSTONE_BYTES).then(READ_ONLY_BUFFER);
+                }
+            }, "Get byte buffer exception");
+        }
+        return submit(new Callable<ByteBuffer>() {
+            @Override
+            public ByteBuffer call() throws Exception {
+                return cache.getByteBuffer(key);
+            }
+        });
+    }
+
+    @Override
+    public CacheFuture<Boolean> set(final String key, final Cacheable value) {
+        if (null != storage) {
+            return write(new Command<Boolean>() {
+                @Override
+                public StorageFuture<Boolean> send() {
+                    RedisCache.checkNonNull(key, value);
+                    redisCache.keyWritten(key);
+                    return storage.setAsync(key, value);
+                }
+            }, "Set exception", key);
+        }
+        return submit(new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                return cache.set(key, value);
+            }
+        });
+    }
+
+    @Override
+    public CacheFuture<Map<String, String>> getAll(final Collection<String> keys) {
+        if (null != storage) {
+            return load(new Command<Map<String, String>>() {
+                @Override
+                public StorageFuture<Map<String, String>> send() {
+                    RedisCache.checkNonNull(keys);
+                    for (String key : keys) {
+                        RedisCache.checkNonNull(key);
+                    }
+                    NearCache nearCache = redisCache.nearCache;
+                    return null == nearCache ? storage.getAllAsync(keys).then(NO_TOMBSTONES) : nearGetAll(nearCache, keys);
+                }
+            }, "Get all exception");
+        }
+        return submit(new Callable<Map<String, String>>() {
+            @Override
+            public Map<String, String> call() throws Exception {
+                return cache.getAll(keys);
+            }
+        });
+    }
+
+    @Override
+    public CacheFuture<Set<String>> setAll(final Map<String, ? extends Cacheable> values) {
+        if (null != storage) {
+            return write(new Command<Set<String>>() {
+                @Override
+                public StorageFuture<Set<String>> send() {
+                    RedisCache.checkNonNull(values);
+                    for (Map.Entry<String, ? extends Cacheable> entry : values.entrySet()) {
+                        RedisCache.checkNonNull(entry.getKey(), entry.getValue());
+                    }
+                    for (String key : values.keySet()) {
+                        redisCache.keyWritten(key);
+                    }
+                    return storage.setAllAsync(values);
+                }
+            }, "Set all exception", keys(values));
+        }
+        return submit(new Callable<Set<String>>() {
+            @Override
+            public Set<String> call() throws Exception {
+                return cache.setAll(values);
+            }
+        });
+    }
+
+    // -----------------------  list operation -----------------------
+    @Override
+    public CacheFuture<Long> llen(final String key) {
+        if (null != storage) {
+            return load(new Command<Long>() {
+                @Override
+                public StorageFuture<Long> send() {
+                    RedisCache.checkNonNull(key);
+                    return storage.llenAsync(key);
+                }
+            }, "List length exception");
+        }
+        return submit(new Callable<Long>() {
+            @Override
+            public Long call() throws Exception {
+                return cache.llen(key);
+            }
+        });
+    }
+
+    @Override
+    public CacheFuture<List<String>> lrang(final String key, final long start, final long end) {
+        if (null != storage) {
+            return load(new Command<List<String>>() {
+                @Override
+                public StorageFuture<List<String>> send() {
+                    RedisCache.checkNonNull(key);
+                    return storage.lrangAsync(key, start, end);
+                }
+            }, "List range exception");
+        }
+        return submit(new Callable<List<String>>() {
+            @Override
+            public List<String> call() throws Exception {
+                return cache.lrang(key, start, end);
+            }
+        });
+    }
+
+    @Override
+    public CacheFuture<String> lindex(final String key, final long index) {
+        if (null != storage) {
+            return load(new Command<String>() {
+                @Override
+                public StorageFuture<String> send() {
+                    RedisCache.checkNonNull(key);
+                    return storage.lindexAsync(key, index);
+                }
+            }, "List index exception");
+        }
+        return submit(new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                return cache.lindex(key, index);
+            }
+        });
+    }
+
+    @Override
+    public CacheFuture<Long> lrem(final String key, final int count, final String valueToRemove) {
+        if (null != storage) {
+            return write(new Command<Long>() {
+                @Override
+                public StorageFuture<Long> send() {
+                    RedisCache.checkNonNull(key);
+                    return storage.lremAsync(key, count, valueToRemove);
+                }
+            }, "List remove exception");
+        }
+        return submit(new Callable<Long>() {
+            @Override
+            public Long call() throws Exception {
+                return cache.lrem(key, count, valueToRemove);
+            }
+        });
+    }
+
+    @Override
+    public CacheFuture<Long> lpush(final String key, final Cacheable... values) {
+        if (null != storage) {
+            return write(new Command<Long>() {
+                @Override
+                public StorageFuture<Long> send() {
+                    RedisCache.checkNonNull(key, values);
+                    redisCache.keyWritten(key);
+                    return storage.lpushAsync(key, values);
+                }
+            }, "List left push exception");
+        }
+        return submit(new Callable<Long>() {
+            @Override
+            public Long call() throws Exception {
+                return cache.lpush(key, values);
+            }
+        });
+    }
+
+    @Override
+    public CacheFuture<String> lpop(final String key) {
+        if (null != storage) {
+            return write(new Command<String>() {
+                @Override
+                public StorageFuture<String> send() {
+                    RedisCache.checkNonNull(key);
+                    return storage.lpopAsync(key);
+                }
+            }, "List left pop exception");
+        }
+        return submit(new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                return cache.lpop(key);
+            }
+        });
+    }
+
+    @Override
+    public CacheFuture<Long> rpush(final String key, final Cacheable... values) {
+        if (null != storage) {
+            return write(new Command<Long>() {
+                @Override
+                public StorageFuture<Long> send() {
+                    RedisCache.checkNonNull(key, values);
+                    redisCache.keyWritten(key);
+                    return storage.rpushAsync(key, values);
+                }
+            }, "List right push exception");
+        }
+        return submit(new Callable<Long>() {
+            @Override
+            public Long call() throws Exception {
+                return cache.rpush(key, values);
+            }
+        });
+    }
+
+    @Override
+    public CacheFuture<String> rpop(final String key) {
+        if (null != storage) {
+            return write(new Command<String>() {
+                @Override
+                public StorageFuture<String> send() {
+                    RedisCache.checkNonNull(key);
+                    return storage.rpopAsync(key);
+                }
+            }, "List right pop exception");
+        }
+        return submit(new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                return cache.rpop(key);
+            }
+        });
+    }
+
+    // -----------------------  set operation -----------------------
+    @Override
+    public CacheFuture<Long> scard(final String key) {
+        if (null != storage) {
+            return load(new Command<Long>() {
+                @Override
+                public StorageFuture<Long> send() {
+                    RedisCache.checkNonNull(key);
+                    return storage.scardAsync(key);
+                }
+            }, "Set scard exception");
+        }
+        return submit(new Callable<Long>() {
+            @Override
+            public Long call() throws Exception {
+                return cache.scard(key);
+            }
+        });
+    }
+
+    @Override
+    public CacheFuture<Boolean> sismember(final String key, final Cacheable value) {
+        if (null != storage) {
+            return load(new Command<Boolean>() {
+                @Override
+                public StorageFuture<Boolean> send() {
+                    RedisCache.checkNonNull(key);
+                    return storage.sismemberAsync(key, value);
+                }
+            }, "Set sismember exception");
+        }
+        return submit(new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                return cache.sismember(key, value);
+            }
+        });
+    }
+
+    @Override
+    public CacheFuture<Set<String>> smembers(final String key) {
+        if (null != storage) {
+            return load(new Command<Set<String>>() {
+                @Override
+                public StorageFuture<Set<String>> send() {
+                    RedisCache.checkNonNull(key);
+                    return storage.smembersAsync(key);
+                }
+            }, "Set smembers exception");
+        }
+        return submit(new Callable<Set<String>>() {
+            @Override
+            public Set<String> call() throws Exception {
+                return cache.smembers(key);
+            }
+        });
+    }
+
+    @Override
+    public CacheFuture<Long> sadd(final String key, final Cacheable... values) {
+        if (null != storage) {
+            return load(new Command<Long>() {
+                @Override
+                public StorageFuture<Long> send() {
+                    RedisCache.checkNonNull(key);
+                    redisCache.keyWritten(key);
+                    return storage.saddAsync(key, values);
+                }
+            }, "Set sadd exception");
+        }
+        return submit(new Callable<Long>() {
+            @Override
+            public Long call() throws Exception {
+                return cache.sadd(key, values);
+            }
+        });
+    }
+
+    @Override
+    public CacheFuture<Set<String>> sunion(final String... keys) {
+        if (null != storage) {
+            return load(new Command<Set<String>>() {
+                @Override
+                public StorageFuture<Set<String>> send() {
+                    RedisCache.checkNonNull(keys);
+                    return storage.sunionAsync(keys);
+                }
+            }, "Set sunion exception");
+        }
+        return submit(new Callable<Set<String>>() {
+            @Override
+            public Set<String> call() throws Exception {
+                return cache.sunion(keys);
+            }
+        });
+    }
+
+    // -----------------------  loader operation -----------------------
+    @Override
+    public CacheFuture<String> getWithLoader(final String key) {
+        return submit(new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                return cache.getWithLoader(key);
+            }
+        });
+    }
+
+    @Override
+    public CacheFuture<String> getWithLoader(final String key, final CacheLoader definedCacheLoader) {
+        return submit(new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                return cache.getWithLoader(key, definedCacheLoader);
+            }
+        });
+    }
+
+    @Override
+    public CacheFuture<Map<String, String>> getAllWithLoader(final Collection<String> keys) {
+        return submit(new Callable<Map<String, String>>() {
+            @Override
+            public Map<String, String> call() throws Exception {
+                return cache.getAllWithLoader(keys);
+            }
+        });
+    }
+
+    @Override
+    public CacheFuture<Map<String, String>> getAllWithLoader(final Collection<String> keys, final CacheLoader definedCacheLoader) {
+        return submit(new Callable<Map<String, String>>() {
+            @Override
+            public Map<String, String> call() throws Exception {
+                return cache.getAllWithLoader(keys, definedCacheLoader);
+            }
+        });
+    }
+
+    @Override
+    public CacheFuture<List<String>> lrangeWithLoader(final String key, final long start, final long end) {
+        return submit(new Callable<List<String>>() {
+            @Override
+            public List<String> call() throws Exception {
+                return cache.lrangeWithLoader(key, start, end);
+            }
+        });
+    }
+
+    @Override
+    public CacheFuture<List<String>> lrangeWithLoader(final String key, final long start, final long end, final CacheLoader definedCacheLoader) {
+        return submit(new Callable<List<String>>() {
+            @Override
+            public List<String> call() throws Exception {
+                return cache.lrangeWithLoader(key, start, end, definedCacheLoader);
+            }
+        });
+    }
+
+    @Override
+    public CacheFuture<Set<String>> smembersWithLoader(final String key) {
+        return submit(new Callable<Set<String>>() {
+            @Override
+            public Set<String> call() throws Exception {
+                return cache.smembersWithLoader(key);
+            }
+        });
+    }
+
+    @Override
+    public CacheFuture<Set<String>> smembersWithLoader(final String key, final CacheLoader definedCacheLoader) {
+        return submit(new Callable<Set<String>>() {
+            @Override
+            public Set<String> call() throws Exception {
+                return cache.smembersWithLoader(key, definedCacheLoader);
+            }
+        });
+    }
+
+    // -----------------------  writer operation -----------------------
+    @Override
+    public CacheFuture<Void> deleteWithWriter(final String key) {
+        return submit(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                cache.deleteWithWriter(key);
+                return null;
+            }
+        });
+    }
+
+    @Override
+    public CacheFuture<Void> deleteAllWithWriter(final String... keys) {
+        return submit(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                cache.deleteAllWithWriter(keys);
+                return null;
+            }
+        });
+    }
+
+    @Override
+    public CacheFuture<Void> setWithWriter(final String key, final Cacheable value) {
+        return submit(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                cache.setWithWriter(key, value);
+                return null;
+            }
+        });
+    }
+
+    @Override
+    public CacheFuture<Long> lpushWithWriter(final String key, final Cacheable... values) {
+        return submit(new Callable<Long>() {
+            @Override
+            public Long call() throws Exception {
+                return cache.lpushWithWriter(key, values);
+            }
+        });
+    }
+
+    @Override
+    public CacheFuture<Long> saddWithWriter(final String key, final Cacheable... values) {
+        return submit(new Callable<Long>() {
+            @Override
+            public Long call() throws Exception {
+                return cache.saddWithWriter(key, values);
+            }
+        });
+    }
+
+    @Override
+    public Cache getCache() {
+        return cache;
+    }
+
+    ExecutorService getExecutor() {
+        return executor;
+    }
+
+    private <V> CacheFuture<V> load(Command<V> command, final String message) {
+        final CacheFutureTask<V> future = new CacheFutureTask<>();
+        StorageFuture<V> reply;
+        try {
+            redisCache.statusTransitioner.checkAvailable();
+            reply = command.send();
+        } catch (RuntimeException e) {
+            future.fail(e);
+            return future;
+        }
+        reply.addCallback(new StorageFuture.Callback<V>() {
+            @Override
+            public void onSuccess(V value) {
+                future.complete(value);
+            }
+
+            @Override
+            public void onFailure(StorageAccessException cause) {
+                future.fail(new CacheLoadingException(message, cause));
+            }
+        });
+        return future;
+    }
+
+    /**
+     * @param changedKeys dropped from the near-cache once the reply is in, whatever it is
+     */
+    private <V> CacheFuture<V> write(Command<V> command, final String message, final String... changedKeys) {
+        final CacheFutureTask<V> future = new CacheFutureTask<>();
+        StorageFuture<V> reply;
+        try {
+            redisCache.statusTransitioner.checkAvailable();
+            reply = command.send();
+        } catch (RuntimeException e) {
+            future.fail(e);
+            return future;
+        }
+        reply.addCallback(new StorageFuture.Callback<V>() {
+            @Override
+            public void onSuccess(V value) {
+                keysChanged(changedKeys);
+                future.complete(value);
+            }
+
+            @Override
+            public void onFailure(StorageAccessException cause) {
+                keysChanged(changedKeys);
+                future.fail(new CacheWritingException(0 == changedKeys.length
+                        ? message : message + ". [keys=" + Arrays.toString(changedKeys) + "]", cause));
+            }
+        });
+        return future;
+    }
+
+    private static String[] keys(Map<String, ?> values) {
+        return null == values ? new String[0] : values.keySet().toArray(new String[values.size()]);
+    }
+
+    private void keysChanged(String[] keys) {
+        for (String key : keys) {
+            redisCache.keyChanged(key);
+        }
+    }
+
+    /**
+     * Read a value through the near-cache, filled from the reply with the TTL the value has left in redis
+     */
+    private StorageFuture<String> nearGet(final NearCache nearCache, final String key) {
+        String value = nearCache.get(key);
+        if (null != value) {
+            return StorageFuture.completed(value);
+        }
+        final Object token = nearCache.startLoad(key);
+        final StorageFuture<String> result = new StorageFuture<>();
+        storage.getWithTtlAsync(key).addCallback(new StorageFuture.Callback<ExpiringValue>() {
+            @Override
+            public void onSuccess(ExpiringValue stored) {
+                String value = null;
+                Object loading = token;
+                try {
+                    if (null != stored && !Storage.TOMBSTONE.equals(stored.getValue())) {
+                        nearCache.completeLoad(key, loading, stored.getValue(), stored.getTtlMillis());
+                        loading = null;
+                        value = stored.getValue();
+                    }
+                } catch (RuntimeException e) {
+                    result.fail(new StorageAccessException(e));
+                    return;
+                } finally {
+                    nearCache.cancelLoad(key, loading);
+                }
+                result.complete(value);
+            }
+
+            @Override
+            public void onFailure(StorageAccessException cause) {
+                nearCache.cancelLoad(key, token);
+                result.fail(cause);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Local hits, the missed keys in one go through the same placeholders as a single key read
+     */
+    private StorageFuture<Map<String, String>> nearGetAll(final NearCache nearCache, Collection<String> keys) {
+        final Map<String, String> values = new LinkedHashMap<>(keys.size() * 2);
+        final List<String> missingKeys = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            String value = nearCache.get(key);
+            values.put(key, value);
+            if (null == value) {
+                missingKeys.add(key);
+            }
+        }
+        if (missingKeys.isEmpty()) {
+            return StorageFuture.completed(values);
+        }
+        final Map<String, Object> tokens = new HashMap<>(missingKeys.size() * 2);
+        for (String key : missingKeys) {
+            Object token = nearCache.startLoad(key);
+            if (null != token) {
+                tokens.put(key, token);
+            }
+        }
+        final StorageFuture<Map<String, String>> result = new StorageFuture<>();
+        storage.getAllWithTtlAsync(missingKeys).addCallback(new StorageFuture.Callback<Map<String, ExpiringValue>>() {
+            @Override
+            public void onSuccess(Map<String, ExpiringValue> stored) {
+                try {
+                    for (String key : missingKeys) {
+                        ExpiringValue value = stored.get(key);
+                        if (null == value || Storage.TOMBSTONE.equals(value.getValue())) {
+                            values.put(key, null);
+                            continue;
+                        }
+                        values.put(key, value.getValue());
+                        nearCache.completeLoad(key, tokens.remove(key), value.getValue(), value.getTtlMillis());
+                    }
+                } catch (RuntimeException e) {
+                    result.fail(new StorageAccessException(e));
+                    return;
+                } finally {
+                    cancelLoads(nearCache, tokens);
+                }
+                result.complete(values);
+            }
+
+            @Override
+            public void onFailure(StorageAccessException cause) {
+                cancelLoads(nearCache, tokens);
+                result.fail(cause);
+            }
+        });
+        return result;
+    }
+
+    private static void cancelLoads(NearCache nearCache, Map<String, Object> tokens) {
+        for (Map.Entry<String, Object> token : tokens.entrySet()) {
+            nearCache.cancelLoad(token.getKey(), token.getValue());
+        }
+    }
+
+    private <V> CacheFuture<V> submit(Callable<V> operation) {
+        CacheFutureTask<V> future = new CacheFutureTask<>(operation);
+        try {
+            executor.execute(future);
+        } catch (RejectedExecutionException e) {
+            future.fail(e);
+        }
+        return future;
+    }
+}
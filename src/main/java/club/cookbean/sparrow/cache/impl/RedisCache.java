@@ -24,14 +24,24 @@ import club.cookbean.sparrow.exception.CacheLoadingException;
 import club.cookbean.sparrow.exception.CacheWritingException;
 import club.cookbean.sparrow.exception.StateTransitionException;
 import club.cookbean.sparrow.exception.StorageAccessException;
+import club.cookbean.sparrow.filter.BloomFilterGuard;
 import club.cookbean.sparrow.loader.CacheLoader;
 import club.cookbean.sparrow.loader.impl.SingleCacheLoader;
 import club.cookbean.sparrow.redis.Cacheable;
+import club.cookbean.sparrow.storage.ExpiringValue;
 import club.cookbean.sparrow.storage.Storage;
 import club.cookbean.sparrow.writer.CacheWriter;
 import org.slf4j.Logger;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -42,6 +52,9 @@ import java.util.Set;
  */
 public class RedisCache implements ExtendCache {
 
+    // binary reads see the tombstone as the storage wrote it
+    static final byte[] TOMBSTONE_BYTES = Storage.TOMBSTONE.getBytes(Charset.forName("UTF-8"));
+
     protected CacheLoader cacheLoader;
     protected CacheWriter cacheWriter;
 
@@ -50,6 +63,9 @@ public class RedisCache implements ExtendCache {
     protected final Storage storage;
     protected final Logger logger;
 
+    protected BloomFilterGuard bloomFilter;
+    protected NearCache nearCache;
+
     RedisCache(CacheConfiguration cacheConfiguration,
                Storage storage,
                Logger logger,
@@ -64,6 +80,97 @@ public class RedisCache implements ExtendCache {
         this.cacheWriter = cacheWriter;
     }
 
+    void setBloomFilter(BloomFilterGuard bloomFilter) {
+        this.bloomFilter = bloomFilter;
+    }
+
+    void setNearCache(NearCache nearCache) {
+        this.nearCache = nearCache;
+    }
+
+    NearCache getNearCache() {
+        return nearCache;
+    }
+
+    /**
+     * Drop the near-cache copy of a key written or deleted through this cache
+     */
+    protected void keyChanged(String key) {
+        if (null != nearCache) {
+            nearCache.invalidate(key);
+        }
+    }
+
+    /**
+     * Read a value through the near-cache, the TTL it has left in redis bounds its local life
+     */
+    private String nearGet(String key) throws StorageAccessException {
+        String value = nearCache.get(key);
+        if (null != value) {
+            return value;
+        }
+        Object token = nearCache.startLoad(key);
+        try {
+            ExpiringValue stored = storage.getWithTtl(key);
+            if (null == stored || Storage.TOMBSTONE.equals(stored.getValue())) {
+                return null;
+            }
+            nearCache.completeLoad(key, token, stored.getValue(), stored.getTtlMillis());
+            token = null;
+            return stored.getValue();
+        } finally {
+            nearCache.cancelLoad(key, token);
+        }
+    }
+
+    /**
+     * Read missed keys through the near-cache, the same placeholders as a single key read
+     */
+    private void nearGetAll(List<String> keys, Map<String, String> values) throws StorageAccessException {
+        Map<String, Object> tokens = new HashMap<>(keys.size() * 2);
+        for (String key : keys) {
+            Object token = nearCache.startLoad(key);
+            if (null != token) {
+                tokens.put(key, token);
+            }
+        }
+        try {
+            Map<String, ExpiringValue> stored = storage.getAllWithTtl(keys);
+            for (String key : keys) {
+                ExpiringValue value = stored.get(key);
+                if (null == value) {
+                    values.put(key, null);
+                    continue;
+                }
+                values.put(key, value.getValue());
+                if (!Storage.TOMBSTONE.equals(value.getValue())) {
+                    nearCache.completeLoad(key, tokens.remove(key), value.getValue(), value.getTtlMillis());
+                }
+            }
+        } finally {
+            for (Map.Entry<String, Object> token : tokens.entrySet()) {
+                nearCache.cancelLoad(token.getKey(), token.getValue());
+            }
+        }
+    }
+
+    /**
+     * Record a key written to redis or the backend in the bloom filter, before the
+     * value becomes visible so a concurrent read never sees it filtered out
+     */
+    protected void keyWritten(String key) {
+        if (null != bloomFilter) {
+            bloomFilter.put(key);
+        }
+    }
+
+    /**
+     * @return true if the bloom filter proves the key absent from the backend
+     */
+    protected boolean definitelyAbsent(String key) {
+        return null != bloomFilter && !bloomFilter.mightContain(key);
+    }
+
     @Override
     public boolean exist(String key) throws CacheLoadingException {
         statusTransitioner.checkAvailable();
@@ -85,6 +192,8 @@ public class RedisCache implements ExtendCache {
             return storage.expire(key, millisecond);
         } catch (StorageAccessException e) {
             throw new CacheWritingException("Expire exception. [key="+key+", duration="+millisecond+"]", e);
+        } finally {
+            keyChanged(key);
         }
     }
 
@@ -97,6 +206,8 @@ public class RedisCache implements ExtendCache {
             return storage.expireAt(key, timestamp);
         } catch (StorageAccessException e) {
             throw new CacheWritingException("ExpireAt exception. [key="+key+", timestamp="+timestamp+"]", e);
+        } finally {
+            keyChanged(key);
         }
     }
 
@@ -109,6 +220,8 @@ public class RedisCache implements ExtendCache {
             storage.delete(key);
         } catch (StorageAccessException e) {
             throw new CacheWritingException("Delete exception. [key="+key+"]", e);
+        } finally {
+            keyChanged(key);
         }
     }
 
@@ -124,6 +237,10 @@ public class RedisCache implements ExtendCache {
                 keyBuilder.append(key).append(", ");
             }
             throw new CacheWritingException("Multiple delete exception.[keys="+keyBuilder+"]", e);
+        } finally {
+            for (String key : keys) {
+                keyChanged(key);
+            }
         }
     }
 
@@ -134,21 +251,115 @@ public class RedisCache implements ExtendCache {
         checkNonNull(key);
 
         try {
-            return storage.get(key);
+            if (null != nearCache) {
+                return nearGet(key);
+            }
+            String value = storage.get(key);
+            return Storage.TOMBSTONE.equals(value) ? null : value;
         } catch (StorageAccessException e) {
             throw new CacheLoadingException("Get exception", e);
         }
     }
 
+    @Override
+    public byte[] getBytes(String key) throws CacheLoadingException {
+        statusTransitioner.checkAvailable();
+        checkNonNull(key);
+
+        try {
+            byte[] value = storage.getBytes(key);
+            return Arrays.equals(TOMBSTONE_BYTES, value) ? null : value;
+        } catch (StorageAccessException e) {
+            throw new CacheLoadingException("Get bytes exception", e);
+        }
+    }
+
+    @Override
+    public ByteBuffer getByteBuffer(String key) throws CacheLoadingException {
+        statusTransitioner.checkAvailable();
+        checkNonNull(key);
+
+        try {
+            ByteBuffer value = storage.getByteBuffer(key);
+            return null != value && value.remaining() == TOMBSTONE_BYTES.length
+                    && ByteBuffer.wrap(TOMBSTONE_BYTES).equals(value) ? null : value;
+        } catch (StorageAccessException e) {
+            throw new CacheLoadingException("Get byte buffer exception", e);
+        }
+    }
+
     @Override
     public boolean set(String key, Cacheable value) throws CacheWritingException {
         statusTransitioner.checkAvailable();
         checkNonNull(key, value);
+        keyWritten(key);
         try {
             return storage.set(key, value);
         } catch (StorageAccessException e) {
             // todo 信息不全， key， value 信息需要
             throw new CacheWritingException("Set exception", e);
+        } finally {
+            keyChanged(key);
+        }
+    }
+
+    @Override
+    public Map<String, String> getAll(Collection<String> keys) throws CacheLoadingException {
+        statusTransitioner.checkAvailable();
+        checkNonNull(keys);
+        for (String key : keys) {
+            checkNonNull(key);
+        }
+
+        try {
+            Map<String, String> values;
+            if (null != nearCache) {
+                // local hits, the rest in one go from redis
+                values = new LinkedHashMap<>(keys.size() * 2);
+                List<String> missingKeys = new ArrayList<>(keys.size());
+                for (String key : keys) {
+                    String value = nearCache.get(key);
+                    values.put(key, value);
+                    if (null == value) {
+                        missingKeys.add(key);
+                    }
+                }
+                if (!missingKeys.isEmpty()) {
+                    nearGetAll(missingKeys, values);
+                }
+            } else {
+                values = storage.getAll(keys);
+            }
+            for (Map.Entry<String, String> entry : values.entrySet()) {
+                if (Storage.TOMBSTONE.equals(entry.getValue())) {
+                    entry.setValue(null);
+                }
+            }
+            return values;
+        } catch (StorageAccessException e) {
+            throw new CacheLoadingException("Get all exception. [size="+keys.size()+"]", e);
+        }
+    }
+
+    @Override
+    public Set<String> setAll(Map<String, ? extends Cacheable> values) throws CacheWritingException {
+        statusTransitioner.checkAvailable();
+        checkNonNull(values);
+        for (Map.Entry<String, ? extends Cacheable> entry : values.entrySet()) {
+            checkNonNull(entry.getKey(), entry.getValue());
+        }
+        for (String key : values.keySet()) {
+            keyWritten(key);
+        }
+
+        try {
+            return storage.setAll(values);
+        } catch (StorageAccessException e) {
+            throw new CacheWritingException("Set all exception. [size="+values.size()+"]", e);
+        } finally {
+            for (String key : values.keySet()) {
+                keyChanged(key);
+            }
         }
     }
 
@@ -202,6 +413,7 @@ public class RedisCache implements ExtendCache {
     public boolean lpush(String key, Cacheable value) throws CacheWritingException {
         statusTransitioner.checkAvailable();
         checkNonNull(key, value);
+        keyWritten(key);
         try {
             return storage.lpush(key, value);
         } catch (StorageAccessException e) {
@@ -213,6 +425,7 @@ public class RedisCache implements ExtendCache {
     public long lpush(String key, Cacheable... values) throws CacheWritingException {
         statusTransitioner.checkAvailable();
         checkNonNull(key, values);
+        keyWritten(key);
         try {
             return storage.lpush(key, values);
         } catch (StorageAccessException e) {
@@ -236,6 +449,7 @@ public class RedisCache implements ExtendCache {
     public boolean rpush(String key, Cacheable value) throws CacheWritingException {
         statusTransitioner.checkAvailable();
         checkNonNull(key, value);
+        keyWritten(key);
         try {
             return storage.rpush(key, value);
         } catch (StorageAccessException e) {
@@ -247,6 +461,7 @@ public class RedisCache implements ExtendCache {
     public long rpush(String key, Cacheable... values) throws CacheWritingException {
         statusTransitioner.checkAvailable();
         checkNonNull(key, values);
+        keyWritten(key);
         try {
             return storage.rpush(key, values);
         } catch (StorageAccessException e) {
@@ -304,6 +519,7 @@ public class RedisCache implements ExtendCache {
     public boolean sadd(String key, Cacheable value) throws CacheWritingException {
         statusTransitioner.checkAvailable();
         checkNonNull(key);
+        keyWritten(key);
         try {
             return storage.sadd(key, value);
         } catch (StorageAccessException e) {
@@ -315,6 +531,7 @@ public class RedisCache implements ExtendCache {
     public long sadd(String key, Cacheable... values) throws CacheWritingException {
         statusTransitioner.checkAvailable();
         checkNonNull(key);
+        keyWritten(key);
         try {
             return storage.sadd(key, values);
         } catch (StorageAccessException e) {
@@ -346,6 +563,16 @@ public class RedisCache implements ExtendCache {
         throw new UnsupportedOperationException("RedisCache is not support loader function");
     }
 
+    @Override
+    public Map<String, String> getAllWithLoader(Collection<String> keys) throws CacheLoadingException {
+        throw new UnsupportedOperationException("RedisCache is not support loader function");
+    }
+
+    @Override
+    public Map<String, String> getAllWithLoader(Collection<String> keys, CacheLoader definedCacheLoader) throws CacheLoadingException {
+        throw new UnsupportedOperationException("RedisCache is not support loader function");
+    }
+
     @Override
     public List<String> lrangeWithLoader(String key, long start, long end) throws CacheLoadingException {
         throw new UnsupportedOperationException("RedisCache is not support loader function");
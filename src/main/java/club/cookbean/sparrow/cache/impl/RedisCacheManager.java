@@ -21,20 +21,40 @@ import club.cookbean.sparrow.config.impl.BaseCacheConfiguration;
 import club.cookbean.sparrow.config.impl.DefaultConfiguration;
 import club.cookbean.sparrow.config.impl.StorageConfigurationImpl;
 import club.cookbean.sparrow.exception.StateTransitionException;
+import club.cookbean.sparrow.filter.BloomFilter;
+import club.cookbean.sparrow.filter.BloomFilterGuard;
+import club.cookbean.sparrow.filter.impl.MemoryBloomFilter;
+import club.cookbean.sparrow.filter.impl.RedisBloomFilter;
 import club.cookbean.sparrow.listener.CacheManagerListener;
+import club.cookbean.sparrow.loader.BulkCacheLoader;
 import club.cookbean.sparrow.loader.CacheLoader;
+import club.cookbean.sparrow.loader.impl.BatchingCacheLoader;
 import club.cookbean.sparrow.provider.CacheLoaderProvider;
 import club.cookbean.sparrow.provider.CacheWriterProvider;
 import club.cookbean.sparrow.provider.WriteBehindProvider;
 import club.cookbean.sparrow.redis.RedisResource;
+import club.cookbean.sparrow.serializer.Serializer;
+import club.cookbean.sparrow.serializer.impl.ByteArraySerializer;
+import club.cookbean.sparrow.serializer.impl.CompactSerializer;
+import club.cookbean.sparrow.serializer.impl.StringSerializer;
 import club.cookbean.sparrow.service.CacheManagerProviderService;
+import club.cookbean.sparrow.service.ExecutionService;
 import club.cookbean.sparrow.service.Service;
 import club.cookbean.sparrow.service.impl.DefaultCacheManagerProviderService;
 import club.cookbean.sparrow.storage.Storage;
 import club.cookbean.sparrow.storage.StorageSupport;
+import club.cookbean.sparrow.storage.compress.CompressingStorage;
+import club.cookbean.sparrow.storage.compress.CompressionStatistics;
+import club.cookbean.sparrow.storage.compress.ValueCompressor;
+import club.cookbean.sparrow.storage.invalidation.InvalidatingStorage;
+import club.cookbean.sparrow.storage.invalidation.InvalidationBus;
 import club.cookbean.sparrow.util.ClassLoading;
+import club.cookbean.sparrow.util.ExecutorUtil;
 import club.cookbean.sparrow.util.ServiceUtils;
 import club.cookbean.sparrow.writer.CacheWriter;
+import club.cookbean.sparrow.writer.BackpressureStatistics;
+import club.cookbean.sparrow.writer.DeadLetterQueue;
+import club.cookbean.sparrow.writer.impl.StripedWriteBehind;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -43,6 +63,9 @@ import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
 
 public class RedisCacheManager implements InternalCacheManager {
     private static final Logger LOGGER = LoggerFactory.getLogger(RedisCacheManager.class);
@@ -57,6 +80,7 @@ public class RedisCacheManager implements InternalCacheManager {
     protected final ServiceLocator serviceLocator;
 
     private final ConcurrentMap<String, CacheHolder> caches = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, RedisAsyncCache> asyncCaches = new ConcurrentHashMap<>();
 
     private final CopyOnWriteArrayList<CacheManagerListener> listeners = new CopyOnWriteArrayList<>();
 
@@ -97,6 +121,7 @@ public class RedisCacheManager implements InternalCacheManager {
                 */
                 .with(CacheWriterProvider.class)
                 .with(WriteBehindProvider.class)
+                .with(ExecutionService.class)
                 /*.with(CacheEventDispatcherFactory.class)
                 .with(CacheEventListenerProvider.class)
                 // TODO 暂时不支持 eventdispathcher 和 eventlistener
@@ -239,7 +264,25 @@ public class RedisCacheManager implements InternalCacheManager {
         final CacheLoader loaderDecorator;
         if (null != cacheLoaderProvider) {
             final CacheLoader cacheLoader = cacheLoaderProvider.createCacheLoader(alias, config);
-            loaderDecorator = cacheLoader;
+            LoadBatchingConfiguration loadBatchingConfiguration = ServiceUtils.findSingletonAmongst(
+                    LoadBatchingConfiguration.class,
+                    config.getServiceConfigurations().toArray());
+            if (null == cacheLoader || null == loadBatchingConfiguration) {
+                loaderDecorator = cacheLoader;
+            } else {
+                if (!(cacheLoader instanceof BulkCacheLoader)) {
+                    throw new IllegalStateException("Load batching requires a BulkCacheLoader, got " + cacheLoader.getClass().getName());
+                }
+                final BatchingCacheLoader batchingCacheLoader = new BatchingCacheLoader(
+                        serviceLocator.getService(ExecutionService.class), loadBatchingConfiguration, (BulkCacheLoader) cacheLoader);
+                loaderDecorator = batchingCacheLoader;
+                lifeCycledList.add(new LifeCycledAdapter() {
+                    @Override
+                    public void close() throws Exception {
+                        batchingCacheLoader.stop();
+                    }
+                });
+            }
             // 判断是否配置 load behind
             /*LoadBehindConfiguration loadBehindConfiguration = ServiceUtils.findSingletonAmongst(
                     LoadBehindConfiguration.class,
@@ -310,7 +353,7 @@ public class RedisCacheManager implements InternalCacheManager {
         // TODO event listener
 
         // TODO 组装对应的 Cache 实例
-        ExtendCache cache = null;
+        RedisCache cache = null;
         if (null == loaderDecorator && null == writerDecorator) {
             cache = new RedisCache(config, storage, LoggerFactory.getLogger(RedisCache.class + "-" + alias), null, null);
         } else {
@@ -319,7 +362,74 @@ public class RedisCacheManager implements InternalCacheManager {
             } else if (null != writerDecorator) {
                 cache = new RedisWriterCache(config, storage, writerDecorator, LoggerFactory.getLogger(RedisWriterCache.class +"-"+ alias));
             } else {
-                cache = new RedisLoaderCache(config, storage, loaderDecorator, LoggerFactory.getLogger(RedisLoaderCache.class+"-"+alias));
+                RefreshAheadConfiguration refreshAheadConfiguration = ServiceUtils.findSingletonAmongst(
+                        RefreshAheadConfiguration.class,
+                        config.getServiceConfigurations().toArray());
+                StaleWhileRevalidateConfiguration staleWhileRevalidateConfiguration = ServiceUtils.findSingletonAmongst(
+                        StaleWhileRevalidateConfiguration.class,
+                        config.getServiceConfigurations().toArray());
+                ExecutorService refreshExecutor = null;
+                if (null != refreshAheadConfiguration || null != staleWhileRevalidateConfiguration) {
+                    String threadPoolAlias = null != refreshAheadConfiguration
+                            ? refreshAheadConfiguration.getThreadPoolAlias() : staleWhileRevalidateConfiguration.getThreadPoolAlias();
+                    final ExecutorService executor = serviceLocator.getService(ExecutionService.class)
+                            .getUnorderedExecutor(threadPoolAlias, new LinkedBlockingQueue<Runnable>());
+                    lifeCycledList.add(new LifeCycledAdapter() {
+                        @Override
+                        public void close() throws Exception {
+                            ExecutorUtil.shutdown(executor);
+                        }
+                    });
+                    refreshExecutor = executor;
+                }
+                cache = new RedisLoaderCache(config, storage, loaderDecorator, refreshExecutor, LoggerFactory.getLogger(RedisLoaderCache.class+"-"+alias));
+            }
+        }
+
+        BloomFilterConfiguration bloomFilterConfiguration = ServiceUtils.findSingletonAmongst(
+                BloomFilterConfiguration.class,
+                config.getServiceConfigurations().toArray());
+        if (null != bloomFilterConfiguration) {
+            final BloomFilterGuard bloomFilter = createBloomFilter(storage, bloomFilterConfiguration);
+            cache.setBloomFilter(bloomFilter);
+            lifeCycledList.add(new LifeCycledAdapter() {
+                @Override
+                public void init() throws Exception {
+                    bloomFilter.start();
+                }
+
+                @Override
+                public void close() throws Exception {
+                    bloomFilter.stop();
+                }
+            });
+        }
+
+        NearCacheConfiguration nearCacheConfiguration = ServiceUtils.findSingletonAmongst(
+                NearCacheConfiguration.class,
+                config.getServiceConfigurations().toArray());
+        if (null != nearCacheConfiguration) {
+            final NearCache nearCache = new NearCache(nearCacheConfiguration);
+            cache.setNearCache(nearCache);
+            if (storage instanceof InvalidatingStorage) {
+                final String finalPrefix = storage.normalizeKey("");
+                ((InvalidatingStorage) storage).getBus().addListener(new InvalidationBus.Listener() {
+                    @Override
+                    public void invalidated(Collection<String> finalKeys) {
+                        List<String> keys = new ArrayList<>(finalKeys.size());
+                        for (String finalKey : finalKeys) {
+                            if (finalKey.startsWith(finalPrefix)) {
+                                keys.add(finalKey.substring(finalPrefix.length()));
+                            }
+                        }
+                        nearCache.invalidate(keys);
+                    }
+
+                    @Override
+                    public void invalidatedAll() {
+                        nearCache.clear();
+                    }
+                });
             }
         }
 
@@ -330,6 +440,23 @@ public class RedisCacheManager implements InternalCacheManager {
         return cache;
     }
 
+    private BloomFilterGuard createBloomFilter(Storage storage, BloomFilterConfiguration configuration) {
+        BloomFilter filter;
+        switch (configuration.getMode()) {
+            case REDIS:
+                filter = new RedisBloomFilter(storage, configuration.getExpectedInsertions(), configuration.getFalsePositiveRate());
+                break;
+            case MEMORY:
+            default:
+                filter = new MemoryBloomFilter(configuration.getExpectedInsertions(), configuration.getFalsePositiveRate());
+                break;
+        }
+        ScheduledExecutorService executor = serviceLocator.getService(ExecutionService.class)
+                .getScheduledExecutor(configuration.getThreadPoolAlias());
+        return new BloomFilterGuard(filter, configuration.getKeySource(), executor,
+                configuration.getRebuildInterval(), configuration.getRebuildIntervalUnit());
+    }
+
 
     @Override
     public void removeCache(String alias) {
@@ -342,6 +469,10 @@ public class RedisCacheManager implements InternalCacheManager {
     private void removeCache(String alias, boolean removeFromConfig) {
         statusTransitioner.checkAvailable();
         final CacheHolder cacheHolder = caches.remove(alias);
+        final RedisAsyncCache asyncCache = asyncCaches.remove(alias);
+        if (null != asyncCache) {
+            ExecutorUtil.shutdown(asyncCache.getExecutor());
+        }
         if(cacheHolder != null) {
             ExtendCache extendCache = cacheHolder.retrieve(alias);
             if (null != extendCache) {
@@ -374,6 +505,97 @@ public class RedisCacheManager implements InternalCacheManager {
         }
     }
 
+    @Override
+    public AsyncCache getAsyncCache(String alias) {
+        final Cache cache = getCache(alias);
+        if (null == cache) {
+            return null;
+        }
+        RedisAsyncCache asyncCache = asyncCaches.get(alias);
+        if (null != asyncCache && asyncCache.getCache() == cache) {
+            return asyncCache;
+        }
+        ExecutorService executor = serviceLocator.getService(ExecutionService.class)
+                .getUnorderedExecutor(null, new LinkedBlockingQueue<Runnable>());
+        RedisAsyncCache created = new RedisAsyncCache(cache, executor);
+        boolean registered = null == asyncCache
+                ? null == asyncCaches.putIfAbsent(alias, created)
+                : asyncCaches.replace(alias, asyncCache, created);
+        if (!registered) {
+            ExecutorUtil.shutdown(executor);
+            return getAsyncCache(alias);
+        }
+        if (null != asyncCache) {
+            ExecutorUtil.shutdown(asyncCache.getExecutor());
+        }
+        return created;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <V> TypedCache<V> getTypedCache(String alias, Class<V> valueType) {
+        final Cache cache = getCache(alias);
+        if (null == cache) {
+            return null;
+        }
+        ValueSerializerConfiguration<?> serializerConfiguration = ServiceUtils.findSingletonAmongst(
+                ValueSerializerConfiguration.class,
+                cache.getRuntimeConfiguration().getServiceConfigurations().toArray());
+        Serializer<?> serializer;
+        if (null != serializerConfiguration) {
+            // exactly the serialized type, a super type view would hand the serializer values it cannot write
+            if (valueType != serializerConfiguration.getValueType()) {
+                throw new IllegalArgumentException("Cache '" + alias + "' serializes " + serializerConfiguration.getValueType().getName()
+                        + ", not " + valueType.getName());
+            }
+            serializer = serializerConfiguration.getSerializer();
+        } else if (byte[].class == valueType) {
+            serializer = new ByteArraySerializer();
+        } else if (String.class == valueType) {
+            serializer = new StringSerializer();
+        } else {
+            serializer = new CompactSerializer(cache.getRuntimeConfiguration().getClassLoader());
+        }
+        return new RedisTypedCache<>(cache, (Serializer<V>) serializer);
+    }
+
+    @Override
+    public NearCacheStatistics getNearCacheStatistics(String alias) {
+        final Cache cache = getCache(alias);
+        return cache instanceof RedisCache ? ((RedisCache) cache).getNearCache() : null;
+    }
+
+    @Override
+    public CompressionStatistics getCompressionStatistics(String alias) {
+        final Cache cache = getCache(alias);
+        if (!(cache instanceof RedisCache)) {
+            return null;
+        }
+        Storage storage = ((RedisCache) cache).storage;
+        if (storage instanceof InvalidatingStorage) {
+            storage = ((InvalidatingStorage) storage).getStorage();
+        }
+        return storage instanceof CompressingStorage ? ((CompressingStorage) storage).getStatistics() : null;
+    }
+
+    @Override
+    public DeadLetterQueue getWriteBehindDeadLetters(String alias) {
+        final Cache cache = getCache(alias);
+        if (cache instanceof RedisCache && ((RedisCache) cache).getCacheWriter() instanceof StripedWriteBehind) {
+            return ((StripedWriteBehind) ((RedisCache) cache).getCacheWriter()).getDeadLetters();
+        }
+        return null;
+    }
+
+    @Override
+    public BackpressureStatistics getWriteBehindBackpressureStatistics(String alias) {
+        final Cache cache = getCache(alias);
+        if (cache instanceof RedisCache && ((RedisCache) cache).getCacheWriter() instanceof StripedWriteBehind) {
+            return ((StripedWriteBehind) ((RedisCache) cache).getCacheWriter()).getBackpressureStatistics();
+        }
+        return null;
+    }
+
     @Override
     public void close() throws StateTransitionException {
         final StatusTransitioner.Transition st = statusTransitioner.close();
@@ -426,7 +648,7 @@ public class RedisCacheManager implements InternalCacheManager {
                                final Collection<ServiceConfiguration<?>> serviceConfigs,
                                final List<LifeCycled> lifeCycledList) {
         RedisResource.ResourceType resourceType = config.getRedisResource().getType();
-        final Storage.Provider storageProvider = StorageSupport.selectSorageProvider(serviceLocator, resourceType);
+        final Storage.Provider storageProvider = StorageSupport.selectSorageProvider(serviceLocator, resourceType, serviceConfigs);
 
         int dispatcherConcurrency = 1;
         // TODO dispatcher concurrency
@@ -451,7 +673,31 @@ public class RedisCacheManager implements InternalCacheManager {
                 storageProvider.releaseStorage(storage);
             }
         });
-        return storage;
+        Storage decorated = storage;
+        CompressionConfiguration compressionConfiguration = ServiceUtils.findSingletonAmongst(CompressionConfiguration.class, serviceConfigs);
+        if (null != compressionConfiguration) {
+            decorated = new CompressingStorage(decorated, new ValueCompressor(compressionConfiguration));
+        }
+        InvalidationConfiguration invalidationConfiguration = ServiceUtils.findSingletonAmongst(InvalidationConfiguration.class, serviceConfigs);
+        if (null != invalidationConfiguration) {
+            final InvalidationBus bus = new InvalidationBus(
+                    InvalidationBus.transport(config.getRedisResource(), config.getRedisConnector()),
+                    StorageSupport.resolveFinalPrefix(config.getRedisResource(), config.getRedisConnector()),
+                    invalidationConfiguration);
+            lifeCycledList.add(new LifeCycledAdapter() {
+                @Override
+                public void init() throws Exception {
+                    bus.start();
+                }
+
+                @Override
+                public void close() throws Exception {
+                    bus.stop();
+                }
+            });
+            decorated = new InvalidatingStorage(decorated, bus);
+        }
+        return decorated;
     }
 
     private static final class CacheHolder {
@@ -15,19 +15,34 @@
 package club.cookbean.sparrow.cache.impl;
 
 import club.cookbean.sparrow.config.CacheConfiguration;
+import club.cookbean.sparrow.config.RefreshAheadConfiguration;
+import club.cookbean.sparrow.config.StaleWhileRevalidateConfiguration;
 import club.cookbean.sparrow.exception.CacheLoadingException;
 import club.cookbean.sparrow.exception.StorageAccessException;
+import club.cookbean.sparrow.exception.StoragePassThroughException;
 import club.cookbean.sparrow.function.Function;
 import club.cookbean.sparrow.function.impl.MemoizingFunction;
+import club.cookbean.sparrow.loader.BulkCacheLoader;
 import club.cookbean.sparrow.loader.CacheLoader;
 import club.cookbean.sparrow.redis.Cacheable;
 import club.cookbean.sparrow.storage.Storage;
+import club.cookbean.sparrow.storage.StoredValue;
+import club.cookbean.sparrow.util.ServiceUtils;
 import org.slf4j.Logger;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Created by Bennett Dong <br>
@@ -39,18 +54,34 @@ public class RedisLoaderCache extends RedisCache {
 
     private final CacheLoader cacheLoader;
     private final boolean useLoaderInAtomics;
+    /**
+     * Fraction of the TTL after which a read reloads the entry in background,
+     * 0 when neither refresh-ahead nor stale-while-revalidate is configured
+     */
+    private final double refreshFraction;
+    private final ExecutorService refreshExecutor;
+    private final ConcurrentMap<String, Boolean> refreshingKeys = new ConcurrentHashMap<>();
 
     RedisLoaderCache(CacheConfiguration cacheConfiguration,
                             Storage storage,
                             CacheLoader cacheLoader,
                             Logger logger) {
-        this(cacheConfiguration, storage, cacheLoader, true, logger);
+        this(cacheConfiguration, storage, cacheLoader, null, logger);
+    }
+
+    RedisLoaderCache(CacheConfiguration cacheConfiguration,
+                            Storage storage,
+                            CacheLoader cacheLoader,
+                            ExecutorService refreshExecutor,
+                            Logger logger) {
+        this(cacheConfiguration, storage, cacheLoader, true, refreshExecutor, logger);
     }
 
     RedisLoaderCache(CacheConfiguration cacheConfiguration,
                             Storage storage,
                             CacheLoader cacheLoader,
                             boolean useLoaderInAtomics,
+                            ExecutorService refreshExecutor,
                             Logger logger) {
         super(cacheConfiguration, storage, logger, cacheLoader, null);
         if (null == cacheLoader) {
@@ -58,6 +89,22 @@ public class RedisLoaderCache extends RedisCache {
         }
         this.cacheLoader = cacheLoader;
         this.useLoaderInAtomics = useLoaderInAtomics;
+        RefreshAheadConfiguration refreshAhead = ServiceUtils.findSingletonAmongst(RefreshAheadConfiguration.class,
+                cacheConfiguration.getServiceConfigurations());
+        StaleWhileRevalidateConfiguration staleWhileRevalidate = ServiceUtils.findSingletonAmongst(StaleWhileRevalidateConfiguration.class,
+                cacheConfiguration.getServiceConfigurations());
+        if (null != refreshAhead) {
+            this.refreshFraction = refreshAhead.getRefreshFraction();
+        } else if (null != staleWhileRevalidate) {
+            // revalidate once the entry is logically expired
+            this.refreshFraction = 1;
+        } else {
+            this.refreshFraction = 0;
+        }
+        if (this.refreshFraction > 0 && null == refreshExecutor) {
+            throw new IllegalArgumentException("Refresh-ahead and stale-while-revalidate require an executor");
+        }
+        this.refreshExecutor = refreshExecutor;
     }
 
     @Override
@@ -71,26 +118,115 @@ public class RedisLoaderCache extends RedisCache {
         this.statusTransitioner.checkAvailable();
         checkNonNull(key);
 
+        if (definitelyAbsent(key)) {
+            return null;
+        }
+        if (null != nearCache) {
+            String value = nearCache.get(key);
+            if (null != value) {
+                return value;
+            }
+        }
+
         Function<String, Cacheable> getFunction = MemoizingFunction.memoize(new Function<String, Cacheable>() {
             @Override
             public Cacheable apply(String key) {
-                Cacheable value = null;
                 try {
-                    value = definedCacheLoader.load(key);
+                    return loaded(key, definedCacheLoader.load(key));
+                } catch (Exception e) {
+                    throw new StoragePassThroughException(new CacheLoadingException(e));
+                }
+            }
+        });
+
+        try {
+            try {
+                if (refreshFraction > 0) {
+                    // a stale entry is served as well, it only lives through the grace period
+                    StoredValue stored = storage.handleGetStored(key, getFunction);
+                    if (null == stored) {
+                        return null;
+                    }
+                    if (stored.isOlderThan(refreshFraction, System.currentTimeMillis())) {
+                        refresh(key, definedCacheLoader);
+                    }
+                    return Storage.TOMBSTONE.equals(stored.getValue()) ? null : stored.getValue();
+                }
+                return storage.handleGet(key, getFunction);
+            } catch (StorageAccessException e) {
+                Cacheable loadValue = getFunction.apply(key);
+                return null != loadValue ? loadValue.getValue() : null;
+            }
+        } catch (StoragePassThroughException e) {
+            logger.error(e.getCause().getMessage(), e.getCause());
+            return null;
+        }
+    }
+
+    @Override
+    public Map<String, String> getAllWithLoader(Collection<String> keys) throws CacheLoadingException {
+        return getAllWithLoader(keys, this.cacheLoader);
+    }
+
+    @Override
+    public Map<String, String> getAllWithLoader(Collection<String> keys, final CacheLoader definedCacheLoader) throws CacheLoadingException {
+        this.statusTransitioner.checkAvailable();
+        checkNonNull(keys);
+        for (String key : keys) {
+            checkNonNull(key);
+        }
+
+        Map<String, String> result = new LinkedHashMap<>(keys.size() * 2);
+        List<String> candidateKeys = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            // like getWithLoader, local hits are served and loaded values reach the near cache on the next read
+            String value = null != nearCache ? nearCache.get(key) : null;
+            result.put(key, value);
+            if (null == value && !definitelyAbsent(key)) {
+                candidateKeys.add(key);
+            }
+        }
+        if (candidateKeys.isEmpty()) {
+            return result;
+        }
+
+        Function<Collection<String>, Map<String, Cacheable>> loadAllFunction = MemoizingFunction.memoize(new Function<Collection<String>, Map<String, Cacheable>>() {
+            @Override
+            public Map<String, Cacheable> apply(Collection<String> missingKeys) {
+                try {
+                    Map<String, Cacheable> values;
+                    if (definedCacheLoader instanceof BulkCacheLoader) {
+                        values = ((BulkCacheLoader) definedCacheLoader).loadAll(missingKeys);
+                    } else {
+                        values = new HashMap<>(missingKeys.size() * 2);
+                        for (String key : missingKeys) {
+                            values.put(key, definedCacheLoader.load(key));
+                        }
+                    }
+                    if (null != values) {
+                        for (Map.Entry<String, Cacheable> entry : values.entrySet()) {
+                            loaded(entry.getKey(), entry.getValue());
+                        }
+                    }
+                    return values;
                 } catch (Exception e) {
+                    // the hits are still served
                     logger.error(e.getMessage(), e);
+                    return Collections.emptyMap();
                 }
-                return value;
             }
         });
 
         try {
-            String value = storage.handleGet(key, getFunction);
-            return value;
+            result.putAll(storage.handleGetAll(candidateKeys, loadAllFunction));
         } catch (StorageAccessException e) {
-            Cacheable loadValue = getFunction.apply(key);
-            return null != loadValue ? loadValue.getValue() : null;
+            Map<String, Cacheable> loadValues = loadAllFunction.apply(candidateKeys);
+            for (String key : candidateKeys) {
+                Cacheable loadValue = loadValues.get(key);
+                result.put(key, null != loadValue ? loadValue.getValue() : null);
+            }
         }
+        return result;
     }
 
     @Override
@@ -103,28 +239,41 @@ public class RedisLoaderCache extends RedisCache {
         this.statusTransitioner.checkAvailable();
         checkNonNull(key);
 
+        if (definitelyAbsent(key)) {
+            return Collections.emptyList();
+        }
+
         Function<String, List<Cacheable>> rangeFunction = MemoizingFunction.memoize(new Function<String, List<Cacheable>>() {
             @Override
             public List<Cacheable> apply(String key) {
-                List<Cacheable> values = null;
                 try {
-                    values = definedCacheLoader.loadList(key);
+                    List<Cacheable> values = definedCacheLoader.loadList(key);
+                    if (null != values && !values.isEmpty()) {
+                        keyWritten(key);
+                    }
+                    return values;
                 } catch (Exception e) {
-                    logger.error(e.getMessage(), e);
+                    throw new StoragePassThroughException(new CacheLoadingException(e));
                 }
-                return values;
             }
         });
 
         try {
-            return storage.handleListRange(key, start, end, rangeFunction);
-        } catch (StorageAccessException e) {
-            Iterable<Cacheable> valueObjs = rangeFunction.apply(key);
-            List<String> values = new ArrayList<>();
-            for (Cacheable obj : valueObjs) {
-                values.add(obj.getValue());
+            try {
+                return storage.handleListRange(key, start, end, rangeFunction);
+            } catch (StorageAccessException e) {
+                Iterable<Cacheable> valueObjs = rangeFunction.apply(key);
+                List<String> values = new ArrayList<>();
+                if (null != valueObjs) {
+                    for (Cacheable obj : valueObjs) {
+                        values.add(obj.getValue());
+                    }
+                }
+                return values;
             }
-            return values;
+        } catch (StoragePassThroughException e) {
+            logger.error(e.getCause().getMessage(), e.getCause());
+            return null;
         }
     }
 
@@ -138,29 +287,84 @@ public class RedisLoaderCache extends RedisCache {
         this.statusTransitioner.checkAvailable();
         checkNonNull(key);
 
+        if (definitelyAbsent(key)) {
+            return Collections.emptySet();
+        }
+
         Function<String, Set<? extends Cacheable>> setFunc = MemoizingFunction.memoize(new Function<String, Set<? extends Cacheable>>() {
             @Override
             public Set<? extends Cacheable> apply(String s) {
-                Set<Cacheable> values = null;
                 try {
-                    values = definedCacheLoader.loadSet(key);
+                    Set<? extends Cacheable> values = definedCacheLoader.loadSet(key);
+                    if (null != values && !values.isEmpty()) {
+                        keyWritten(key);
+                    }
+                    return values;
                 } catch (Exception e) {
-                    logger.error(e.getMessage(), e);
+                    throw new StoragePassThroughException(new CacheLoadingException(e));
                 }
-                return values;
             }
         });
 
         try {
-            return storage.handleSetMembers(key, setFunc);
-        } catch (StorageAccessException e) {
-            Set<? extends Cacheable> loadValues = setFunc.apply(key);
-            Set<String> values = new HashSet<>(loadValues.size());
-            for (Cacheable cacheable : loadValues) {
-                values.add(cacheable.getKey());
+            try {
+                return storage.handleSetMembers(key, setFunc);
+            } catch (StorageAccessException e) {
+                Set<? extends Cacheable> loadValues = setFunc.apply(key);
+                Set<String> values = new HashSet<>();
+                if (null != loadValues) {
+                    for (Cacheable cacheable : loadValues) {
+                        values.add(cacheable.getKey());
+                    }
+                }
+                return values;
             }
-            return values;
+        } catch (StoragePassThroughException e) {
+            logger.error(e.getCause().getMessage(), e.getCause());
+            return null;
         }
 
     }
+
+    /**
+     * Record a loaded value in the bloom filter before it is cached
+     */
+    private Cacheable loaded(String key, Cacheable value) {
+        if (null != value) {
+            keyWritten(key);
+        }
+        return value;
+    }
+
+    /**
+     * Reload the key in background, at most one refresh per key at a time.
+     * A failed reload leaves the current entry in place.
+     */
+    private void refresh(final String key, final CacheLoader definedCacheLoader) {
+        if (null != refreshingKeys.putIfAbsent(key, Boolean.TRUE)) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        Cacheable value = definedCacheLoader.load(key);
+                        if (null != value) {
+                            keyWritten(key);
+                            storage.setStored(key, value);
+                            keyChanged(key);
+                        }
+                    } catch (Exception e) {
+                        logger.warn("Refresh of key '{}' fail, keep serving the cached value", key, e);
+                    } finally {
+                        refreshingKeys.remove(key);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refreshingKeys.remove(key);
+            logger.warn("Refresh of key '{}' rejected", key);
+        }
+    }
 }
@@ -0,0 +1,135 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.cache.impl;
+
+import club.cookbean.sparrow.cache.Cache;
+import club.cookbean.sparrow.cache.TypedCache;
+import club.cookbean.sparrow.exception.CacheLoadingException;
+import club.cookbean.sparrow.exception.CacheWritingException;
+import club.cookbean.sparrow.exception.SerializerException;
+import club.cookbean.sparrow.redis.BinaryCacheable;
+import club.cookbean.sparrow.serializer.Serializer;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * {@link TypedCache} serializing values with a {@link Serializer} into {@link BinaryCacheable}s.
+ */
+public class RedisTypedCache<V> implements TypedCache<V> {
+
+    private final Cache cache;
+    private final Serializer<V> serializer;
+
+    RedisTypedCache(Cache cache, Serializer<V> serializer) {
+        this.cache = cache;
+        this.serializer = serializer;
+    }
+
+    @Override
+    public boolean exist(String key) throws CacheLoadingException {
+        return cache.exist(key);
+    }
+
+    @Override
+    public boolean expire(String key, long millisecond) throws CacheWritingException {
+        return cache.expire(key, millisecond);
+    }
+
+    @Override
+    public void delete(String key) throws CacheWritingException {
+        cache.delete(key);
+    }
+
+    @Override
+    public V get(String key) throws CacheLoadingException {
+        byte[] binary = cache.getBytes(key);
+        if (null == binary) {
+            return null;
+        }
+        try {
+            return serializer.read(binary);
+        } catch (SerializerException e) {
+            throw new CacheLoadingException("Read value of key '" + key + "' fail", e);
+        }
+    }
+
+    @Override
+    public boolean set(String key, V value, long expireTime) throws CacheWritingException {
+        return cache.set(key, serialize(key, value, expireTime));
+    }
+
+    @Override
+    public Set<String> setAll(Map<String, ? extends V> values, long expireTime) throws CacheWritingException {
+        Map<String, SerializedValue> serialized = new LinkedHashMap<>(values.size() * 2);
+        for (Map.Entry<String, ? extends V> entry : values.entrySet()) {
+            serialized.put(entry.getKey(), serialize(entry.getKey(), entry.getValue(), expireTime));
+        }
+        return cache.setAll(serialized);
+    }
+
+    @Override
+    public Cache getCache() {
+        return cache;
+    }
+
+    private SerializedValue serialize(String key, V value, long expireTime) {
+        if (null == value) {
+            throw new NullPointerException("Null value of key '" + key + "'");
+        }
+        try {
+            return new SerializedValue(serializer.serialize(value), expireTime);
+        } catch (SerializerException e) {
+            throw new CacheWritingException("Serialize value of key '" + key + "' fail", e);
+        }
+    }
+
+    private static class SerializedValue implements BinaryCacheable {
+        private final byte[] bytes;
+        private final long expireTime;
+        private final long creationTime = System.currentTimeMillis();
+
+        SerializedValue(byte[] bytes, long expireTime) {
+            this.bytes = bytes;
+            this.expireTime = expireTime;
+        }
+
+        @Override
+        public byte[] getBytes() {
+            return bytes;
+        }
+
+        @Override
+        public long getExpireTime() {
+            return expireTime;
+        }
+
+        @Override
+        public long getCreationTime() {
+            return creationTime;
+        }
+
+        @Override
+        public String getValue() {
+            return null;
+        }
+
+        @Override
+        public String getKey() {
+            return null;
+        }
+    }
+}
@@ -60,6 +60,8 @@ public class RedisWriterCache extends RedisCache {
             storage.handleDelete(key, deleteFunction);
         } catch (StorageAccessException e) {
             deleteFunction.apply(key);
+        } finally {
+            keyChanged(key);
         }
     }
 
@@ -84,6 +86,10 @@ public class RedisWriterCache extends RedisCache {
             storage.handleDeleteAll(keys, deleteAllFunc);
         } catch (StorageAccessException e) {
             deleteAllFunc.apply(Arrays.asList(keys));
+        } finally {
+            for (String key : keys) {
+                keyChanged(key);
+            }
         }
     }
 
@@ -96,6 +102,7 @@ public class RedisWriterCache extends RedisCache {
             public Cacheable apply(String key) {
                 try {
                     cacheWriter.write(key, value);
+                    keyWritten(key);
                 } catch (Exception e) {
                     throw new StoragePassThroughException(new CacheWritingException(e));
                 }
@@ -109,11 +116,14 @@ public class RedisWriterCache extends RedisCache {
             try {
                 setFunction.apply(key);
             } catch (StoragePassThroughException e) {
-                // todo 重试策略
-                return;
-            } finally {
-
+                // the writer failed too, write behind retries in its queue, a direct writer fails the call
+                if (e.getCause() instanceof CacheWritingException) {
+                    throw (CacheWritingException) e.getCause();
+                }
+                throw new CacheWritingException(e.getCause());
             }
+        } finally {
+            keyChanged(key);
         }
     }
 
@@ -129,9 +139,11 @@ public class RedisWriterCache extends RedisCache {
                 try {
                     List<Map.Entry<String, Cacheable>> entries = new ArrayList<>(values.length);
                     for (Cacheable value : values) {
+                        pushList.add(value);
                         entries.add(new AbstractMap.SimpleEntry<>(key, value));
                     }
                     cacheWriter.writeAll(entries);
+                    keyWritten(key);
                 } catch (Exception e) {
                     throw new StoragePassThroughException(new CacheWritingException(e));
                 }
@@ -146,9 +158,11 @@ public class RedisWriterCache extends RedisCache {
                 try {
                     List<Map.Entry<String, Cacheable>> entries = new ArrayList<>(values.length);
                     for (Cacheable value : values) {
+                        pushList.add(value);
                         entries.add(new AbstractMap.SimpleEntry<>(key, value));
                     }
                     cacheWriter.writeAll(entries);
+                    keyWritten(key);
                 } catch (Exception e) {
                     throw new StoragePassThroughException(new CacheWritingException(e));
                 }
@@ -183,9 +197,11 @@ public class RedisWriterCache extends RedisCache {
                 try {
                     List<Map.Entry<String, Cacheable>> entries = new ArrayList<>(values.length);
                     for (Cacheable value : values) {
+                        pushList.add(value);
                         entries.add(new AbstractMap.SimpleEntry<>(key, value));
                     }
                     cacheWriter.writeAll(entries);
+                    keyWritten(key);
                 } catch (Exception e) {
                     throw new StoragePassThroughException(new CacheWritingException(e));
                 }
@@ -200,9 +216,11 @@ public class RedisWriterCache extends RedisCache {
                 try {
                     List<Map.Entry<String, Cacheable>> entries = new ArrayList<>(values.length);
                     for (Cacheable value : values) {
+                        pushList.add(value);
                         entries.add(new AbstractMap.SimpleEntry<>(key, value));
                     }
                     cacheWriter.writeAll(entries);
+                    keyWritten(key);
                 } catch (Exception e) {
                     throw new StoragePassThroughException(new CacheWritingException(e));
                 }
@@ -241,6 +259,7 @@ public class RedisWriterCache extends RedisCache {
                         entries.add(new AbstractMap.SimpleEntry<>(key, value));
                     }
                     cacheWriter.writeAll(entries);
+                    keyWritten(key);
                 } catch (Exception e) {
                     throw new StoragePassThroughException(new CacheWritingException(e));
                 }
@@ -259,6 +278,7 @@ public class RedisWriterCache extends RedisCache {
                         entries.add(new AbstractMap.SimpleEntry<>(key, value));
                     }
                     cacheWriter.writeAll(entries);
+                    keyWritten(key);
                 } catch (Exception e) {
                     throw new StoragePassThroughException(new CacheWritingException(e));
                 }
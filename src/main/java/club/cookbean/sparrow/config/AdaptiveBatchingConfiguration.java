@@ -0,0 +1,74 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.config;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounds within which a batching write behind queue tunes its batch size and max write delay, the configured
+ * batch size and max delay of the {@link BatchingConfiguration} being the starting point.
+ */
+public interface AdaptiveBatchingConfiguration {
+
+    /**
+     * The smallest batch size the queue can shrink to.
+     *
+     * @return the minimum batch size
+     */
+    int getMinBatchSize();
+
+    /**
+     * The largest batch size the queue can grow to.
+     *
+     * @return the maximum batch size
+     */
+    int getMaxBatchSize();
+
+    /**
+     * The shortest max write delay the queue can shrink to.
+     *
+     * @return the minimum write delay
+     */
+    long getMinDelay();
+
+    /**
+     * The longest max write delay the queue can grow to.
+     *
+     * @return the maximum write delay
+     */
+    long getMaxDelay();
+
+    /**
+     * The time unit for the write delay bounds.
+     *
+     * @return the unit of the write delay bounds
+     */
+    TimeUnit getDelayUnit();
+
+    /**
+     * The 99th percentile of the time an operation waits in the queue before being written, the queue favors
+     * bigger batches only as long as it is held.
+     *
+     * @return the target dwell time
+     */
+    long getTargetDwell();
+
+    /**
+     * The time unit for the target dwell time.
+     *
+     * @return the unit of the target dwell time
+     */
+    TimeUnit getTargetDwellUnit();
+}
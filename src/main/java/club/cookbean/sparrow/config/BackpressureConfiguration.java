@@ -0,0 +1,69 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.config;
+
+import java.util.concurrent.TimeUnit;
+
+public interface BackpressureConfiguration {
+
+    /**
+     * What a write does when its write behind queue is full.
+     *
+     * @return the overflow policy
+     */
+    Policy getPolicy();
+
+    /**
+     * The maximum time a write waits for room in the queue, after which it fails with a
+     * {@link club.cookbean.sparrow.exception.CacheWritingException}.
+     * <p>
+     * Applies to {@link Policy#BLOCK}, and to the policies falling back to it. {@link Long#MAX_VALUE} waits
+     * without limit.
+     *
+     * @return the timeout
+     */
+    long getTimeout();
+
+    /**
+     * The time unit for the timeout.
+     *
+     * @return the unit of the timeout
+     */
+    TimeUnit getTimeoutUnit();
+
+    enum Policy {
+        /**
+         * Wait for room, up to the timeout
+         */
+        BLOCK,
+        /**
+         * Fail at once with a {@link club.cookbean.sparrow.exception.CacheWritingException}
+         */
+        FAIL,
+        /**
+         * Write the operation through in the calling thread, waiting for room instead when an operation
+         * of the same key is still queued, so that the key is written in order
+         */
+        CALLER_RUNS,
+        /**
+         * Replace the operation of the same key still queued, waiting for room instead when there is none
+         */
+        DROP_OLDEST,
+        /**
+         * Drop the operation, the value is only in redis
+         */
+        SHED
+    }
+}
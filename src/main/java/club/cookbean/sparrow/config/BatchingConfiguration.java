@@ -51,4 +51,11 @@ public interface BatchingConfiguration {
      * @return {@code true} if write coalescing enabled
      */
     boolean isCoalescing();
+
+    /**
+     * The bounds within which the batch size and max delay are tuned to the writer.
+     *
+     * @return the adaptive batching configuration, {@code null} if the batch size and max delay are fixed
+     */
+    AdaptiveBatchingConfiguration getAdaptiveConfiguration();
 }
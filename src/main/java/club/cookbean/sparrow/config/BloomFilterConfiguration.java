@@ -0,0 +1,88 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.config;
+
+
+import club.cookbean.sparrow.filter.KeySource;
+import club.cookbean.sparrow.provider.CacheLoaderProvider;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bloom filter guard: keys the filter has never seen are reported absent by
+ * the loader methods without touching redis or the loader.
+ */
+public interface BloomFilterConfiguration extends ServiceConfiguration<CacheLoaderProvider> {
+
+    /**
+     * The source of all existing keys the filter is built from.
+     *
+     * @return the key source
+     */
+    KeySource getKeySource();
+
+    /**
+     * The expected number of keys, used to size the filter.
+     *
+     * @return the expected insertions
+     */
+    long getExpectedInsertions();
+
+    /**
+     * The target false positive rate, in (0, 1).
+     *
+     * @return the false positive rate
+     */
+    double getFalsePositiveRate();
+
+    /**
+     * Where the filter bits live.
+     *
+     * @return the filter mode
+     */
+    Mode getMode();
+
+    /**
+     * The interval between two background rebuilds, 0 to never rebuild.
+     *
+     * @return the rebuild interval
+     */
+    long getRebuildInterval();
+
+    /**
+     * The time unit for the rebuild interval.
+     *
+     * @return the rebuild interval unit
+     */
+    TimeUnit getRebuildIntervalUnit();
+
+    /**
+     * Alias of the thread pool building the filter, null for the default pool.
+     *
+     * @return the thread pool alias
+     */
+    String getThreadPoolAlias();
+
+    enum Mode {
+        /**
+         * Bits in the JVM, lookups are local
+         */
+        MEMORY,
+        /**
+         * Bits in a redis bitmap shared by all nodes
+         */
+        REDIS
+    }
+}
@@ -0,0 +1,39 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.config;
+
+
+import club.cookbean.sparrow.storage.Storage;
+
+/**
+ * Bulk operations ({@code getAll}, {@code setAll}) of a storage.
+ */
+public interface BulkConfiguration extends ServiceConfiguration<Storage.Provider> {
+
+    /**
+     * The default number of keys sent to redis in one chunk.
+     */
+    int DEFAULT_CHUNK_SIZE = 500;
+
+    /**
+     * The maximum number of keys sent to redis in one MGET or one write pipeline.
+     * <p>
+     * Only positive values are legal. Bigger chunks save round trips but block
+     * redis longer for its other clients.
+     *
+     * @return the chunk size
+     */
+    int getChunkSize();
+}
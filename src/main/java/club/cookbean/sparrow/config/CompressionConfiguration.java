@@ -0,0 +1,45 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.config;
+
+
+import club.cookbean.sparrow.storage.Storage;
+
+/**
+ * Compression of large values: string values and list elements at least as large as the threshold
+ * are deflated before they are written and inflated again when they are read.
+ * Compressed and plain values can live side by side, so it may be switched on for an existing cache.
+ */
+public interface CompressionConfiguration extends ServiceConfiguration<Storage.Provider> {
+
+    /**
+     * Default threshold, values smaller than this are not worth deflating.
+     */
+    int DEFAULT_THRESHOLD = 1024;
+
+    /**
+     * The minimum size in bytes (UTF-8) of a value to compress.
+     *
+     * @return the threshold
+     */
+    int getThreshold();
+
+    /**
+     * The deflate level, from {@link java.util.zip.Deflater#BEST_SPEED} to {@link java.util.zip.Deflater#BEST_COMPRESSION}.
+     *
+     * @return the compression level
+     */
+    int getLevel();
+}
@@ -0,0 +1,49 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.config;
+
+
+import club.cookbean.sparrow.storage.Storage;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Invalidation bus of a cache: the final key of every write or delete is published on a channel
+ * per key prefix, and every process sharing the prefix drops its near-cache copy of the key.
+ * Keys are published in batches, a message carries all keys written within the max delay.
+ */
+public interface InvalidationConfiguration extends ServiceConfiguration<Storage.Provider> {
+
+    /**
+     * The maximum number of keys in one message.
+     *
+     * @return the max batch size
+     */
+    int getMaxBatchSize();
+
+    /**
+     * How long a written key may wait for more keys to share its message.
+     *
+     * @return the max delay
+     */
+    long getMaxDelay();
+
+    /**
+     * The time unit for the max delay.
+     *
+     * @return the max delay unit
+     */
+    TimeUnit getMaxDelayUnit();
+}
@@ -0,0 +1,38 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.config;
+
+public interface JournalConfiguration {
+
+    int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+
+    /**
+     * The directory holding the journal, each write behind queue keeps its segments in a sub directory.
+     * <p>
+     * A directory can only be used by one cache at a time.
+     *
+     * @return the journal directory
+     */
+    String getDirectory();
+
+    /**
+     * The size in bytes of a journal segment file, a segment is deleted once all of its operations were written.
+     * <p>
+     * Only positive values are legal, a larger operation gets a segment of its own.
+     *
+     * @return the segment size
+     */
+    int getSegmentSize();
+}
@@ -0,0 +1,72 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.config;
+
+
+import club.cookbean.sparrow.provider.CacheLoaderProvider;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load batching: single-key loads from concurrent callers are collected for a
+ * short window and sent to the loader as one
+ * {@link club.cookbean.sparrow.loader.BulkCacheLoader#loadAll(Iterable)} call.
+ */
+public interface LoadBatchingConfiguration extends ServiceConfiguration<CacheLoaderProvider> {
+
+    long DEFAULT_LOAD_TIMEOUT_SECONDS = 30;
+
+    /**
+     * The maximum number of keys in one bulk load.
+     *
+     * @return the max batch size
+     */
+    int getMaxBatchSize();
+
+    /**
+     * The maximum time a key waits for its batch to fill.
+     *
+     * @return the max delay
+     */
+    long getMaxDelay();
+
+    /**
+     * The time unit for the max delay.
+     *
+     * @return the max delay unit
+     */
+    TimeUnit getMaxDelayUnit();
+
+    /**
+     * The maximum time a caller waits for the result of its batch.
+     *
+     * @return the load timeout
+     */
+    long getLoadTimeout();
+
+    /**
+     * The time unit for the load timeout.
+     *
+     * @return the load timeout unit
+     */
+    TimeUnit getLoadTimeoutUnit();
+
+    /**
+     * Alias of the thread pool running the bulk loads, null for the default pool.
+     *
+     * @return the thread pool alias
+     */
+    String getThreadPoolAlias();
+}
@@ -0,0 +1,56 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.config;
+
+
+import club.cookbean.sparrow.storage.Storage;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Distributed load lock: on a miss only the node holding a short lease on the
+ * key calls the loader, the other nodes poll redis for the loaded value.
+ */
+public interface LoadLockConfiguration extends ServiceConfiguration<Storage.Provider> {
+
+    /**
+     * The lease time of the lock, it should cover a normal load.
+     *
+     * @return the lease time
+     */
+    long getLeaseTime();
+
+    /**
+     * The maximum time a node waits for the value loaded by the lock holder
+     * before loading by itself.
+     *
+     * @return the wait time
+     */
+    long getWaitTime();
+
+    /**
+     * The interval between two polls of a waiting node.
+     *
+     * @return the poll interval
+     */
+    long getPollInterval();
+
+    /**
+     * The time unit for the lease time, wait time and poll interval.
+     *
+     * @return the time unit
+     */
+    TimeUnit getTimeUnit();
+}
@@ -0,0 +1,51 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.config;
+
+
+import club.cookbean.sparrow.storage.Storage;
+
+/**
+ * Multiplexed storage engine of a standalone resource: commands of all callers share a few
+ * connections, each one carrying many commands in flight instead of one per pooled connection.
+ */
+public interface MultiplexingConfiguration extends ServiceConfiguration<Storage.Provider> {
+
+    /**
+     * Default size of the read and write buffer of a connection, they grow for larger commands and replies.
+     */
+    int DEFAULT_BUFFER_SIZE = 16 * 1024;
+
+    /**
+     * The number of connections shared by all callers.
+     *
+     * @return the connection count
+     */
+    int getConnections();
+
+    /**
+     * The maximum number of commands waiting for their reply on one connection.
+     *
+     * @return the max in-flight commands
+     */
+    int getMaxInFlight();
+
+    /**
+     * The initial size of the read and write buffer of a connection, in bytes.
+     *
+     * @return the buffer size
+     */
+    int getBufferSize();
+}
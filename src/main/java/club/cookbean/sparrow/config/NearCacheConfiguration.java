@@ -0,0 +1,56 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.config;
+
+
+import club.cookbean.sparrow.provider.CacheLoaderProvider;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-process tier in front of redis: values read by {@code get} are kept on heap and served
+ * locally until they expire, are evicted, or the key is written or deleted through the cache.
+ */
+public interface NearCacheConfiguration extends ServiceConfiguration<CacheLoaderProvider> {
+
+    /**
+     * The maximum number of entries, 0 for no limit on the count.
+     *
+     * @return the max entries
+     */
+    long getMaxEntries();
+
+    /**
+     * The maximum total weight of the entries, 0 for no limit on the weight.
+     * The weight of an entry is the number of chars of its key and value.
+     *
+     * @return the max weight
+     */
+    long getMaxWeight();
+
+    /**
+     * How long an entry is served locally, an entry never outlives the TTL it had left in redis.
+     *
+     * @return the time-to-live
+     */
+    long getTtl();
+
+    /**
+     * The time unit for the time-to-live.
+     *
+     * @return the time-to-live unit
+     */
+    TimeUnit getTtlUnit();
+}
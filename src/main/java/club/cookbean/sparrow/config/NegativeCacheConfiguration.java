@@ -0,0 +1,41 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.config;
+
+
+import club.cookbean.sparrow.storage.Storage;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Negative caching: when the loader finds nothing a tombstone is cached for a short
+ * time, and reads treat it as a confirmed miss instead of calling the loader again.
+ */
+public interface NegativeCacheConfiguration extends ServiceConfiguration<Storage.Provider> {
+
+    /**
+     * How long a tombstone lives.
+     *
+     * @return the tombstone TTL
+     */
+    long getTtl();
+
+    /**
+     * The time unit for the tombstone TTL.
+     *
+     * @return the tombstone TTL unit
+     */
+    TimeUnit getTtlUnit();
+}
@@ -0,0 +1,55 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.config;
+
+
+import club.cookbean.sparrow.storage.Storage;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Auto-pipelining of a standalone storage: commands issued by many caller threads
+ * are gathered into shared pipelines over a few dedicated connections.
+ */
+public interface PipeliningConfiguration extends ServiceConfiguration<Storage.Provider> {
+
+    /**
+     * The number of dedicated connections (and flushing threads) shared by all callers.
+     *
+     * @return the connection count
+     */
+    int getConnections();
+
+    /**
+     * The maximum number of commands sent in one pipeline.
+     *
+     * @return the max batch size
+     */
+    int getMaxBatchSize();
+
+    /**
+     * The maximum time the first command of a pipeline waits for others to join.
+     *
+     * @return the max flush delay
+     */
+    long getMaxDelay();
+
+    /**
+     * The time unit for the max flush delay.
+     *
+     * @return the max flush delay unit
+     */
+    TimeUnit getMaxDelayUnit();
+}
@@ -0,0 +1,39 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.config;
+
+
+import club.cookbean.sparrow.provider.CacheLoaderProvider;
+
+/**
+ * Refresh-ahead: a loader read that finds an entry older than a fraction of its
+ * TTL returns it immediately and reloads it in the background.
+ */
+public interface RefreshAheadConfiguration extends ServiceConfiguration<CacheLoaderProvider> {
+
+    /**
+     * The fraction of an entry's TTL after which a read triggers a refresh, in (0, 1).
+     *
+     * @return the refresh fraction
+     */
+    double getRefreshFraction();
+
+    /**
+     * Alias of the thread pool running the refreshes, null for the default pool.
+     *
+     * @return the thread pool alias
+     */
+    String getThreadPoolAlias();
+}
@@ -0,0 +1,85 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.config;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+public interface RetryConfiguration {
+
+    /**
+     * The maximum attempts of an operation, the first one included.
+     * <p>
+     * Only positive values are legal, {@code 1} means no retry.
+     *
+     * @return the maximum attempts
+     */
+    int getMaxAttempts();
+
+    /**
+     * The delay before the first retry, doubled by {@link #getMultiplier()} for each next one.
+     *
+     * @return the initial delay
+     */
+    long getInitialDelay();
+
+    /**
+     * The upper bound of the delay between two attempts.
+     *
+     * @return the maximum delay
+     */
+    long getMaxDelay();
+
+    /**
+     * The time unit of the delays.
+     *
+     * @return the delay unit
+     */
+    TimeUnit getDelayUnit();
+
+    /**
+     * The factor applied to the delay after each attempt, at least {@code 1}.
+     *
+     * @return the backoff multiplier
+     */
+    double getMultiplier();
+
+    /**
+     * The fraction of the delay randomly taken off each one, between {@code 0} and {@code 1}, so writers
+     * failing together don't retry together.
+     *
+     * @return the jitter
+     */
+    double getJitter();
+
+    /**
+     * The exceptions worth a retry, an operation failing with any other one is dead at once. A cause of the
+     * thrown exception matches too.
+     * <p>
+     * An empty set retries every exception.
+     *
+     * @return the retryable exceptions
+     */
+    Set<Class<? extends Exception>> getRetryableExceptions();
+
+    /**
+     * The maximum operations kept once they exhausted their attempts, the oldest ones are dropped beyond.
+     * <p>
+     * {@code 0} keeps none.
+     *
+     * @return the dead letter capacity
+     */
+    int getDeadLetterCapacity();
+}
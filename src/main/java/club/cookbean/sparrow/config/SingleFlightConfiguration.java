@@ -0,0 +1,60 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.config;
+
+
+import club.cookbean.sparrow.storage.Storage;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single-flight loading: concurrent misses of the same key inside one JVM wait on
+ * one in-flight load and share its result instead of each calling the loader.
+ */
+public interface SingleFlightConfiguration extends ServiceConfiguration<Storage.Provider> {
+
+    /**
+     * The maximum time a caller waits on the in-flight load of another caller.
+     *
+     * @return the wait timeout
+     */
+    long getTimeout();
+
+    /**
+     * The time unit for the wait timeout.
+     *
+     * @return the wait timeout unit
+     */
+    TimeUnit getTimeoutUnit();
+
+    /**
+     * What a waiting caller does when the in-flight load fails or the wait times out.
+     *
+     * @return the failure policy
+     */
+    FailurePolicy getFailurePolicy();
+
+    enum FailurePolicy {
+        /**
+         * Waiters get the failure of the in-flight load, a timed out waiter fails with a
+         * {@link club.cookbean.sparrow.exception.CacheLoadingException}.
+         */
+        FAIL,
+        /**
+         * Waiters call the loader themselves.
+         */
+        LOAD
+    }
+}
@@ -0,0 +1,52 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.config;
+
+
+import club.cookbean.sparrow.provider.CacheLoaderProvider;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stale-while-revalidate: loaded entries stay in redis for a grace period after
+ * their TTL. A loader read of such a stale entry returns it at once and reloads
+ * it in the background; while the loader fails the stale entry keeps being served
+ * until the grace period ends.
+ * <p>
+ * Plain reads see the stale entry during the grace period as well.
+ */
+public interface StaleWhileRevalidateConfiguration extends ServiceConfiguration<CacheLoaderProvider> {
+
+    /**
+     * How long an entry is kept after its TTL.
+     *
+     * @return the grace period
+     */
+    long getGracePeriod();
+
+    /**
+     * The time unit for the grace period.
+     *
+     * @return the grace period unit
+     */
+    TimeUnit getGracePeriodUnit();
+
+    /**
+     * Alias of the thread pool running the revalidations, null for the default pool.
+     *
+     * @return the thread pool alias
+     */
+    String getThreadPoolAlias();
+}
@@ -0,0 +1,41 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.config;
+
+
+import club.cookbean.sparrow.serializer.Serializer;
+import club.cookbean.sparrow.storage.Storage;
+
+/**
+ * Serializer of the values of a {@link club.cookbean.sparrow.cache.TypedCache}.
+ *
+ * @param <T> the type of the values
+ */
+public interface ValueSerializerConfiguration<T> extends ServiceConfiguration<Storage.Provider> {
+
+    /**
+     * The type of the values the serializer handles.
+     *
+     * @return the value type
+     */
+    Class<T> getValueType();
+
+    /**
+     * The serializer turning values into stored bytes.
+     *
+     * @return the serializer
+     */
+    Serializer<T> getSerializer();
+}
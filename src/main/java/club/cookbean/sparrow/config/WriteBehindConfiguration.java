@@ -49,5 +49,26 @@ public interface WriteBehindConfiguration extends ServiceConfiguration<WriteBehi
      */
     String getThreadPoolAlias();
 
+    /**
+     * Returns the journal configuration or {@code null} if pending operations are not journaled.
+     *
+     * @return the journal configuration
+     */
+    JournalConfiguration getJournalConfiguration();
+
+    /**
+     * Returns the retry configuration or {@code null} if failed operations are dropped.
+     *
+     * @return the retry configuration
+     */
+    RetryConfiguration getRetryConfiguration();
+
+    /**
+     * Returns the backpressure configuration or {@code null} if writes wait for room in a full queue.
+     *
+     * @return the backpressure configuration
+     */
+    BackpressureConfiguration getBackpressureConfiguration();
+
 
 }
@@ -0,0 +1,130 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.config.impl;
+
+
+import club.cookbean.sparrow.config.AdaptiveBatchingConfiguration;
+
+import java.util.concurrent.TimeUnit;
+
+
+public class DefaultAdaptiveBatchingConfiguration implements AdaptiveBatchingConfiguration {
+
+    private final int minBatchSize;
+    private final int maxBatchSize;
+    private final long minDelay;
+    private final long maxDelay;
+    private final TimeUnit delayUnit;
+    private final long targetDwell;
+    private final TimeUnit targetDwellUnit;
+
+    /**
+     * Creates a new configuration with the provided parameters.
+     *
+     * @param minBatchSize the minimum batch size
+     * @param maxBatchSize the maximum batch size
+     * @param minDelay the minimum write delay quantity
+     * @param maxDelay the maximum write delay quantity
+     * @param delayUnit the write delay unit
+     * @param targetDwell the target p99 dwell time quantity
+     * @param targetDwellUnit the target dwell time unit
+     */
+    public DefaultAdaptiveBatchingConfiguration(int minBatchSize, int maxBatchSize,
+                                                long minDelay, long maxDelay, TimeUnit delayUnit,
+                                                long targetDwell, TimeUnit targetDwellUnit) {
+        if (minBatchSize < 1) {
+            throw new IllegalArgumentException("Min batch size must be a positive integer, was: " + minBatchSize);
+        }
+        if (maxBatchSize < minBatchSize) {
+            throw new IllegalArgumentException("Max batch size must not be below min batch size " + minBatchSize + ", was: " + maxBatchSize);
+        }
+        if (null == delayUnit || null == targetDwellUnit) {
+            throw new IllegalArgumentException("Null time unit");
+        }
+        if (minDelay < 0) {
+            throw new IllegalArgumentException("Min write delay must not be negative, was: " + minDelay + " " + delayUnit);
+        }
+        if (maxDelay < minDelay) {
+            throw new IllegalArgumentException("Max write delay must not be below min write delay " + minDelay + ", was: " + maxDelay + " " + delayUnit);
+        }
+        if (targetDwell < 1) {
+            throw new IllegalArgumentException("Target dwell time must be positive, was: " + targetDwell + " " + targetDwellUnit);
+        }
+        this.minBatchSize = minBatchSize;
+        this.maxBatchSize = maxBatchSize;
+        this.minDelay = minDelay;
+        this.maxDelay = maxDelay;
+        this.delayUnit = delayUnit;
+        this.targetDwell = targetDwell;
+        this.targetDwellUnit = targetDwellUnit;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getMinBatchSize() {
+        return minBatchSize;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getMinDelay() {
+        return minDelay;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getMaxDelay() {
+        return maxDelay;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public TimeUnit getDelayUnit() {
+        return delayUnit;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getTargetDwell() {
+        return targetDwell;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public TimeUnit getTargetDwellUnit() {
+        return targetDwellUnit;
+    }
+
+}
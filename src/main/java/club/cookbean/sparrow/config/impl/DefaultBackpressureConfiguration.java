@@ -0,0 +1,84 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.config.impl;
+
+
+import club.cookbean.sparrow.config.BackpressureConfiguration;
+
+import java.util.concurrent.TimeUnit;
+
+
+public class DefaultBackpressureConfiguration implements BackpressureConfiguration {
+
+    private final Policy policy;
+    private final long timeout;
+    private final TimeUnit timeoutUnit;
+
+    /**
+     * Creates a new configuration waiting for room without limit when falling back to blocking.
+     *
+     * @param policy the overflow policy
+     */
+    public DefaultBackpressureConfiguration(Policy policy) {
+        this(policy, Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Creates a new configuration with the provided parameters.
+     *
+     * @param policy the overflow policy
+     * @param timeout the maximum wait for room
+     * @param timeoutUnit the timeout unit
+     */
+    public DefaultBackpressureConfiguration(Policy policy, long timeout, TimeUnit timeoutUnit) {
+        if (null == policy) {
+            throw new IllegalArgumentException("Null backpressure policy");
+        }
+        if (timeout < 0) {
+            throw new IllegalArgumentException("Backpressure timeout must not be negative, was: " + timeout + " " + timeoutUnit);
+        }
+        if (null == timeoutUnit) {
+            throw new IllegalArgumentException("Null time unit");
+        }
+        this.policy = policy;
+        this.timeout = timeout;
+        this.timeoutUnit = timeoutUnit;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Policy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public TimeUnit getTimeoutUnit() {
+        return timeoutUnit;
+    }
+
+}
@@ -15,6 +15,7 @@
 package club.cookbean.sparrow.config.impl;
 
 
+import club.cookbean.sparrow.config.AdaptiveBatchingConfiguration;
 import club.cookbean.sparrow.config.BatchingConfiguration;
 
 import java.util.concurrent.TimeUnit;
@@ -26,6 +27,7 @@ public class DefaultBatchingConfiguration implements BatchingConfiguration {
     private final TimeUnit maxDelayUnit;
     private final int batchSize;
     private final boolean coalescing;
+    private final AdaptiveBatchingConfiguration adaptiveConfiguration;
 
     /**
      * Creates a new configuration with the provided parameters.
@@ -36,10 +38,25 @@ public class DefaultBatchingConfiguration implements BatchingConfiguration {
      * @param coalescing whether the batch is to be coalesced
      */
     public DefaultBatchingConfiguration(long maxDelay, TimeUnit maxDelayUnit, int batchSize, boolean coalescing) {
+        this(maxDelay, maxDelayUnit, batchSize, coalescing, null);
+    }
+
+    /**
+     * Creates a new configuration with the provided parameters.
+     *
+     * @param maxDelay the initial maximum write delay quantity
+     * @param maxDelayUnit the maximu write delay unit
+     * @param batchSize the initial batch size
+     * @param coalescing whether the batch is to be coalesced
+     * @param adaptiveConfiguration the bounds of the batch size and max delay, {@code null} to keep them fixed
+     */
+    public DefaultBatchingConfiguration(long maxDelay, TimeUnit maxDelayUnit, int batchSize, boolean coalescing,
+                                        AdaptiveBatchingConfiguration adaptiveConfiguration) {
         this.maxDelay = maxDelay;
         this.maxDelayUnit = maxDelayUnit;
         this.batchSize = batchSize;
         this.coalescing = coalescing;
+        this.adaptiveConfiguration = adaptiveConfiguration;
     }
 
     /**
@@ -74,4 +91,12 @@ public class DefaultBatchingConfiguration implements BatchingConfiguration {
         return batchSize;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AdaptiveBatchingConfiguration getAdaptiveConfiguration() {
+        return adaptiveConfiguration;
+    }
+
 }
@@ -0,0 +1,118 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.config.impl;
+
+
+import club.cookbean.sparrow.config.BloomFilterConfiguration;
+import club.cookbean.sparrow.filter.KeySource;
+import club.cookbean.sparrow.provider.CacheLoaderProvider;
+
+import java.util.concurrent.TimeUnit;
+
+public class DefaultBloomFilterConfiguration implements BloomFilterConfiguration {
+
+    private final KeySource keySource;
+    private final long expectedInsertions;
+    private final double falsePositiveRate;
+    private final Mode mode;
+    private final long rebuildInterval;
+    private final TimeUnit rebuildIntervalUnit;
+    private final String threadPoolAlias;
+
+    public DefaultBloomFilterConfiguration(KeySource keySource, long expectedInsertions, double falsePositiveRate, Mode mode,
+                                           long rebuildInterval, TimeUnit rebuildIntervalUnit) {
+        this(keySource, expectedInsertions, falsePositiveRate, mode, rebuildInterval, rebuildIntervalUnit, null);
+    }
+
+    /**
+     * Creates a new configuration with the provided parameters.
+     *
+     * @param keySource the source of existing keys
+     * @param expectedInsertions the expected number of keys
+     * @param falsePositiveRate the target false positive rate
+     * @param mode where the filter bits live
+     * @param rebuildInterval the rebuild interval quantity, 0 to never rebuild
+     * @param rebuildIntervalUnit the rebuild interval unit
+     * @param threadPoolAlias the thread pool alias, null for the default pool
+     */
+    public DefaultBloomFilterConfiguration(KeySource keySource, long expectedInsertions, double falsePositiveRate, Mode mode,
+                                           long rebuildInterval, TimeUnit rebuildIntervalUnit, String threadPoolAlias) {
+        if (null == keySource) {
+            throw new IllegalArgumentException("Null bloom filter key source");
+        }
+        if (expectedInsertions < 1) {
+            throw new IllegalArgumentException("Expected insertions must be positive, was: " + expectedInsertions);
+        }
+        if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+            throw new IllegalArgumentException("False positive rate must be in (0, 1), was: " + falsePositiveRate);
+        }
+        if (null == mode) {
+            throw new IllegalArgumentException("Null bloom filter mode");
+        }
+        if (rebuildInterval < 0) {
+            throw new IllegalArgumentException("Rebuild interval cannot be negative, was: " + rebuildInterval + " " + rebuildIntervalUnit);
+        }
+        if (null == rebuildIntervalUnit) {
+            throw new IllegalArgumentException("Null rebuild interval unit");
+        }
+        this.keySource = keySource;
+        this.expectedInsertions = expectedInsertions;
+        this.falsePositiveRate = falsePositiveRate;
+        this.mode = mode;
+        this.rebuildInterval = rebuildInterval;
+        this.rebuildIntervalUnit = rebuildIntervalUnit;
+        this.threadPoolAlias = threadPoolAlias;
+    }
+
+    @Override
+    public Class<CacheLoaderProvider> getServiceType() {
+        return CacheLoaderProvider.class;
+    }
+
+    @Override
+    public KeySource getKeySource() {
+        return keySource;
+    }
+
+    @Override
+    public long getExpectedInsertions() {
+        return expectedInsertions;
+    }
+
+    @Override
+    public double getFalsePositiveRate() {
+        return falsePositiveRate;
+    }
+
+    @Override
+    public Mode getMode() {
+        return mode;
+    }
+
+    @Override
+    public long getRebuildInterval() {
+        return rebuildInterval;
+    }
+
+    @Override
+    public TimeUnit getRebuildIntervalUnit() {
+        return rebuildIntervalUnit;
+    }
+
+    @Override
+    public String getThreadPoolAlias() {
+        return threadPoolAlias;
+    }
+}
@@ -0,0 +1,46 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.config.impl;
+
+
+import club.cookbean.sparrow.config.BulkConfiguration;
+import club.cookbean.sparrow.storage.Storage;
+
+public class DefaultBulkConfiguration implements BulkConfiguration {
+
+    private final int chunkSize;
+
+    /**
+     * Creates a new configuration with the provided chunk size.
+     *
+     * @param chunkSize the max keys in one chunk
+     */
+    public DefaultBulkConfiguration(int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Bulk chunk size must be positive, was: " + chunkSize);
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public Class<Storage.Provider> getServiceType() {
+        return Storage.Provider.class;
+    }
+
+    @Override
+    public int getChunkSize() {
+        return chunkSize;
+    }
+}
@@ -0,0 +1,68 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.config.impl;
+
+
+import club.cookbean.sparrow.config.CompressionConfiguration;
+import club.cookbean.sparrow.storage.Storage;
+
+import java.util.zip.Deflater;
+
+public class DefaultCompressionConfiguration implements CompressionConfiguration {
+
+    private final int threshold;
+    private final int level;
+
+    /**
+     * Creates a new configuration using the fastest deflate level.
+     *
+     * @param threshold the minimum size in bytes of a value to compress
+     */
+    public DefaultCompressionConfiguration(int threshold) {
+        this(threshold, Deflater.BEST_SPEED);
+    }
+
+    /**
+     * Creates a new configuration with the provided parameters.
+     *
+     * @param threshold the minimum size in bytes of a value to compress
+     * @param level the deflate level
+     */
+    public DefaultCompressionConfiguration(int threshold, int level) {
+        if (threshold < 1) {
+            throw new IllegalArgumentException("Compression threshold must be positive, was: " + threshold);
+        }
+        if (level < Deflater.BEST_SPEED || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Compression level must be between 1 and 9, was: " + level);
+        }
+        this.threshold = threshold;
+        this.level = level;
+    }
+
+    @Override
+    public Class<Storage.Provider> getServiceType() {
+        return Storage.Provider.class;
+    }
+
+    @Override
+    public int getThreshold() {
+        return threshold;
+    }
+
+    @Override
+    public int getLevel() {
+        return level;
+    }
+}
@@ -0,0 +1,70 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.config.impl;
+
+
+import club.cookbean.sparrow.config.InvalidationConfiguration;
+import club.cookbean.sparrow.storage.Storage;
+
+import java.util.concurrent.TimeUnit;
+
+public class DefaultInvalidationConfiguration implements InvalidationConfiguration {
+
+    private final int maxBatchSize;
+    private final long maxDelay;
+    private final TimeUnit maxDelayUnit;
+
+    /**
+     * Creates a new configuration with the provided parameters.
+     *
+     * @param maxBatchSize the max keys in one message
+     * @param maxDelay the max delay quantity
+     * @param maxDelayUnit the max delay unit
+     */
+    public DefaultInvalidationConfiguration(int maxBatchSize, long maxDelay, TimeUnit maxDelayUnit) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("Invalidation batch size must be positive, was: " + maxBatchSize);
+        }
+        if (maxDelay < 0) {
+            throw new IllegalArgumentException("Invalidation max delay cannot be negative, was: " + maxDelay + " " + maxDelayUnit);
+        }
+        if (null == maxDelayUnit) {
+            throw new IllegalArgumentException("Null invalidation max delay unit");
+        }
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelay = maxDelay;
+        this.maxDelayUnit = maxDelayUnit;
+    }
+
+    @Override
+    public Class<Storage.Provider> getServiceType() {
+        return Storage.Provider.class;
+    }
+
+    @Override
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    @Override
+    public long getMaxDelay() {
+        return maxDelay;
+    }
+
+    @Override
+    public TimeUnit getMaxDelayUnit() {
+        return maxDelayUnit;
+    }
+}
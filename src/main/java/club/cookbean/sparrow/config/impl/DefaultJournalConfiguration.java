@@ -0,0 +1,60 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.config.impl;
+
+
+import club.cookbean.sparrow.config.JournalConfiguration;
+
+public class DefaultJournalConfiguration implements JournalConfiguration {
+
+    private final String directory;
+    private final int segmentSize;
+
+    /**
+     * Creates a new configuration with the default segment size.
+     *
+     * @param directory the journal directory
+     */
+    public DefaultJournalConfiguration(String directory) {
+        this(directory, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Creates a new configuration with the provided parameters.
+     *
+     * @param directory the journal directory
+     * @param segmentSize the segment size in bytes
+     */
+    public DefaultJournalConfiguration(String directory, int segmentSize) {
+        if (null == directory || directory.isEmpty()) {
+            throw new IllegalArgumentException("Journal directory cannot be empty");
+        }
+        if (segmentSize < 1) {
+            throw new IllegalArgumentException("Journal segment size must be positive, was: " + segmentSize);
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+    }
+
+    @Override
+    public String getDirectory() {
+        return directory;
+    }
+
+    @Override
+    public int getSegmentSize() {
+        return segmentSize;
+    }
+}
@@ -0,0 +1,105 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.config.impl;
+
+
+import club.cookbean.sparrow.config.LoadBatchingConfiguration;
+import club.cookbean.sparrow.provider.CacheLoaderProvider;
+
+import java.util.concurrent.TimeUnit;
+
+public class DefaultLoadBatchingConfiguration implements LoadBatchingConfiguration {
+
+    private final int maxBatchSize;
+    private final long maxDelay;
+    private final TimeUnit maxDelayUnit;
+    private final long loadTimeout;
+    private final TimeUnit loadTimeoutUnit;
+    private final String threadPoolAlias;
+
+    public DefaultLoadBatchingConfiguration(int maxBatchSize, long maxDelay, TimeUnit maxDelayUnit) {
+        this(maxBatchSize, maxDelay, maxDelayUnit, DEFAULT_LOAD_TIMEOUT_SECONDS, TimeUnit.SECONDS, null);
+    }
+
+    /**
+     * Creates a new configuration with the provided parameters.
+     *
+     * @param maxBatchSize the max keys in one bulk load
+     * @param maxDelay the max batching delay quantity
+     * @param maxDelayUnit the max batching delay unit
+     * @param loadTimeout the caller wait timeout quantity
+     * @param loadTimeoutUnit the caller wait timeout unit
+     * @param threadPoolAlias the thread pool alias, null for the default pool
+     */
+    public DefaultLoadBatchingConfiguration(int maxBatchSize, long maxDelay, TimeUnit maxDelayUnit,
+                                            long loadTimeout, TimeUnit loadTimeoutUnit, String threadPoolAlias) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("Load batch size must be positive, was: " + maxBatchSize);
+        }
+        if (maxDelay < 1) {
+            throw new IllegalArgumentException("Load batching max delay must be positive, was: " + maxDelay + " " + maxDelayUnit);
+        }
+        if (null == maxDelayUnit) {
+            throw new IllegalArgumentException("Null load batching max delay unit");
+        }
+        if (loadTimeout < 1) {
+            throw new IllegalArgumentException("Load timeout must be positive, was: " + loadTimeout + " " + loadTimeoutUnit);
+        }
+        if (null == loadTimeoutUnit) {
+            throw new IllegalArgumentException("Null load timeout unit");
+        }
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelay = maxDelay;
+        this.maxDelayUnit = maxDelayUnit;
+        this.loadTimeout = loadTimeout;
+        this.loadTimeoutUnit = loadTimeoutUnit;
+        this.threadPoolAlias = threadPoolAlias;
+    }
+
+    @Override
+    public Class<CacheLoaderProvider> getServiceType() {
+        return CacheLoaderProvider.class;
+    }
+
+    @Override
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    @Override
+    public long getMaxDelay() {
+        return maxDelay;
+    }
+
+    @Override
+    public TimeUnit getMaxDelayUnit() {
+        return maxDelayUnit;
+    }
+
+    @Override
+    public long getLoadTimeout() {
+        return loadTimeout;
+    }
+
+    @Override
+    public TimeUnit getLoadTimeoutUnit() {
+        return loadTimeoutUnit;
+    }
+
+    @Override
+    public String getThreadPoolAlias() {
+        return threadPoolAlias;
+    }
+}
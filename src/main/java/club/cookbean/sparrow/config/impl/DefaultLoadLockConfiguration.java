@@ -0,0 +1,81 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.config.impl;
+
+
+import club.cookbean.sparrow.config.LoadLockConfiguration;
+import club.cookbean.sparrow.storage.Storage;
+
+import java.util.concurrent.TimeUnit;
+
+public class DefaultLoadLockConfiguration implements LoadLockConfiguration {
+
+    private final long leaseTime;
+    private final long waitTime;
+    private final long pollInterval;
+    private final TimeUnit timeUnit;
+
+    /**
+     * Creates a new configuration with the provided parameters.
+     *
+     * @param leaseTime the lock lease quantity
+     * @param waitTime the wait budget quantity
+     * @param pollInterval the poll interval quantity
+     * @param timeUnit the time unit
+     */
+    public DefaultLoadLockConfiguration(long leaseTime, long waitTime, long pollInterval, TimeUnit timeUnit) {
+        if (null == timeUnit) {
+            throw new IllegalArgumentException("Null load lock time unit");
+        }
+        if (timeUnit.toMillis(leaseTime) < 1) {
+            throw new IllegalArgumentException("Load lock lease time must be at least 1ms, was: " + leaseTime + " " + timeUnit);
+        }
+        if (waitTime < 0) {
+            throw new IllegalArgumentException("Load lock wait time cannot be negative, was: " + waitTime + " " + timeUnit);
+        }
+        if (pollInterval < 1) {
+            throw new IllegalArgumentException("Load lock poll interval must be positive, was: " + pollInterval + " " + timeUnit);
+        }
+        this.leaseTime = leaseTime;
+        this.waitTime = waitTime;
+        this.pollInterval = pollInterval;
+        this.timeUnit = timeUnit;
+    }
+
+    @Override
+    public Class<Storage.Provider> getServiceType() {
+        return Storage.Provider.class;
+    }
+
+    @Override
+    public long getLeaseTime() {
+        return leaseTime;
+    }
+
+    @Override
+    public long getWaitTime() {
+        return waitTime;
+    }
+
+    @Override
+    public long getPollInterval() {
+        return pollInterval;
+    }
+
+    @Override
+    public TimeUnit getTimeUnit() {
+        return timeUnit;
+    }
+}
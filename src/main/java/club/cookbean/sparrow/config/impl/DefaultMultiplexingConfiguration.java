@@ -0,0 +1,78 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.config.impl;
+
+
+import club.cookbean.sparrow.config.MultiplexingConfiguration;
+import club.cookbean.sparrow.storage.Storage;
+
+public class DefaultMultiplexingConfiguration implements MultiplexingConfiguration {
+
+    private final int connections;
+    private final int maxInFlight;
+    private final int bufferSize;
+
+    /**
+     * Creates a new configuration with the default buffer size.
+     *
+     * @param connections the shared connection count
+     * @param maxInFlight the max in-flight commands per connection
+     */
+    public DefaultMultiplexingConfiguration(int connections, int maxInFlight) {
+        this(connections, maxInFlight, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Creates a new configuration with the provided parameters.
+     *
+     * @param connections the shared connection count
+     * @param maxInFlight the max in-flight commands per connection
+     * @param bufferSize the initial buffer size in bytes
+     */
+    public DefaultMultiplexingConfiguration(int connections, int maxInFlight, int bufferSize) {
+        if (connections < 1) {
+            throw new IllegalArgumentException("Multiplexing connections must be positive, was: " + connections);
+        }
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("Multiplexing max in flight must be positive, was: " + maxInFlight);
+        }
+        if (bufferSize < 64) {
+            throw new IllegalArgumentException("Multiplexing buffer size must be at least 64, was: " + bufferSize);
+        }
+        this.connections = connections;
+        this.maxInFlight = maxInFlight;
+        this.bufferSize = bufferSize;
+    }
+
+    @Override
+    public Class<Storage.Provider> getServiceType() {
+        return Storage.Provider.class;
+    }
+
+    @Override
+    public int getConnections() {
+        return connections;
+    }
+
+    @Override
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    @Override
+    public int getBufferSize() {
+        return bufferSize;
+    }
+}
@@ -0,0 +1,95 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.config.impl;
+
+
+import club.cookbean.sparrow.config.NearCacheConfiguration;
+import club.cookbean.sparrow.provider.CacheLoaderProvider;
+
+import java.util.concurrent.TimeUnit;
+
+public class DefaultNearCacheConfiguration implements NearCacheConfiguration {
+
+    private final long maxEntries;
+    private final long maxWeight;
+    private final long ttl;
+    private final TimeUnit ttlUnit;
+
+    /**
+     * Creates a new configuration bounded by the entry count.
+     *
+     * @param maxEntries the max entries
+     * @param ttl the time-to-live quantity
+     * @param ttlUnit the time-to-live unit
+     */
+    public DefaultNearCacheConfiguration(long maxEntries, long ttl, TimeUnit ttlUnit) {
+        this(maxEntries, 0, ttl, ttlUnit);
+    }
+
+    /**
+     * Creates a new configuration with the provided parameters.
+     *
+     * @param maxEntries the max entries, 0 for no limit
+     * @param maxWeight the max total weight, 0 for no limit
+     * @param ttl the time-to-live quantity
+     * @param ttlUnit the time-to-live unit
+     */
+    public DefaultNearCacheConfiguration(long maxEntries, long maxWeight, long ttl, TimeUnit ttlUnit) {
+        if (maxEntries < 0) {
+            throw new IllegalArgumentException("Near cache max entries cannot be negative, was: " + maxEntries);
+        }
+        if (maxWeight < 0) {
+            throw new IllegalArgumentException("Near cache max weight cannot be negative, was: " + maxWeight);
+        }
+        if (maxEntries == 0 && maxWeight == 0) {
+            throw new IllegalArgumentException("Near cache must be bounded by max entries or max weight");
+        }
+        if (ttl <= 0) {
+            throw new IllegalArgumentException("Near cache TTL must be positive, was: " + ttl + " " + ttlUnit);
+        }
+        if (null == ttlUnit) {
+            throw new IllegalArgumentException("Null near cache TTL unit");
+        }
+        this.maxEntries = maxEntries;
+        this.maxWeight = maxWeight;
+        this.ttl = ttl;
+        this.ttlUnit = ttlUnit;
+    }
+
+    @Override
+    public Class<CacheLoaderProvider> getServiceType() {
+        return CacheLoaderProvider.class;
+    }
+
+    @Override
+    public long getMaxEntries() {
+        return maxEntries;
+    }
+
+    @Override
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+
+    @Override
+    public long getTtl() {
+        return ttl;
+    }
+
+    @Override
+    public TimeUnit getTtlUnit() {
+        return ttlUnit;
+    }
+}
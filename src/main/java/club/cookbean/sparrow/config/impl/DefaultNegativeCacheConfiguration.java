@@ -0,0 +1,59 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.config.impl;
+
+
+import club.cookbean.sparrow.config.NegativeCacheConfiguration;
+import club.cookbean.sparrow.storage.Storage;
+
+import java.util.concurrent.TimeUnit;
+
+public class DefaultNegativeCacheConfiguration implements NegativeCacheConfiguration {
+
+    private final long ttl;
+    private final TimeUnit ttlUnit;
+
+    /**
+     * Creates a new configuration with the provided parameters.
+     *
+     * @param ttl the tombstone TTL quantity
+     * @param ttlUnit the tombstone TTL unit
+     */
+    public DefaultNegativeCacheConfiguration(long ttl, TimeUnit ttlUnit) {
+        if (null == ttlUnit) {
+            throw new IllegalArgumentException("Null tombstone TTL unit");
+        }
+        if (ttlUnit.toMillis(ttl) < 1) {
+            throw new IllegalArgumentException("Tombstone TTL must be at least 1ms, was: " + ttl + " " + ttlUnit);
+        }
+        this.ttl = ttl;
+        this.ttlUnit = ttlUnit;
+    }
+
+    @Override
+    public Class<Storage.Provider> getServiceType() {
+        return Storage.Provider.class;
+    }
+
+    @Override
+    public long getTtl() {
+        return ttl;
+    }
+
+    @Override
+    public TimeUnit getTtlUnit() {
+        return ttlUnit;
+    }
+}
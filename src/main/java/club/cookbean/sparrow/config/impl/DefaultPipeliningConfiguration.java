@@ -0,0 +1,81 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.config.impl;
+
+
+import club.cookbean.sparrow.config.PipeliningConfiguration;
+import club.cookbean.sparrow.storage.Storage;
+
+import java.util.concurrent.TimeUnit;
+
+public class DefaultPipeliningConfiguration implements PipeliningConfiguration {
+
+    private final int connections;
+    private final int maxBatchSize;
+    private final long maxDelay;
+    private final TimeUnit maxDelayUnit;
+
+    /**
+     * Creates a new configuration with the provided parameters.
+     *
+     * @param connections the dedicated connection count
+     * @param maxBatchSize the max commands in a pipeline
+     * @param maxDelay the max flush delay quantity
+     * @param maxDelayUnit the max flush delay unit
+     */
+    public DefaultPipeliningConfiguration(int connections, int maxBatchSize, long maxDelay, TimeUnit maxDelayUnit) {
+        if (connections < 1) {
+            throw new IllegalArgumentException("Pipelining connections must be positive, was: " + connections);
+        }
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("Pipelining batch size must be positive, was: " + maxBatchSize);
+        }
+        if (maxDelay < 0) {
+            throw new IllegalArgumentException("Pipelining max delay cannot be negative, was: " + maxDelay + " " + maxDelayUnit);
+        }
+        if (null == maxDelayUnit) {
+            throw new IllegalArgumentException("Null pipelining max delay unit");
+        }
+        this.connections = connections;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelay = maxDelay;
+        this.maxDelayUnit = maxDelayUnit;
+    }
+
+    @Override
+    public Class<Storage.Provider> getServiceType() {
+        return Storage.Provider.class;
+    }
+
+    @Override
+    public int getConnections() {
+        return connections;
+    }
+
+    @Override
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    @Override
+    public long getMaxDelay() {
+        return maxDelay;
+    }
+
+    @Override
+    public TimeUnit getMaxDelayUnit() {
+        return maxDelayUnit;
+    }
+}
@@ -0,0 +1,58 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.config.impl;
+
+
+import club.cookbean.sparrow.config.RefreshAheadConfiguration;
+import club.cookbean.sparrow.provider.CacheLoaderProvider;
+
+public class DefaultRefreshAheadConfiguration implements RefreshAheadConfiguration {
+
+    private final double refreshFraction;
+    private final String threadPoolAlias;
+
+    public DefaultRefreshAheadConfiguration(double refreshFraction) {
+        this(refreshFraction, null);
+    }
+
+    /**
+     * Creates a new configuration with the provided parameters.
+     *
+     * @param refreshFraction the fraction of the TTL after which entries are refreshed
+     * @param threadPoolAlias the thread pool alias, null for the default pool
+     */
+    public DefaultRefreshAheadConfiguration(double refreshFraction, String threadPoolAlias) {
+        if (!(refreshFraction > 0 && refreshFraction < 1)) {
+            throw new IllegalArgumentException("Refresh fraction must be in (0, 1), was: " + refreshFraction);
+        }
+        this.refreshFraction = refreshFraction;
+        this.threadPoolAlias = threadPoolAlias;
+    }
+
+    @Override
+    public Class<CacheLoaderProvider> getServiceType() {
+        return CacheLoaderProvider.class;
+    }
+
+    @Override
+    public double getRefreshFraction() {
+        return refreshFraction;
+    }
+
+    @Override
+    public String getThreadPoolAlias() {
+        return threadPoolAlias;
+    }
+}
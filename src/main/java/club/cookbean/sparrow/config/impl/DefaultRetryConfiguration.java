@@ -0,0 +1,118 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.config.impl;
+
+
+import club.cookbean.sparrow.config.RetryConfiguration;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+public class DefaultRetryConfiguration implements RetryConfiguration {
+
+    private final int maxAttempts;
+    private final long initialDelay;
+    private final long maxDelay;
+    private final TimeUnit delayUnit;
+    private final double multiplier;
+    private final double jitter;
+    private final Set<Class<? extends Exception>> retryableExceptions;
+    private final int deadLetterCapacity;
+
+    /**
+     * Creates a new configuration with the provided parameters.
+     *
+     * @param maxAttempts the maximum attempts, the first one included
+     * @param initialDelay the delay before the first retry
+     * @param maxDelay the maximum delay between two attempts
+     * @param delayUnit the delay unit
+     * @param multiplier the backoff multiplier
+     * @param jitter the fraction of the delay randomly taken off
+     * @param retryableExceptions the exceptions worth a retry, empty for all
+     * @param deadLetterCapacity the maximum dead operations kept
+     */
+    public DefaultRetryConfiguration(int maxAttempts, long initialDelay, long maxDelay, TimeUnit delayUnit,
+                                     double multiplier, double jitter,
+                                     Set<Class<? extends Exception>> retryableExceptions, int deadLetterCapacity) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("Max attempts must be positive, was: " + maxAttempts);
+        }
+        if (initialDelay < 0 || maxDelay < initialDelay) {
+            throw new IllegalArgumentException("Retry delays must be positive and ordered, was: " + initialDelay + " and " + maxDelay);
+        }
+        if (null == delayUnit) {
+            throw new IllegalArgumentException("Null retry delay unit");
+        }
+        if (multiplier < 1) {
+            throw new IllegalArgumentException("Backoff multiplier cannot be less than 1, was: " + multiplier);
+        }
+        if (jitter < 0 || jitter > 1) {
+            throw new IllegalArgumentException("Jitter must be between 0 and 1, was: " + jitter);
+        }
+        if (deadLetterCapacity < 0) {
+            throw new IllegalArgumentException("Dead letter capacity cannot be negative, was: " + deadLetterCapacity);
+        }
+        this.maxAttempts = maxAttempts;
+        this.initialDelay = initialDelay;
+        this.maxDelay = maxDelay;
+        this.delayUnit = delayUnit;
+        this.multiplier = multiplier;
+        this.jitter = jitter;
+        this.retryableExceptions = Collections.unmodifiableSet(new LinkedHashSet<>(retryableExceptions));
+        this.deadLetterCapacity = deadLetterCapacity;
+    }
+
+    @Override
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    @Override
+    public long getInitialDelay() {
+        return initialDelay;
+    }
+
+    @Override
+    public long getMaxDelay() {
+        return maxDelay;
+    }
+
+    @Override
+    public TimeUnit getDelayUnit() {
+        return delayUnit;
+    }
+
+    @Override
+    public double getMultiplier() {
+        return multiplier;
+    }
+
+    @Override
+    public double getJitter() {
+        return jitter;
+    }
+
+    @Override
+    public Set<Class<? extends Exception>> getRetryableExceptions() {
+        return retryableExceptions;
+    }
+
+    @Override
+    public int getDeadLetterCapacity() {
+        return deadLetterCapacity;
+    }
+}
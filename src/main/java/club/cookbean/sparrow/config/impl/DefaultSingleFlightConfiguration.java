@@ -0,0 +1,70 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.config.impl;
+
+
+import club.cookbean.sparrow.config.SingleFlightConfiguration;
+import club.cookbean.sparrow.storage.Storage;
+
+import java.util.concurrent.TimeUnit;
+
+public class DefaultSingleFlightConfiguration implements SingleFlightConfiguration {
+
+    private final long timeout;
+    private final TimeUnit timeoutUnit;
+    private final FailurePolicy failurePolicy;
+
+    /**
+     * Creates a new configuration with the provided parameters.
+     *
+     * @param timeout the wait timeout quantity
+     * @param timeoutUnit the wait timeout unit
+     * @param failurePolicy what waiters do on failure or timeout
+     */
+    public DefaultSingleFlightConfiguration(long timeout, TimeUnit timeoutUnit, FailurePolicy failurePolicy) {
+        if (timeout < 1) {
+            throw new IllegalArgumentException("Single flight timeout must be positive, was: " + timeout + " " + timeoutUnit);
+        }
+        if (null == timeoutUnit) {
+            throw new IllegalArgumentException("Null single flight timeout unit");
+        }
+        if (null == failurePolicy) {
+            throw new IllegalArgumentException("Null single flight failure policy");
+        }
+        this.timeout = timeout;
+        this.timeoutUnit = timeoutUnit;
+        this.failurePolicy = failurePolicy;
+    }
+
+    @Override
+    public Class<Storage.Provider> getServiceType() {
+        return Storage.Provider.class;
+    }
+
+    @Override
+    public long getTimeout() {
+        return timeout;
+    }
+
+    @Override
+    public TimeUnit getTimeoutUnit() {
+        return timeoutUnit;
+    }
+
+    @Override
+    public FailurePolicy getFailurePolicy() {
+        return failurePolicy;
+    }
+}
@@ -0,0 +1,71 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.config.impl;
+
+
+import club.cookbean.sparrow.config.StaleWhileRevalidateConfiguration;
+import club.cookbean.sparrow.provider.CacheLoaderProvider;
+
+import java.util.concurrent.TimeUnit;
+
+public class DefaultStaleWhileRevalidateConfiguration implements StaleWhileRevalidateConfiguration {
+
+    private final long gracePeriod;
+    private final TimeUnit gracePeriodUnit;
+    private final String threadPoolAlias;
+
+    public DefaultStaleWhileRevalidateConfiguration(long gracePeriod, TimeUnit gracePeriodUnit) {
+        this(gracePeriod, gracePeriodUnit, null);
+    }
+
+    /**
+     * Creates a new configuration with the provided parameters.
+     *
+     * @param gracePeriod the grace period quantity
+     * @param gracePeriodUnit the grace period unit
+     * @param threadPoolAlias the thread pool alias, null for the default pool
+     */
+    public DefaultStaleWhileRevalidateConfiguration(long gracePeriod, TimeUnit gracePeriodUnit, String threadPoolAlias) {
+        if (null == gracePeriodUnit) {
+            throw new IllegalArgumentException("Null grace period unit");
+        }
+        if (gracePeriodUnit.toMillis(gracePeriod) < 1) {
+            throw new IllegalArgumentException("Grace period must be at least 1ms, was: " + gracePeriod + " " + gracePeriodUnit);
+        }
+        this.gracePeriod = gracePeriod;
+        this.gracePeriodUnit = gracePeriodUnit;
+        this.threadPoolAlias = threadPoolAlias;
+    }
+
+    @Override
+    public Class<CacheLoaderProvider> getServiceType() {
+        return CacheLoaderProvider.class;
+    }
+
+    @Override
+    public long getGracePeriod() {
+        return gracePeriod;
+    }
+
+    @Override
+    public TimeUnit getGracePeriodUnit() {
+        return gracePeriodUnit;
+    }
+
+    @Override
+    public String getThreadPoolAlias() {
+        return threadPoolAlias;
+    }
+}
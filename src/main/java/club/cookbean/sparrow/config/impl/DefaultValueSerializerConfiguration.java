@@ -0,0 +1,58 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.config.impl;
+
+
+import club.cookbean.sparrow.config.ValueSerializerConfiguration;
+import club.cookbean.sparrow.serializer.Serializer;
+import club.cookbean.sparrow.storage.Storage;
+
+public class DefaultValueSerializerConfiguration<T> implements ValueSerializerConfiguration<T> {
+
+    private final Class<T> valueType;
+    private final Serializer<T> serializer;
+
+    /**
+     * Creates a new configuration with the provided parameters.
+     *
+     * @param valueType the value type
+     * @param serializer the serializer of the values
+     */
+    public DefaultValueSerializerConfiguration(Class<T> valueType, Serializer<T> serializer) {
+        if (null == valueType) {
+            throw new IllegalArgumentException("Null value type");
+        }
+        if (null == serializer) {
+            throw new IllegalArgumentException("Null value serializer");
+        }
+        this.valueType = valueType;
+        this.serializer = serializer;
+    }
+
+    @Override
+    public Class<Storage.Provider> getServiceType() {
+        return Storage.Provider.class;
+    }
+
+    @Override
+    public Class<T> getValueType() {
+        return valueType;
+    }
+
+    @Override
+    public Serializer<T> getSerializer() {
+        return serializer;
+    }
+}
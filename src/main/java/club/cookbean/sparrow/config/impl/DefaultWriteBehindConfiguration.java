@@ -15,7 +15,10 @@
 package club.cookbean.sparrow.config.impl;
 
 
+import club.cookbean.sparrow.config.BackpressureConfiguration;
 import club.cookbean.sparrow.config.BatchingConfiguration;
+import club.cookbean.sparrow.config.JournalConfiguration;
+import club.cookbean.sparrow.config.RetryConfiguration;
 import club.cookbean.sparrow.config.WriteBehindConfiguration;
 import club.cookbean.sparrow.provider.WriteBehindProvider;
 
@@ -31,6 +34,9 @@ public class DefaultWriteBehindConfiguration implements WriteBehindConfiguration
     private final int concurrency;
     private final int queueSize;
     private final String executorAlias;
+    private final JournalConfiguration journalConfig;
+    private final RetryConfiguration retryConfig;
+    private final BackpressureConfiguration backpressureConfig;
 
     /**
      * Creates a new configuration with the provided parameters.
@@ -41,6 +47,42 @@ public class DefaultWriteBehindConfiguration implements WriteBehindConfiguration
      * @param batchingConfig optional batching configuration
      */
     public DefaultWriteBehindConfiguration(String executorAlias, int concurrency, int queueSize, BatchingConfiguration batchingConfig) {
+        this(executorAlias, concurrency, queueSize, batchingConfig, null, null);
+    }
+
+    /**
+     * Creates a new configuration with the provided parameters.
+     *
+     * @param executorAlias the thread pool alias
+     * @param concurrency the write-behind concurrency
+     * @param queueSize the maximum queue size
+     * @param batchingConfig optional batching configuration
+     * @param journalConfig optional journal configuration
+     * @param retryConfig optional retry configuration
+     */
+    public DefaultWriteBehindConfiguration(String executorAlias, int concurrency, int queueSize,
+                                           BatchingConfiguration batchingConfig, JournalConfiguration journalConfig,
+                                           RetryConfiguration retryConfig) {
+        this(executorAlias, concurrency, queueSize, batchingConfig, journalConfig, retryConfig, null);
+    }
+
+    /**
+     * Creates a new configuration with the provided parameters.
+     *
+     * @param executorAlias the thread pool alias
+     * @param concurrency the write-behind concurrency
+     * @param queueSize the maximum queue size
+     * @param batchingConfig optional batching configuration
+     * @param journalConfig optional journal configuration
+     * @param retryConfig optional retry configuration
+     * @param backpressureConfig optional backpressure configuration
+     */
+    public DefaultWriteBehindConfiguration(String executorAlias, int concurrency, int queueSize,
+                                           BatchingConfiguration batchingConfig, JournalConfiguration journalConfig,
+                                           RetryConfiguration retryConfig, BackpressureConfiguration backpressureConfig) {
+        this.backpressureConfig = backpressureConfig;
+        this.journalConfig = journalConfig;
+        this.retryConfig = retryConfig;
         this.concurrency = concurrency;
         this.queueSize = queueSize;
         this.executorAlias = executorAlias;
@@ -71,4 +113,19 @@ public class DefaultWriteBehindConfiguration implements WriteBehindConfiguration
     public String getThreadPoolAlias() {
         return executorAlias;
     }
+
+    @Override
+    public JournalConfiguration getJournalConfiguration() {
+        return journalConfig;
+    }
+
+    @Override
+    public RetryConfiguration getRetryConfiguration() {
+        return retryConfig;
+    }
+
+    @Override
+    public BackpressureConfiguration getBackpressureConfiguration() {
+        return backpressureConfig;
+    }
 }
@@ -16,32 +16,48 @@ package club.cookbean.sparrow.config.impl;
 
 
 import club.cookbean.sparrow.config.CacheConfiguration;
+import club.cookbean.sparrow.config.ServiceConfiguration;
 import club.cookbean.sparrow.redis.RedisConnector;
 import club.cookbean.sparrow.redis.RedisResource;
 import club.cookbean.sparrow.storage.Storage;
 
+import java.util.Collection;
+import java.util.Collections;
+
 public class StorageConfigurationImpl implements Storage.Configuration {
 
     private final ClassLoader classLoader;
     private final RedisResource redisResource;
     private final RedisConnector redisConnector;
     private final int dispatcherConcurrency;
+    private final Collection<ServiceConfiguration<?>> serviceConfigurations;
 
     public StorageConfigurationImpl(CacheConfiguration cacheConfiguration, int dispatcherConcurrency) {
         this(cacheConfiguration.getClassLoader(),
                 cacheConfiguration.getRedisResource(),
                 cacheConfiguration.getRedisConnector(),
-                dispatcherConcurrency);
+                dispatcherConcurrency,
+                cacheConfiguration.getServiceConfigurations());
     }
 
     public StorageConfigurationImpl(ClassLoader classLoader,
                                     RedisResource redisResource,
                                     RedisConnector redisConnector,
                                     int dispatcherConcurrency) {
+        this(classLoader, redisResource, redisConnector, dispatcherConcurrency,
+                Collections.<ServiceConfiguration<?>>emptyList());
+    }
+
+    public StorageConfigurationImpl(ClassLoader classLoader,
+                                    RedisResource redisResource,
+                                    RedisConnector redisConnector,
+                                    int dispatcherConcurrency,
+                                    Collection<ServiceConfiguration<?>> serviceConfigurations) {
         this.classLoader = classLoader;
         this.redisResource = redisResource;
         this.redisConnector = redisConnector;
         this.dispatcherConcurrency = dispatcherConcurrency;
+        this.serviceConfigurations = serviceConfigurations;
     }
 
     @Override
@@ -63,4 +79,9 @@ public class StorageConfigurationImpl implements Storage.Configuration {
     public RedisConnector getConnector() {
         return redisConnector;
     }
+
+    @Override
+    public Collection<ServiceConfiguration<?>> getServiceConfigurations() {
+        return serviceConfigurations;
+    }
 }
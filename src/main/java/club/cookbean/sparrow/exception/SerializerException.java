@@ -0,0 +1,35 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.exception;
+
+/**
+ * Thrown when a {@link club.cookbean.sparrow.serializer.Serializer} cannot turn a value into bytes or back.
+ */
+public class SerializerException extends RuntimeException {
+
+    private static final long serialVersionUID = -4008956327217206643L;
+
+    public SerializerException(String message) {
+        super(message);
+    }
+
+    public SerializerException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public SerializerException(Throwable cause) {
+        super(cause);
+    }
+}
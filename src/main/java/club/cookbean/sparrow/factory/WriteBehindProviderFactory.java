@@ -70,7 +70,9 @@ public class WriteBehindProviderFactory implements ServiceFactory<WriteBehindPro
             if (cacheWriter == null) {
                 throw new NullPointerException("WriteBehind requires a non null CacheLoaderWriter.");
             }
-            return new StripedWriteBehind(executionService, threadPoolAlias, writeBehindConfiguration, cacheWriter);
+            WriteBehind writeBehind = new StripedWriteBehind(executionService, threadPoolAlias, writeBehindConfiguration, cacheWriter);
+            writeBehind.start();
+            return writeBehind;
         }
 
         @Override
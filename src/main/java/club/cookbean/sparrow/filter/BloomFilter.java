@@ -0,0 +1,44 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.filter;
+
+import club.cookbean.sparrow.exception.StorageAccessException;
+
+/**
+ * Desc: Probabilistic key set without false negatives.
+ */
+public interface BloomFilter {
+
+    /**
+     * @param key key to test
+     * @return false if the key was definitely never put
+     */
+    boolean mightContain(String key) throws StorageAccessException;
+
+    void put(String key) throws StorageAccessException;
+
+    /**
+     * Whether the filter was already built, possibly by another node
+     */
+    boolean isBuilt() throws StorageAccessException;
+
+    /**
+     * Build a fresh filter from the keys and swap it in. Keys put while
+     * rebuilding make it into the new filter.
+     *
+     * @param keys all existing keys
+     */
+    void rebuild(Iterable<String> keys) throws StorageAccessException;
+}
@@ -0,0 +1,114 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.filter;
+
+import club.cookbean.sparrow.exception.StorageAccessException;
+import club.cookbean.sparrow.util.ExecutorUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Desc: Keeps a {@link BloomFilter} built from a {@link KeySource} in front of
+ * the cache loader. Until the first build completes, and whenever the filter
+ * cannot be reached, every key is reported as possibly present.
+ */
+public class BloomFilterGuard {
+    private static final Logger LOGGER = LoggerFactory.getLogger(BloomFilterGuard.class);
+
+    private final BloomFilter filter;
+    private final KeySource keySource;
+    private final ScheduledExecutorService executor;
+    private final long rebuildInterval;
+    private final TimeUnit rebuildIntervalUnit;
+
+    private volatile boolean ready;
+
+    public BloomFilterGuard(BloomFilter filter, KeySource keySource, ScheduledExecutorService executor,
+                            long rebuildInterval, TimeUnit rebuildIntervalUnit) {
+        this.filter = filter;
+        this.keySource = keySource;
+        this.executor = executor;
+        this.rebuildInterval = rebuildInterval;
+        this.rebuildIntervalUnit = rebuildIntervalUnit;
+    }
+
+    public void start() {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    if (filter.isBuilt()) {
+                        // built by another node
+                        ready = true;
+                        return;
+                    }
+                } catch (StorageAccessException e) {
+                    LOGGER.warn("Bloom filter state unknown, rebuild it", e);
+                }
+                rebuild();
+            }
+        });
+        if (rebuildInterval > 0) {
+            executor.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    rebuild();
+                }
+            }, rebuildInterval, rebuildInterval, rebuildIntervalUnit);
+        }
+    }
+
+    public void stop() {
+        ExecutorUtil.shutdownNow(executor);
+    }
+
+    /**
+     * @param key key to test
+     * @return false if the key definitely does not exist
+     */
+    public boolean mightContain(String key) {
+        if (!ready) {
+            return true;
+        }
+        try {
+            return filter.mightContain(key);
+        } catch (StorageAccessException e) {
+            LOGGER.warn("Bloom filter lookup of key '{}' fail", key, e);
+            return true;
+        }
+    }
+
+    public void put(String key) {
+        try {
+            filter.put(key);
+        } catch (StorageAccessException e) {
+            LOGGER.warn("Bloom filter put of key '{}' fail", key, e);
+        }
+    }
+
+    private void rebuild() {
+        long start = System.nanoTime();
+        try {
+            filter.rebuild(keySource.keys());
+            ready = true;
+            LOGGER.info("Bloom filter rebuilt in {}ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (Exception e) {
+            LOGGER.error("Bloom filter rebuild fail", e);
+        }
+    }
+}
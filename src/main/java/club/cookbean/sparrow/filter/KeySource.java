@@ -0,0 +1,30 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.filter;
+
+/**
+ * Desc: Bulk source of every key that exists in the backend, used to build a
+ * {@link BloomFilter}.
+ */
+public interface KeySource {
+
+    /**
+     * All existing keys, iterated once per build
+     *
+     * @return existing keys
+     * @throws Exception if the keys cannot be read
+     */
+    Iterable<String> keys() throws Exception;
+}
@@ -0,0 +1,73 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.filter.impl;
+
+import club.cookbean.sparrow.filter.BloomFilter;
+
+/**
+ * Desc: Bloom filter sizing and hashing. The k bit offsets of a key come from
+ * two 64-bit hashes combined as h1 + i * h2.
+ */
+public abstract class AbstractBloomFilter implements BloomFilter {
+
+    private static final long SEED_1 = 0x9E3779B97F4A7C15L;
+    private static final long SEED_2 = 0xC2B2AE3D27D4EB4FL;
+
+    protected final long numBits;
+    protected final int numHashes;
+
+    protected AbstractBloomFilter(long expectedInsertions, double falsePositiveRate, long maxBits) {
+        if (expectedInsertions < 1) {
+            throw new IllegalArgumentException("Expected insertions must be positive, was: " + expectedInsertions);
+        }
+        if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+            throw new IllegalArgumentException("False positive rate must be in (0, 1), was: " + falsePositiveRate);
+        }
+        long bits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        if (bits > maxBits) {
+            throw new IllegalArgumentException("Bloom filter needs " + bits + " bits, more than the limit " + maxBits);
+        }
+        this.numBits = Math.max(64, bits);
+        this.numHashes = Math.max(1, (int) Math.round((double) this.numBits / expectedInsertions * Math.log(2)));
+    }
+
+    protected long[] offsets(String key) {
+        long hash1 = hash(key, SEED_1);
+        long hash2 = hash(key, SEED_2);
+        long[] offsets = new long[numHashes];
+        long combined = hash1;
+        for (int i = 0; i < numHashes; i++) {
+            offsets[i] = (combined & Long.MAX_VALUE) % numBits;
+            combined += hash2;
+        }
+        return offsets;
+    }
+
+    private static long hash(String key, long seed) {
+        long h = seed ^ (key.length() * 0xFF51AFD7ED558CCDL);
+        for (int i = 0, length = key.length(); i < length; i++) {
+            h ^= key.charAt(i);
+            h *= 0xFF51AFD7ED558CCDL;
+            h ^= h >>> 33;
+        }
+        // murmur3 fmix64
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
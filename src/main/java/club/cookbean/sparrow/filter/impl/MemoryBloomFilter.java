@@ -0,0 +1,114 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.filter.impl;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Desc: Bloom filter on a local bit array, lookups never leave the JVM.
+ */
+public class MemoryBloomFilter extends AbstractBloomFilter {
+
+    private static final long MAX_BITS = (long) Integer.MAX_VALUE * Long.SIZE;
+
+    private volatile AtomicLongArray bits;
+    private volatile AtomicLongArray rebuilding;
+    // puts share it, installing and swapping the shadow excludes them so no put falls between the two arrays
+    private final ReadWriteLock swapLock = new ReentrantReadWriteLock();
+
+    public MemoryBloomFilter(long expectedInsertions, double falsePositiveRate) {
+        super(expectedInsertions, falsePositiveRate, MAX_BITS);
+        this.bits = newBits();
+    }
+
+    @Override
+    public boolean mightContain(String key) {
+        AtomicLongArray current = this.bits;
+        for (long offset : offsets(key)) {
+            if ((current.get((int) (offset >>> 6)) & (1L << offset)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void put(String key) {
+        long[] offsets = offsets(key);
+        swapLock.readLock().lock();
+        try {
+            set(this.bits, offsets);
+            AtomicLongArray shadow = this.rebuilding;
+            if (null != shadow) {
+                set(shadow, offsets);
+            }
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean isBuilt() {
+        return false;
+    }
+
+    @Override
+    public synchronized void rebuild(Iterable<String> keys) {
+        AtomicLongArray shadow = newBits();
+        swapLock.writeLock().lock();
+        try {
+            this.rebuilding = shadow;
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+        boolean built = false;
+        try {
+            for (String key : keys) {
+                set(shadow, offsets(key));
+            }
+            built = true;
+        } finally {
+            swapLock.writeLock().lock();
+            try {
+                if (built) {
+                    this.bits = shadow;
+                }
+                this.rebuilding = null;
+            } finally {
+                swapLock.writeLock().unlock();
+            }
+        }
+    }
+
+    private AtomicLongArray newBits() {
+        return new AtomicLongArray((int) ((numBits + Long.SIZE - 1) >>> 6));
+    }
+
+    private static void set(AtomicLongArray bits, long[] offsets) {
+        for (long offset : offsets) {
+            int index = (int) (offset >>> 6);
+            long mask = 1L << offset;
+            long word;
+            do {
+                word = bits.get(index);
+                if ((word & mask) != 0) {
+                    break;
+                }
+            } while (!bits.compareAndSet(index, word, word | mask));
+        }
+    }
+}
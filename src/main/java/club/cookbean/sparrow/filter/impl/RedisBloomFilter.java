@@ -0,0 +1,109 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.filter.impl;
+
+import club.cookbean.sparrow.exception.StorageAccessException;
+import club.cookbean.sparrow.storage.Storage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Desc: Bloom filter on a redis bitmap, shared by every node of the cache.
+ * A rebuild fills a shadow bitmap that concurrent puts also write to, then
+ * renames it over the live one. Both keys carry the same hash tag so the
+ * scripts work on a cluster.
+ */
+public class RedisBloomFilter extends AbstractBloomFilter {
+
+    // redis strings are limited to 512MB
+    private static final long MAX_BITS = 1L << 32;
+
+    private static final String GET_BITS_SCRIPT =
+            "for i = 1, #ARGV do if redis.call('getbit', KEYS[1], ARGV[i]) == 0 then return 0 end end return 1";
+    private static final String SET_BITS_SCRIPT =
+            "local shadow = redis.call('exists', KEYS[2]) == 1 " +
+            "for i = 1, #ARGV do redis.call('setbit', KEYS[1], ARGV[i], 1) " +
+            "if shadow then redis.call('setbit', KEYS[2], ARGV[i], 1) end end return 1";
+    private static final String RESET_SCRIPT =
+            "redis.call('del', KEYS[1]) redis.call('setbit', KEYS[1], ARGV[1], 0) return 1";
+    private static final String FILL_SCRIPT =
+            "for i = 1, #ARGV do redis.call('setbit', KEYS[1], ARGV[i], 1) end return 1";
+    private static final String EXISTS_SCRIPT =
+            "return redis.call('exists', KEYS[1])";
+    private static final String RENAME_SCRIPT =
+            "if redis.call('exists', KEYS[2]) == 1 then redis.call('rename', KEYS[2], KEYS[1]) end return 1";
+
+    private static final int FILL_BATCH_KEYS = 1000;
+
+    private final Storage storage;
+    private final List<String> bitmapKey;
+    private final List<String> shadowKey;
+    private final List<String> bothKeys;
+
+    public RedisBloomFilter(Storage storage, long expectedInsertions, double falsePositiveRate) {
+        super(expectedInsertions, falsePositiveRate, MAX_BITS);
+        this.storage = storage;
+        String tagged = "{" + storage.normalizeKey("__bloom") + "}";
+        this.bitmapKey = Collections.singletonList(tagged);
+        this.shadowKey = Collections.singletonList(tagged + ":rebuild");
+        this.bothKeys = Arrays.asList(tagged, tagged + ":rebuild");
+    }
+
+    @Override
+    public boolean mightContain(String key) throws StorageAccessException {
+        Object result = storage.eval(GET_BITS_SCRIPT, bitmapKey, toArgs(offsets(key)));
+        return Long.valueOf(1).equals(result);
+    }
+
+    @Override
+    public void put(String key) throws StorageAccessException {
+        storage.eval(SET_BITS_SCRIPT, bothKeys, toArgs(offsets(key)));
+    }
+
+    @Override
+    public boolean isBuilt() throws StorageAccessException {
+        return Long.valueOf(1).equals(storage.eval(EXISTS_SCRIPT, bitmapKey, Collections.<String>emptyList()));
+    }
+
+    @Override
+    public void rebuild(Iterable<String> keys) throws StorageAccessException {
+        storage.eval(RESET_SCRIPT, shadowKey, Collections.singletonList(String.valueOf(numBits - 1)));
+        List<String> args = new ArrayList<>(FILL_BATCH_KEYS * numHashes);
+        for (String key : keys) {
+            for (long offset : offsets(key)) {
+                args.add(String.valueOf(offset));
+            }
+            if (args.size() >= FILL_BATCH_KEYS * numHashes) {
+                storage.eval(FILL_SCRIPT, shadowKey, args);
+                args.clear();
+            }
+        }
+        if (!args.isEmpty()) {
+            storage.eval(FILL_SCRIPT, shadowKey, args);
+        }
+        storage.eval(RENAME_SCRIPT, bothKeys, Collections.<String>emptyList());
+    }
+
+    private static List<String> toArgs(long[] offsets) {
+        List<String> args = new ArrayList<>(offsets.length);
+        for (long offset : offsets) {
+            args.add(String.valueOf(offset));
+        }
+        return args;
+    }
+}
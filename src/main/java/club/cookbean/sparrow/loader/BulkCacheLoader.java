@@ -0,0 +1,37 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.loader;
+
+
+import club.cookbean.sparrow.exception.BulkCacheLoadingException;
+import club.cookbean.sparrow.redis.Cacheable;
+
+import java.util.Map;
+
+/**
+ * Optional bulk contract of a {@link CacheLoader}. Bulk reads of a cache whose
+ * loader implements it load all their missing keys in one call, other loaders
+ * are called once per missing key.
+ */
+public interface BulkCacheLoader extends CacheLoader {
+
+    /**
+     * Load multiple keys at once
+     *
+     * @param keys keys to load
+     * @return loaded values by key, absent keys may be left out or mapped to null
+     */
+    Map<String, Cacheable> loadAll(Iterable<String> keys) throws BulkCacheLoadingException, Exception;
+}
@@ -0,0 +1,220 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.loader.impl;
+
+import club.cookbean.sparrow.config.LoadBatchingConfiguration;
+import club.cookbean.sparrow.exception.BulkCacheLoadingException;
+import club.cookbean.sparrow.loader.BulkCacheLoader;
+import club.cookbean.sparrow.redis.Cacheable;
+import club.cookbean.sparrow.service.ExecutionService;
+import club.cookbean.sparrow.util.ExecutorUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Desc: Loader decorator collecting single-key loads of concurrent callers into
+ * batches. A batch is sent to {@link BulkCacheLoader#loadAll(Iterable)} once it
+ * is full or its max delay expires, and every caller gets its own value.
+ */
+public class BatchingCacheLoader implements BulkCacheLoader {
+    private static final Logger LOGGER = LoggerFactory.getLogger(BatchingCacheLoader.class);
+
+    private final BulkCacheLoader cacheLoader;
+
+    private final ExecutorService executor;
+    private final ScheduledExecutorService scheduledExecutor;
+
+    private final long maxDelayNanos;
+    private final int batchSize;
+    private final long loadTimeoutNanos;
+
+    private Batch openBatch;
+    // the max delay timer is scheduled, one timer re-armed for the open batch instead of one per batch
+    private boolean timerArmed;
+    private final Runnable flushTask = new Runnable() {
+        @Override
+        public void run() {
+            synchronized (BatchingCacheLoader.this) {
+                timerArmed = false;
+                if (openBatch == null) {
+                    return;
+                }
+                long remaining = maxDelayNanos - (System.nanoTime() - openBatch.openedAt);
+                if (remaining > 0) {
+                    // opened after the batch the timer was armed for
+                    armTimer(remaining);
+                    return;
+                }
+                Batch batch = openBatch;
+                openBatch = null;
+                try {
+                    submit(batch);
+                } catch (RejectedExecutionException e) {
+                    // stopping, the batch is failed already
+                }
+            }
+        }
+    };
+
+    public BatchingCacheLoader(ExecutionService executionService,
+                               LoadBatchingConfiguration config,
+                               BulkCacheLoader cacheLoader) {
+        this.cacheLoader = cacheLoader;
+        this.maxDelayNanos = config.getMaxDelayUnit().toNanos(config.getMaxDelay());
+        this.batchSize = config.getMaxBatchSize();
+        this.loadTimeoutNanos = config.getLoadTimeoutUnit().toNanos(config.getLoadTimeout());
+        this.executor = executionService.getUnorderedExecutor(config.getThreadPoolAlias(), new LinkedBlockingQueue<Runnable>());
+        this.scheduledExecutor = executionService.getScheduledExecutor(config.getThreadPoolAlias());
+    }
+
+    @Override
+    public Cacheable load(String key) throws Exception {
+        PendingLoad pending;
+        synchronized (this) {
+            if (openBatch == null) {
+                openBatch = new Batch();
+                if (!timerArmed) {
+                    armTimer(maxDelayNanos);
+                }
+            }
+            pending = openBatch.add(key);
+            if (openBatch.size() >= batchSize) {
+                submit(openBatch);
+                openBatch = null;
+            }
+        }
+        return pending.get(key, loadTimeoutNanos);
+    }
+
+    @Override
+    public Map<String, Cacheable> loadAll(Iterable<String> keys) throws Exception {
+        // already a bulk load
+        return cacheLoader.loadAll(keys);
+    }
+
+    @Override
+    public Set<Cacheable> loadSet(String key) throws BulkCacheLoadingException, Exception {
+        return cacheLoader.loadSet(key);
+    }
+
+    @Override
+    public List<Cacheable> loadList(String key) throws BulkCacheLoadingException, Exception {
+        return cacheLoader.loadList(key);
+    }
+
+    public void stop() {
+        try {
+            synchronized (this) {
+                if (openBatch != null) {
+                    ExecutorUtil.waitFor(submit(openBatch));
+                    openBatch = null;
+                }
+            }
+        } catch (ExecutionException e) {
+            LOGGER.error("Exception running load batch on shutdown", e);
+        } finally {
+            ExecutorUtil.shutdownNow(scheduledExecutor);
+            ExecutorUtil.shutdown(executor);
+        }
+    }
+
+    // guarded by this
+    private void armTimer(long delayNanos) {
+        timerArmed = true;
+        try {
+            scheduledExecutor.schedule(flushTask, delayNanos, TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            // stopping, the open batch is submitted by stop
+            timerArmed = false;
+        }
+    }
+
+    private Future<?> submit(Batch batch) {
+        try {
+            return executor.submit(batch);
+        } catch (RejectedExecutionException e) {
+            batch.fail(e);
+            throw e;
+        }
+    }
+
+    private class Batch implements Runnable {
+
+        // the same key asked twice in a window is loaded once
+        private final Map<String, PendingLoad> pendings = new LinkedHashMap<>();
+        private final long openedAt = System.nanoTime();
+
+        PendingLoad add(String key) {
+            PendingLoad pending = pendings.get(key);
+            if (null == pending) {
+                pending = new PendingLoad();
+                pendings.put(key, pending);
+            }
+            return pending;
+        }
+
+        int size() {
+            return pendings.size();
+        }
+
+        void fail(Exception e) {
+            for (PendingLoad pending : pendings.values()) {
+                pending.fail(e);
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                Map<String, Cacheable> values = cacheLoader.loadAll(pendings.keySet());
+                for (Map.Entry<String, PendingLoad> entry : pendings.entrySet()) {
+                    entry.getValue().succeed(null != values ? values.get(entry.getKey()) : null);
+                }
+            } catch (Exception e) {
+                LOGGER.warn("Exception while bulk loading {} keys", pendings.size(), e);
+                fail(e);
+            }
+        }
+    }
+
+    private static class PendingLoad {
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile Cacheable value;
+        private volatile Exception failure;
+
+        void succeed(Cacheable value) {
+            this.value = value;
+            done.countDown();
+        }
+
+        void fail(Exception failure) {
+            this.failure = failure;
+            done.countDown();
+        }
+
+        Cacheable get(String key, long timeoutNanos) throws Exception {
+            if (!done.await(timeoutNanos, TimeUnit.NANOSECONDS)) {
+                throw new TimeoutException("Timed out waiting for the batched load of key '" + key + "'");
+            }
+            if (null != failure) {
+                throw failure;
+            }
+            return value;
+        }
+    }
+}
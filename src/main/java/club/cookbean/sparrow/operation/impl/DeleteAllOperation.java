@@ -36,4 +36,8 @@ public class DeleteAllOperation implements BatchOperation {
     public void performOperation(CacheWriter cacheWriter) throws BulkCacheWritingException, Exception {
         cacheWriter.deleteAll(entries);
     }
+
+    public Iterable<String> getEntries() {
+        return entries;
+    }
 }
@@ -34,4 +34,8 @@ public class WriteAllOperation implements BatchOperation {
     public void performOperation(CacheWriter cacheWriter) throws BulkCacheWritingException, Exception {
         cacheWriter.writeAll(entries);
     }
+
+    public Iterable<? extends Map.Entry<String, Cacheable>> getEntries() {
+        return entries;
+    }
 }
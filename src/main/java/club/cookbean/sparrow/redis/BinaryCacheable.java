@@ -0,0 +1,30 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.redis;
+
+/**
+ * A value stored as raw bytes, e.g. a protobuf or kryo payload. Storages write {@link #getBytes()}
+ * with binary commands and never call {@link #getValue()}; read it back by
+ * {@link club.cookbean.sparrow.cache.Cache#getBytes(String)} or
+ * {@link club.cookbean.sparrow.cache.Cache#getByteBuffer(String)}.
+ */
+public interface BinaryCacheable extends Cacheable {
+
+    /**
+     * Get binary value, it is written as is, don't modify it after handing it to the cache
+     * @return binary value
+     */
+    byte[] getBytes();
+}
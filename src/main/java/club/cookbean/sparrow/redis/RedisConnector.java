@@ -30,10 +30,16 @@ public interface RedisConnector {
 
 
     JedisPoolConfig getPoolConfig();
+
     // cluster
-    /*int getMaxAttempts();
 
-    int getMaxTotal();
+    /**
+     * Max redirections/retries a cluster command may take before it fails
+     * @return max attempts
+     */
+    int getMaxAttempts();
+
+    /*int getMaxTotal();
 
     int getMaxIdle();
 
@@ -47,15 +47,9 @@ public class RedisConnectorAdapter implements RedisConnector {
         this.type = type;
         this.poolConfig = poolConfig;
 
-        if (connectTimeout <= 0 ) {
-            this.connectTimeout = DEFAULT_CON_TIMEOUT;
-        }
-        if (socketTimeout <= 0) {
-            this.socketTimeout = DEFAULT_SO_TIMEOUT;
-        }
-        if (type == RedisResource.ResourceType.CLUSTER && maxAttempts <= 0) {
-            this.maxAttempts = DEFAULT_MAX_ATTEMPT;
-        }
+        this.connectTimeout = connectTimeout > 0 ? connectTimeout : DEFAULT_CON_TIMEOUT;
+        this.socketTimeout = socketTimeout > 0 ? socketTimeout : DEFAULT_SO_TIMEOUT;
+        this.maxAttempts = maxAttempts > 0 ? maxAttempts : DEFAULT_MAX_ATTEMPT;
 
         validate();
     }
@@ -90,6 +84,11 @@ public class RedisConnectorAdapter implements RedisConnector {
         return this.poolConfig;
     }
 
+    @Override
+    public int getMaxAttempts() {
+        return this.maxAttempts;
+    }
+
     private void validate() {
         if (StringUtils.isBlank(this.name) || this.name.length() > 10) {
             throw new IllegalArgumentException("Connector name must not be blank and less then 10 characters");
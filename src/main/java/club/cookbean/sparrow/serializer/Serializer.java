@@ -0,0 +1,40 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.serializer;
+
+import club.cookbean.sparrow.exception.SerializerException;
+
+/**
+ * Turns cache values into the bytes stored in redis and back, see {@link club.cookbean.sparrow.cache.TypedCache}.
+ * <p>
+ * Implementations are shared by all caller threads and must be thread safe,
+ * both methods run on the caller thread.
+ *
+ * @param <T> the type of the values
+ */
+public interface Serializer<T> {
+
+    /**
+     * @param object the value to serialize, never null
+     * @return the serialized bytes, owned by the caller
+     */
+    byte[] serialize(T object) throws SerializerException;
+
+    /**
+     * @param binary bytes produced by {@link #serialize(Object)}
+     * @return the value
+     */
+    T read(byte[] binary) throws SerializerException;
+}
@@ -0,0 +1,33 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.serializer.impl;
+
+import club.cookbean.sparrow.serializer.Serializer;
+
+/**
+ * Stores byte[] values as they are.
+ */
+public class ByteArraySerializer implements Serializer<byte[]> {
+
+    @Override
+    public byte[] serialize(byte[] object) {
+        return object;
+    }
+
+    @Override
+    public byte[] read(byte[] binary) {
+        return binary;
+    }
+}
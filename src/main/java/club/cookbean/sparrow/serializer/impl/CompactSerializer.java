@@ -0,0 +1,447 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.serializer.impl;
+
+import club.cookbean.sparrow.exception.SerializerException;
+import club.cookbean.sparrow.serializer.Serializer;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.util.*;
+
+/**
+ * Desc: Compact schema-less binary format, every value is a one byte tag followed by its payload.
+ * <p>
+ * Integers are zigzag varints, strings and byte[] are length prefixed, {@link List}, {@link Set} and
+ * {@link Map} nest any supported value. Other {@link Serializable} objects fall back to java serialization,
+ * only for the classes explicitly allowed: every class met while reading a java serialized value, nested
+ * fields and serializable super classes included, must be on the allowlist or the read fails. Without an
+ * allowlist there is no fallback, a value from redis never picks the classes a reader instantiates.
+ * Values are written into a thread-local buffer reused across calls, only the final byte[] is allocated.
+ * Lists, sets and maps read back as {@link ArrayList}, {@link LinkedHashSet} and {@link LinkedHashMap}.
+ */
+public class CompactSerializer implements Serializer<Object> {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final byte NULL = 0;
+    private static final byte TRUE = 1;
+    private static final byte FALSE = 2;
+    private static final byte INT = 3;
+    private static final byte LONG = 4;
+    private static final byte DOUBLE = 5;
+    private static final byte FLOAT = 6;
+    private static final byte STRING = 7;
+    private static final byte BYTES = 8;
+    private static final byte LIST = 9;
+    private static final byte SET = 10;
+    private static final byte MAP = 11;
+    private static final byte SHORT = 12;
+    private static final byte BYTE = 13;
+    private static final byte CHAR = 14;
+    private static final byte DATE = 15;
+    private static final byte SERIALIZABLE = 16;
+
+    private static final int INITIAL_BUFFER_SIZE = 256;
+    // a buffer grown past this is dropped after use instead of being pinned to the thread
+    private static final int MAX_RETAINED_BUFFER_SIZE = 64 * 1024;
+
+    private static final ThreadLocal<Output> OUTPUT = new ThreadLocal<Output>() {
+        @Override
+        protected Output initialValue() {
+            return new Output();
+        }
+    };
+
+    // always safe to resolve, the boxed types and super classes java serialization writes on its own
+    private static final Set<String> IMPLICITLY_ALLOWED = new HashSet<>(Arrays.asList(
+            Number.class.getName(), Enum.class.getName(), String.class.getName(), Boolean.class.getName(),
+            Byte.class.getName(), Character.class.getName(), Short.class.getName(), Integer.class.getName(),
+            Long.class.getName(), Float.class.getName(), Double.class.getName()));
+
+    private final ClassLoader classLoader;
+    private final Set<String> allowedClasses;
+
+    public CompactSerializer() {
+        this(CompactSerializer.class.getClassLoader());
+    }
+
+    /**
+     * @param classLoader loads the classes of java serialized values
+     */
+    public CompactSerializer(ClassLoader classLoader) {
+        this(classLoader, Collections.<Class<?>>emptySet());
+    }
+
+    /**
+     * @param classLoader loads the classes of java serialized values
+     * @param allowedClasses the classes java serialization may read back
+     */
+    public CompactSerializer(ClassLoader classLoader, Collection<Class<?>> allowedClasses) {
+        this.classLoader = classLoader;
+        Set<String> names = new HashSet<>(IMPLICITLY_ALLOWED);
+        for (Class<?> allowedClass : allowedClasses) {
+            names.add(allowedClass.getName());
+        }
+        this.allowedClasses = Collections.unmodifiableSet(names);
+    }
+
+    @Override
+    public byte[] serialize(Object object) throws SerializerException {
+        Output output = OUTPUT.get();
+        if (output.inUse) {
+            // re-entered from a java serialized value, don't clobber the outer buffer
+            output = new Output();
+        }
+        output.inUse = true;
+        try {
+            write(object, output);
+            return Arrays.copyOf(output.buffer, output.position);
+        } finally {
+            output.reset();
+        }
+    }
+
+    @Override
+    public Object read(byte[] binary) throws SerializerException {
+        Input input = new Input(binary);
+        Object value = read(input);
+        if (input.position != binary.length) {
+            throw new SerializerException((binary.length - input.position) + " trailing bytes after the value");
+        }
+        return value;
+    }
+
+    private void write(Object value, Output out) {
+        if (null == value) {
+            out.writeByte(NULL);
+        } else if (value instanceof String) {
+            out.writeByte(STRING);
+            out.writeString((String) value);
+        } else if (value instanceof Integer) {
+            out.writeByte(INT);
+            out.writeVarLong(zigzag((Integer) value));
+        } else if (value instanceof Long) {
+            out.writeByte(LONG);
+            out.writeVarLong(zigzag((Long) value));
+        } else if (value instanceof Boolean) {
+            out.writeByte((Boolean) value ? TRUE : FALSE);
+        } else if (value instanceof Double) {
+            out.writeByte(DOUBLE);
+            out.writeFixedLong(Double.doubleToLongBits((Double) value));
+        } else if (value instanceof Float) {
+            out.writeByte(FLOAT);
+            out.writeVarLong(Float.floatToIntBits((Float) value) & 0xFFFFFFFFL);
+        } else if (value instanceof byte[]) {
+            byte[] bytes = (byte[]) value;
+            out.writeByte(BYTES);
+            out.writeVarLong(bytes.length);
+            out.writeBytes(bytes);
+        } else if (value instanceof List) {
+            writeElements(LIST, (List<?>) value, out);
+        } else if (value instanceof Set) {
+            writeElements(SET, (Set<?>) value, out);
+        } else if (value instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            out.writeByte(MAP);
+            out.writeVarLong(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                write(entry.getKey(), out);
+                write(entry.getValue(), out);
+            }
+        } else if (value instanceof Short) {
+            out.writeByte(SHORT);
+            out.writeVarLong(zigzag((Short) value));
+        } else if (value instanceof Byte) {
+            out.writeByte(BYTE);
+            out.writeByte((Byte) value);
+        } else if (value instanceof Character) {
+            out.writeByte(CHAR);
+            out.writeVarLong((Character) value);
+        } else if (value.getClass() == Date.class) {
+            out.writeByte(DATE);
+            out.writeVarLong(zigzag(((Date) value).getTime()));
+        } else if (value instanceof Serializable) {
+            if (!isAllowed(value.getClass().getName())) {
+                throw new SerializerException("Java serialization of " + value.getClass().getName() + " is not allowed");
+            }
+            byte[] bytes = javaSerialize(value);
+            out.writeByte(SERIALIZABLE);
+            out.writeVarLong(bytes.length);
+            out.writeBytes(bytes);
+        } else {
+            throw new SerializerException("Unsupported value type " + value.getClass().getName());
+        }
+    }
+
+    private void writeElements(byte tag, Collection<?> elements, Output out) {
+        out.writeByte(tag);
+        out.writeVarLong(elements.size());
+        for (Object element : elements) {
+            write(element, out);
+        }
+    }
+
+    private Object read(Input in) {
+        byte tag = in.readByte();
+        switch (tag) {
+            case NULL:
+                return null;
+            case TRUE:
+                return Boolean.TRUE;
+            case FALSE:
+                return Boolean.FALSE;
+            case INT:
+                return (int) unzigzag(in.readVarLong());
+            case LONG:
+                return unzigzag(in.readVarLong());
+            case DOUBLE:
+                return Double.longBitsToDouble(in.readFixedLong());
+            case FLOAT:
+                return Float.intBitsToFloat((int) in.readVarLong());
+            case STRING: {
+                int length = in.readLength();
+                return new String(in.buffer, in.skip(length), length, UTF_8);
+            }
+            case BYTES: {
+                int length = in.readLength();
+                return Arrays.copyOfRange(in.buffer, in.skip(length), in.position);
+            }
+            case LIST: {
+                int size = in.readLength();
+                List<Object> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(read(in));
+                }
+                return list;
+            }
+            case SET: {
+                int size = in.readLength();
+                Set<Object> set = new LinkedHashSet<>(size * 2);
+                for (int i = 0; i < size; i++) {
+                    set.add(read(in));
+                }
+                return set;
+            }
+            case MAP: {
+                int size = in.readLength();
+                Map<Object, Object> map = new LinkedHashMap<>(size * 2);
+                for (int i = 0; i < size; i++) {
+                    map.put(read(in), read(in));
+                }
+                return map;
+            }
+            case SHORT:
+                return (short) unzigzag(in.readVarLong());
+            case BYTE:
+                return in.readByte();
+            case CHAR:
+                return (char) in.readVarLong();
+            case DATE:
+                return new Date(unzigzag(in.readVarLong()));
+            case SERIALIZABLE: {
+                int length = in.readLength();
+                return javaDeserialize(in.buffer, in.skip(length), length);
+            }
+            default:
+                throw new SerializerException("Unknown compact tag " + tag + " at " + (in.position - 1));
+        }
+    }
+
+    private static byte[] javaSerialize(Object value) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            ObjectOutputStream out = new ObjectOutputStream(bytes);
+            out.writeObject(value);
+            out.close();
+        } catch (IOException e) {
+            throw new SerializerException("Java serialization of " + value.getClass().getName() + " fail", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private Object javaDeserialize(byte[] buffer, int offset, int length) {
+        try {
+            ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(buffer, offset, length)) {
+                @Override
+                protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+                    if (!isAllowed(desc.getName())) {
+                        throw new InvalidClassException(desc.getName(), "not allowed by the compact serializer");
+                    }
+                    try {
+                        return Class.forName(desc.getName(), false, classLoader);
+                    } catch (ClassNotFoundException e) {
+                        return super.resolveClass(desc);
+                    }
+                }
+
+                @Override
+                protected Class<?> resolveProxyClass(String[] interfaces) throws IOException {
+                    throw new InvalidClassException("Proxy", "not allowed by the compact serializer");
+                }
+            };
+            return in.readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            throw new SerializerException("Java deserialization fail", e);
+        }
+    }
+
+    /**
+     * @param name class name as java serialization writes it, arrays are allowed by their element type
+     */
+    private boolean isAllowed(String name) {
+        int dimensions = 0;
+        while (dimensions < name.length() && name.charAt(dimensions) == '[') {
+            dimensions++;
+        }
+        if (dimensions == 0) {
+            return allowedClasses.contains(name);
+        }
+        if (name.charAt(dimensions) != 'L') {
+            // primitive array
+            return name.length() == dimensions + 1;
+        }
+        return allowedClasses.contains(name.substring(dimensions + 1, name.length() - 1));
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static final class Output {
+        private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+        private int position;
+        private boolean inUse;
+
+        void reset() {
+            position = 0;
+            inUse = false;
+            if (buffer.length > MAX_RETAINED_BUFFER_SIZE) {
+                buffer = new byte[INITIAL_BUFFER_SIZE];
+            }
+        }
+
+        void ensure(int length) {
+            if (buffer.length - position < length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length << 1, position + length));
+            }
+        }
+
+        void writeByte(byte value) {
+            ensure(1);
+            buffer[position++] = value;
+        }
+
+        void writeBytes(byte[] value) {
+            ensure(value.length);
+            System.arraycopy(value, 0, buffer, position, value.length);
+            position += value.length;
+        }
+
+        void writeVarLong(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        void writeFixedLong(long value) {
+            ensure(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                buffer[position++] = (byte) (value >>> shift);
+            }
+        }
+
+        void writeString(String value) {
+            int length = value.length();
+            boolean ascii = true;
+            for (int i = 0; i < length && ascii; i++) {
+                ascii = value.charAt(i) < 0x80;
+            }
+            if (!ascii) {
+                byte[] bytes = value.getBytes(UTF_8);
+                writeVarLong(bytes.length);
+                writeBytes(bytes);
+                return;
+            }
+            // ascii encodes one byte per char, straight into the buffer
+            writeVarLong(length);
+            ensure(length);
+            for (int i = 0; i < length; i++) {
+                buffer[position++] = (byte) value.charAt(i);
+            }
+        }
+    }
+
+    private static final class Input {
+        private final byte[] buffer;
+        private int position;
+
+        Input(byte[] buffer) {
+            this.buffer = buffer;
+        }
+
+        byte readByte() {
+            if (position >= buffer.length) {
+                throw new SerializerException("Truncated compact value");
+            }
+            return buffer[position++];
+        }
+
+        long readVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new SerializerException("Malformed compact varint");
+        }
+
+        long readFixedLong() {
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value = (value << 8) | (readByte() & 0xFF);
+            }
+            return value;
+        }
+
+        int readLength() {
+            long length = readVarLong();
+            if (length < 0 || length > buffer.length - position) {
+                throw new SerializerException("Compact length " + length + " exceeds the " + (buffer.length - position) + " bytes left");
+            }
+            return (int) length;
+        }
+
+        /**
+         * Skip length bytes
+         * @return the position before skipping
+         */
+        int skip(int length) {
+            int start = position;
+            position += length;
+            return start;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.serializer.impl;
+
+import club.cookbean.sparrow.serializer.Serializer;
+
+import java.nio.charset.Charset;
+
+/**
+ * Stores String values as UTF-8.
+ */
+public class StringSerializer implements Serializer<String> {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    @Override
+    public byte[] serialize(String object) {
+        return object.getBytes(UTF_8);
+    }
+
+    @Override
+    public String read(byte[] binary) {
+        return new String(binary, UTF_8);
+    }
+}
@@ -0,0 +1,593 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.storage;
+
+import club.cookbean.sparrow.config.BulkConfiguration;
+import club.cookbean.sparrow.config.CompressionConfiguration;
+import club.cookbean.sparrow.config.LoadLockConfiguration;
+import club.cookbean.sparrow.config.NegativeCacheConfiguration;
+import club.cookbean.sparrow.config.RefreshAheadConfiguration;
+import club.cookbean.sparrow.config.ServiceConfiguration;
+import club.cookbean.sparrow.config.SingleFlightConfiguration;
+import club.cookbean.sparrow.config.StaleWhileRevalidateConfiguration;
+import club.cookbean.sparrow.exception.StorageAccessException;
+import club.cookbean.sparrow.exception.StoragePassThroughException;
+import club.cookbean.sparrow.function.Function;
+import club.cookbean.sparrow.redis.BinaryCacheable;
+import club.cookbean.sparrow.redis.Cacheable;
+import club.cookbean.sparrow.storage.compress.ValueCompressor;
+import club.cookbean.sparrow.util.ServiceUtils;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.*;
+
+/**
+ * Desc: Storage skeleton shared by standalone and cluster storages.
+ * The write-through / read-through handlers only depend on the basic
+ * operations, so concrete storages just need to talk to redis.
+ */
+public abstract class AbstractStorage implements Storage {
+
+    protected static final String LOAD_LOCK_SUFFIX = ":__load_lock";
+    protected static final String LOAD_META_SUFFIX = ":__load_meta";
+    protected static final String ABSENT_SUFFIX = ":__absent";
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+
+    /**
+     * Delete KEYS[1] only if its value is ARGV[1]
+     */
+    protected static final String RELEASE_LEASE_SCRIPT =
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end";
+
+    protected final String finalPrefix;
+    protected final KeyEncoder keyEncoder;
+    protected final int bulkChunkSize;
+
+    private final SingleFlight<String> getFlight;
+    private final SingleFlight<List<String>> listFlight;
+    private final SingleFlight<Set<String>> setFlight;
+    private final LoadLockConfiguration loadLock;
+    private final boolean storeLoadMeta;
+    private final long staleGraceMillis;
+    private final long negativeTtlMillis;
+    private final boolean compressedValues;
+
+    protected AbstractStorage(String finalPrefix, Collection<ServiceConfiguration<?>> serviceConfigurations) {
+        this.finalPrefix = finalPrefix;
+        this.keyEncoder = new KeyEncoder(finalPrefix);
+
+        BulkConfiguration bulkConfiguration = ServiceUtils.findSingletonAmongst(BulkConfiguration.class, serviceConfigurations);
+        this.bulkChunkSize = null != bulkConfiguration ? bulkConfiguration.getChunkSize() : BulkConfiguration.DEFAULT_CHUNK_SIZE;
+
+        SingleFlightConfiguration singleFlightConfiguration = ServiceUtils.findSingletonAmongst(SingleFlightConfiguration.class, serviceConfigurations);
+        if (null != singleFlightConfiguration) {
+            this.getFlight = new SingleFlight<>(singleFlightConfiguration);
+            this.listFlight = new SingleFlight<>(singleFlightConfiguration);
+            this.setFlight = new SingleFlight<>(singleFlightConfiguration);
+        } else {
+            this.getFlight = null;
+            this.listFlight = null;
+            this.setFlight = null;
+        }
+
+        this.loadLock = ServiceUtils.findSingletonAmongst(LoadLockConfiguration.class, serviceConfigurations);
+        NegativeCacheConfiguration negativeCacheConfiguration = ServiceUtils.findSingletonAmongst(NegativeCacheConfiguration.class, serviceConfigurations);
+        this.negativeTtlMillis = null != negativeCacheConfiguration
+                ? negativeCacheConfiguration.getTtlUnit().toMillis(negativeCacheConfiguration.getTtl()) : 0;
+
+        // refresh-ahead and stale-while-revalidate need to know how old a loaded entry is
+        StaleWhileRevalidateConfiguration staleConfiguration = ServiceUtils.findSingletonAmongst(StaleWhileRevalidateConfiguration.class, serviceConfigurations);
+        this.staleGraceMillis = null != staleConfiguration
+                ? staleConfiguration.getGracePeriodUnit().toMillis(staleConfiguration.getGracePeriod()) : 0;
+        this.storeLoadMeta = null != staleConfiguration
+                || null != ServiceUtils.findSingletonAmongst(RefreshAheadConfiguration.class, serviceConfigurations);
+        this.compressedValues = null != ServiceUtils.findSingletonAmongst(CompressionConfiguration.class, serviceConfigurations);
+    }
+
+    @Override
+    public ByteBuffer getByteBuffer(String key) throws StorageAccessException {
+        byte[] value = this.getBytes(key);
+        return null == value ? null : ByteBuffer.wrap(value).asReadOnlyBuffer();
+    }
+
+    /**
+     * One key after the other, storages with a pipeline send them together
+     */
+    @Override
+    public Map<String, ExpiringValue> getAllWithTtl(Collection<String> keys) throws StorageAccessException {
+        Map<String, ExpiringValue> result = new LinkedHashMap<>(keys.size() * 2);
+        for (String key : keys) {
+            result.put(key, this.getWithTtl(key));
+        }
+        return result;
+    }
+
+    // ++++++++++++++++++++++++++++ load metadata ++++++++++++++++++++++++++++
+
+    @Override
+    public StoredValue getStored(String key) throws StorageAccessException {
+        String metaKey = key + LOAD_META_SUFFIX;
+        Map<String, String> values = this.getAll(Arrays.asList(key, metaKey));
+        String value = values.get(key);
+        if (null == value) {
+            return null;
+        }
+        long creationTime = -1;
+        long expireTime = -1;
+        String meta = values.get(metaKey);
+        if (null != meta) {
+            String[] fields = meta.split(":");
+            try {
+                // a plain write since the load leaves the meta behind, it describes another value then
+                if (fields.length == 3 && fields[2].equals(fingerprint(value))) {
+                    creationTime = Long.parseLong(fields[0]);
+                    expireTime = Long.parseLong(fields[1]);
+                }
+            } catch (RuntimeException e) {
+                // not written by us, ignore
+                creationTime = -1;
+                expireTime = -1;
+            }
+        }
+        return new StoredValue(value, creationTime, expireTime);
+    }
+
+    @Override
+    public boolean setStored(String key, Cacheable value) throws StorageAccessException {
+        Map<String, Cacheable> entries = new LinkedHashMap<>(4);
+        putStored(entries, key, value);
+        return !this.setAll(entries).contains(key);
+    }
+
+    private void putStored(Map<String, Cacheable> entries, String key, Cacheable value) {
+        long creationTime = value.getCreationTime();
+        long expireTime = value.getExpireTime();
+        // stale entries outlive their TTL by the grace period
+        long physicalExpireTime = expireTime + staleGraceMillis;
+        entries.put(key, value instanceof BinaryCacheable
+                ? new StoredBinary(value.getValue(), ((BinaryCacheable) value).getBytes(), creationTime, physicalExpireTime)
+                : new StoredCacheable(value.getValue(), creationTime, physicalExpireTime));
+        String meta = creationTime + ":" + expireTime + ":" + fingerprint(value.getValue());
+        entries.put(key + LOAD_META_SUFFIX, new StoredCacheable(meta, creationTime, physicalExpireTime));
+    }
+
+    /**
+     * Ties the load meta to the value it was written with, so set, delete or a writer
+     * path never have to touch the meta key to keep it from being paired with a newer value
+     */
+    private static String fingerprint(String value) {
+        return value.length() + "." + Integer.toHexString(value.hashCode());
+    }
+
+    private static class StoredCacheable implements Cacheable {
+        private final String value;
+        private final long creationTime;
+        private final long expireTime;
+
+        StoredCacheable(String value, long creationTime, long expireTime) {
+            this.value = value;
+            this.creationTime = creationTime;
+            this.expireTime = expireTime;
+        }
+
+        @Override
+        public long getExpireTime() {
+            return expireTime;
+        }
+
+        @Override
+        public long getCreationTime() {
+            return creationTime;
+        }
+
+        @Override
+        public String getValue() {
+            return value;
+        }
+
+        @Override
+        public String getKey() {
+            return null;
+        }
+    }
+
+    private static class StoredBinary extends StoredCacheable implements BinaryCacheable {
+        private final byte[] bytes;
+
+        StoredBinary(String value, byte[] bytes, long creationTime, long expireTime) {
+            super(value, creationTime, expireTime);
+            this.bytes = bytes;
+        }
+
+        @Override
+        public byte[] getBytes() {
+            return bytes;
+        }
+    }
+
+    // ++++++++++++++++++++++++++++ handle write ++++++++++++++++++++++++++++
+
+    @Override
+    public void handleDelete(String key, Function<String, Boolean> deleteFunc) throws StorageAccessException {
+        Boolean delete = deleteFunc.apply(key);
+        if (null != delete && delete) {
+            this.delete(key);
+        }
+    }
+
+    @Override
+    public void handleDeleteAll(String[] keys, Function<Iterable<String>, Boolean> deleteAllFunc) throws StorageAccessException {
+        Boolean delete = deleteAllFunc.apply(Arrays.asList(keys));
+        if (null != delete && delete) {
+            this.delete(keys);
+        }
+    }
+
+    @Override
+    public void handleSet(String key, Function<String, Cacheable> setFunc) throws StorageAccessException {
+        // 先 write, 后写 Cache
+        Cacheable value = setFunc.apply(key);
+        if (null != value) {
+            this.set(key, value);
+        }
+    }
+
+    @Override
+    public long handleLLPush(String key, Function<String, List<? extends Cacheable>> lpushFunc) throws StorageAccessException {
+        List<? extends Cacheable> pushList = lpushFunc.apply(key);
+        if (null != pushList && !pushList.isEmpty()) {
+            Cacheable[] writeArray = new Cacheable[pushList.size()];
+            return this.lpush(key, pushList.toArray(writeArray));
+        }
+        return 0;
+    }
+
+    @Override
+    public long handleLRPush(String key, Function<String, List<? extends Cacheable>> rpushFunc) throws StorageAccessException {
+        List<? extends Cacheable> pushList = rpushFunc.apply(key);
+        if (null != pushList && !pushList.isEmpty()) {
+            Cacheable[] writeArray = new Cacheable[pushList.size()];
+            return this.rpush(key, pushList.toArray(writeArray));
+        }
+        return 0;
+    }
+
+    @Override
+    public long handleSetAdd(String key, Function<String, Set<? extends Cacheable>> addFunc) throws StorageAccessException {
+        Set<? extends Cacheable> writeValues = addFunc.apply(key);
+        if (null != writeValues && !writeValues.isEmpty()) {
+            Cacheable[] writeArray = new Cacheable[writeValues.size()];
+            return this.sadd(key, writeValues.toArray(writeArray));
+        }
+        return 0;
+    }
+
+    // ++++++++++++++++++++++++++++ handle load ++++++++++++++++++++++++++++
+
+    @Override
+    public String handleGet(String key, final Function<String, Cacheable> getFunc) throws StorageAccessException {
+        // 先读
+        String value = this.get(key);
+        // Cache 中不存在 则 load, 后写 Cache
+        if (null == value) {
+            value = loadOnce(getFlight, key, valueLoading(getFunc));
+        }
+        // a tombstone is a confirmed miss
+        return TOMBSTONE.equals(value) ? null : value;
+    }
+
+    @Override
+    public StoredValue handleGetStored(String key, Function<String, Cacheable> getFunc) throws StorageAccessException {
+        StoredValue stored = this.getStored(key);
+        if (null != stored) {
+            return stored;
+        }
+        // the miss was just read, go straight to the load
+        String value = loadOnce(getFlight, key, valueLoading(getFunc));
+        return null == value ? null : new StoredValue(value, -1, -1);
+    }
+
+    private Loading<String> valueLoading(final Function<String, Cacheable> getFunc) {
+        return new Loading<String>() {
+            @Override
+            public String read(String key) throws StorageAccessException {
+                return get(key);
+            }
+
+            @Override
+            public String load(String key) throws StorageAccessException {
+                Cacheable loadValue = getFunc.apply(key);
+                if (null == loadValue) {
+                    if (negativeTtlMillis > 0) {
+                        set(key, new StoredCacheable(TOMBSTONE, System.currentTimeMillis(), negativeTtlMillis));
+                        return TOMBSTONE;
+                    }
+                    return null;
+                }
+                if (storeLoadMeta) {
+                    setStored(key, loadValue);
+                } else {
+                    set(key, loadValue);
+                }
+                return loadValue.getValue();
+            }
+        };
+    }
+
+    @Override
+    public List<String> handleListRange(final String key, final long start, final long end, final Function<String, List<Cacheable>> rangeFunction) throws StorageAccessException {
+        List<String> values = this.lrang(key, start, end);
+        if ((null == values || values.isEmpty()) && !isAbsent(key)) {
+            List<String> loaded = loadOnce(listFlight, key, new Loading<List<String>>() {
+                @Override
+                public List<String> read(String key) throws StorageAccessException {
+                    List<String> values = lrang(key, start, end);
+                    if (null == values || values.isEmpty()) {
+                        return isAbsent(key) ? Collections.<String>emptyList() : null;
+                    }
+                    return values;
+                }
+
+                @Override
+                public List<String> load(String key) throws StorageAccessException {
+                    List<Cacheable> loadValues = rangeFunction.apply(key);
+                    if (null == loadValues || loadValues.isEmpty()) {
+                        return markAbsent(key) ? Collections.<String>emptyList() : null;
+                    }
+                    List<String> values = new ArrayList<>(loadValues.size());
+                    for (Cacheable loadValue : loadValues) {
+                        values.add(loadValue.getValue());
+                    }
+                    // todo left operation or right operation ?
+                    rpush(key, loadValues.toArray(new Cacheable[loadValues.size()]));
+                    return values;
+                }
+            });
+            if (null != loaded) {
+                // the result may be shared by coalesced callers
+                values = new ArrayList<>(loaded);
+            }
+        }
+        return values;
+    }
+
+    @Override
+    public Set<String> handleSetMembers(String key, final Function<String, Set<? extends Cacheable>> setFunc) throws StorageAccessException {
+        Set<String> values = this.smembers(key);
+        if ((null == values || values.isEmpty()) && !isAbsent(key)) {
+            Set<String> loaded = loadOnce(setFlight, key, new Loading<Set<String>>() {
+                @Override
+                public Set<String> read(String key) throws StorageAccessException {
+                    Set<String> values = smembers(key);
+                    if (null == values || values.isEmpty()) {
+                        return isAbsent(key) ? Collections.<String>emptySet() : null;
+                    }
+                    return values;
+                }
+
+                @Override
+                public Set<String> load(String key) throws StorageAccessException {
+                    Set<? extends Cacheable> loadValues = setFunc.apply(key);
+                    if (null == loadValues || loadValues.isEmpty()) {
+                        return markAbsent(key) ? Collections.<String>emptySet() : null;
+                    }
+                    Set<String> values = new HashSet<>(loadValues.size());
+                    for (Cacheable loadValue : loadValues) {
+                        values.add(loadValue.getKey());
+                    }
+                    sadd(key, loadValues.toArray(new Cacheable[loadValues.size()]));
+                    return values;
+                }
+            });
+            if (null != loaded) {
+                // the result may be shared by coalesced callers
+                values = new HashSet<>(loaded);
+            }
+        }
+        return values;
+    }
+
+    @Override
+    public Map<String, String> handleGetAll(Collection<String> keys, Function<Collection<String>, Map<String, Cacheable>> loadAllFunc) throws StorageAccessException {
+        Map<String, String> values = this.getAll(keys);
+        List<String> missingKeys = new ArrayList<>();
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            if (null == entry.getValue()) {
+                missingKeys.add(entry.getKey());
+            }
+        }
+        if (!missingKeys.isEmpty()) {
+            Map<String, Cacheable> loadValues = loadAllFunc.apply(missingKeys);
+            Map<String, Cacheable> writeEntries = new LinkedHashMap<>();
+            for (String key : missingKeys) {
+                Cacheable loadValue = null != loadValues ? loadValues.get(key) : null;
+                if (null != loadValue) {
+                    values.put(key, loadValue.getValue());
+                    if (storeLoadMeta) {
+                        putStored(writeEntries, key, loadValue);
+                    } else {
+                        writeEntries.put(key, loadValue);
+                    }
+                } else if (negativeTtlMillis > 0) {
+                    writeEntries.put(key, new StoredCacheable(TOMBSTONE, System.currentTimeMillis(), negativeTtlMillis));
+                }
+            }
+            if (!writeEntries.isEmpty()) {
+                // values are served anyway, failed keys are just loaded again next time
+                this.setAll(writeEntries);
+            }
+        }
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            if (TOMBSTONE.equals(entry.getValue())) {
+                entry.setValue(null);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Whether an empty list or set key is a confirmed miss. Redis cannot hold an
+     * empty collection, so its tombstone lives next to the key.
+     */
+    private boolean isAbsent(String key) throws StorageAccessException {
+        return negativeTtlMillis > 0 && null != this.get(key + ABSENT_SUFFIX);
+    }
+
+    private boolean markAbsent(String key) throws StorageAccessException {
+        if (negativeTtlMillis <= 0) {
+            return false;
+        }
+        this.set(key + ABSENT_SUFFIX, new StoredCacheable(TOMBSTONE, System.currentTimeMillis(), negativeTtlMillis));
+        return true;
+    }
+
+    /**
+     * Read-through step of a missed key: re-read from redis and load from the backend.
+     *
+     * @param <V> the value type, null means absent
+     */
+    protected interface Loading<V> {
+
+        V read(String key) throws StorageAccessException;
+
+        V load(String key) throws StorageAccessException;
+    }
+
+    /**
+     * Load a missed key, coalesced with concurrent loads of the same key in this
+     * JVM when single flight is enabled, and across nodes when the load lock is enabled.
+     */
+    protected <V> V loadOnce(SingleFlight<V> flight, String key, final Loading<V> loading) throws StorageAccessException {
+        if (null == flight) {
+            return loadGuarded(key, loading);
+        }
+        try {
+            return flight.execute(normalizeKey(key), key, new Function<String, V>() {
+                @Override
+                public V apply(String key) {
+                    try {
+                        return loadGuarded(key, loading);
+                    } catch (StorageAccessException e) {
+                        throw new StoragePassThroughException(e);
+                    }
+                }
+            });
+        } catch (StoragePassThroughException e) {
+            if (e.getCause() instanceof StorageAccessException) {
+                throw (StorageAccessException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private <V> V loadGuarded(String key, Loading<V> loading) throws StorageAccessException {
+        if (null == loadLock) {
+            return loading.load(key);
+        }
+        String lockKey = normalizeKey(key) + LOAD_LOCK_SUFFIX;
+        String token = UUID.randomUUID().toString();
+        long leaseMillis = loadLock.getTimeUnit().toMillis(loadLock.getLeaseTime());
+        long pollMillis = Math.max(1, loadLock.getTimeUnit().toMillis(loadLock.getPollInterval()));
+        long deadline = System.nanoTime() + loadLock.getTimeUnit().toNanos(loadLock.getWaitTime());
+        while (true) {
+            if (tryLease(lockKey, token, leaseMillis)) {
+                try {
+                    // the previous holder may have loaded it already
+                    V value = loading.read(key);
+                    return null != value ? value : loading.load(key);
+                } finally {
+                    releaseLease(lockKey, token);
+                }
+            }
+            if (System.nanoTime() - deadline >= 0) {
+                // lock holder too slow, load by ourselves
+                return loading.load(key);
+            }
+            try {
+                Thread.sleep(pollMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return loading.load(key);
+            }
+            V value = loading.read(key);
+            if (null != value) {
+                return value;
+            }
+        }
+    }
+
+    /**
+     * SET NX PX the lock key with the token
+     *
+     * @param lockKey the final lock key
+     * @param token the owner token
+     * @param leaseMillis the lease in milliseconds
+     * @return true if the lease is taken
+     * @throws StorageAccessException storage access exception
+     */
+    protected abstract boolean tryLease(String lockKey, String token, long leaseMillis) throws StorageAccessException;
+
+    /**
+     * Delete the lock key if it is still owned by the token
+     */
+    private void releaseLease(String lockKey, String token) throws StorageAccessException {
+        this.eval(RELEASE_LEASE_SCRIPT, Collections.singletonList(lockKey), Collections.singletonList(token));
+    }
+
+    @Override
+    public String normalizeKey(String key) {
+        return keyEncoder.normalize(key);
+    }
+
+    /**
+     * Final key bytes for binary commands, see {@link KeyEncoder}
+     */
+    protected byte[] finalKey(String key) {
+        return keyEncoder.encode(key);
+    }
+
+    protected byte[][] finalKeys(String... keys) {
+        return keyEncoder.encode(keys);
+    }
+
+    /**
+     * String of a binary reply, the way the client decodes string replies
+     */
+    protected static String string(byte[] reply) {
+        return null == reply ? null : new String(reply, UTF_8);
+    }
+
+    /**
+     * String of a value reply. With compression on, a compressed value is carried one char per byte,
+     * UTF-8 decoding would mangle its deflated bytes, see {@link ValueCompressor}
+     */
+    protected String value(byte[] reply) {
+        return compressedValues && ValueCompressor.isCompressed(reply) ? new String(reply, ISO_8859_1) : string(reply);
+    }
+
+    protected static Set<String> strings(Set<byte[]> replies) {
+        if (null == replies) {
+            return null;
+        }
+        Set<String> values = new HashSet<>(replies.size() * 4 / 3 + 1);
+        for (byte[] reply : replies) {
+            values.add(string(reply));
+        }
+        return values;
+    }
+}
@@ -0,0 +1,92 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.storage;
+
+import club.cookbean.sparrow.redis.Cacheable;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Desc: Storage able to send a command without waiting for its reply, the returned {@link StorageFuture}
+ * is completed by the thread reading the reply. Replies are the ones of the blocking {@link Storage} calls
+ * of the same name.
+ */
+public interface AsyncStorage {
+
+    /**
+     * @return false when the commands can only be answered on the calling thread,
+     * a decorator of a storage without a reply path for instance
+     */
+    boolean isAsync();
+
+    // ++++++++++++++++++++++++++++ basic operation ++++++++++++++++++++++++++++
+
+    StorageFuture<Boolean> existAsync(String key);
+
+    StorageFuture<Boolean> expireAsync(String key, long millisecond);
+
+    StorageFuture<Boolean> expireAtAsync(String key, long timestamp);
+
+    StorageFuture<Void> deleteAsync(String key);
+
+    StorageFuture<Void> deleteAsync(String... keys);
+
+    StorageFuture<String> getAsync(String key);
+
+    StorageFuture<byte[]> getBytesAsync(String key);
+
+    StorageFuture<ExpiringValue> getWithTtlAsync(String key);
+
+    StorageFuture<Map<String, ExpiringValue>> getAllWithTtlAsync(Collection<String> keys);
+
+    StorageFuture<Boolean> setAsync(String key, Cacheable value);
+
+    StorageFuture<Map<String, String>> getAllAsync(Collection<String> keys);
+
+    StorageFuture<Set<String>> setAllAsync(Map<String, ? extends Cacheable> entries);
+
+    // ++++++++++++++++++++++++++++ list operation ++++++++++++++++++++++++++++
+
+    StorageFuture<Long> llenAsync(String key);
+
+    StorageFuture<List<String>> lrangAsync(String key, long start, long end);
+
+    StorageFuture<String> lindexAsync(String key, long index);
+
+    StorageFuture<Long> lremAsync(String key, int count, String valueToRemove);
+
+    StorageFuture<Long> lpushAsync(String key, Cacheable... values);
+
+    StorageFuture<String> lpopAsync(String key);
+
+    StorageFuture<Long> rpushAsync(String key, Cacheable... values);
+
+    StorageFuture<String> rpopAsync(String key);
+
+    // ++++++++++++++++++++++++++++ set operation ++++++++++++++++++++++++++++
+
+    StorageFuture<Long> scardAsync(String key);
+
+    StorageFuture<Boolean> sismemberAsync(String key, Cacheable value);
+
+    StorageFuture<Set<String>> smembersAsync(String key);
+
+    StorageFuture<Long> saddAsync(String key, Cacheable... values);
+
+    StorageFuture<Set<String>> sunionAsync(String... keys);
+}
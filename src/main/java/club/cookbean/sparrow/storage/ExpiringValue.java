@@ -0,0 +1,40 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.storage;
+
+/**
+ * Desc: A cached string value with the TTL it had left when it was read.
+ */
+public class ExpiringValue {
+
+    private final String value;
+    private final long ttlMillis;
+
+    public ExpiringValue(String value, long ttlMillis) {
+        this.value = value;
+        this.ttlMillis = ttlMillis;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    /**
+     * @return the remaining TTL in millisecond, negative when the key has none
+     */
+    public long getTtlMillis() {
+        return ttlMillis;
+    }
+}
@@ -0,0 +1,117 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.storage;
+
+import java.nio.charset.Charset;
+
+/**
+ * Desc: Encodes keys to the UTF-8 bytes of their final key for binary commands. <br>
+ * The prefix is encoded once, a key is written right behind it into the one array handed to the
+ * client, instead of concatenating a final key string that the client encodes again.
+ */
+public final class KeyEncoder {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final String keyPrefix;
+    private final byte[] prefixBytes;
+
+    /**
+     * @param finalPrefix prefix of the storage, keys are separated from it by a colon
+     */
+    public KeyEncoder(String finalPrefix) {
+        this.keyPrefix = finalPrefix + ":";
+        this.prefixBytes = keyPrefix.getBytes(UTF_8);
+    }
+
+    /**
+     * Final key string, for the commands still taking strings: lrange, lrem, lpush, rpush,
+     * sismember, smembers and sadd, whose values go as strings too. Those still build the
+     * final key and the client encodes it again, only the binary commands save the copy.
+     * @param key key
+     * @return prefix, colon and key
+     */
+    public String normalize(String key) {
+        return keyPrefix.concat(key);
+    }
+
+    /**
+     * Final key bytes
+     * @param key key
+     * @return UTF-8 bytes of prefix, colon and key
+     */
+    public byte[] encode(String key) {
+        int length = key.length();
+        byte[] bytes = new byte[prefixBytes.length + utf8Length(key)];
+        System.arraycopy(prefixBytes, 0, bytes, 0, prefixBytes.length);
+        int b = prefixBytes.length;
+        for (int i = 0; i < length; i++) {
+            char c = key.charAt(i);
+            if (c < 0x80) {
+                bytes[b++] = (byte) c;
+            } else if (c < 0x800) {
+                bytes[b++] = (byte) (0xc0 | c >> 6);
+                bytes[b++] = (byte) (0x80 | c & 0x3f);
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(key.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, key.charAt(++i));
+                bytes[b++] = (byte) (0xf0 | codePoint >> 18);
+                bytes[b++] = (byte) (0x80 | codePoint >> 12 & 0x3f);
+                bytes[b++] = (byte) (0x80 | codePoint >> 6 & 0x3f);
+                bytes[b++] = (byte) (0x80 | codePoint & 0x3f);
+            } else if (Character.isSurrogate(c)) {
+                // unpaired surrogate, replaced like String.getBytes does
+                bytes[b++] = '?';
+            } else {
+                bytes[b++] = (byte) (0xe0 | c >> 12);
+                bytes[b++] = (byte) (0x80 | c >> 6 & 0x3f);
+                bytes[b++] = (byte) (0x80 | c & 0x3f);
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Final key bytes of several keys
+     * @param keys keys
+     * @return UTF-8 bytes of each final key
+     */
+    public byte[][] encode(String... keys) {
+        byte[][] encoded = new byte[keys.length][];
+        for (int i = 0; i < keys.length; i++) {
+            encoded[i] = encode(keys[i]);
+        }
+        return encoded;
+    }
+
+    private static int utf8Length(String key) {
+        int length = key.length();
+        int encodedLength = length;
+        for (int i = 0; i < length; i++) {
+            char c = key.charAt(i);
+            if (c >= 0x80) {
+                if (c < 0x800) {
+                    encodedLength++;
+                } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(key.charAt(i + 1))) {
+                    // 4 bytes for the pair
+                    encodedLength += 2;
+                    i++;
+                } else if (!Character.isSurrogate(c)) {
+                    encodedLength += 2;
+                }
+            }
+        }
+        return encodedLength;
+    }
+}
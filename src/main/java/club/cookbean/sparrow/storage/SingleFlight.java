@@ -0,0 +1,113 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.storage;
+
+import club.cookbean.sparrow.config.SingleFlightConfiguration;
+import club.cookbean.sparrow.exception.CacheLoadingException;
+import club.cookbean.sparrow.function.Function;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Desc: Per-key load coalescing. The first caller of a key runs the load, callers
+ * arriving while it is in flight wait for it and share its result.
+ *
+ * @param <V> the loaded value type
+ */
+public class SingleFlight<V> {
+
+    private final ConcurrentMap<String, Flight<V>> flights = new ConcurrentHashMap<>();
+    private final long timeoutNanos;
+    private final SingleFlightConfiguration.FailurePolicy failurePolicy;
+
+    public SingleFlight(SingleFlightConfiguration config) {
+        this.timeoutNanos = config.getTimeoutUnit().toNanos(config.getTimeout());
+        this.failurePolicy = config.getFailurePolicy();
+    }
+
+    /**
+     * Run the load of a key, or join the one in flight
+     *
+     * @param flightKey the key identifying the flight, usually the normalized key
+     * @param key the key passed to the load function
+     * @param loadFunc the load function
+     * @return the loaded value
+     */
+    public V execute(String flightKey, String key, Function<String, V> loadFunc) {
+        Flight<V> flight = new Flight<>();
+        Flight<V> inFlight = flights.putIfAbsent(flightKey, flight);
+        if (null == inFlight) {
+            try {
+                V result = loadFunc.apply(key);
+                flight.succeed(result);
+                return result;
+            } catch (Throwable t) {
+                flight.fail(t);
+                throw t;
+            } finally {
+                flights.remove(flightKey, flight);
+            }
+        }
+
+        if (!inFlight.await(timeoutNanos)) {
+            if (failurePolicy == SingleFlightConfiguration.FailurePolicy.LOAD) {
+                return loadFunc.apply(key);
+            }
+            throw new CacheLoadingException("Timed out waiting for the in-flight load of key '" + key + "'");
+        }
+        if (null != inFlight.failure) {
+            if (failurePolicy == SingleFlightConfiguration.FailurePolicy.LOAD) {
+                return loadFunc.apply(key);
+            }
+            if (inFlight.failure instanceof Error) {
+                throw (Error) inFlight.failure;
+            }
+            throw (RuntimeException) inFlight.failure;
+        }
+        return inFlight.result;
+    }
+
+    public int getInFlightCount() {
+        return flights.size();
+    }
+
+    private static class Flight<V> {
+        private final CountDownLatch done = new CountDownLatch(1);
+        private V result;
+        private Throwable failure;
+
+        void succeed(V result) {
+            this.result = result;
+            done.countDown();
+        }
+
+        void fail(Throwable failure) {
+            this.failure = failure;
+            done.countDown();
+        }
+
+        boolean await(long timeoutNanos) {
+            try {
+                return done.await(timeoutNanos, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+    }
+}
@@ -16,19 +16,28 @@ package club.cookbean.sparrow.storage;
 
 
 import club.cookbean.sparrow.annotation.PluralService;
+import club.cookbean.sparrow.config.ServiceConfiguration;
 import club.cookbean.sparrow.exception.StorageAccessException;
 import club.cookbean.sparrow.function.*;
 import club.cookbean.sparrow.redis.Cacheable;
 import club.cookbean.sparrow.redis.RedisConnector;
 import club.cookbean.sparrow.redis.RedisResource;
 import club.cookbean.sparrow.service.Service;
-import com.sun.javaws.exceptions.CacheAccessException;
 
+import java.nio.ByteBuffer;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 public interface Storage extends ConfigurationChangeSupport {
 
+    /**
+     * Value cached for a key the loader has confirmed absent, reads treat it as a miss.
+     * Long enough not to collide with real values, a lone zero byte is what serializers write for null
+     */
+    String TOMBSTONE = "\u0000sparrow:absent\u0000";
+
     void release();
 
     // -----------------------  basic operation -----------------------
@@ -47,6 +56,73 @@ public interface Storage extends ConfigurationChangeSupport {
 
     boolean set(String key, Cacheable value) throws StorageAccessException;
 
+    /**
+     * Get a value as raw bytes, without charset decoding,
+     * see {@link club.cookbean.sparrow.redis.BinaryCacheable}
+     * @param key key to get
+     * @return value bytes, or null when absent
+     */
+    byte[] getBytes(String key) throws StorageAccessException;
+
+    /**
+     * Get a value as a read-only buffer wrapping {@link #getBytes(String)}, no further copy is made
+     * @param key key to get
+     * @return value buffer, or null when absent
+     */
+    ByteBuffer getByteBuffer(String key) throws StorageAccessException;
+
+    /**
+     * Get values of multiple keys
+     * @param keys keys to get
+     * @return every requested key mapped to its value, or to null when absent
+     */
+    Map<String, String> getAll(Collection<String> keys) throws StorageAccessException;
+
+    /**
+     * Set multiple values, each one with its own expire time
+     * @param entries key and value pairs to set
+     * @return keys failed to set, empty when all succeed
+     */
+    Set<String> setAll(Map<String, ? extends Cacheable> entries) throws StorageAccessException;
+
+    /**
+     * Get a value and its remaining TTL in one go
+     * @param key key to get
+     * @return the value and its TTL, or null when absent
+     */
+    ExpiringValue getWithTtl(String key) throws StorageAccessException;
+
+    /**
+     * Get values and their remaining TTL, see {@link #getWithTtl(String)}
+     * @param keys keys to get
+     * @return every key mapped to its value and TTL, or to null when absent
+     */
+    Map<String, ExpiringValue> getAllWithTtl(Collection<String> keys) throws StorageAccessException;
+
+    /**
+     * Get a value with the load metadata written by {@link #setStored(String, Cacheable)}
+     * @param key key to get
+     * @return the stored value, or null when absent
+     */
+    StoredValue getStored(String key) throws StorageAccessException;
+
+    /**
+     * Set a value and record its creation time and expire time next to it
+     * @param key key to set
+     * @param value value to set
+     * @return true if the value is set
+     */
+    boolean setStored(String key, Cacheable value) throws StorageAccessException;
+
+    /**
+     * Run a lua script
+     * @param script script source
+     * @param keys final keys, see {@link #normalizeKey(String)}, on a cluster they must share one slot
+     * @param args script arguments
+     * @return the script result
+     */
+    Object eval(String script, List<String> keys, List<String> args) throws StorageAccessException;
+
     // -----------------------  list operation -----------------------
     long llen(String key) throws StorageAccessException;
 
@@ -101,10 +177,25 @@ public interface Storage extends ConfigurationChangeSupport {
     // =============================== handle load ===============================
     String handleGet(String key, Function<String, Cacheable> getFunc) throws StorageAccessException;
 
+    /**
+     * {@link #handleGet(String, Function)} that reads the value with its load metadata,
+     * see {@link #getStored(String)}. A value loaded by this call comes back without metadata.
+     * @return the stored value, or null when the key is absent and loads nothing
+     */
+    StoredValue handleGetStored(String key, Function<String, Cacheable> getFunc) throws StorageAccessException;
+
     List<String> handleListRange(String key, long start, long end, Function<String, List<Cacheable>> rangeFunction) throws StorageAccessException;
 
     Set<String> handleSetMembers(String key, Function<String, Set<? extends Cacheable>> setFunc) throws StorageAccessException;
 
+    /**
+     * Read multiple keys, load the missing ones in one call and write them back together
+     * @param keys keys to get
+     * @param loadAllFunc loads the missing keys
+     * @return every requested key mapped to its value, or to null when absent
+     */
+    Map<String, String> handleGetAll(Collection<String> keys, Function<Collection<String>, Map<String, Cacheable>> loadAllFunc) throws StorageAccessException;
+
 
     String normalizeKey(String key);
 
@@ -119,7 +210,13 @@ public interface Storage extends ConfigurationChangeSupport {
 
         void initStorage(Storage storage);
 
-        boolean choose(RedisResource.ResourceType type);
+        /**
+         * Rank this provider for a cache, the highest ranked one creates its storage
+         * @param type resource type of the cache
+         * @param serviceConfigs service configurations of the cache
+         * @return 0 if the provider cannot handle the cache, otherwise a positive rank
+         */
+        int rank(RedisResource.ResourceType type, Collection<ServiceConfiguration<?>> serviceConfigs);
     }
 
     interface Configuration {
@@ -135,6 +232,12 @@ public interface Storage extends ConfigurationChangeSupport {
 
         RedisConnector getConnector();
 
+        /**
+         * Service configurations of the cache, storage specific ones
+         * (e.g. {@link club.cookbean.sparrow.config.PipeliningConfiguration}) are picked from them
+         */
+        Collection<ServiceConfiguration<?>> getServiceConfigurations();
+
         /**
          * The serializer for key instances
 
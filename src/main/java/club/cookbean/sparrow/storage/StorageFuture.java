@@ -0,0 +1,186 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.storage;
+
+import club.cookbean.sparrow.exception.StorageAccessException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Desc: Result of a command sent through an {@link AsyncStorage}, completed once by the thread reading its reply.
+ * <p>
+ * Callbacks and stages run on that thread, or on the registering one when the result is already in. They must
+ * not wait for another command of the same storage, the replies queued behind theirs would wait with them.
+ */
+public class StorageFuture<V> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(StorageFuture.class);
+
+    public interface Callback<V> {
+
+        void onSuccess(V value);
+
+        void onFailure(StorageAccessException cause);
+    }
+
+    /**
+     * Work applied to a reply before it is handed on, a failure fails the following stages
+     */
+    public interface Stage<S, V> {
+
+        V apply(S source) throws StorageAccessException;
+    }
+
+    private final Queue<Callback<? super V>> callbacks = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean completing = new AtomicBoolean();
+
+    private V value;
+    private StorageAccessException failure;
+    private volatile boolean done;
+
+    public static <V> StorageFuture<V> completed(V value) {
+        StorageFuture<V> future = new StorageFuture<>();
+        future.complete(value);
+        return future;
+    }
+
+    public static <V> StorageFuture<V> failed(StorageAccessException cause) {
+        StorageFuture<V> future = new StorageFuture<>();
+        future.fail(cause);
+        return future;
+    }
+
+    /**
+     * @return a future of all the values in the order of the futures, failed by the first failure
+     */
+    public static <V> StorageFuture<List<V>> all(final List<StorageFuture<V>> futures) {
+        final StorageFuture<List<V>> all = new StorageFuture<>();
+        if (futures.isEmpty()) {
+            all.complete(new ArrayList<V>(0));
+            return all;
+        }
+        final AtomicInteger remaining = new AtomicInteger(futures.size());
+        for (StorageFuture<V> future : futures) {
+            future.addCallback(new Callback<V>() {
+                @Override
+                public void onSuccess(V value) {
+                    if (0 == remaining.decrementAndGet()) {
+                        List<V> values = new ArrayList<>(futures.size());
+                        for (StorageFuture<V> future : futures) {
+                            values.add(future.value);
+                        }
+                        all.complete(values);
+                    }
+                }
+
+                @Override
+                public void onFailure(StorageAccessException cause) {
+                    all.fail(cause);
+                }
+            });
+        }
+        return all;
+    }
+
+    /**
+     * @return false if the future was completed already
+     */
+    public boolean complete(V value) {
+        if (!completing.compareAndSet(false, true)) {
+            return false;
+        }
+        this.value = value;
+        done = true;
+        notifyCallbacks();
+        return true;
+    }
+
+    /**
+     * @return false if the future was completed already
+     */
+    public boolean fail(StorageAccessException cause) {
+        if (!completing.compareAndSet(false, true)) {
+            return false;
+        }
+        this.failure = cause;
+        done = true;
+        notifyCallbacks();
+        return true;
+    }
+
+    public boolean isDone() {
+        return done;
+    }
+
+    public void addCallback(Callback<? super V> callback) {
+        if (null == callback) {
+            throw new NullPointerException("Callback cannot be null");
+        }
+        callbacks.add(callback);
+        if (done) {
+            notifyCallbacks();
+        }
+    }
+
+    /**
+     * @return a future of the value passed through the stage, the failure of this one is passed on as is
+     */
+    public <R> StorageFuture<R> then(final Stage<? super V, ? extends R> stage) {
+        final StorageFuture<R> next = new StorageFuture<>();
+        addCallback(new Callback<V>() {
+            @Override
+            public void onSuccess(V value) {
+                R result;
+                try {
+                    result = stage.apply(value);
+                } catch (StorageAccessException e) {
+                    next.fail(e);
+                    return;
+                } catch (RuntimeException e) {
+                    next.fail(new StorageAccessException(e));
+                    return;
+                }
+                next.complete(result);
+            }
+
+            @Override
+            public void onFailure(StorageAccessException cause) {
+                next.fail(cause);
+            }
+        });
+        return next;
+    }
+
+    private void notifyCallbacks() {
+        Callback<? super V> callback;
+        while (null != (callback = callbacks.poll())) {
+            try {
+                if (null == failure) {
+                    callback.onSuccess(value);
+                } else {
+                    callback.onFailure(failure);
+                }
+            } catch (RuntimeException e) {
+                LOGGER.warn("Callback {} of storage future threw", callback, e);
+            }
+        }
+    }
+}
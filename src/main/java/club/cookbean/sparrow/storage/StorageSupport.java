@@ -15,7 +15,9 @@
 package club.cookbean.sparrow.storage;
 
 
+import club.cookbean.sparrow.config.ServiceConfiguration;
 import club.cookbean.sparrow.provider.ServiceProvider;
+import club.cookbean.sparrow.redis.RedisConnector;
 import club.cookbean.sparrow.redis.RedisResource;
 import club.cookbean.sparrow.service.Service;
 
@@ -28,12 +30,19 @@ public final class StorageSupport {
 
     private StorageSupport() {}
 
-    public static Storage.Provider selectSorageProvider(ServiceProvider<Service> serviceProvider, RedisResource.ResourceType resourceType) {
+    public static Storage.Provider selectSorageProvider(ServiceProvider<Service> serviceProvider, RedisResource.ResourceType resourceType,
+                                                        Collection<ServiceConfiguration<?>> serviceConfigs) {
         final Collection<Storage.Provider> storeProviders = serviceProvider.getServicesOfType(Storage.Provider.class);
 
+        int highRank = 0;
         List<Storage.Provider> chooices = new ArrayList<>(storeProviders.size());
         for (final Storage.Provider provider : storeProviders) {
-            if (provider.choose(resourceType)) {
+            int rank = provider.rank(resourceType, serviceConfigs);
+            if (rank > highRank) {
+                highRank = rank;
+                chooices.clear();
+                chooices.add(provider);
+            } else if (rank != 0 && rank == highRank) {
                 chooices.add(provider);
             }
         }
@@ -56,6 +65,18 @@ public final class StorageSupport {
         return chooices.get(0);
     }
 
+    /**
+     * Key prefix of a storage. A shared resource is split by connector name, so
+     * caches on the same redis resource won't trample each other's keys.
+     */
+    public static String resolveFinalPrefix(RedisResource redisResource, RedisConnector redisConnector) {
+        String finalPrefix = redisConnector.getPrefix();
+        if (redisResource.isShare()) {
+            finalPrefix = finalPrefix + ":" + redisConnector.getName();
+        }
+        return finalPrefix;
+    }
+
     private static StringBuilder formatStoreProviders(final Collection<Storage.Provider> storeProviders, final StringBuilder sb) {
         sb.append('{');
         boolean prependSeparator = false;
@@ -0,0 +1,59 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.storage;
+
+/**
+ * Desc: A cached string value with the creation time and TTL it was loaded with.
+ * Both are -1 when the entry was written without load metadata.
+ */
+public class StoredValue {
+
+    private final String value;
+    private final long creationTime;
+    private final long expireTime;
+
+    public StoredValue(String value, long creationTime, long expireTime) {
+        this.value = value;
+        this.creationTime = creationTime;
+        this.expireTime = expireTime;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public long getCreationTime() {
+        return creationTime;
+    }
+
+    public long getExpireTime() {
+        return expireTime;
+    }
+
+    public boolean hasMeta() {
+        return creationTime >= 0 && expireTime > 0;
+    }
+
+    /**
+     * Whether the entry has lived past the given fraction of its TTL
+     *
+     * @param fraction fraction of the TTL
+     * @param now current time in millisecond
+     * @return false if the entry has no load metadata
+     */
+    public boolean isOlderThan(double fraction, long now) {
+        return hasMeta() && now - creationTime >= (long) (expireTime * fraction);
+    }
+}
@@ -0,0 +1,451 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.storage.cluster;
+
+import club.cookbean.sparrow.config.ServiceConfiguration;
+import club.cookbean.sparrow.exception.StorageAccessException;
+import club.cookbean.sparrow.redis.BinaryCacheable;
+import club.cookbean.sparrow.redis.Cacheable;
+import club.cookbean.sparrow.storage.AbstractStorage;
+import club.cookbean.sparrow.storage.ExpiringValue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.JedisCluster;
+import redis.clients.util.JedisClusterCRC16;
+import redis.clients.util.SafeEncoder;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Desc: Storage over a redis cluster. {@link JedisCluster} keeps the slot -> node
+ * mapping and follows MOVED/ASK redirections up to the connector's max attempts,
+ * so every single-key command goes straight to the node owning the key.
+ * Multi-key commands are split by slot since a cluster rejects cross-slot keys.
+ */
+public abstract class AbstractClusterStorage extends AbstractStorage {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AbstractClusterStorage.class);
+
+    private JedisCluster jedisCluster;
+
+    public AbstractClusterStorage(JedisCluster jedisCluster, String finalPrefix,
+                                  Collection<ServiceConfiguration<?>> serviceConfigurations) {
+        super(finalPrefix, serviceConfigurations);
+        this.jedisCluster = jedisCluster;
+    }
+
+    @Override
+    public void release() {
+        if (null != jedisCluster) {
+            try {
+                jedisCluster.close();
+            } catch (IOException e) {
+                LOGGER.error("JedisCluster close fail", e);
+            }
+        }
+    }
+
+    @Override
+    protected boolean tryLease(String lockKey, String token, long leaseMillis) throws StorageAccessException {
+        try {
+            return "OK".equals(jedisCluster.set(lockKey, token, "NX", "PX", leaseMillis));
+        } catch (Exception e) {
+            throw new StorageAccessException(e);
+        }
+    }
+
+    @Override
+    public Object eval(String script, List<String> keys, List<String> args) throws StorageAccessException {
+        try {
+            return jedisCluster.eval(script, keys, args);
+        } catch (Exception e) {
+            throw new StorageAccessException(e);
+        }
+    }
+
+    @Override
+    public boolean exist(String key) throws StorageAccessException {
+        byte[] finalKey = finalKey(key);
+        try {
+            return jedisCluster.exists(finalKey);
+        } catch (Exception e) {
+            throw new StorageAccessException(e);
+        }
+    }
+
+    @Override
+    public boolean expire(String key, long millisecond) throws StorageAccessException {
+        byte[] finalKey = finalKey(key);
+        try {
+            Long result = jedisCluster.pexpire(finalKey, millisecond);
+            return null != result && result > 0;
+        } catch (Exception e) {
+            throw new StorageAccessException(e);
+        }
+    }
+
+    @Override
+    public boolean expireAt(String key, long timestamp) throws StorageAccessException {
+        byte[] finalKey = finalKey(key);
+        try {
+            Long result = jedisCluster.pexpireAt(finalKey, timestamp);
+            return null != result && result > 0;
+        } catch (Exception e) {
+            throw new StorageAccessException(e);
+        }
+    }
+
+    @Override
+    public void delete(String key) throws StorageAccessException {
+        byte[] finalKey = finalKey(key);
+        try {
+            jedisCluster.del(finalKey);
+        } catch (Exception e) {
+            throw new StorageAccessException(e);
+        }
+    }
+
+    @Override
+    public void delete(String... keys) throws StorageAccessException {
+        try {
+            for (List<String> slotKeys : groupBySlot(keys).values()) {
+                jedisCluster.del(slotKeys.toArray(new String[slotKeys.size()]));
+            }
+        } catch (Exception e) {
+            throw new StorageAccessException(e);
+        }
+    }
+
+    @Override
+    public String get(String key) throws StorageAccessException {
+        byte[] finalKey = finalKey(key);
+        try {
+            return value(jedisCluster.get(finalKey));
+        } catch (Exception e) {
+            throw new StorageAccessException(e);
+        }
+    }
+
+    @Override
+    public byte[] getBytes(String key) throws StorageAccessException {
+        byte[] finalKey = finalKey(key);
+        try {
+            return jedisCluster.get(finalKey);
+        } catch (Exception e) {
+            throw new StorageAccessException(e);
+        }
+    }
+
+    @Override
+    public ExpiringValue getWithTtl(String key) throws StorageAccessException {
+        byte[] finalKey = finalKey(key);
+        try {
+            // no pipeline in cluster mode
+            byte[] value = jedisCluster.get(finalKey);
+            // the binary cluster client has no PTTL
+            return null == value ? null : new ExpiringValue(value(value), jedisCluster.pttl(normalizeKey(key)));
+        } catch (Exception e) {
+            throw new StorageAccessException(e);
+        }
+    }
+
+    @Override
+    public boolean set(String key, Cacheable value) throws StorageAccessException {
+        try {
+            if (value instanceof BinaryCacheable) {
+                return setBinary(key, (BinaryCacheable) value);
+            }
+            String finalKey = normalizeKey(key);
+            // no pipeline in cluster mode, PSETEX sets value and ttl in one command
+            String result = jedisCluster.psetex(finalKey, value.getExpireTime(), value.getValue());
+            return "OK".equals(result);
+        } catch (Exception e) {
+            throw new StorageAccessException(e);
+        }
+    }
+
+    @Override
+    public Map<String, String> getAll(Collection<String> keys) throws StorageAccessException {
+        Map<String, String> result = new LinkedHashMap<>(keys.size() * 2);
+        for (String key : keys) {
+            result.put(key, null);
+        }
+        try {
+            // MGET only works inside one slot
+            for (List<String> slotKeys : groupBySlot(result.keySet()).values()) {
+                for (int from = 0; from < slotKeys.size(); from += bulkChunkSize) {
+                    List<String> chunk = slotKeys.subList(from, Math.min(from + bulkChunkSize, slotKeys.size()));
+                    byte[][] finalKeys = new byte[chunk.size()][];
+                    for (int i = 0; i < finalKeys.length; i++) {
+                        finalKeys[i] = SafeEncoder.encode(chunk.get(i));
+                    }
+                    List<byte[]> values = jedisCluster.mget(finalKeys);
+                    for (int i = 0; i < chunk.size(); i++) {
+                        result.put(denormalizeKey(chunk.get(i)), value(values.get(i)));
+                    }
+                }
+            }
+            return result;
+        } catch (Exception e) {
+            throw new StorageAccessException(e);
+        }
+    }
+
+    @Override
+    public Set<String> setAll(Map<String, ? extends Cacheable> entries) throws StorageAccessException {
+        // JedisCluster has no pipeline, every entry is a PSETEX routed to its own node
+        Set<String> failedKeys = new LinkedHashSet<>();
+        for (Map.Entry<String, ? extends Cacheable> entry : entries.entrySet()) {
+            Cacheable value = entry.getValue();
+            try {
+                boolean set;
+                if (value instanceof BinaryCacheable) {
+                    set = setBinary(entry.getKey(), (BinaryCacheable) value);
+                } else {
+                    set = "OK".equals(jedisCluster.psetex(normalizeKey(entry.getKey()), value.getExpireTime(), value.getValue()));
+                }
+                if (!set) {
+                    failedKeys.add(entry.getKey());
+                }
+            } catch (Exception e) {
+                LOGGER.warn("Set key '{}' fail: {}", entry.getKey(), e.getMessage());
+                failedKeys.add(entry.getKey());
+            }
+        }
+        return failedKeys;
+    }
+
+    private boolean setBinary(String key, BinaryCacheable value) {
+        // the binary cluster client has no PSETEX, SET then PEXPIRE on the same node
+        byte[] binaryKey = finalKey(key);
+        String result = jedisCluster.set(binaryKey, value.getBytes());
+        jedisCluster.pexpire(binaryKey, value.getExpireTime());
+        return "OK".equals(result);
+    }
+
+    // ++++++++++++++++++++++++++++ list ++++++++++++++++++++++++++++
+
+    @Override
+    public long llen(String key) throws StorageAccessException {
+        byte[] finalKey = finalKey(key);
+        try {
+            return jedisCluster.llen(finalKey);
+        } catch (Exception e) {
+            throw new StorageAccessException(e);
+        }
+    }
+
+    @Override
+    public List<String> lrang(String key, long start, long end) throws StorageAccessException {
+        String finalKey = normalizeKey(key);
+        try {
+            return jedisCluster.lrange(finalKey, start, end);
+        } catch (Exception e) {
+            throw new StorageAccessException(e);
+        }
+    }
+
+    @Override
+    public String lindex(String key, long index) throws StorageAccessException {
+        byte[] finalKey = finalKey(key);
+        try {
+            return string(jedisCluster.lindex(finalKey, index));
+        } catch (Exception e) {
+            throw new StorageAccessException(e);
+        }
+    }
+
+    @Override
+    public long lrem(String key, int count, String valueToRemove) throws StorageAccessException {
+        String finalKey = normalizeKey(key);
+        try {
+            return jedisCluster.lrem(finalKey, count, valueToRemove);
+        } catch (Exception e) {
+            throw new StorageAccessException(e);
+        }
+    }
+
+    @Override
+    public boolean lpush(String key, Cacheable value) throws StorageAccessException {
+        String finalKey = normalizeKey(key);
+        try {
+            Long result = jedisCluster.lpush(finalKey, value.getValue());
+            return result != null && result > 0;
+        } catch (Exception e) {
+            throw new StorageAccessException(e);
+        }
+    }
+
+    @Override
+    public long lpush(String key, Cacheable... values) throws StorageAccessException {
+        String finalKey = normalizeKey(key);
+        try {
+            String[] strArray = new String[values.length];
+            for (int i = 0; i < values.length; i++) {
+                strArray[i] = values[i].getValue();
+            }
+            jedisCluster.lpush(finalKey, strArray);
+            jedisCluster.pexpire(finalKey, values[0].getExpireTime());
+            return values.length;
+        } catch (Exception e) {
+            throw new StorageAccessException(e);
+        }
+    }
+
+    @Override
+    public String lpop(String key) throws StorageAccessException {
+        byte[] finalKey = finalKey(key);
+        try {
+            return string(jedisCluster.lpop(finalKey));
+        } catch (Exception e) {
+            throw new StorageAccessException(e);
+        }
+    }
+
+    @Override
+    public boolean rpush(String key, Cacheable value) throws StorageAccessException {
+        String finalKey = normalizeKey(key);
+        try {
+            Long result = jedisCluster.rpush(finalKey, value.getValue());
+            return result != null && result > 0;
+        } catch (Exception e) {
+            throw new StorageAccessException(e);
+        }
+    }
+
+    @Override
+    public long rpush(String key, Cacheable... values) throws StorageAccessException {
+        String finalKey = normalizeKey(key);
+        try {
+            String[] strArray = new String[values.length];
+            for (int i = 0; i < values.length; i++) {
+                strArray[i] = values[i].getValue();
+            }
+            jedisCluster.rpush(finalKey, strArray);
+            jedisCluster.pexpire(finalKey, values[0].getExpireTime());
+            return values.length;
+        } catch (Exception e) {
+            throw new StorageAccessException(e);
+        }
+    }
+
+    @Override
+    public String rpop(String key) throws StorageAccessException {
+        byte[] finalKey = finalKey(key);
+        try {
+            return string(jedisCluster.rpop(finalKey));
+        } catch (Exception e) {
+            throw new StorageAccessException(e);
+        }
+    }
+
+    // ++++++++++++++++++++++++++++ set ++++++++++++++++++++++++++++
+
+    @Override
+    public long scard(String key) throws StorageAccessException {
+        byte[] finalKey = finalKey(key);
+        try {
+            return jedisCluster.scard(finalKey);
+        } catch (Exception e) {
+            throw new StorageAccessException(e);
+        }
+    }
+
+    @Override
+    public boolean sismember(String key, Cacheable value) throws StorageAccessException {
+        String finalKey = normalizeKey(key);
+        try {
+            return jedisCluster.sismember(finalKey, value.getKey());
+        } catch (Exception e) {
+            throw new StorageAccessException(e);
+        }
+    }
+
+    @Override
+    public Set<String> smembers(String key) throws StorageAccessException {
+        String finalKey = normalizeKey(key);
+        try {
+            return jedisCluster.smembers(finalKey);
+        } catch (Exception e) {
+            throw new StorageAccessException(e);
+        }
+    }
+
+    @Override
+    public boolean sadd(String key, Cacheable value) throws StorageAccessException {
+        return sadd(key, new Cacheable[]{value}) > 0;
+    }
+
+    @Override
+    public long sadd(String key, Cacheable... values) throws StorageAccessException {
+        String finalKey = normalizeKey(key);
+        try {
+            String[] valueArray = new String[values.length];
+            for (int i = 0; i < values.length; i++) {
+                valueArray[i] = values[i].getKey();
+            }
+            jedisCluster.sadd(finalKey, valueArray);
+            jedisCluster.pexpire(finalKey, values[0].getExpireTime());
+            return values.length;
+        } catch (Exception e) {
+            throw new StorageAccessException(e);
+        }
+    }
+
+    @Override
+    public Set<String> sunion(String... keys) throws StorageAccessException {
+        try {
+            Map<Integer, List<String>> slotKeys = groupBySlot(keys);
+            if (slotKeys.size() == 1) {
+                List<String> finalKeys = slotKeys.values().iterator().next();
+                return jedisCluster.sunion(finalKeys.toArray(new String[finalKeys.size()]));
+            }
+            // keys live in different slots, union them on the client side
+            Set<String> union = new HashSet<>();
+            for (List<String> finalKeys : slotKeys.values()) {
+                union.addAll(jedisCluster.sunion(finalKeys.toArray(new String[finalKeys.size()])));
+            }
+            return union;
+        } catch (Exception e) {
+            throw new StorageAccessException(e);
+        }
+    }
+
+    protected Map<Integer, List<String>> groupBySlot(String... keys) {
+        return groupBySlot(Arrays.asList(keys));
+    }
+
+    /**
+     * Normalize keys and group them by hash slot
+     */
+    protected Map<Integer, List<String>> groupBySlot(Collection<String> keys) {
+        Map<Integer, List<String>> slotKeys = new HashMap<>();
+        for (String key : keys) {
+            String finalKey = normalizeKey(key);
+            int slot = JedisClusterCRC16.getSlot(finalKey);
+            List<String> finalKeys = slotKeys.get(slot);
+            if (null == finalKeys) {
+                finalKeys = new ArrayList<>();
+                slotKeys.put(slot, finalKeys);
+            }
+            finalKeys.add(finalKey);
+        }
+        return slotKeys;
+    }
+
+    private String denormalizeKey(String finalKey) {
+        return finalKey.substring(finalPrefix.length() + 1);
+    }
+}
@@ -0,0 +1,93 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.storage.cluster;
+
+import club.cookbean.sparrow.annotation.ServiceDependencies;
+import club.cookbean.sparrow.config.ServiceConfiguration;
+import club.cookbean.sparrow.listener.CacheConfigurationChangeListener;
+import club.cookbean.sparrow.provider.ServiceProvider;
+import club.cookbean.sparrow.redis.RedisConnector;
+import club.cookbean.sparrow.redis.RedisResource;
+import club.cookbean.sparrow.service.Service;
+import club.cookbean.sparrow.storage.Storage;
+import club.cookbean.sparrow.storage.StorageSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.JedisCluster;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+public class ClusterStorage extends AbstractClusterStorage {
+
+    public ClusterStorage(JedisCluster jedisCluster, String finalPrefix,
+                          Collection<ServiceConfiguration<?>> serviceConfigurations) {
+        super(jedisCluster, finalPrefix, serviceConfigurations);
+    }
+
+    @Override
+    public List<CacheConfigurationChangeListener> getConfigurationChangeListeners() {
+        return Collections.emptyList();
+    }
+
+    @ServiceDependencies({})
+    public static class Provider implements Storage.Provider {
+        private final static Logger LOGGER = LoggerFactory.getLogger(Provider.class);
+
+        private volatile ServiceProvider<Service> serviceProvider; // 用户获取Service
+
+        @Override
+        public Storage createStorage(Configuration storageConfig) {
+            RedisResource redisResource = storageConfig.getResource();
+            RedisConnector redisConnector = storageConfig.getConnector();
+
+            String finalPrefix = StorageSupport.resolveFinalPrefix(redisResource, redisConnector);
+            LOGGER.info("Create a cluster storage with final prefix [{}]", finalPrefix);
+
+            // the pool config is applied to the connection pool of every cluster node
+            JedisCluster jedisCluster = new JedisCluster(redisResource.getClusterNodes(),
+                    redisConnector.getConnectTimeout(), redisConnector.getSocketTimeout(),
+                    redisConnector.getMaxAttempts(), redisConnector.getPoolConfig());
+
+            return new ClusterStorage(jedisCluster, finalPrefix, storageConfig.getServiceConfigurations());
+        }
+
+        @Override
+        public void releaseStorage(Storage storage) {
+            storage.release();
+        }
+
+        @Override
+        public void initStorage(Storage storage) {
+            // do nothing
+        }
+
+        @Override
+        public int rank(RedisResource.ResourceType type, Collection<ServiceConfiguration<?>> serviceConfigs) {
+            return RedisResource.ResourceType.CLUSTER == type ? 1 : 0;
+        }
+
+        @Override
+        public void start(ServiceProvider<Service> serviceProvider) {
+            this.serviceProvider = serviceProvider;
+        }
+
+        @Override
+        public void stop() {
+            this.serviceProvider = null;
+        }
+    }
+}
@@ -0,0 +1,675 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.storage.compress;
+
+import club.cookbean.sparrow.exception.StorageAccessException;
+import club.cookbean.sparrow.function.Function;
+import club.cookbean.sparrow.listener.CacheConfigurationChangeListener;
+import club.cookbean.sparrow.redis.BinaryCacheable;
+import club.cookbean.sparrow.redis.Cacheable;
+import club.cookbean.sparrow.storage.AsyncStorage;
+import club.cookbean.sparrow.storage.ExpiringValue;
+import club.cookbean.sparrow.storage.Storage;
+import club.cookbean.sparrow.storage.StorageFuture;
+import club.cookbean.sparrow.storage.StoredValue;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+
+/**
+ * Desc: Storage compressing the string values and list elements of another storage. <br>
+ * Compressed values are written as bytes, binary values included, see {@link ValueCompressor}. <br>
+ * Set members are left as they are: membership is decided on the stored bytes, and deflate output is
+ * not guaranteed to be identical across zlib versions, so a compressed member could be added twice.
+ * Members are still read through {@link ValueCompressor#decompress(String)}, which leaves plain ones untouched. <br>
+ * Over an {@link AsyncStorage} the replies are decompressed as a stage of their futures.
+ */
+public class CompressingStorage implements Storage, AsyncStorage {
+
+    private final Storage storage;
+    private final ValueCompressor compressor;
+
+    private final StorageFuture.Stage<String, String> decompressValue = new StorageFuture.Stage<String, String>() {
+        @Override
+        public String apply(String value) throws StorageAccessException {
+            return compressor.decompress(value);
+        }
+    };
+    private final StorageFuture.Stage<byte[], byte[]> decompressBytes = new StorageFuture.Stage<byte[], byte[]>() {
+        @Override
+        public byte[] apply(byte[] value) throws StorageAccessException {
+            return compressor.decompress(value);
+        }
+    };
+    private final StorageFuture.Stage<ExpiringValue, ExpiringValue> decompressExpiring = new StorageFuture.Stage<ExpiringValue, ExpiringValue>() {
+        @Override
+        public ExpiringValue apply(ExpiringValue value) throws StorageAccessException {
+            return decompress(value);
+        }
+    };
+    private final StorageFuture.Stage<Map<String, ExpiringValue>, Map<String, ExpiringValue>> decompressAllExpiring =
+            new StorageFuture.Stage<Map<String, ExpiringValue>, Map<String, ExpiringValue>>() {
+                @Override
+                public Map<String, ExpiringValue> apply(Map<String, ExpiringValue> values) throws StorageAccessException {
+                    return decompressExpiring(values);
+                }
+            };
+    private final StorageFuture.Stage<Map<String, String>, Map<String, String>> decompressAll =
+            new StorageFuture.Stage<Map<String, String>, Map<String, String>>() {
+                @Override
+                public Map<String, String> apply(Map<String, String> values) throws StorageAccessException {
+                    return decompress(values);
+                }
+            };
+    private final StorageFuture.Stage<List<String>, List<String>> decompressList = new StorageFuture.Stage<List<String>, List<String>>() {
+        @Override
+        public List<String> apply(List<String> values) throws StorageAccessException {
+            return decompress(values);
+        }
+    };
+    private final StorageFuture.Stage<Set<String>, Set<String>> decompressSet = new StorageFuture.Stage<Set<String>, Set<String>>() {
+        @Override
+        public Set<String> apply(Set<String> values) throws StorageAccessException {
+            return decompress(values);
+        }
+    };
+
+    public CompressingStorage(Storage storage, ValueCompressor compressor) {
+        this.storage = storage;
+        this.compressor = compressor;
+    }
+
+    public CompressionStatistics getStatistics() {
+        return compressor;
+    }
+
+    @Override
+    public void release() {
+        storage.release();
+    }
+
+    @Override
+    public List<CacheConfigurationChangeListener> getConfigurationChangeListeners() {
+        return storage.getConfigurationChangeListeners();
+    }
+
+    @Override
+    public String normalizeKey(String key) {
+        return storage.normalizeKey(key);
+    }
+
+    // ++++++++++++++++++++++++++++ basic operation ++++++++++++++++++++++++++++
+
+    @Override
+    public boolean exist(String key) throws StorageAccessException {
+        return storage.exist(key);
+    }
+
+    @Override
+    public boolean expire(String key, long millisecond) throws StorageAccessException {
+        return storage.expire(key, millisecond);
+    }
+
+    @Override
+    public boolean expireAt(String key, long timestamp) throws StorageAccessException {
+        return storage.expireAt(key, timestamp);
+    }
+
+    @Override
+    public void delete(String key) throws StorageAccessException {
+        storage.delete(key);
+    }
+
+    @Override
+    public void delete(String... keys) throws StorageAccessException {
+        storage.delete(keys);
+    }
+
+    @Override
+    public String get(String key) throws StorageAccessException {
+        return compressor.decompress(storage.get(key));
+    }
+
+    @Override
+    public boolean set(String key, Cacheable value) throws StorageAccessException {
+        return storage.set(key, compress(value));
+    }
+
+    @Override
+    public byte[] getBytes(String key) throws StorageAccessException {
+        return compressor.decompress(storage.getBytes(key));
+    }
+
+    @Override
+    public ByteBuffer getByteBuffer(String key) throws StorageAccessException {
+        byte[] value = this.getBytes(key);
+        return null == value ? null : ByteBuffer.wrap(value).asReadOnlyBuffer();
+    }
+
+    @Override
+    public ExpiringValue getWithTtl(String key) throws StorageAccessException {
+        return decompress(storage.getWithTtl(key));
+    }
+
+    @Override
+    public Map<String, ExpiringValue> getAllWithTtl(Collection<String> keys) throws StorageAccessException {
+        return decompressExpiring(storage.getAllWithTtl(keys));
+    }
+
+    @Override
+    public Map<String, String> getAll(Collection<String> keys) throws StorageAccessException {
+        return decompress(storage.getAll(keys));
+    }
+
+    @Override
+    public Set<String> setAll(Map<String, ? extends Cacheable> entries) throws StorageAccessException {
+        return storage.setAll(compress(entries));
+    }
+
+    @Override
+    public StoredValue getStored(String key) throws StorageAccessException {
+        StoredValue stored = storage.getStored(key);
+        if (null == stored) {
+            return null;
+        }
+        return new StoredValue(compressor.decompress(stored.getValue()), stored.getCreationTime(), stored.getExpireTime());
+    }
+
+    @Override
+    public boolean setStored(String key, Cacheable value) throws StorageAccessException {
+        return storage.setStored(key, compress(value));
+    }
+
+    @Override
+    public Object eval(String script, List<String> keys, List<String> args) throws StorageAccessException {
+        return storage.eval(script, keys, args);
+    }
+
+    // ++++++++++++++++++++++++++++ list operation ++++++++++++++++++++++++++++
+
+    @Override
+    public long llen(String key) throws StorageAccessException {
+        return storage.llen(key);
+    }
+
+    @Override
+    public List<String> lrang(String key, long start, long end) throws StorageAccessException {
+        return decompress(storage.lrang(key, start, end));
+    }
+
+    @Override
+    public String lindex(String key, long index) throws StorageAccessException {
+        return compressor.decompress(storage.lindex(key, index));
+    }
+
+    @Override
+    public long lrem(String key, int count, String valueToRemove) throws StorageAccessException {
+        return storage.lrem(key, count, compressor.compressMember(valueToRemove));
+    }
+
+    @Override
+    public boolean lpush(String key, Cacheable value) throws StorageAccessException {
+        return storage.lpush(key, compressMember(value));
+    }
+
+    @Override
+    public long lpush(String key, Cacheable... values) throws StorageAccessException {
+        return storage.lpush(key, compressMembers(values));
+    }
+
+    @Override
+    public String lpop(String key) throws StorageAccessException {
+        return compressor.decompress(storage.lpop(key));
+    }
+
+    @Override
+    public boolean rpush(String key, Cacheable value) throws StorageAccessException {
+        return storage.rpush(key, compressMember(value));
+    }
+
+    @Override
+    public long rpush(String key, Cacheable... values) throws StorageAccessException {
+        return storage.rpush(key, compressMembers(values));
+    }
+
+    @Override
+    public String rpop(String key) throws StorageAccessException {
+        return compressor.decompress(storage.rpop(key));
+    }
+
+    // ++++++++++++++++++++++++++++ set operation ++++++++++++++++++++++++++++
+
+    @Override
+    public long scard(String key) throws StorageAccessException {
+        return storage.scard(key);
+    }
+
+    @Override
+    public boolean sismember(String key, Cacheable value) throws StorageAccessException {
+        return storage.sismember(key, value);
+    }
+
+    @Override
+    public Set<String> smembers(String key) throws StorageAccessException {
+        return decompress(storage.smembers(key));
+    }
+
+    @Override
+    public boolean sadd(String key, Cacheable value) throws StorageAccessException {
+        return storage.sadd(key, value);
+    }
+
+    @Override
+    public long sadd(String key, Cacheable... values) throws StorageAccessException {
+        return storage.sadd(key, values);
+    }
+
+    @Override
+    public Set<String> sunion(String... keys) throws StorageAccessException {
+        return decompress(storage.sunion(keys));
+    }
+
+    // ++++++++++++++++++++++++++++ handle write ++++++++++++++++++++++++++++
+
+    @Override
+    public void handleDelete(String key, Function<String, Boolean> deleteFunc) throws StorageAccessException {
+        storage.handleDelete(key, deleteFunc);
+    }
+
+    @Override
+    public void handleDeleteAll(String[] keys, Function<Iterable<String>, Boolean> deleteAllFunc) throws StorageAccessException {
+        storage.handleDeleteAll(keys, deleteAllFunc);
+    }
+
+    @Override
+    public void handleSet(String key, final Function<String, Cacheable> setFunc) throws StorageAccessException {
+        storage.handleSet(key, new Function<String, Cacheable>() {
+            @Override
+            public Cacheable apply(String key) {
+                return compress(setFunc.apply(key));
+            }
+        });
+    }
+
+    @Override
+    public long handleLLPush(String key, Function<String, List<? extends Cacheable>> lpushFunc) throws StorageAccessException {
+        return storage.handleLLPush(key, compressList(lpushFunc));
+    }
+
+    @Override
+    public long handleLRPush(String key, Function<String, List<? extends Cacheable>> rpushFunc) throws StorageAccessException {
+        return storage.handleLRPush(key, compressList(rpushFunc));
+    }
+
+    @Override
+    public long handleSetAdd(String key, Function<String, Set<? extends Cacheable>> addFunc) throws StorageAccessException {
+        return storage.handleSetAdd(key, addFunc);
+    }
+
+    // ++++++++++++++++++++++++++++ handle load ++++++++++++++++++++++++++++
+    // loaded values are returned by the storage as they were written, decompress() passes plain ones through
+
+    @Override
+    public String handleGet(String key, final Function<String, Cacheable> getFunc) throws StorageAccessException {
+        return compressor.decompress(storage.handleGet(key, new Function<String, Cacheable>() {
+            @Override
+            public Cacheable apply(String key) {
+                return compress(getFunc.apply(key));
+            }
+        }));
+    }
+
+    @Override
+    public StoredValue handleGetStored(String key, final Function<String, Cacheable> getFunc) throws StorageAccessException {
+        StoredValue stored = storage.handleGetStored(key, new Function<String, Cacheable>() {
+            @Override
+            public Cacheable apply(String key) {
+                return compress(getFunc.apply(key));
+            }
+        });
+        if (null == stored) {
+            return null;
+        }
+        return new StoredValue(compressor.decompress(stored.getValue()), stored.getCreationTime(), stored.getExpireTime());
+    }
+
+    @Override
+    public List<String> handleListRange(String key, long start, long end, final Function<String, List<Cacheable>> rangeFunction) throws StorageAccessException {
+        return decompress(storage.handleListRange(key, start, end, new Function<String, List<Cacheable>>() {
+            @Override
+            public List<Cacheable> apply(String key) {
+                List<Cacheable> values = rangeFunction.apply(key);
+                return null == values ? null : Arrays.asList(compressMembers(values.toArray(new Cacheable[values.size()])));
+            }
+        }));
+    }
+
+    @Override
+    public Set<String> handleSetMembers(String key, Function<String, Set<? extends Cacheable>> setFunc) throws StorageAccessException {
+        return decompress(storage.handleSetMembers(key, setFunc));
+    }
+
+    @Override
+    public Map<String, String> handleGetAll(Collection<String> keys, final Function<Collection<String>, Map<String, Cacheable>> loadAllFunc) throws StorageAccessException {
+        return decompress(storage.handleGetAll(keys, new Function<Collection<String>, Map<String, Cacheable>>() {
+            @Override
+            public Map<String, Cacheable> apply(Collection<String> keys) {
+                Map<String, Cacheable> values = loadAllFunc.apply(keys);
+                return null == values ? null : compress(values);
+            }
+        }));
+    }
+
+    // ++++++++++++++++++++++++++++ async ++++++++++++++++++++++++++++
+
+    @Override
+    public boolean isAsync() {
+        return storage instanceof AsyncStorage && ((AsyncStorage) storage).isAsync();
+    }
+
+    @Override
+    public StorageFuture<Boolean> existAsync(String key) {
+        return async().existAsync(key);
+    }
+
+    @Override
+    public StorageFuture<Boolean> expireAsync(String key, long millisecond) {
+        return async().expireAsync(key, millisecond);
+    }
+
+    @Override
+    public StorageFuture<Boolean> expireAtAsync(String key, long timestamp) {
+        return async().expireAtAsync(key, timestamp);
+    }
+
+    @Override
+    public StorageFuture<Void> deleteAsync(String key) {
+        return async().deleteAsync(key);
+    }
+
+    @Override
+    public StorageFuture<Void> deleteAsync(String... keys) {
+        return async().deleteAsync(keys);
+    }
+
+    @Override
+    public StorageFuture<String> getAsync(String key) {
+        return async().getAsync(key).then(decompressValue);
+    }
+
+    @Override
+    public StorageFuture<byte[]> getBytesAsync(String key) {
+        return async().getBytesAsync(key).then(decompressBytes);
+    }
+
+    @Override
+    public StorageFuture<ExpiringValue> getWithTtlAsync(String key) {
+        return async().getWithTtlAsync(key).then(decompressExpiring);
+    }
+
+    @Override
+    public StorageFuture<Map<String, ExpiringValue>> getAllWithTtlAsync(Collection<String> keys) {
+        return async().getAllWithTtlAsync(keys).then(decompressAllExpiring);
+    }
+
+    @Override
+    public StorageFuture<Boolean> setAsync(String key, Cacheable value) {
+        return async().setAsync(key, compress(value));
+    }
+
+    @Override
+    public StorageFuture<Map<String, String>> getAllAsync(Collection<String> keys) {
+        return async().getAllAsync(keys).then(decompressAll);
+    }
+
+    @Override
+    public StorageFuture<Set<String>> setAllAsync(Map<String, ? extends Cacheable> entries) {
+        return async().setAllAsync(compress(entries));
+    }
+
+    @Override
+    public StorageFuture<Long> llenAsync(String key) {
+        return async().llenAsync(key);
+    }
+
+    @Override
+    public StorageFuture<List<String>> lrangAsync(String key, long start, long end) {
+        return async().lrangAsync(key, start, end).then(decompressList);
+    }
+
+    @Override
+    public StorageFuture<String> lindexAsync(String key, long index) {
+        return async().lindexAsync(key, index).then(decompressValue);
+    }
+
+    @Override
+    public StorageFuture<Long> lremAsync(String key, int count, String valueToRemove) {
+        return async().lremAsync(key, count, compressor.compressMember(valueToRemove));
+    }
+
+    @Override
+    public StorageFuture<Long> lpushAsync(String key, Cacheable... values) {
+        return async().lpushAsync(key, compressMembers(values));
+    }
+
+    @Override
+    public StorageFuture<String> lpopAsync(String key) {
+        return async().lpopAsync(key).then(decompressValue);
+    }
+
+    @Override
+    public StorageFuture<Long> rpushAsync(String key, Cacheable... values) {
+        return async().rpushAsync(key, compressMembers(values));
+    }
+
+    @Override
+    public StorageFuture<String> rpopAsync(String key) {
+        return async().rpopAsync(key).then(decompressValue);
+    }
+
+    @Override
+    public StorageFuture<Long> scardAsync(String key) {
+        return async().scardAsync(key);
+    }
+
+    @Override
+    public StorageFuture<Boolean> sismemberAsync(String key, Cacheable value) {
+        return async().sismemberAsync(key, value);
+    }
+
+    @Override
+    public StorageFuture<Set<String>> smembersAsync(String key) {
+        return async().smembersAsync(key).then(decompressSet);
+    }
+
+    @Override
+    public StorageFuture<Long> saddAsync(String key, Cacheable... values) {
+        return async().saddAsync(key, values);
+    }
+
+    @Override
+    public StorageFuture<Set<String>> sunionAsync(String... keys) {
+        return async().sunionAsync(keys).then(decompressSet);
+    }
+
+    private AsyncStorage async() {
+        if (!isAsync()) {
+            throw new UnsupportedOperationException(storage.getClass().getName() + " cannot send commands asynchronously");
+        }
+        return (AsyncStorage) storage;
+    }
+
+    // ++++++++++++++++++++++++++++ compression ++++++++++++++++++++++++++++
+
+    private Cacheable compress(Cacheable value) {
+        if (null == value) {
+            return null;
+        }
+        if (value instanceof BinaryCacheable) {
+            byte[] bytes = ((BinaryCacheable) value).getBytes();
+            byte[] stored = compressor.compress(bytes);
+            return stored == bytes ? value : new CompressedBinary(value, stored);
+        }
+        String stored = compressor.compress(value.getValue());
+        if (stored == value.getValue()) {
+            return value;
+        }
+        // compressed values go as bytes, escaped ones stay strings
+        return ValueCompressor.COMPRESSED == stored.charAt(0) ? new CompressedBinary(value, stored) : new Compressed(value, stored);
+    }
+
+    /**
+     * List members are pushed as strings, binary ones included
+     */
+    private Cacheable compressMember(Cacheable value) {
+        if (null == value) {
+            return null;
+        }
+        String stored = compressor.compressMember(value.getValue());
+        return stored == value.getValue() ? value : new Compressed(value, stored);
+    }
+
+    private Cacheable[] compressMembers(Cacheable[] values) {
+        Cacheable[] stored = new Cacheable[values.length];
+        for (int i = 0; i < values.length; i++) {
+            stored[i] = compressMember(values[i]);
+        }
+        return stored;
+    }
+
+    private <V extends Cacheable> Map<String, Cacheable> compress(Map<String, V> entries) {
+        Map<String, Cacheable> stored = new LinkedHashMap<>(entries.size() * 4 / 3 + 1);
+        for (Map.Entry<String, V> entry : entries.entrySet()) {
+            stored.put(entry.getKey(), compress(entry.getValue()));
+        }
+        return stored;
+    }
+
+    private Function<String, List<? extends Cacheable>> compressList(final Function<String, List<? extends Cacheable>> pushFunc) {
+        return new Function<String, List<? extends Cacheable>>() {
+            @Override
+            public List<? extends Cacheable> apply(String key) {
+                List<? extends Cacheable> values = pushFunc.apply(key);
+                return null == values ? null : Arrays.asList(compressMembers(values.toArray(new Cacheable[values.size()])));
+            }
+        };
+    }
+
+    private List<String> decompress(List<String> values) throws StorageAccessException {
+        if (null == values) {
+            return null;
+        }
+        List<String> result = new ArrayList<>(values.size());
+        for (String value : values) {
+            result.add(compressor.decompress(value));
+        }
+        return result;
+    }
+
+    private ExpiringValue decompress(ExpiringValue value) throws StorageAccessException {
+        return null == value ? null : new ExpiringValue(compressor.decompress(value.getValue()), value.getTtlMillis());
+    }
+
+    private Map<String, ExpiringValue> decompressExpiring(Map<String, ExpiringValue> values) throws StorageAccessException {
+        for (Map.Entry<String, ExpiringValue> entry : values.entrySet()) {
+            entry.setValue(decompress(entry.getValue()));
+        }
+        return values;
+    }
+
+    private Set<String> decompress(Set<String> values) throws StorageAccessException {
+        if (null == values) {
+            return null;
+        }
+        Set<String> result = new HashSet<>(values.size() * 4 / 3 + 1);
+        for (String value : values) {
+            result.add(compressor.decompress(value));
+        }
+        return result;
+    }
+
+    private Map<String, String> decompress(Map<String, String> values) throws StorageAccessException {
+        if (null == values) {
+            return null;
+        }
+        Map<String, String> result = new LinkedHashMap<>(values.size() * 4 / 3 + 1);
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            result.put(entry.getKey(), compressor.decompress(entry.getValue()));
+        }
+        return result;
+    }
+
+    private static class Compressed implements Cacheable {
+        private final Cacheable origin;
+        String stored;
+
+        Compressed(Cacheable origin, String stored) {
+            this.origin = origin;
+            this.stored = stored;
+        }
+
+        @Override
+        public long getExpireTime() {
+            return origin.getExpireTime();
+        }
+
+        @Override
+        public long getCreationTime() {
+            return origin.getCreationTime();
+        }
+
+        @Override
+        public String getValue() {
+            return stored;
+        }
+
+        @Override
+        public String getKey() {
+            return origin.getKey();
+        }
+    }
+
+    /**
+     * Value written as bytes, read back as a string it is carried one char per byte
+     */
+    private static class CompressedBinary extends Compressed implements BinaryCacheable {
+        private byte[] bytes;
+
+        CompressedBinary(Cacheable origin, byte[] bytes) {
+            super(origin, null);
+            this.bytes = bytes;
+        }
+
+        CompressedBinary(Cacheable origin, String stored) {
+            super(origin, stored);
+        }
+
+        @Override
+        public String getValue() {
+            if (null == stored) {
+                stored = new String(bytes, ValueCompressor.ISO_8859_1);
+            }
+            return stored;
+        }
+
+        @Override
+        public byte[] getBytes() {
+            if (null == bytes) {
+                bytes = stored.getBytes(ValueCompressor.ISO_8859_1);
+            }
+            return bytes;
+        }
+    }
+}
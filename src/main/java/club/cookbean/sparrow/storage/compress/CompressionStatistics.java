@@ -0,0 +1,63 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.storage.compress;
+
+/**
+ * Desc: Counters of the value compression of a cache.
+ */
+public interface CompressionStatistics {
+
+    /**
+     * @return the number of values written compressed
+     */
+    long getCompressedCount();
+
+    /**
+     * @return the number of values at least as large as the threshold but written plain, as deflating did not shrink them
+     */
+    long getIncompressibleCount();
+
+    /**
+     * @return the number of compressed values read back
+     */
+    long getDecompressedCount();
+
+    /**
+     * @return the size in bytes of the compressed values before compression
+     */
+    long getUncompressedBytes();
+
+    /**
+     * @return the size in bytes of the compressed values as stored, header included
+     */
+    long getCompressedBytes();
+
+    /**
+     * Stored bytes over original bytes of the compressed values, lower is better.
+     *
+     * @return the compression ratio, 1 when nothing was compressed
+     */
+    double getCompressionRatio();
+
+    /**
+     * @return the time spent compressing, incompressible values included, in nanoseconds
+     */
+    long getCompressionNanos();
+
+    /**
+     * @return the time spent decompressing, in nanoseconds
+     */
+    long getDecompressionNanos();
+}
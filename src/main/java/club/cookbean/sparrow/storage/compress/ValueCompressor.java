@@ -0,0 +1,365 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.storage.compress;
+
+import club.cookbean.sparrow.config.CompressionConfiguration;
+import club.cookbean.sparrow.exception.StorageAccessException;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Desc: Turns values into their stored form and back. <br>
+ * A compressed value is a {@link #COMPRESSED} header byte followed by its raw deflate output, written with the
+ * binary commands. On its way through the string reads of a storage it is carried one char per byte
+ * (ISO-8859-1), see {@link #isCompressed(byte[])}. List and set members go through the string commands as UTF-8,
+ * they are only compressed when that still makes them smaller. Any other value is stored as it is, so values
+ * written before compression was enabled are still read; the rare plain value starting with one of the header
+ * characters is escaped by a {@link #PLAIN} header.
+ */
+public class ValueCompressor implements CompressionStatistics {
+
+    static final char COMPRESSED = '\u0001';
+    static final char PLAIN = '\u0002';
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    /**
+     * Charset carrying a compressed value in a string, one char per byte
+     */
+    static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+
+    private static final int INITIAL_BUFFER_SIZE = 1024;
+    // scratch buffers grown past it for a huge value are dropped, not kept for the life of the thread
+    private static final int MAX_RETAINED_BUFFER_SIZE = 64 * 1024;
+
+    private final int threshold;
+    private final ThreadLocal<Codec> codecs;
+
+    private final AtomicLong compressedCount = new AtomicLong();
+    private final AtomicLong incompressibleCount = new AtomicLong();
+    private final AtomicLong decompressedCount = new AtomicLong();
+    private final AtomicLong uncompressedBytes = new AtomicLong();
+    private final AtomicLong compressedBytes = new AtomicLong();
+    private final AtomicLong compressionNanos = new AtomicLong();
+    private final AtomicLong decompressionNanos = new AtomicLong();
+
+    public ValueCompressor(CompressionConfiguration configuration) {
+        this.threshold = configuration.getThreshold();
+        final int level = configuration.getLevel();
+        this.codecs = new ThreadLocal<Codec>() {
+            @Override
+            protected Codec initialValue() {
+                return new Codec(level);
+            }
+        };
+    }
+
+    /**
+     * @param reply value bytes read from redis
+     * @return true if the bytes are a compressed value
+     */
+    public static boolean isCompressed(byte[] reply) {
+        return null != reply && reply.length > 0 && reply[0] == COMPRESSED;
+    }
+
+    /**
+     * Stored form of a string value, written as bytes
+     * @param value value to store
+     * @return the header and deflated bytes one char per byte when it is large enough and deflating
+     * shrinks it, otherwise the value itself
+     */
+    public String compress(String value) {
+        return compress(value, false);
+    }
+
+    /**
+     * Stored form of a list or set member, written as UTF-8 like any member
+     * @param value member to store
+     * @return the compressed member when it is large enough and its UTF-8 form still shrinks, otherwise the member itself
+     */
+    public String compressMember(String value) {
+        return compress(value, true);
+    }
+
+    /**
+     * Stored form of a binary value
+     * @param value bytes to store
+     * @return the header and deflated bytes when they are large enough and deflating shrinks them,
+     * otherwise the bytes, escaped if needed
+     */
+    public byte[] compress(byte[] value) {
+        if (null == value || value.length < threshold) {
+            return escape(value);
+        }
+        long start = System.nanoTime();
+        Codec codec = codecs.get();
+        byte[] stored = null;
+        try {
+            int length = codec.deflate(value);
+            if (1 + length < value.length) {
+                stored = new byte[1 + length];
+                stored[0] = COMPRESSED;
+                System.arraycopy(codec.buffer, 0, stored, 1, length);
+            }
+        } finally {
+            codec.release();
+            compressionNanos.addAndGet(System.nanoTime() - start);
+        }
+        if (null == stored) {
+            incompressibleCount.incrementAndGet();
+            return escape(value);
+        }
+        compressed(value.length, stored.length);
+        return stored;
+    }
+
+    /**
+     * Value of a stored form, whether it was compressed or not
+     * @param stored stored form
+     * @return the value
+     * @throws StorageAccessException if a compressed value is corrupt
+     */
+    public String decompress(String stored) throws StorageAccessException {
+        if (null == stored || stored.isEmpty()) {
+            return stored;
+        }
+        char header = stored.charAt(0);
+        if (PLAIN == header) {
+            return stored.substring(1);
+        }
+        if (COMPRESSED != header) {
+            return stored;
+        }
+        byte[] bytes = stored.getBytes(ISO_8859_1);
+        long start = System.nanoTime();
+        Codec codec = codecs.get();
+        try {
+            int length = codec.inflate(bytes);
+            String value = new String(codec.buffer, 0, length, UTF_8);
+            decompressedCount.incrementAndGet();
+            return value;
+        } catch (DataFormatException e) {
+            throw new StorageAccessException("Corrupt compressed value", e);
+        } finally {
+            codec.release();
+            decompressionNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Value bytes of a stored form read as bytes
+     * @param stored stored bytes
+     * @return the value bytes
+     * @throws StorageAccessException if a compressed value is corrupt
+     */
+    public byte[] decompress(byte[] stored) throws StorageAccessException {
+        if (null == stored || stored.length == 0) {
+            return stored;
+        }
+        if (PLAIN == stored[0]) {
+            return Arrays.copyOfRange(stored, 1, stored.length);
+        }
+        if (COMPRESSED != stored[0]) {
+            return stored;
+        }
+        long start = System.nanoTime();
+        Codec codec = codecs.get();
+        try {
+            int length = codec.inflate(stored);
+            byte[] value = Arrays.copyOf(codec.buffer, length);
+            decompressedCount.incrementAndGet();
+            return value;
+        } catch (DataFormatException e) {
+            throw new StorageAccessException("Corrupt compressed value", e);
+        } finally {
+            codec.release();
+            decompressionNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    private String compress(String value, boolean member) {
+        // a char takes at most 3 bytes in UTF-8, skip encoding values that cannot reach the threshold
+        if (null == value || (long) value.length() * 3 < threshold) {
+            return escape(value);
+        }
+        byte[] bytes = value.getBytes(UTF_8);
+        if (bytes.length < threshold) {
+            return escape(value);
+        }
+        long start = System.nanoTime();
+        Codec codec = codecs.get();
+        String stored = null;
+        int storedLength = 0;
+        try {
+            int length = codec.deflate(bytes);
+            // a member goes as UTF-8, where the chars carrying bytes from 0x80 take two
+            storedLength = 1 + (member ? length + countHighBytes(codec.buffer, length) : length);
+            if (storedLength < bytes.length) {
+                byte[] chars = new byte[1 + length];
+                chars[0] = COMPRESSED;
+                System.arraycopy(codec.buffer, 0, chars, 1, length);
+                stored = new String(chars, ISO_8859_1);
+            }
+        } finally {
+            codec.release();
+            compressionNanos.addAndGet(System.nanoTime() - start);
+        }
+        if (null == stored) {
+            incompressibleCount.incrementAndGet();
+            return escape(value);
+        }
+        compressed(bytes.length, storedLength);
+        return stored;
+    }
+
+    private void compressed(int length, int storedLength) {
+        compressedCount.incrementAndGet();
+        uncompressedBytes.addAndGet(length);
+        compressedBytes.addAndGet(storedLength);
+    }
+
+    private static int countHighBytes(byte[] bytes, int length) {
+        int count = 0;
+        for (int i = 0; i < length; i++) {
+            if (bytes[i] < 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static String escape(String value) {
+        if (null == value || value.isEmpty()) {
+            return value;
+        }
+        char first = value.charAt(0);
+        return COMPRESSED == first || PLAIN == first ? PLAIN + value : value;
+    }
+
+    private static byte[] escape(byte[] value) {
+        if (null == value || value.length == 0 || (value[0] != COMPRESSED && value[0] != PLAIN)) {
+            return value;
+        }
+        byte[] escaped = new byte[value.length + 1];
+        escaped[0] = PLAIN;
+        System.arraycopy(value, 0, escaped, 1, value.length);
+        return escaped;
+    }
+
+    @Override
+    public long getCompressedCount() {
+        return compressedCount.get();
+    }
+
+    @Override
+    public long getIncompressibleCount() {
+        return incompressibleCount.get();
+    }
+
+    @Override
+    public long getDecompressedCount() {
+        return decompressedCount.get();
+    }
+
+    @Override
+    public long getUncompressedBytes() {
+        return uncompressedBytes.get();
+    }
+
+    @Override
+    public long getCompressedBytes() {
+        return compressedBytes.get();
+    }
+
+    @Override
+    public double getCompressionRatio() {
+        long uncompressed = uncompressedBytes.get();
+        return uncompressed == 0 ? 1 : (double) compressedBytes.get() / uncompressed;
+    }
+
+    @Override
+    public long getCompressionNanos() {
+        return compressionNanos.get();
+    }
+
+    @Override
+    public long getDecompressionNanos() {
+        return decompressionNanos.get();
+    }
+
+    /**
+     * Deflater, inflater and scratch buffer of a thread, deflaters hold native memory and are costly to create
+     */
+    private static final class Codec {
+        private final Deflater deflater;
+        private final Inflater inflater = new Inflater();
+        private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+
+        Codec(int level) {
+            this.deflater = new Deflater(level);
+        }
+
+        /**
+         * @return the length of the deflated bytes at the start of the buffer
+         */
+        int deflate(byte[] bytes) {
+            deflater.reset();
+            deflater.setInput(bytes);
+            deflater.finish();
+            int length = 0;
+            while (!deflater.finished()) {
+                if (length == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                }
+                length += deflater.deflate(buffer, length, buffer.length - length);
+            }
+            return length;
+        }
+
+        /**
+         * @param stored header and deflated bytes
+         * @return the length of the inflated bytes at the start of the buffer
+         */
+        int inflate(byte[] stored) throws DataFormatException {
+            inflater.reset();
+            inflater.setInput(stored, 1, stored.length - 1);
+            int length = 0;
+            while (!inflater.finished()) {
+                if (length == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                }
+                int inflated = inflater.inflate(buffer, length, buffer.length - length);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new DataFormatException("Truncated compressed value");
+                }
+                length += inflated;
+            }
+            return length;
+        }
+
+        /**
+         * Drop a buffer grown for a huge value, once its bytes are copied out
+         */
+        void release() {
+            if (buffer.length > MAX_RETAINED_BUFFER_SIZE) {
+                buffer = new byte[INITIAL_BUFFER_SIZE];
+            }
+        }
+    }
+}
@@ -0,0 +1,508 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.storage.invalidation;
+
+import club.cookbean.sparrow.exception.StorageAccessException;
+import club.cookbean.sparrow.function.Function;
+import club.cookbean.sparrow.listener.CacheConfigurationChangeListener;
+import club.cookbean.sparrow.redis.Cacheable;
+import club.cookbean.sparrow.storage.AsyncStorage;
+import club.cookbean.sparrow.storage.ExpiringValue;
+import club.cookbean.sparrow.storage.Storage;
+import club.cookbean.sparrow.storage.StorageFuture;
+import club.cookbean.sparrow.storage.StoredValue;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+
+/**
+ * Desc: Storage publishing the final key of every string value written or expired through it on an
+ * {@link InvalidationBus}, so the near caches of other processes drop their copies. <br>
+ * Keys are published once the write returned, failed writes included since they may have been applied,
+ * and over an {@link AsyncStorage} once its reply is in.
+ * Lists and sets are not kept in near caches and their writes are not published, neither are the writes
+ * of {@link #eval(String, List, List)}.
+ */
+public class InvalidatingStorage implements Storage, AsyncStorage {
+
+    private final Storage storage;
+    private final InvalidationBus bus;
+
+    public InvalidatingStorage(Storage storage, InvalidationBus bus) {
+        this.storage = storage;
+        this.bus = bus;
+    }
+
+    public InvalidationBus getBus() {
+        return bus;
+    }
+
+    /**
+     * @return the decorated storage
+     */
+    public Storage getStorage() {
+        return storage;
+    }
+
+    @Override
+    public void release() {
+        storage.release();
+    }
+
+    @Override
+    public List<CacheConfigurationChangeListener> getConfigurationChangeListeners() {
+        return storage.getConfigurationChangeListeners();
+    }
+
+    @Override
+    public String normalizeKey(String key) {
+        return storage.normalizeKey(key);
+    }
+
+    // ++++++++++++++++++++++++++++ basic operation ++++++++++++++++++++++++++++
+
+    @Override
+    public boolean exist(String key) throws StorageAccessException {
+        return storage.exist(key);
+    }
+
+    @Override
+    public boolean expire(String key, long millisecond) throws StorageAccessException {
+        try {
+            return storage.expire(key, millisecond);
+        } finally {
+            publish(key);
+        }
+    }
+
+    @Override
+    public boolean expireAt(String key, long timestamp) throws StorageAccessException {
+        try {
+            return storage.expireAt(key, timestamp);
+        } finally {
+            publish(key);
+        }
+    }
+
+    @Override
+    public void delete(String key) throws StorageAccessException {
+        try {
+            storage.delete(key);
+        } finally {
+            publish(key);
+        }
+    }
+
+    @Override
+    public void delete(String... keys) throws StorageAccessException {
+        try {
+            storage.delete(keys);
+        } finally {
+            publish(Arrays.asList(keys));
+        }
+    }
+
+    @Override
+    public String get(String key) throws StorageAccessException {
+        return storage.get(key);
+    }
+
+    @Override
+    public boolean set(String key, Cacheable value) throws StorageAccessException {
+        try {
+            return storage.set(key, value);
+        } finally {
+            publish(key);
+        }
+    }
+
+    @Override
+    public byte[] getBytes(String key) throws StorageAccessException {
+        return storage.getBytes(key);
+    }
+
+    @Override
+    public ByteBuffer getByteBuffer(String key) throws StorageAccessException {
+        return storage.getByteBuffer(key);
+    }
+
+    @Override
+    public ExpiringValue getWithTtl(String key) throws StorageAccessException {
+        return storage.getWithTtl(key);
+    }
+
+    @Override
+    public Map<String, ExpiringValue> getAllWithTtl(Collection<String> keys) throws StorageAccessException {
+        return storage.getAllWithTtl(keys);
+    }
+
+    @Override
+    public Map<String, String> getAll(Collection<String> keys) throws StorageAccessException {
+        return storage.getAll(keys);
+    }
+
+    @Override
+    public Set<String> setAll(Map<String, ? extends Cacheable> entries) throws StorageAccessException {
+        try {
+            return storage.setAll(entries);
+        } finally {
+            publish(entries.keySet());
+        }
+    }
+
+    @Override
+    public StoredValue getStored(String key) throws StorageAccessException {
+        return storage.getStored(key);
+    }
+
+    @Override
+    public boolean setStored(String key, Cacheable value) throws StorageAccessException {
+        try {
+            return storage.setStored(key, value);
+        } finally {
+            publish(key);
+        }
+    }
+
+    @Override
+    public Object eval(String script, List<String> keys, List<String> args) throws StorageAccessException {
+        return storage.eval(script, keys, args);
+    }
+
+    // ++++++++++++++++++++++++++++ list operation ++++++++++++++++++++++++++++
+
+    @Override
+    public long llen(String key) throws StorageAccessException {
+        return storage.llen(key);
+    }
+
+    @Override
+    public List<String> lrang(String key, long start, long end) throws StorageAccessException {
+        return storage.lrang(key, start, end);
+    }
+
+    @Override
+    public String lindex(String key, long index) throws StorageAccessException {
+        return storage.lindex(key, index);
+    }
+
+    @Override
+    public long lrem(String key, int count, String valueToRemove) throws StorageAccessException {
+        return storage.lrem(key, count, valueToRemove);
+    }
+
+    @Override
+    public boolean lpush(String key, Cacheable value) throws StorageAccessException {
+        return storage.lpush(key, value);
+    }
+
+    @Override
+    public long lpush(String key, Cacheable... values) throws StorageAccessException {
+        return storage.lpush(key, values);
+    }
+
+    @Override
+    public String lpop(String key) throws StorageAccessException {
+        return storage.lpop(key);
+    }
+
+    @Override
+    public boolean rpush(String key, Cacheable value) throws StorageAccessException {
+        return storage.rpush(key, value);
+    }
+
+    @Override
+    public long rpush(String key, Cacheable... values) throws StorageAccessException {
+        return storage.rpush(key, values);
+    }
+
+    @Override
+    public String rpop(String key) throws StorageAccessException {
+        return storage.rpop(key);
+    }
+
+    // ++++++++++++++++++++++++++++ set operation ++++++++++++++++++++++++++++
+
+    @Override
+    public long scard(String key) throws StorageAccessException {
+        return storage.scard(key);
+    }
+
+    @Override
+    public boolean sismember(String key, Cacheable value) throws StorageAccessException {
+        return storage.sismember(key, value);
+    }
+
+    @Override
+    public Set<String> smembers(String key) throws StorageAccessException {
+        return storage.smembers(key);
+    }
+
+    @Override
+    public boolean sadd(String key, Cacheable value) throws StorageAccessException {
+        return storage.sadd(key, value);
+    }
+
+    @Override
+    public long sadd(String key, Cacheable... values) throws StorageAccessException {
+        return storage.sadd(key, values);
+    }
+
+    @Override
+    public Set<String> sunion(String... keys) throws StorageAccessException {
+        return storage.sunion(keys);
+    }
+
+    // ++++++++++++++++++++++++++++ handle write ++++++++++++++++++++++++++++
+
+    @Override
+    public void handleDelete(String key, Function<String, Boolean> deleteFunc) throws StorageAccessException {
+        try {
+            storage.handleDelete(key, deleteFunc);
+        } finally {
+            publish(key);
+        }
+    }
+
+    @Override
+    public void handleDeleteAll(String[] keys, Function<Iterable<String>, Boolean> deleteAllFunc) throws StorageAccessException {
+        try {
+            storage.handleDeleteAll(keys, deleteAllFunc);
+        } finally {
+            publish(Arrays.asList(keys));
+        }
+    }
+
+    @Override
+    public void handleSet(String key, Function<String, Cacheable> setFunc) throws StorageAccessException {
+        try {
+            storage.handleSet(key, setFunc);
+        } finally {
+            publish(key);
+        }
+    }
+
+    @Override
+    public long handleLLPush(String key, Function<String, List<? extends Cacheable>> lpushFunc) throws StorageAccessException {
+        return storage.handleLLPush(key, lpushFunc);
+    }
+
+    @Override
+    public long handleLRPush(String key, Function<String, List<? extends Cacheable>> rpushFunc) throws StorageAccessException {
+        return storage.handleLRPush(key, rpushFunc);
+    }
+
+    @Override
+    public long handleSetAdd(String key, Function<String, Set<? extends Cacheable>> addFunc) throws StorageAccessException {
+        return storage.handleSetAdd(key, addFunc);
+    }
+
+    // ++++++++++++++++++++++++++++ handle load ++++++++++++++++++++++++++++
+    // values loaded on a miss were not cached anywhere before, nothing to publish
+
+    @Override
+    public String handleGet(String key, Function<String, Cacheable> getFunc) throws StorageAccessException {
+        return storage.handleGet(key, getFunc);
+    }
+
+    @Override
+    public StoredValue handleGetStored(String key, Function<String, Cacheable> getFunc) throws StorageAccessException {
+        return storage.handleGetStored(key, getFunc);
+    }
+
+    @Override
+    public List<String> handleListRange(String key, long start, long end, Function<String, List<Cacheable>> rangeFunction) throws StorageAccessException {
+        return storage.handleListRange(key, start, end, rangeFunction);
+    }
+
+    @Override
+    public Set<String> handleSetMembers(String key, Function<String, Set<? extends Cacheable>> setFunc) throws StorageAccessException {
+        return storage.handleSetMembers(key, setFunc);
+    }
+
+    @Override
+    public Map<String, String> handleGetAll(Collection<String> keys, Function<Collection<String>, Map<String, Cacheable>> loadAllFunc) throws StorageAccessException {
+        return storage.handleGetAll(keys, loadAllFunc);
+    }
+
+    // ++++++++++++++++++++++++++++ async ++++++++++++++++++++++++++++
+
+    @Override
+    public boolean isAsync() {
+        return storage instanceof AsyncStorage && ((AsyncStorage) storage).isAsync();
+    }
+
+    @Override
+    public StorageFuture<Boolean> existAsync(String key) {
+        return async().existAsync(key);
+    }
+
+    @Override
+    public StorageFuture<Boolean> expireAsync(String key, long millisecond) {
+        return publishOnReply(async().expireAsync(key, millisecond), Collections.singletonList(key));
+    }
+
+    @Override
+    public StorageFuture<Boolean> expireAtAsync(String key, long timestamp) {
+        return publishOnReply(async().expireAtAsync(key, timestamp), Collections.singletonList(key));
+    }
+
+    @Override
+    public StorageFuture<Void> deleteAsync(String key) {
+        return publishOnReply(async().deleteAsync(key), Collections.singletonList(key));
+    }
+
+    @Override
+    public StorageFuture<Void> deleteAsync(String... keys) {
+        return publishOnReply(async().deleteAsync(keys), Arrays.asList(keys));
+    }
+
+    @Override
+    public StorageFuture<String> getAsync(String key) {
+        return async().getAsync(key);
+    }
+
+    @Override
+    public StorageFuture<byte[]> getBytesAsync(String key) {
+        return async().getBytesAsync(key);
+    }
+
+    @Override
+    public StorageFuture<ExpiringValue> getWithTtlAsync(String key) {
+        return async().getWithTtlAsync(key);
+    }
+
+    @Override
+    public StorageFuture<Map<String, ExpiringValue>> getAllWithTtlAsync(Collection<String> keys) {
+        return async().getAllWithTtlAsync(keys);
+    }
+
+    @Override
+    public StorageFuture<Boolean> setAsync(String key, Cacheable value) {
+        return publishOnReply(async().setAsync(key, value), Collections.singletonList(key));
+    }
+
+    @Override
+    public StorageFuture<Map<String, String>> getAllAsync(Collection<String> keys) {
+        return async().getAllAsync(keys);
+    }
+
+    @Override
+    public StorageFuture<Set<String>> setAllAsync(Map<String, ? extends Cacheable> entries) {
+        return publishOnReply(async().setAllAsync(entries), new ArrayList<>(entries.keySet()));
+    }
+
+    @Override
+    public StorageFuture<Long> llenAsync(String key) {
+        return async().llenAsync(key);
+    }
+
+    @Override
+    public StorageFuture<List<String>> lrangAsync(String key, long start, long end) {
+        return async().lrangAsync(key, start, end);
+    }
+
+    @Override
+    public StorageFuture<String> lindexAsync(String key, long index) {
+        return async().lindexAsync(key, index);
+    }
+
+    @Override
+    public StorageFuture<Long> lremAsync(String key, int count, String valueToRemove) {
+        return async().lremAsync(key, count, valueToRemove);
+    }
+
+    @Override
+    public StorageFuture<Long> lpushAsync(String key, Cacheable... values) {
+        return async().lpushAsync(key, values);
+    }
+
+    @Override
+    public StorageFuture<String> lpopAsync(String key) {
+        return async().lpopAsync(key);
+    }
+
+    @Override
+    public StorageFuture<Long> rpushAsync(String key, Cacheable... values) {
+        return async().rpushAsync(key, values);
+    }
+
+    @Override
+    public StorageFuture<String> rpopAsync(String key) {
+        return async().rpopAsync(key);
+    }
+
+    @Override
+    public StorageFuture<Long> scardAsync(String key) {
+        return async().scardAsync(key);
+    }
+
+    @Override
+    public StorageFuture<Boolean> sismemberAsync(String key, Cacheable value) {
+        return async().sismemberAsync(key, value);
+    }
+
+    @Override
+    public StorageFuture<Set<String>> smembersAsync(String key) {
+        return async().smembersAsync(key);
+    }
+
+    @Override
+    public StorageFuture<Long> saddAsync(String key, Cacheable... values) {
+        return async().saddAsync(key, values);
+    }
+
+    @Override
+    public StorageFuture<Set<String>> sunionAsync(String... keys) {
+        return async().sunionAsync(keys);
+    }
+
+    private AsyncStorage async() {
+        if (!isAsync()) {
+            throw new UnsupportedOperationException(storage.getClass().getName() + " cannot send commands asynchronously");
+        }
+        return (AsyncStorage) storage;
+    }
+
+    // ++++++++++++++++++++++++++++ invalidation ++++++++++++++++++++++++++++
+
+    /**
+     * Publish the keys once the reply is in, whatever it is
+     */
+    private <V> StorageFuture<V> publishOnReply(StorageFuture<V> reply, final Collection<String> keys) {
+        reply.addCallback(new StorageFuture.Callback<V>() {
+            @Override
+            public void onSuccess(V value) {
+                publish(keys);
+            }
+
+            @Override
+            public void onFailure(StorageAccessException cause) {
+                publish(keys);
+            }
+        });
+        return reply;
+    }
+
+    private void publish(String key) {
+        bus.publish(storage.normalizeKey(key));
+    }
+
+    private void publish(Collection<String> keys) {
+        for (String key : keys) {
+            publish(key);
+        }
+    }
+}
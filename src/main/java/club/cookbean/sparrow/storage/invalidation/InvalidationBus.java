@@ -0,0 +1,391 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.storage.invalidation;
+
+import club.cookbean.sparrow.config.InvalidationConfiguration;
+import club.cookbean.sparrow.redis.RedisConnector;
+import club.cookbean.sparrow.redis.RedisResource;
+import club.cookbean.sparrow.util.ThreadFactoryUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.*;
+
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Desc: Publishes written keys to the other processes sharing a key prefix, and hands the keys they
+ * publish to the local listeners. <br>
+ * A publisher thread batches the keys written within the max delay, duplicates dropped, into one
+ * message; a subscriber thread holds the subscription and resubscribes after a connection loss.
+ * Messages missed while disconnected cannot be replayed, so listeners are told to drop everything
+ * once the subscription is back. <br>
+ * A message is the id of the sending bus followed by the keys, each one prefixed by its length,
+ * so a bus skips its own messages and keys may hold any character.
+ */
+public class InvalidationBus {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(InvalidationBus.class);
+
+    private static final String CHANNEL_PREFIX = "__sparrow:invalidation:";
+    private static final long IDLE_POLL_MS = 100;
+    private static final long RESUBSCRIBE_DELAY_MS = 1000;
+
+    /**
+     * Local receiver of published keys
+     */
+    public interface Listener {
+
+        /**
+         * @param finalKeys final keys written by another process
+         */
+        void invalidated(Collection<String> finalKeys);
+
+        /**
+         * Keys may have been missed, e.g. while the subscription was down
+         */
+        void invalidatedAll();
+    }
+
+    /**
+     * The redis connections of a bus
+     */
+    public interface Transport {
+
+        void publish(String channel, String message) throws Exception;
+
+        /**
+         * Subscribe and deliver messages to the handler, blocks until it is unsubscribed or the connection fails
+         */
+        void subscribe(String channel, JedisPubSub handler) throws Exception;
+
+        void close();
+    }
+
+    private final Transport transport;
+    private final String channel;
+    private final String senderId = UUID.randomUUID().toString();
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final BlockingQueue<String> pendingKeys = new LinkedBlockingQueue<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final ThreadFactory threadFactory;
+    private final Subscription subscription = new Subscription();
+
+    private volatile boolean running;
+    private Thread publisher;
+    private Thread subscriber;
+
+    public InvalidationBus(Transport transport, String finalPrefix, InvalidationConfiguration config) {
+        this.transport = transport;
+        this.channel = CHANNEL_PREFIX + finalPrefix;
+        this.maxBatchSize = config.getMaxBatchSize();
+        this.maxDelayNanos = config.getMaxDelayUnit().toNanos(config.getMaxDelay());
+        this.threadFactory = ThreadFactoryUtil.threadFactory("invalidation-" + finalPrefix);
+    }
+
+    /**
+     * Connections of a bus on the given resource, apart from the ones of the storage since a
+     * subscription holds its connection
+     */
+    public static Transport transport(RedisResource redisResource, RedisConnector redisConnector) {
+        JedisPoolConfig poolConfig = new JedisPoolConfig();
+        // one publishing and one subscribed connection
+        poolConfig.setMaxTotal(2);
+        if (RedisResource.ResourceType.CLUSTER == redisResource.getType()) {
+            return new ClusterTransport(new JedisCluster(redisResource.getClusterNodes(),
+                    redisConnector.getConnectTimeout(), redisConnector.getSocketTimeout(),
+                    redisConnector.getMaxAttempts(), poolConfig));
+        }
+        HostAndPort node = redisResource.getStandaloneNode();
+        return new StandaloneTransport(new JedisPool(poolConfig, node.getHost(), node.getPort(),
+                redisConnector.getConnectTimeout(), redisConnector.getSocketTimeout(),
+                null, Protocol.DEFAULT_DATABASE, null, false, null, null, null));
+    }
+
+    public String getChannel() {
+        return channel;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Queue a written key for the next message, never blocks
+     * @param finalKey final key
+     */
+    public void publish(String finalKey) {
+        if (running) {
+            pendingKeys.offer(finalKey);
+        }
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        publisher = threadFactory.newThread(new Publisher());
+        publisher.setDaemon(true);
+        publisher.start();
+        subscriber = threadFactory.newThread(new Subscriber());
+        subscriber.setDaemon(true);
+        subscriber.start();
+    }
+
+    /**
+     * Publish the queued keys, unsubscribe and release the connections
+     */
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        try {
+            if (subscription.isSubscribed()) {
+                subscription.unsubscribe();
+            }
+        } catch (RuntimeException e) {
+            LOGGER.debug("Unsubscribe from {} fail", channel, e);
+        }
+        boolean interrupted = join(publisher);
+        // closing the connections breaks a subscription that could not be unsubscribed
+        transport.close();
+        subscriber.interrupt();
+        interrupted |= join(subscriber);
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public int getPendingCount() {
+        return pendingKeys.size();
+    }
+
+    private static boolean join(Thread thread) {
+        boolean interrupted = false;
+        while (thread.isAlive()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        return interrupted;
+    }
+
+    static String encode(String senderId, Collection<String> finalKeys) {
+        StringBuilder message = new StringBuilder(senderId);
+        for (String finalKey : finalKeys) {
+            message.append('\n').append(finalKey.length()).append(':').append(finalKey);
+        }
+        return message.toString();
+    }
+
+    /**
+     * @return the keys of a message, null if it was sent by the given sender
+     */
+    static List<String> decode(String senderId, String message) {
+        int index = message.indexOf('\n');
+        String sender = index < 0 ? message : message.substring(0, index);
+        if (sender.equals(senderId)) {
+            return null;
+        }
+        List<String> finalKeys = new ArrayList<>();
+        while (index >= 0 && index < message.length()) {
+            int colon = message.indexOf(':', index + 1);
+            int length = Integer.parseInt(message.substring(index + 1, colon));
+            finalKeys.add(message.substring(colon + 1, colon + 1 + length));
+            index = colon + 1 + length;
+        }
+        return finalKeys;
+    }
+
+    private class Publisher implements Runnable {
+
+        @Override
+        public void run() {
+            Set<String> batch = new LinkedHashSet<>();
+            while (running || !pendingKeys.isEmpty()) {
+                String first;
+                try {
+                    first = pendingKeys.poll(IDLE_POLL_MS, MILLISECONDS);
+                } catch (InterruptedException e) {
+                    continue;
+                }
+                if (null == first) {
+                    continue;
+                }
+                batch.add(first);
+                fill(batch);
+                try {
+                    transport.publish(channel, encode(senderId, batch));
+                } catch (Exception e) {
+                    // other processes keep their copies until these expire
+                    LOGGER.warn("Publish of {} invalidated keys on {} fail", batch.size(), channel, e);
+                }
+                batch.clear();
+            }
+        }
+
+        private void fill(Set<String> batch) {
+            long deadline = System.nanoTime() + maxDelayNanos;
+            while (batch.size() < maxBatchSize) {
+                String next = pendingKeys.poll();
+                if (null == next) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        return;
+                    }
+                    try {
+                        next = pendingKeys.poll(remaining, NANOSECONDS);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    if (null == next) {
+                        return;
+                    }
+                }
+                batch.add(next);
+            }
+        }
+    }
+
+    private class Subscriber implements Runnable {
+
+        @Override
+        public void run() {
+            boolean subscribedBefore = false;
+            while (running) {
+                try {
+                    if (subscribedBefore) {
+                        // whatever was published meanwhile is lost
+                        for (Listener listener : listeners) {
+                            listener.invalidatedAll();
+                        }
+                    }
+                    subscribedBefore = true;
+                    transport.subscribe(channel, subscription);
+                } catch (Exception e) {
+                    if (!running) {
+                        return;
+                    }
+                    LOGGER.warn("Subscription to {} lost, resubscribe in {}ms", channel, RESUBSCRIBE_DELAY_MS, e);
+                    try {
+                        Thread.sleep(RESUBSCRIBE_DELAY_MS);
+                    } catch (InterruptedException ie) {
+                        // check running
+                    }
+                }
+            }
+        }
+    }
+
+    private class Subscription extends JedisPubSub {
+
+        @Override
+        public void onMessage(String channel, String message) {
+            List<String> finalKeys;
+            try {
+                finalKeys = decode(senderId, message);
+            } catch (RuntimeException e) {
+                LOGGER.warn("Malformed invalidation message on {}", channel, e);
+                return;
+            }
+            if (null == finalKeys || finalKeys.isEmpty()) {
+                return;
+            }
+            for (Listener listener : listeners) {
+                try {
+                    listener.invalidated(finalKeys);
+                } catch (RuntimeException e) {
+                    LOGGER.error("Invalidation listener fail", e);
+                }
+            }
+        }
+    }
+
+    private static class StandaloneTransport implements Transport {
+        private final JedisPool jedisPool;
+
+        StandaloneTransport(JedisPool jedisPool) {
+            this.jedisPool = jedisPool;
+        }
+
+        @Override
+        public void publish(String channel, String message) {
+            Jedis jedis = jedisPool.getResource();
+            try {
+                jedis.publish(channel, message);
+            } finally {
+                jedis.close();
+            }
+        }
+
+        @Override
+        public void subscribe(String channel, JedisPubSub handler) {
+            Jedis jedis = jedisPool.getResource();
+            try {
+                jedis.subscribe(handler, channel);
+            } finally {
+                jedis.close();
+            }
+        }
+
+        @Override
+        public void close() {
+            jedisPool.close();
+        }
+    }
+
+    private static class ClusterTransport implements Transport {
+        private final JedisCluster jedisCluster;
+
+        ClusterTransport(JedisCluster jedisCluster) {
+            this.jedisCluster = jedisCluster;
+        }
+
+        @Override
+        public void publish(String channel, String message) {
+            // cluster nodes forward published messages to each other
+            jedisCluster.publish(channel, message);
+        }
+
+        @Override
+        public void subscribe(String channel, JedisPubSub handler) {
+            jedisCluster.subscribe(handler, channel);
+        }
+
+        @Override
+        public void close() {
+            try {
+                jedisCluster.close();
+            } catch (Exception e) {
+                LOGGER.warn("Close invalidation cluster connections fail", e);
+            }
+        }
+    }
+}
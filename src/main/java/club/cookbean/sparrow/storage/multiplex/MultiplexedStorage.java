@@ -0,0 +1,787 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.storage.multiplex;
+
+import club.cookbean.sparrow.annotation.ServiceDependencies;
+import club.cookbean.sparrow.config.MultiplexingConfiguration;
+import club.cookbean.sparrow.config.ServiceConfiguration;
+import club.cookbean.sparrow.exception.StorageAccessException;
+import club.cookbean.sparrow.listener.CacheConfigurationChangeListener;
+import club.cookbean.sparrow.provider.ServiceProvider;
+import club.cookbean.sparrow.redis.BinaryCacheable;
+import club.cookbean.sparrow.redis.Cacheable;
+import club.cookbean.sparrow.redis.RedisConnector;
+import club.cookbean.sparrow.redis.RedisResource;
+import club.cookbean.sparrow.service.Service;
+import club.cookbean.sparrow.storage.AbstractStorage;
+import club.cookbean.sparrow.storage.AsyncStorage;
+import club.cookbean.sparrow.storage.ExpiringValue;
+import club.cookbean.sparrow.storage.Storage;
+import club.cookbean.sparrow.storage.StorageFuture;
+import club.cookbean.sparrow.storage.StorageSupport;
+import club.cookbean.sparrow.util.ServiceUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.HostAndPort;
+
+import java.net.InetSocketAddress;
+import java.util.*;
+
+/**
+ * Desc: Standalone storage speaking RESP through a {@link RespMultiplexer} instead of a JedisPool,
+ * so the number of concurrent commands is no longer bound to the number of redis connections.
+ * Chosen over {@link club.cookbean.sparrow.storage.standalone.StandaloneStorage} when the cache
+ * has a {@link MultiplexingConfiguration}. <br>
+ * Its commands can also be sent as an {@link AsyncStorage}, their futures are completed by the reader
+ * thread of the connection.
+ */
+public class MultiplexedStorage extends AbstractStorage implements AsyncStorage {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MultiplexedStorage.class);
+
+    private static final byte[] EXISTS = bytes("EXISTS");
+    private static final byte[] PEXPIRE = bytes("PEXPIRE");
+    private static final byte[] PEXPIREAT = bytes("PEXPIREAT");
+    private static final byte[] DEL = bytes("DEL");
+    private static final byte[] GET = bytes("GET");
+    private static final byte[] PTTL = bytes("PTTL");
+    private static final byte[] SET = bytes("SET");
+    private static final byte[] PSETEX = bytes("PSETEX");
+    private static final byte[] MGET = bytes("MGET");
+    private static final byte[] EVAL = bytes("EVAL");
+    private static final byte[] LLEN = bytes("LLEN");
+    private static final byte[] LRANGE = bytes("LRANGE");
+    private static final byte[] LINDEX = bytes("LINDEX");
+    private static final byte[] LREM = bytes("LREM");
+    private static final byte[] LPUSH = bytes("LPUSH");
+    private static final byte[] LPOP = bytes("LPOP");
+    private static final byte[] RPUSH = bytes("RPUSH");
+    private static final byte[] RPOP = bytes("RPOP");
+    private static final byte[] SCARD = bytes("SCARD");
+    private static final byte[] SISMEMBER = bytes("SISMEMBER");
+    private static final byte[] SMEMBERS = bytes("SMEMBERS");
+    private static final byte[] SADD = bytes("SADD");
+    private static final byte[] SUNION = bytes("SUNION");
+    private static final byte[] NX = bytes("NX");
+    private static final byte[] PX = bytes("PX");
+
+    private static final StorageFuture.Stage<Object, Long> INTEGER_REPLY = new StorageFuture.Stage<Object, Long>() {
+        @Override
+        public Long apply(Object reply) {
+            return integer(reply);
+        }
+    };
+    private static final StorageFuture.Stage<Object, Boolean> POSITIVE_REPLY = new StorageFuture.Stage<Object, Boolean>() {
+        @Override
+        public Boolean apply(Object reply) {
+            return integer(reply) > 0;
+        }
+    };
+    private static final StorageFuture.Stage<Object, Boolean> OK_REPLY = new StorageFuture.Stage<Object, Boolean>() {
+        @Override
+        public Boolean apply(Object reply) {
+            return "OK".equals(reply);
+        }
+    };
+    private static final StorageFuture.Stage<Object, Void> NO_REPLY = new StorageFuture.Stage<Object, Void>() {
+        @Override
+        public Void apply(Object reply) {
+            return null;
+        }
+    };
+    private static final StorageFuture.Stage<Object, String> STRING_REPLY = new StorageFuture.Stage<Object, String>() {
+        @Override
+        public String apply(Object reply) {
+            return string(reply);
+        }
+    };
+    private static final StorageFuture.Stage<Object, byte[]> BULK_REPLY = new StorageFuture.Stage<Object, byte[]>() {
+        @Override
+        public byte[] apply(Object reply) {
+            return (byte[]) reply;
+        }
+    };
+    private static final StorageFuture.Stage<Object, List<String>> LIST_REPLY = new StorageFuture.Stage<Object, List<String>>() {
+        @Override
+        public List<String> apply(Object reply) {
+            return strings(reply, new ArrayList<String>());
+        }
+    };
+    private static final StorageFuture.Stage<Object, Set<String>> SET_REPLY = new StorageFuture.Stage<Object, Set<String>>() {
+        @Override
+        public Set<String> apply(Object reply) {
+            return strings(reply, new HashSet<String>());
+        }
+    };
+
+    private final StorageFuture.Stage<Object, String> valueReply = new StorageFuture.Stage<Object, String>() {
+        @Override
+        public String apply(Object reply) {
+            return value(reply);
+        }
+    };
+
+    private final RespMultiplexer multiplexer;
+
+    public MultiplexedStorage(RespMultiplexer multiplexer, String finalPrefix,
+                              Collection<ServiceConfiguration<?>> serviceConfigurations) {
+        super(finalPrefix, serviceConfigurations);
+        this.multiplexer = multiplexer;
+    }
+
+    @Override
+    public List<CacheConfigurationChangeListener> getConfigurationChangeListeners() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public void release() {
+        multiplexer.shutdown();
+    }
+
+    @Override
+    protected boolean tryLease(String lockKey, String token, long leaseMillis) throws StorageAccessException {
+        return "OK".equals(multiplexer.execute(SET, bytes(lockKey), bytes(token), NX, PX, bytes(leaseMillis)));
+    }
+
+    @Override
+    public Object eval(String script, List<String> keys, List<String> args) throws StorageAccessException {
+        byte[][] command = new byte[3 + keys.size() + args.size()][];
+        command[0] = EVAL;
+        command[1] = bytes(script);
+        command[2] = bytes(keys.size());
+        int i = 3;
+        for (String key : keys) {
+            command[i++] = bytes(key);
+        }
+        for (String arg : args) {
+            command[i++] = bytes(arg);
+        }
+        return evalResult(multiplexer.execute(command));
+    }
+
+    @Override
+    public boolean exist(String key) throws StorageAccessException {
+        return integer(multiplexer.execute(EXISTS, finalKey(key))) > 0;
+    }
+
+    @Override
+    public boolean expire(String key, long millisecond) throws StorageAccessException {
+        return integer(multiplexer.execute(PEXPIRE, finalKey(key), bytes(millisecond))) > 0;
+    }
+
+    @Override
+    public boolean expireAt(String key, long timestamp) throws StorageAccessException {
+        return integer(multiplexer.execute(PEXPIREAT, finalKey(key), bytes(timestamp))) > 0;
+    }
+
+    @Override
+    public void delete(String key) throws StorageAccessException {
+        multiplexer.execute(DEL, finalKey(key));
+    }
+
+    @Override
+    public void delete(String... keys) throws StorageAccessException {
+        multiplexer.execute(keysCommand(DEL, keys));
+    }
+
+    @Override
+    public String get(String key) throws StorageAccessException {
+        return value(multiplexer.execute(GET, finalKey(key)));
+    }
+
+    @Override
+    public byte[] getBytes(String key) throws StorageAccessException {
+        // bulk replies are decoded to byte[] already, handed over as is
+        return (byte[]) multiplexer.execute(GET, finalKey(key));
+    }
+
+    @Override
+    public ExpiringValue getWithTtl(String key) throws StorageAccessException {
+        List<String> keys = Collections.singletonList(key);
+        return expiringValues(keys, multiplexer.executeAll(ttlCommands(keys)), new HashMap<String, ExpiringValue>(2)).get(key);
+    }
+
+    @Override
+    public Map<String, ExpiringValue> getAllWithTtl(Collection<String> keys) throws StorageAccessException {
+        List<String> plainKeys = new ArrayList<>(new LinkedHashSet<>(keys));
+        Map<String, ExpiringValue> result = new LinkedHashMap<>(plainKeys.size() * 2);
+        int chunkSize = ttlChunkSize();
+        for (int from = 0; from < plainKeys.size(); from += chunkSize) {
+            List<String> chunk = plainKeys.subList(from, Math.min(from + chunkSize, plainKeys.size()));
+            expiringValues(chunk, multiplexer.executeAll(ttlCommands(chunk)), result);
+        }
+        return result;
+    }
+
+    @Override
+    public boolean set(String key, Cacheable value) throws StorageAccessException {
+        // PSETEX keeps value and ttl in one command
+        return "OK".equals(multiplexer.execute(PSETEX, finalKey(key), bytes(value.getExpireTime()), valueBytes(value)));
+    }
+
+    @Override
+    public Map<String, String> getAll(Collection<String> keys) throws StorageAccessException {
+        List<String> plainKeys = new ArrayList<>(new LinkedHashSet<>(keys));
+        Map<String, String> result = new LinkedHashMap<>(plainKeys.size() * 2);
+        // keep every MGET short, a huge one blocks redis for the other clients
+        for (int from = 0; from < plainKeys.size(); from += bulkChunkSize) {
+            List<String> chunk = plainKeys.subList(from, Math.min(from + bulkChunkSize, plainKeys.size()));
+            values(chunk, multiplexer.execute(mgetCommand(chunk)), result);
+        }
+        return result;
+    }
+
+    @Override
+    public Set<String> setAll(Map<String, ? extends Cacheable> entries) throws StorageAccessException {
+        List<Map.Entry<String, ? extends Cacheable>> entryList = new ArrayList<Map.Entry<String, ? extends Cacheable>>(entries.entrySet());
+        Set<String> failedKeys = new LinkedHashSet<>();
+        int chunkSize = Math.min(bulkChunkSize, multiplexer.getMaxInFlight());
+        for (int from = 0; from < entryList.size(); from += chunkSize) {
+            List<Map.Entry<String, ? extends Cacheable>> chunk = entryList.subList(from, Math.min(from + chunkSize, entryList.size()));
+            try {
+                failedKeys.addAll(failedKeys(chunk, multiplexer.executeAll(setCommands(chunk))));
+            } catch (StorageAccessException e) {
+                // report the whole chunk as failed and go on with the next one
+                failedKeys.addAll(failedChunk(chunk, e));
+            }
+        }
+        return failedKeys;
+    }
+
+    // ++++++++++++++++++++++++++++ list ++++++++++++++++++++++++++++
+
+    @Override
+    public long llen(String key) throws StorageAccessException {
+        return integer(multiplexer.execute(LLEN, finalKey(key)));
+    }
+
+    @Override
+    public List<String> lrang(String key, long start, long end) throws StorageAccessException {
+        Object reply = multiplexer.execute(LRANGE, finalKey(key), bytes(start), bytes(end));
+        return strings(reply, new ArrayList<String>());
+    }
+
+    @Override
+    public String lindex(String key, long index) throws StorageAccessException {
+        return string(multiplexer.execute(LINDEX, finalKey(key), bytes(index)));
+    }
+
+    @Override
+    public long lrem(String key, int count, String valueToRemove) throws StorageAccessException {
+        return integer(multiplexer.execute(LREM, finalKey(key), bytes(count), bytes(valueToRemove)));
+    }
+
+    @Override
+    public boolean lpush(String key, Cacheable value) throws StorageAccessException {
+        return integer(multiplexer.execute(LPUSH, finalKey(key), bytes(value.getValue()))) > 0;
+    }
+
+    @Override
+    public long lpush(String key, Cacheable... values) throws StorageAccessException {
+        return pushWithExpire(LPUSH, key, values);
+    }
+
+    @Override
+    public String lpop(String key) throws StorageAccessException {
+        return string(multiplexer.execute(LPOP, finalKey(key)));
+    }
+
+    @Override
+    public boolean rpush(String key, Cacheable value) throws StorageAccessException {
+        return integer(multiplexer.execute(RPUSH, finalKey(key), bytes(value.getValue()))) > 0;
+    }
+
+    @Override
+    public long rpush(String key, Cacheable... values) throws StorageAccessException {
+        return pushWithExpire(RPUSH, key, values);
+    }
+
+    @Override
+    public String rpop(String key) throws StorageAccessException {
+        return string(multiplexer.execute(RPOP, finalKey(key)));
+    }
+
+    // ++++++++++++++++++++++++++++ set ++++++++++++++++++++++++++++
+
+    @Override
+    public long scard(String key) throws StorageAccessException {
+        return integer(multiplexer.execute(SCARD, finalKey(key)));
+    }
+
+    @Override
+    public boolean sismember(String key, Cacheable value) throws StorageAccessException {
+        return integer(multiplexer.execute(SISMEMBER, finalKey(key), bytes(value.getKey()))) > 0;
+    }
+
+    @Override
+    public Set<String> smembers(String key) throws StorageAccessException {
+        return strings(multiplexer.execute(SMEMBERS, finalKey(key)), new HashSet<String>());
+    }
+
+    @Override
+    public boolean sadd(String key, Cacheable value) throws StorageAccessException {
+        return sadd(key, new Cacheable[]{value}) > 0;
+    }
+
+    @Override
+    public long sadd(String key, Cacheable... values) throws StorageAccessException {
+        multiplexer.executeAll(saddCommands(key, values));
+        return values.length;
+    }
+
+    @Override
+    public Set<String> sunion(String... keys) throws StorageAccessException {
+        return strings(multiplexer.execute(keysCommand(SUNION, keys)), new HashSet<String>());
+    }
+
+    private long pushWithExpire(byte[] push, String key, Cacheable... values) throws StorageAccessException {
+        multiplexer.executeAll(pushCommands(push, key, values));
+        return values.length;
+    }
+
+    // ++++++++++++++++++++++++++++ async ++++++++++++++++++++++++++++
+
+    @Override
+    public boolean isAsync() {
+        return true;
+    }
+
+    @Override
+    public StorageFuture<Boolean> existAsync(String key) {
+        return multiplexer.executeAsync(EXISTS, finalKey(key)).then(POSITIVE_REPLY);
+    }
+
+    @Override
+    public StorageFuture<Boolean> expireAsync(String key, long millisecond) {
+        return multiplexer.executeAsync(PEXPIRE, finalKey(key), bytes(millisecond)).then(POSITIVE_REPLY);
+    }
+
+    @Override
+    public StorageFuture<Boolean> expireAtAsync(String key, long timestamp) {
+        return multiplexer.executeAsync(PEXPIREAT, finalKey(key), bytes(timestamp)).then(POSITIVE_REPLY);
+    }
+
+    @Override
+    public StorageFuture<Void> deleteAsync(String key) {
+        return multiplexer.executeAsync(DEL, finalKey(key)).then(NO_REPLY);
+    }
+
+    @Override
+    public StorageFuture<Void> deleteAsync(String... keys) {
+        return multiplexer.executeAsync(keysCommand(DEL, keys)).then(NO_REPLY);
+    }
+
+    @Override
+    public StorageFuture<String> getAsync(String key) {
+        return multiplexer.executeAsync(GET, finalKey(key)).then(valueReply);
+    }
+
+    @Override
+    public StorageFuture<byte[]> getBytesAsync(String key) {
+        return multiplexer.executeAsync(GET, finalKey(key)).then(BULK_REPLY);
+    }
+
+    @Override
+    public StorageFuture<ExpiringValue> getWithTtlAsync(final String key) {
+        final List<String> keys = Collections.singletonList(key);
+        return multiplexer.executeAllAsync(ttlCommands(keys)).then(new StorageFuture.Stage<List<Object>, ExpiringValue>() {
+            @Override
+            public ExpiringValue apply(List<Object> replies) {
+                return expiringValues(keys, replies, new HashMap<String, ExpiringValue>(2)).get(key);
+            }
+        });
+    }
+
+    @Override
+    public StorageFuture<Map<String, ExpiringValue>> getAllWithTtlAsync(Collection<String> keys) {
+        List<String> plainKeys = new ArrayList<>(new LinkedHashSet<>(keys));
+        List<StorageFuture<Map<String, ExpiringValue>>> chunks = new ArrayList<>();
+        int chunkSize = ttlChunkSize();
+        for (int from = 0; from < plainKeys.size(); from += chunkSize) {
+            final List<String> chunk = plainKeys.subList(from, Math.min(from + chunkSize, plainKeys.size()));
+            chunks.add(multiplexer.executeAllAsync(ttlCommands(chunk)).then(new StorageFuture.Stage<List<Object>, Map<String, ExpiringValue>>() {
+                @Override
+                public Map<String, ExpiringValue> apply(List<Object> replies) {
+                    return expiringValues(chunk, replies, new LinkedHashMap<String, ExpiringValue>(chunk.size() * 2));
+                }
+            }));
+        }
+        return merge(chunks, plainKeys.size());
+    }
+
+    @Override
+    public StorageFuture<Boolean> setAsync(String key, Cacheable value) {
+        return multiplexer.executeAsync(PSETEX, finalKey(key), bytes(value.getExpireTime()), valueBytes(value)).then(OK_REPLY);
+    }
+
+    @Override
+    public StorageFuture<Map<String, String>> getAllAsync(Collection<String> keys) {
+        List<String> plainKeys = new ArrayList<>(new LinkedHashSet<>(keys));
+        List<StorageFuture<Map<String, String>>> chunks = new ArrayList<>();
+        for (int from = 0; from < plainKeys.size(); from += bulkChunkSize) {
+            final List<String> chunk = plainKeys.subList(from, Math.min(from + bulkChunkSize, plainKeys.size()));
+            chunks.add(multiplexer.executeAsync(mgetCommand(chunk)).then(new StorageFuture.Stage<Object, Map<String, String>>() {
+                @Override
+                public Map<String, String> apply(Object reply) {
+                    return values(chunk, reply, new LinkedHashMap<String, String>(chunk.size() * 2));
+                }
+            }));
+        }
+        return merge(chunks, plainKeys.size());
+    }
+
+    @Override
+    public StorageFuture<Set<String>> setAllAsync(Map<String, ? extends Cacheable> entries) {
+        List<Map.Entry<String, ? extends Cacheable>> entryList = new ArrayList<Map.Entry<String, ? extends Cacheable>>(entries.entrySet());
+        List<StorageFuture<Set<String>>> chunks = new ArrayList<>();
+        int chunkSize = Math.min(bulkChunkSize, multiplexer.getMaxInFlight());
+        for (int from = 0; from < entryList.size(); from += chunkSize) {
+            final List<Map.Entry<String, ? extends Cacheable>> chunk = entryList.subList(from, Math.min(from + chunkSize, entryList.size()));
+            final StorageFuture<Set<String>> chunkFailedKeys = new StorageFuture<>();
+            multiplexer.executeAllAsync(setCommands(chunk)).addCallback(new StorageFuture.Callback<List<Object>>() {
+                @Override
+                public void onSuccess(List<Object> replies) {
+                    chunkFailedKeys.complete(failedKeys(chunk, replies));
+                }
+
+                @Override
+                public void onFailure(StorageAccessException cause) {
+                    // the whole chunk is reported as failed, the other chunks go on
+                    chunkFailedKeys.complete(failedChunk(chunk, cause));
+                }
+            });
+            chunks.add(chunkFailedKeys);
+        }
+        return StorageFuture.all(chunks).then(new StorageFuture.Stage<List<Set<String>>, Set<String>>() {
+            @Override
+            public Set<String> apply(List<Set<String>> chunkFailedKeys) {
+                Set<String> failedKeys = new LinkedHashSet<>();
+                for (Set<String> keys : chunkFailedKeys) {
+                    failedKeys.addAll(keys);
+                }
+                return failedKeys;
+            }
+        });
+    }
+
+    @Override
+    public StorageFuture<Long> llenAsync(String key) {
+        return multiplexer.executeAsync(LLEN, finalKey(key)).then(INTEGER_REPLY);
+    }
+
+    @Override
+    public StorageFuture<List<String>> lrangAsync(String key, long start, long end) {
+        return multiplexer.executeAsync(LRANGE, finalKey(key), bytes(start), bytes(end)).then(LIST_REPLY);
+    }
+
+    @Override
+    public StorageFuture<String> lindexAsync(String key, long index) {
+        return multiplexer.executeAsync(LINDEX, finalKey(key), bytes(index)).then(STRING_REPLY);
+    }
+
+    @Override
+    public StorageFuture<Long> lremAsync(String key, int count, String valueToRemove) {
+        return multiplexer.executeAsync(LREM, finalKey(key), bytes(count), bytes(valueToRemove)).then(INTEGER_REPLY);
+    }
+
+    @Override
+    public StorageFuture<Long> lpushAsync(String key, Cacheable... values) {
+        return multiplexer.executeAllAsync(pushCommands(LPUSH, key, values)).then(count(values.length));
+    }
+
+    @Override
+    public StorageFuture<String> lpopAsync(String key) {
+        return multiplexer.executeAsync(LPOP, finalKey(key)).then(STRING_REPLY);
+    }
+
+    @Override
+    public StorageFuture<Long> rpushAsync(String key, Cacheable... values) {
+        return multiplexer.executeAllAsync(pushCommands(RPUSH, key, values)).then(count(values.length));
+    }
+
+    @Override
+    public StorageFuture<String> rpopAsync(String key) {
+        return multiplexer.executeAsync(RPOP, finalKey(key)).then(STRING_REPLY);
+    }
+
+    @Override
+    public StorageFuture<Long> scardAsync(String key) {
+        return multiplexer.executeAsync(SCARD, finalKey(key)).then(INTEGER_REPLY);
+    }
+
+    @Override
+    public StorageFuture<Boolean> sismemberAsync(String key, Cacheable value) {
+        return multiplexer.executeAsync(SISMEMBER, finalKey(key), bytes(value.getKey())).then(POSITIVE_REPLY);
+    }
+
+    @Override
+    public StorageFuture<Set<String>> smembersAsync(String key) {
+        return multiplexer.executeAsync(SMEMBERS, finalKey(key)).then(SET_REPLY);
+    }
+
+    @Override
+    public StorageFuture<Long> saddAsync(String key, Cacheable... values) {
+        return multiplexer.executeAllAsync(saddCommands(key, values)).then(count(values.length));
+    }
+
+    @Override
+    public StorageFuture<Set<String>> sunionAsync(String... keys) {
+        return multiplexer.executeAsync(keysCommand(SUNION, keys)).then(SET_REPLY);
+    }
+
+    // ++++++++++++++++++++++++++++ commands ++++++++++++++++++++++++++++
+
+    /**
+     * Two commands a key, GET and PTTL
+     */
+    private int ttlChunkSize() {
+        return Math.max(1, Math.min(bulkChunkSize, multiplexer.getMaxInFlight() / 2));
+    }
+
+    private List<byte[][]> ttlCommands(List<String> keys) {
+        List<byte[][]> commands = new ArrayList<>(keys.size() * 2);
+        for (String key : keys) {
+            byte[] finalKey = finalKey(key);
+            commands.add(new byte[][]{GET, finalKey});
+            commands.add(new byte[][]{PTTL, finalKey});
+        }
+        return commands;
+    }
+
+    private Map<String, ExpiringValue> expiringValues(List<String> keys, List<Object> replies, Map<String, ExpiringValue> result) {
+        for (int i = 0; i < keys.size(); i++) {
+            String value = value(replies.get(2 * i));
+            result.put(keys.get(i), null == value ? null : new ExpiringValue(value, integer(replies.get(2 * i + 1))));
+        }
+        return result;
+    }
+
+    private byte[][] mgetCommand(List<String> keys) {
+        return command(MGET, null, finalKeys(keys.toArray(new String[keys.size()])));
+    }
+
+    private Map<String, String> values(List<String> keys, Object reply, Map<String, String> result) {
+        List<?> values = (List<?>) reply;
+        for (int i = 0; i < keys.size(); i++) {
+            result.put(keys.get(i), value(values.get(i)));
+        }
+        return result;
+    }
+
+    private List<byte[][]> setCommands(List<Map.Entry<String, ? extends Cacheable>> entries) {
+        List<byte[][]> commands = new ArrayList<>(entries.size());
+        for (Map.Entry<String, ? extends Cacheable> entry : entries) {
+            Cacheable value = entry.getValue();
+            commands.add(new byte[][]{PSETEX, finalKey(entry.getKey()), bytes(value.getExpireTime()), valueBytes(value)});
+        }
+        return commands;
+    }
+
+    private static Set<String> failedKeys(List<Map.Entry<String, ? extends Cacheable>> entries, List<Object> replies) {
+        Set<String> failedKeys = new LinkedHashSet<>();
+        for (int i = 0; i < entries.size(); i++) {
+            if (!"OK".equals(replies.get(i))) {
+                failedKeys.add(entries.get(i).getKey());
+            }
+        }
+        return failedKeys;
+    }
+
+    private static Set<String> failedChunk(List<Map.Entry<String, ? extends Cacheable>> entries, StorageAccessException cause) {
+        LOGGER.error("Set all of {} keys fail", entries.size(), cause);
+        Set<String> failedKeys = new LinkedHashSet<>();
+        for (Map.Entry<String, ? extends Cacheable> entry : entries) {
+            failedKeys.add(entry.getKey());
+        }
+        return failedKeys;
+    }
+
+    private List<byte[][]> pushCommands(byte[] push, String key, Cacheable... values) {
+        byte[][] elements = new byte[values.length][];
+        for (int i = 0; i < values.length; i++) {
+            elements[i] = bytes(values[i].getValue());
+        }
+        byte[] finalKey = finalKey(key);
+        // both commands go out back to back on one connection, a single round trip
+        return Arrays.asList(
+                command(push, finalKey, elements),
+                new byte[][]{PEXPIRE, finalKey, bytes(values[0].getExpireTime())});
+    }
+
+    private List<byte[][]> saddCommands(String key, Cacheable... values) {
+        byte[][] members = new byte[values.length][];
+        for (int i = 0; i < values.length; i++) {
+            members[i] = bytes(values[i].getKey());
+        }
+        byte[] finalKey = finalKey(key);
+        return Arrays.asList(
+                command(SADD, finalKey, members),
+                new byte[][]{PEXPIRE, finalKey, bytes(values[0].getExpireTime())});
+    }
+
+    private static StorageFuture.Stage<Object, Long> count(final long count) {
+        return new StorageFuture.Stage<Object, Long>() {
+            @Override
+            public Long apply(Object replies) {
+                return count;
+            }
+        };
+    }
+
+    private static <V> StorageFuture<Map<String, V>> merge(List<StorageFuture<Map<String, V>>> chunks, final int size) {
+        return StorageFuture.all(chunks).then(new StorageFuture.Stage<List<Map<String, V>>, Map<String, V>>() {
+            @Override
+            public Map<String, V> apply(List<Map<String, V>> chunkValues) {
+                Map<String, V> result = new LinkedHashMap<>(size * 2);
+                for (Map<String, V> values : chunkValues) {
+                    result.putAll(values);
+                }
+                return result;
+            }
+        });
+    }
+
+    private static byte[][] command(byte[] name, byte[] key, byte[][] args) {
+        int offset = null == key ? 1 : 2;
+        byte[][] command = new byte[offset + args.length][];
+        command[0] = name;
+        if (null != key) {
+            command[1] = key;
+        }
+        System.arraycopy(args, 0, command, offset, args.length);
+        return command;
+    }
+
+    /**
+     * Command taking keys only, final keys are encoded right into it
+     */
+    private byte[][] keysCommand(byte[] name, String[] keys) {
+        byte[][] command = new byte[1 + keys.length][];
+        command[0] = name;
+        for (int i = 0; i < keys.length; i++) {
+            command[i + 1] = finalKey(keys[i]);
+        }
+        return command;
+    }
+
+    private static byte[] valueBytes(Cacheable value) {
+        if (value instanceof BinaryCacheable) {
+            return ((BinaryCacheable) value).getBytes();
+        }
+        return bytes(value.getValue());
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(RespCodec.UTF_8);
+    }
+
+    private static byte[] bytes(long value) {
+        return bytes(String.valueOf(value));
+    }
+
+    private String value(Object reply) {
+        return reply instanceof byte[] ? value((byte[]) reply) : (String) reply;
+    }
+
+    private static String string(Object reply) {
+        if (reply instanceof byte[]) {
+            return new String((byte[]) reply, RespCodec.UTF_8);
+        }
+        return (String) reply;
+    }
+
+    private static long integer(Object reply) {
+        return null == reply ? 0 : (Long) reply;
+    }
+
+    private static <C extends Collection<String>> C strings(Object reply, C result) {
+        if (null == reply) {
+            return null;
+        }
+        for (Object element : (List<?>) reply) {
+            result.add(string(element));
+        }
+        return result;
+    }
+
+    private static Object evalResult(Object reply) {
+        if (reply instanceof byte[]) {
+            return string(reply);
+        }
+        if (reply instanceof List) {
+            List<?> elements = (List<?>) reply;
+            List<Object> result = new ArrayList<>(elements.size());
+            for (Object element : elements) {
+                result.add(evalResult(element));
+            }
+            return result;
+        }
+        return reply;
+    }
+
+    @ServiceDependencies({})
+    public static class Provider implements Storage.Provider {
+        private final static Logger LOGGER = LoggerFactory.getLogger(Provider.class);
+
+        private volatile ServiceProvider<Service> serviceProvider; // 用户获取Service
+
+        @Override
+        public Storage createStorage(Configuration storageConfig) {
+            RedisResource redisResource = storageConfig.getResource();
+            RedisConnector redisConnector = storageConfig.getConnector();
+
+            String finalPrefix = StorageSupport.resolveFinalPrefix(redisResource, redisConnector);
+            MultiplexingConfiguration multiplexingConfig = ServiceUtils.findSingletonAmongst(
+                    MultiplexingConfiguration.class, storageConfig.getServiceConfigurations());
+            LOGGER.info("Create a multiplexed storage with final prefix [{}] over {} connections",
+                    finalPrefix, multiplexingConfig.getConnections());
+
+            HostAndPort node = redisResource.getStandaloneNode();
+            long timeoutMs = redisConnector.getConnectTimeout() + redisConnector.getSocketTimeout();
+            RespMultiplexer multiplexer = new RespMultiplexer(new InetSocketAddress(node.getHost(), node.getPort()),
+                    multiplexingConfig, redisConnector.getConnectTimeout(), timeoutMs, finalPrefix);
+            return new MultiplexedStorage(multiplexer, finalPrefix, storageConfig.getServiceConfigurations());
+        }
+
+        @Override
+        public void releaseStorage(Storage storage) {
+            storage.release();
+        }
+
+        @Override
+        public void initStorage(Storage storage) {
+            // do nothing, connections are opened by the first commands
+        }
+
+        @Override
+        public int rank(RedisResource.ResourceType type, Collection<ServiceConfiguration<?>> serviceConfigs) {
+            if (RedisResource.ResourceType.STANDALONE != type) {
+                return 0;
+            }
+            // outranks the pooled standalone storage once configured
+            return null == ServiceUtils.findSingletonAmongst(MultiplexingConfiguration.class, serviceConfigs) ? 0 : 2;
+        }
+
+        @Override
+        public void start(ServiceProvider<Service> serviceProvider) {
+            this.serviceProvider = serviceProvider;
+        }
+
+        @Override
+        public void stop() {
+            this.serviceProvider = null;
+        }
+    }
+}
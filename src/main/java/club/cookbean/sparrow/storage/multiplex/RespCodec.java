@@ -0,0 +1,211 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.storage.multiplex;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Desc: Encodes commands to and decodes replies from RESP, the redis serialization protocol.
+ * <p>
+ * Replies are decoded straight from the read buffer of a connection: simple strings to {@link String},
+ * integers to {@link Long}, bulk strings to byte[], arrays to {@link List}, errors to {@link ErrorReply}
+ * and nil to null. A reply not fully received yet decodes to {@link #INCOMPLETE} and leaves the buffer untouched.
+ */
+public final class RespCodec {
+
+    public static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * Returned by {@link #decode(ByteBuffer)} when the buffer holds only part of a reply
+     */
+    public static final Object INCOMPLETE = new Object();
+
+    private static final byte[] CRLF = {'\r', '\n'};
+    private static final int MAX_DECIMAL_LENGTH = 20;
+
+    private RespCodec() {}
+
+    /**
+     * An error reply, e.g. WRONGTYPE, it fails the command it answers only
+     */
+    public static final class ErrorReply {
+        private final String message;
+
+        ErrorReply(String message) {
+            this.message = message;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return message;
+        }
+    }
+
+    /**
+     * @return the bytes needed to encode the command
+     */
+    public static int encodedLength(byte[][] args) {
+        int length = 1 + MAX_DECIMAL_LENGTH + CRLF.length;
+        for (byte[] arg : args) {
+            length += 1 + MAX_DECIMAL_LENGTH + CRLF.length + arg.length + CRLF.length;
+        }
+        return length;
+    }
+
+    /**
+     * Encode a command as an array of bulk strings, the buffer must have
+     * {@link #encodedLength(byte[][])} bytes remaining
+     */
+    public static void encode(byte[][] args, ByteBuffer buffer) {
+        buffer.put((byte) '*');
+        putDecimal(args.length, buffer);
+        buffer.put(CRLF);
+        for (byte[] arg : args) {
+            buffer.put((byte) '$');
+            putDecimal(arg.length, buffer);
+            buffer.put(CRLF);
+            buffer.put(arg);
+            buffer.put(CRLF);
+        }
+    }
+
+    /**
+     * Decode one reply from the buffer in read mode
+     * @return the reply, or {@link #INCOMPLETE} with the buffer position unchanged
+     * @throws IllegalStateException if the bytes are not a RESP reply
+     */
+    public static Object decode(ByteBuffer buffer) {
+        int start = buffer.position();
+        Object reply = decodeReply(buffer);
+        if (INCOMPLETE == reply) {
+            buffer.position(start);
+        }
+        return reply;
+    }
+
+    private static Object decodeReply(ByteBuffer buffer) {
+        if (!buffer.hasRemaining()) {
+            return INCOMPLETE;
+        }
+        byte type = buffer.get();
+        int lineEnd = findLineEnd(buffer);
+        if (lineEnd < 0) {
+            return INCOMPLETE;
+        }
+        switch (type) {
+            case '+':
+                return readLine(buffer, lineEnd);
+            case '-':
+                return new ErrorReply(readLine(buffer, lineEnd));
+            case ':':
+                return readDecimal(buffer, lineEnd);
+            case '$': {
+                long length = readDecimal(buffer, lineEnd);
+                if (length < 0) {
+                    return null;
+                }
+                if (buffer.remaining() < length + CRLF.length) {
+                    return INCOMPLETE;
+                }
+                byte[] value = new byte[(int) length];
+                buffer.get(value);
+                buffer.position(buffer.position() + CRLF.length);
+                return value;
+            }
+            case '*': {
+                long count = readDecimal(buffer, lineEnd);
+                if (count < 0) {
+                    return null;
+                }
+                List<Object> elements = new ArrayList<>((int) Math.min(count, 1024));
+                for (long i = 0; i < count; i++) {
+                    Object element = decodeReply(buffer);
+                    if (INCOMPLETE == element) {
+                        return INCOMPLETE;
+                    }
+                    elements.add(element);
+                }
+                return elements;
+            }
+            default:
+                throw new IllegalStateException("Unknown RESP reply type '" + (char) type + "'");
+        }
+    }
+
+    /**
+     * @return index of the '\r' ending the line at the buffer position, -1 if not received yet
+     */
+    private static int findLineEnd(ByteBuffer buffer) {
+        for (int i = buffer.position(), limit = buffer.limit() - 1; i < limit; i++) {
+            if (buffer.get(i) == '\r' && buffer.get(i + 1) == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String readLine(ByteBuffer buffer, int lineEnd) {
+        byte[] line = new byte[lineEnd - buffer.position()];
+        buffer.get(line);
+        buffer.position(lineEnd + CRLF.length);
+        return new String(line, UTF_8);
+    }
+
+    private static long readDecimal(ByteBuffer buffer, int lineEnd) {
+        int i = buffer.position();
+        boolean negative = buffer.get(i) == '-';
+        if (negative) {
+            i++;
+        }
+        long value = 0;
+        for (; i < lineEnd; i++) {
+            byte digit = buffer.get(i);
+            if (digit < '0' || digit > '9') {
+                throw new IllegalStateException("Malformed RESP integer, unexpected '" + (char) digit + "'");
+            }
+            value = value * 10 + (digit - '0');
+        }
+        buffer.position(lineEnd + CRLF.length);
+        return negative ? -value : value;
+    }
+
+    private static void putDecimal(long value, ByteBuffer buffer) {
+        if (value < 0) {
+            buffer.put((byte) '-');
+            value = -value;
+        }
+        if (value < 10) {
+            buffer.put((byte) ('0' + value));
+            return;
+        }
+        int digits = 0;
+        for (long v = value; v > 0; v /= 10) {
+            digits++;
+        }
+        int end = buffer.position() + digits;
+        for (int i = end - 1; i >= buffer.position(); i--) {
+            buffer.put(i, (byte) ('0' + value % 10));
+            value /= 10;
+        }
+        buffer.position(end);
+    }
+}
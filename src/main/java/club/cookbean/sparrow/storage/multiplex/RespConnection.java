@@ -0,0 +1,326 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.storage.multiplex;
+
+import club.cookbean.sparrow.exception.StorageAccessException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Desc: One redis connection shared by many caller threads.
+ * <p>
+ * Callers write their commands one after another under the write lock and queue a
+ * {@link PendingReply} in the same order. The reader thread decodes replies from a direct
+ * buffer as they arrive and hands each one to the head of the queue, redis answers in
+ * command order so no request id is needed. Callers only block on their own reply,
+ * so many commands are in flight on the connection at once. A batch sent with a {@link BatchListener}
+ * is not waited for at all, the reader thread hands its replies over once the last one is in.
+ */
+class RespConnection {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RespConnection.class);
+
+    private final SocketChannel channel;
+    private final Queue<PendingReply> pendingReplies = new ConcurrentLinkedQueue<>();
+    private final Semaphore inFlight;
+    private final int maxInFlight;
+    private final Object writeLock = new Object();
+    private final Thread reader;
+
+    private ByteBuffer writeBuffer;
+    private volatile boolean open = true;
+
+    RespConnection(InetSocketAddress address, int connectTimeoutMs, int bufferSize,
+                   int maxInFlight, ThreadFactory threadFactory) throws IOException {
+        this.channel = SocketChannel.open();
+        try {
+            channel.socket().setTcpNoDelay(true);
+            channel.socket().setKeepAlive(true);
+            channel.socket().connect(address, connectTimeoutMs);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        this.writeBuffer = ByteBuffer.allocateDirect(bufferSize);
+        this.inFlight = new Semaphore(maxInFlight);
+        this.maxInFlight = maxInFlight;
+        this.reader = threadFactory.newThread(new Reader(bufferSize));
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    boolean isOpen() {
+        return open;
+    }
+
+    /**
+     * Send commands back to back, their replies come in the same order
+     * @param timeoutMs how long to wait for an in-flight slot
+     */
+    PendingReply[] send(List<byte[][]> commands, long timeoutMs) throws StorageAccessException {
+        return send(commands, timeoutMs, null);
+    }
+
+    /**
+     * Send commands back to back, their replies come in the same order
+     * @param timeoutMs how long to wait for an in-flight slot
+     * @param listener told on the reader thread once every reply of the batch is in, may be null
+     */
+    PendingReply[] send(List<byte[][]> commands, long timeoutMs, BatchListener listener) throws StorageAccessException {
+        if (commands.size() > maxInFlight) {
+            throw new StorageAccessException("Batch of " + commands.size() + " commands exceeds the max in flight " + maxInFlight);
+        }
+        acquire(commands.size(), timeoutMs);
+        PendingReply[] replies = new PendingReply[commands.size()];
+        synchronized (writeLock) {
+            if (!open) {
+                inFlight.release(commands.size());
+                throw new StorageAccessException("Connection to " + channel.socket().getRemoteSocketAddress() + " is closed");
+            }
+            boolean queued = false;
+            try {
+                for (byte[][] command : commands) {
+                    ensureWritable(RespCodec.encodedLength(command));
+                    RespCodec.encode(command, writeBuffer);
+                }
+                Batch batch = null == listener ? null : new Batch(replies, listener);
+                for (int i = 0; i < replies.length; i++) {
+                    replies[i] = new PendingReply(batch);
+                }
+                // the whole batch is encoded, queue its replies before the first byte can be answered
+                Collections.addAll(pendingReplies, replies);
+                queued = true;
+                writeBuffer.flip();
+                while (writeBuffer.hasRemaining()) {
+                    channel.write(writeBuffer);
+                }
+            } catch (Throwable e) {
+                if (!queued) {
+                    inFlight.release(commands.size());
+                }
+                // part of the batch may be on the wire, the reply order cannot be trusted any more
+                close(e);
+                if (e instanceof Error) {
+                    throw (Error) e;
+                }
+                throw new StorageAccessException(e);
+            } finally {
+                writeBuffer.clear();
+            }
+        }
+        return replies;
+    }
+
+    void close() {
+        close(new IOException("Connection closed"));
+    }
+
+    private void close(Throwable cause) {
+        synchronized (writeLock) {
+            if (!open) {
+                return;
+            }
+            open = false;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            LOGGER.warn("Close connection fail", e);
+        }
+        // the reader may be gone already, fail whoever is still waiting
+        failPending(cause);
+    }
+
+    private void acquire(int permits, long timeoutMs) throws StorageAccessException {
+        try {
+            if (!inFlight.tryAcquire(permits, timeoutMs, MILLISECONDS)) {
+                throw new StorageAccessException("No in-flight slot on connection after " + timeoutMs + "ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new StorageAccessException(e);
+        }
+    }
+
+    private void ensureWritable(int length) {
+        if (writeBuffer.remaining() < length) {
+            int capacity = writeBuffer.capacity();
+            while (capacity - writeBuffer.position() < length) {
+                capacity <<= 1;
+            }
+            ByteBuffer larger = ByteBuffer.allocateDirect(capacity);
+            writeBuffer.flip();
+            larger.put(writeBuffer);
+            writeBuffer = larger;
+        }
+    }
+
+    private void failPending(Throwable cause) {
+        PendingReply pending;
+        while (null != (pending = pendingReplies.poll())) {
+            inFlight.release();
+            pending.fail(cause);
+        }
+    }
+
+    private class Reader implements Runnable {
+
+        private ByteBuffer readBuffer;
+
+        Reader(int bufferSize) {
+            this.readBuffer = ByteBuffer.allocateDirect(bufferSize);
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (open) {
+                    if (channel.read(readBuffer) < 0) {
+                        throw new IOException("Connection closed by redis");
+                    }
+                    readBuffer.flip();
+                    Object reply;
+                    while (RespCodec.INCOMPLETE != (reply = RespCodec.decode(readBuffer))) {
+                        PendingReply pending = pendingReplies.poll();
+                        if (null == pending) {
+                            throw new IllegalStateException("Reply received without a pending command");
+                        }
+                        inFlight.release();
+                        pending.complete(reply);
+                    }
+                    readBuffer.compact();
+                    if (!readBuffer.hasRemaining()) {
+                        // a reply larger than the buffer, keep it growing until the reply fits
+                        ByteBuffer larger = ByteBuffer.allocateDirect(readBuffer.capacity() << 1);
+                        readBuffer.flip();
+                        larger.put(readBuffer);
+                        readBuffer = larger;
+                    }
+                }
+            } catch (Exception e) {
+                if (open) {
+                    LOGGER.warn("Connection to {} broken", channel.socket().getRemoteSocketAddress(), e);
+                }
+                close(e);
+            }
+        }
+    }
+
+    /**
+     * Told once every reply of a batch is in, runs on the reader thread so it must not block
+     */
+    interface BatchListener {
+
+        void replied(PendingReply[] replies);
+    }
+
+    private static class Batch {
+        private final PendingReply[] replies;
+        private final BatchListener listener;
+        private final AtomicInteger remaining;
+
+        Batch(PendingReply[] replies, BatchListener listener) {
+            this.replies = replies;
+            this.listener = listener;
+            this.remaining = new AtomicInteger(replies.length);
+        }
+
+        void replied() {
+            if (0 == remaining.decrementAndGet()) {
+                try {
+                    listener.replied(replies);
+                } catch (RuntimeException e) {
+                    // never let a listener break the reader
+                    LOGGER.warn("Listener {} of a batch threw", listener, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reply slot of a command in flight
+     */
+    static class PendingReply {
+        private final CountDownLatch done = new CountDownLatch(1);
+        private final Batch batch;
+        private Object reply;
+        private Throwable failure;
+
+        PendingReply(Batch batch) {
+            this.batch = batch;
+        }
+
+        void complete(Object reply) {
+            this.reply = reply;
+            done.countDown();
+            if (null != batch) {
+                batch.replied();
+            }
+        }
+
+        void fail(Throwable cause) {
+            this.failure = cause;
+            done.countDown();
+            if (null != batch) {
+                batch.replied();
+            }
+        }
+
+        /**
+         * @return the decoded reply
+         * @throws StorageAccessException on error reply, broken connection or timeout
+         */
+        Object await(long timeoutMs) throws StorageAccessException {
+            try {
+                if (!done.await(timeoutMs, MILLISECONDS)) {
+                    throw new StorageAccessException(new SocketTimeoutException("No reply after " + timeoutMs + "ms"));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new StorageAccessException(e);
+            }
+            return reply();
+        }
+
+        /**
+         * @return the decoded reply of a completed command
+         * @throws StorageAccessException on error reply or broken connection
+         */
+        Object reply() throws StorageAccessException {
+            if (null != failure) {
+                throw new StorageAccessException(failure);
+            }
+            if (reply instanceof RespCodec.ErrorReply) {
+                throw new StorageAccessException(((RespCodec.ErrorReply) reply).getMessage());
+            }
+            return reply;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.storage.multiplex;
+
+import club.cookbean.sparrow.config.MultiplexingConfiguration;
+import club.cookbean.sparrow.exception.StorageAccessException;
+import club.cookbean.sparrow.storage.StorageFuture;
+import club.cookbean.sparrow.util.ThreadFactoryUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Desc: Spreads commands over a few {@link RespConnection}s, round robin.
+ * A broken connection is replaced by the next command that picks its slot.
+ */
+public class RespMultiplexer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RespMultiplexer.class);
+
+    private static final StorageFuture.Stage<List<Object>, Object> FIRST_REPLY = new StorageFuture.Stage<List<Object>, Object>() {
+        @Override
+        public Object apply(List<Object> replies) {
+            return replies.get(0);
+        }
+    };
+
+    private final InetSocketAddress address;
+    private final int connectTimeoutMs;
+    private final long timeoutMs;
+    private final int bufferSize;
+    private final int maxInFlight;
+    private final ThreadFactory threadFactory;
+    private final AtomicReferenceArray<RespConnection> connections;
+    private final AtomicInteger next = new AtomicInteger();
+
+    private volatile boolean running = true;
+
+    public RespMultiplexer(InetSocketAddress address, MultiplexingConfiguration config,
+                           int connectTimeoutMs, long timeoutMs, String alias) {
+        this.address = address;
+        this.connectTimeoutMs = connectTimeoutMs;
+        this.timeoutMs = timeoutMs;
+        this.bufferSize = config.getBufferSize();
+        this.maxInFlight = config.getMaxInFlight();
+        this.threadFactory = ThreadFactoryUtil.threadFactory("resp-multiplexer-" + alias);
+        this.connections = new AtomicReferenceArray<>(config.getConnections());
+    }
+
+    /**
+     * @return the max commands one {@link #executeAll(List)} call may send
+     */
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public Object execute(byte[]... command) throws StorageAccessException {
+        return executeAll(Collections.singletonList(command)).get(0);
+    }
+
+    /**
+     * Send the commands back to back on one connection and wait for all the replies
+     * @return replies in command order
+     * @throws StorageAccessException when any of the commands fails
+     */
+    public List<Object> executeAll(List<byte[][]> commands) throws StorageAccessException {
+        RespConnection.PendingReply[] pendingReplies = connection().send(commands, timeoutMs);
+        List<Object> replies = new ArrayList<>(pendingReplies.length);
+        StorageAccessException failure = null;
+        for (RespConnection.PendingReply pending : pendingReplies) {
+            try {
+                replies.add(pending.await(timeoutMs));
+            } catch (StorageAccessException e) {
+                // keep waiting for the rest, the replies still arrive in order
+                if (null == failure) {
+                    failure = e;
+                }
+                replies.add(null);
+            }
+        }
+        if (null != failure) {
+            throw failure;
+        }
+        return replies;
+    }
+
+    public StorageFuture<Object> executeAsync(byte[]... command) {
+        return executeAllAsync(Collections.singletonList(command)).then(FIRST_REPLY);
+    }
+
+    /**
+     * Send the commands back to back on one connection without waiting for the replies,
+     * only a full connection makes the caller wait for an in-flight slot
+     * @return replies in command order, completed on the reader thread of the connection
+     */
+    public StorageFuture<List<Object>> executeAllAsync(List<byte[][]> commands) {
+        final StorageFuture<List<Object>> future = new StorageFuture<>();
+        try {
+            connection().send(commands, timeoutMs, new RespConnection.BatchListener() {
+                @Override
+                public void replied(RespConnection.PendingReply[] pendingReplies) {
+                    List<Object> replies = new ArrayList<>(pendingReplies.length);
+                    try {
+                        for (RespConnection.PendingReply pending : pendingReplies) {
+                            replies.add(pending.reply());
+                        }
+                    } catch (StorageAccessException e) {
+                        future.fail(e);
+                        return;
+                    }
+                    future.complete(replies);
+                }
+            });
+        } catch (StorageAccessException e) {
+            // the batch may have been failed by the connection already, the first failure wins
+            future.fail(e);
+        }
+        return future;
+    }
+
+    public void shutdown() {
+        running = false;
+        synchronized (connections) {
+            for (int i = 0; i < connections.length(); i++) {
+                RespConnection connection = connections.getAndSet(i, null);
+                if (null != connection) {
+                    connection.close();
+                }
+            }
+        }
+    }
+
+    private RespConnection connection() throws StorageAccessException {
+        int slot = (next.getAndIncrement() & Integer.MAX_VALUE) % connections.length();
+        RespConnection connection = connections.get(slot);
+        if (null != connection && connection.isOpen()) {
+            return connection;
+        }
+        synchronized (connections) {
+            if (!running) {
+                throw new StorageAccessException("Multiplexer to " + address + " has been shut down");
+            }
+            connection = connections.get(slot);
+            if (null == connection || !connection.isOpen()) {
+                try {
+                    connection = new RespConnection(address, connectTimeoutMs, bufferSize, maxInFlight, threadFactory);
+                } catch (IOException e) {
+                    throw new StorageAccessException("Connect to " + address + " fail", e);
+                }
+                LOGGER.debug("Connection {} to {} opened", slot, address);
+                connections.set(slot, connection);
+            }
+            return connection;
+        }
+    }
+}
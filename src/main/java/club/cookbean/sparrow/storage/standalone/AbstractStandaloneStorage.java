@@ -14,15 +14,19 @@
  */
 package club.cookbean.sparrow.storage.standalone;
 
+import club.cookbean.sparrow.config.ServiceConfiguration;
 import club.cookbean.sparrow.exception.StorageAccessException;
-import club.cookbean.sparrow.function.*;
+import club.cookbean.sparrow.redis.BinaryCacheable;
 import club.cookbean.sparrow.redis.Cacheable;
-import club.cookbean.sparrow.storage.Storage;
+import club.cookbean.sparrow.storage.AbstractStorage;
+import club.cookbean.sparrow.storage.ExpiringValue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPool;
 import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.util.SafeEncoder;
 
 import java.io.IOException;
 import java.util.*;
@@ -33,15 +37,15 @@ import java.util.*;
  * Date: 17-7-21. <br><br>
  * Desc:
  */
-public abstract class AbstractStandaloneStorage implements Storage {
+public abstract class AbstractStandaloneStorage extends AbstractStorage {
     private static final Logger LOGGER = LoggerFactory.getLogger(AbstractStandaloneStorage.class);
 
     private JedisPool jedisPool;
-    private String finalPrefix;
 
-    public AbstractStandaloneStorage(JedisPool jedisPool, String finalPrefix) {
+    public AbstractStandaloneStorage(JedisPool jedisPool, String finalPrefix,
+                                     Collection<ServiceConfiguration<?>> serviceConfigurations) {
+        super(finalPrefix, serviceConfigurations);
         this.jedisPool = jedisPool;
-        this.finalPrefix = finalPrefix;
     }
 
     @Override
@@ -51,9 +55,35 @@ public abstract class AbstractStandaloneStorage implements Storage {
         }
     }
 
+    @Override
+    protected boolean tryLease(String lockKey, String token, long leaseMillis) throws StorageAccessException {
+        Jedis jedis = jedisPool.getResource();
+        try {
+            return "OK".equals(jedis.set(lockKey, token, "NX", "PX", leaseMillis));
+        } catch (Exception e) {
+            throw new StorageAccessException(e);
+        } finally {
+            if (null != jedis)
+                jedis.close();
+        }
+    }
+
+    @Override
+    public Object eval(String script, List<String> keys, List<String> args) throws StorageAccessException {
+        Jedis jedis = jedisPool.getResource();
+        try {
+            return jedis.eval(script, keys, args);
+        } catch (Exception e) {
+            throw new StorageAccessException(e);
+        } finally {
+            if (null != jedis)
+                jedis.close();
+        }
+    }
+
     @Override
     public boolean exist(String key) throws StorageAccessException {
-        String finalKey = normalizeKey(key);
+        byte[] finalKey = finalKey(key);
         Jedis jedis = jedisPool.getResource();
         try {
             return jedis.exists(finalKey);
@@ -67,7 +97,7 @@ public abstract class AbstractStandaloneStorage implements Storage {
 
     @Override
     public boolean expire(String key, long millisecond) throws StorageAccessException {
-        String finalKey = normalizeKey(key);
+        byte[] finalKey = finalKey(key);
         Jedis jedis = jedisPool.getResource();
         try {
             Long result = jedis.pexpire(finalKey, millisecond);
@@ -82,7 +112,7 @@ public abstract class AbstractStandaloneStorage implements Storage {
 
     @Override
     public boolean expireAt(String key, long timestamp) throws StorageAccessException {
-        String finalKey = normalizeKey(key);
+        byte[] finalKey = finalKey(key);
         Jedis jedis = jedisPool.getResource();
         try {
             Long result = jedis.pexpireAt(finalKey, timestamp);
@@ -97,15 +127,21 @@ public abstract class AbstractStandaloneStorage implements Storage {
 
     @Override
     public void delete(String key) throws StorageAccessException {
-        delete(new String[]{key});
+        byte[] finalKey = finalKey(key);
+        Jedis jedis = jedisPool.getResource();
+        try {
+            jedis.del(finalKey);
+        } catch (Exception e) {
+            throw new StorageAccessException(e);
+        } finally {
+            if (null != jedis)
+                jedis.close();
+        }
     }
 
     @Override
     public void delete(String... keys) throws StorageAccessException {
-        String[] finalKeys = new String[keys.length];
-        for (int i = 0; i < keys.length; i++) {
-            finalKeys[i] = normalizeKey(keys[i]);
-        }
+        byte[][] finalKeys = finalKeys(keys);
         Jedis jedis = jedisPool.getResource();
         try {
             jedis.del(finalKeys);
@@ -119,7 +155,21 @@ public abstract class AbstractStandaloneStorage implements Storage {
 
     @Override
     public String get(String key) throws StorageAccessException {
-        String finalKey = normalizeKey(key);
+        byte[] finalKey = finalKey(key);
+        Jedis jedis = jedisPool.getResource();
+        try {
+            return value(jedis.get(finalKey));
+        } catch (Exception e) {
+            throw new StorageAccessException(e);
+        } finally {
+            if (null != jedis)
+                jedis.close();
+        }
+    }
+
+    @Override
+    public byte[] getBytes(String key) throws StorageAccessException {
+        byte[] finalKey = finalKey(key);
         Jedis jedis = jedisPool.getResource();
         try {
             return jedis.get(finalKey);
@@ -131,13 +181,72 @@ public abstract class AbstractStandaloneStorage implements Storage {
         }
     }
 
+    @Override
+    public ExpiringValue getWithTtl(String key) throws StorageAccessException {
+        byte[] finalKey = finalKey(key);
+        Jedis jedis = jedisPool.getResource();
+        Pipeline pipeline = jedis.pipelined();
+        try {
+            Response<byte[]> value = pipeline.get(finalKey);
+            Response<Long> ttl = pipeline.pttl(finalKey);
+            pipeline.sync();
+            return null == value.get() ? null : new ExpiringValue(value(value.get()), ttl.get());
+        } catch (Exception e) {
+            throw new StorageAccessException(e);
+        } finally {
+            try {
+                if (null != pipeline) {
+                    pipeline.close();
+                }
+            } catch (IOException e) {
+                LOGGER.error("get with ttl pipeline close exception", e);
+            } finally {
+                jedis.close();
+            }
+        }
+    }
+
+    @Override
+    public Map<String, ExpiringValue> getAllWithTtl(Collection<String> keys) throws StorageAccessException {
+        List<String> plainKeys = new ArrayList<>(new LinkedHashSet<>(keys));
+        Map<String, ExpiringValue> result = new LinkedHashMap<>(plainKeys.size() * 2);
+        if (plainKeys.isEmpty()) {
+            return result;
+        }
+        Jedis jedis = jedisPool.getResource();
+        try {
+            for (int from = 0; from < plainKeys.size(); from += bulkChunkSize) {
+                List<String> chunk = plainKeys.subList(from, Math.min(from + bulkChunkSize, plainKeys.size()));
+                // GET and PTTL of every key of the chunk in one round trip
+                Pipeline pipeline = jedis.pipelined();
+                List<Response<byte[]>> values = new ArrayList<>(chunk.size());
+                List<Response<Long>> ttls = new ArrayList<>(chunk.size());
+                for (String key : chunk) {
+                    byte[] finalKey = finalKey(key);
+                    values.add(pipeline.get(finalKey));
+                    ttls.add(pipeline.pttl(finalKey));
+                }
+                pipeline.sync();
+                for (int i = 0; i < chunk.size(); i++) {
+                    byte[] value = values.get(i).get();
+                    result.put(chunk.get(i), null == value ? null : new ExpiringValue(value(value), ttls.get(i).get()));
+                }
+            }
+            return result;
+        } catch (Exception e) {
+            throw new StorageAccessException(e);
+        } finally {
+            jedis.close();
+        }
+    }
+
     @Override
     public boolean set(String key, Cacheable value) throws StorageAccessException {
-        String finalKey = normalizeKey(key);
+        byte[] finalKey = finalKey(key);
         Jedis jedis = jedisPool.getResource();
         Pipeline pipeline = jedis.pipelined();
         try {
-            pipeline.set(finalKey, value.getValue());
+            pipeline.set(finalKey, bytes(value));
             pipeline.pexpire(finalKey, value.getExpireTime());
             List<Object> results = pipeline.syncAndReturnAll();
 //            pipeline.sync();
@@ -158,11 +267,89 @@ public abstract class AbstractStandaloneStorage implements Storage {
         }
     }
 
+    @Override
+    public Map<String, String> getAll(Collection<String> keys) throws StorageAccessException {
+        List<String> plainKeys = new ArrayList<>(new LinkedHashSet<>(keys));
+        Map<String, String> result = new LinkedHashMap<>(plainKeys.size() * 2);
+        if (plainKeys.isEmpty()) {
+            return result;
+        }
+        Jedis jedis = jedisPool.getResource();
+        try {
+            // keep every MGET short, a huge one blocks redis for the other clients
+            for (int from = 0; from < plainKeys.size(); from += bulkChunkSize) {
+                List<String> chunk = plainKeys.subList(from, Math.min(from + bulkChunkSize, plainKeys.size()));
+                byte[][] finalKeys = finalKeys(chunk.toArray(new String[chunk.size()]));
+                List<byte[]> values = jedis.mget(finalKeys);
+                for (int i = 0; i < finalKeys.length; i++) {
+                    result.put(chunk.get(i), value(values.get(i)));
+                }
+            }
+            return result;
+        } catch (Exception e) {
+            throw new StorageAccessException(e);
+        } finally {
+            if (null != jedis)
+                jedis.close();
+        }
+    }
+
+    @Override
+    public Set<String> setAll(Map<String, ? extends Cacheable> entries) throws StorageAccessException {
+        List<Map.Entry<String, ? extends Cacheable>> entryList = new ArrayList<Map.Entry<String, ? extends Cacheable>>(entries.entrySet());
+        Set<String> failedKeys = new LinkedHashSet<>();
+        for (int from = 0; from < entryList.size(); from += bulkChunkSize) {
+            List<Map.Entry<String, ? extends Cacheable>> chunk = entryList.subList(from, Math.min(from + bulkChunkSize, entryList.size()));
+            Jedis jedis = null;
+            try {
+                jedis = jedisPool.getResource();
+                // one PSETEX per entry, value and its own ttl in a single command
+                Pipeline pipeline = jedis.pipelined();
+                List<Response<String>> responses = new ArrayList<>(chunk.size());
+                for (Map.Entry<String, ? extends Cacheable> entry : chunk) {
+                    Cacheable value = entry.getValue();
+                    responses.add(pipeline.psetex(finalKey(entry.getKey()), value.getExpireTime(), bytes(value)));
+                }
+                pipeline.sync();
+                for (int i = 0; i < chunk.size(); i++) {
+                    try {
+                        if (!"OK".equals(responses.get(i).get())) {
+                            failedKeys.add(chunk.get(i).getKey());
+                        }
+                    } catch (Exception e) {
+                        LOGGER.warn("Set key '{}' in pipeline fail: {}", chunk.get(i).getKey(), e.getMessage());
+                        failedKeys.add(chunk.get(i).getKey());
+                    }
+                }
+            } catch (Exception e) {
+                // report the whole chunk as failed and go on with the next one
+                LOGGER.error("Set all pipeline of {} keys fail", chunk.size(), e);
+                for (Map.Entry<String, ? extends Cacheable> entry : chunk) {
+                    failedKeys.add(entry.getKey());
+                }
+            } finally {
+                if (null != jedis)
+                    jedis.close();
+            }
+        }
+        return failedKeys;
+    }
+
+    /**
+     * Value bytes for the binary commands, encoded the way the client encodes string arguments
+     */
+    private static byte[] bytes(Cacheable value) {
+        if (value instanceof BinaryCacheable) {
+            return ((BinaryCacheable) value).getBytes();
+        }
+        return SafeEncoder.encode(value.getValue());
+    }
+
     // ++++++++++++++++++++++++++++ list ++++++++++++++++++++++++++++
 
     @Override
     public long llen(String key) throws StorageAccessException {
-        String finalKey = normalizeKey(key);
+        byte[] finalKey = finalKey(key);
         Jedis jedis = jedisPool.getResource();
         try {
             return jedis.llen(finalKey);
@@ -190,10 +377,10 @@ public abstract class AbstractStandaloneStorage implements Storage {
 
     @Override
     public String lindex(String key, long index) throws StorageAccessException {
-        String finalKey = normalizeKey(key);
+        byte[] finalKey = finalKey(key);
         Jedis jedis = jedisPool.getResource();
         try {
-            return jedis.lindex(finalKey, index);
+            return string(jedis.lindex(finalKey, index));
         } catch (Exception e) {
             throw new StorageAccessException(e);
         } finally {
@@ -264,10 +451,10 @@ public abstract class AbstractStandaloneStorage implements Storage {
 
     @Override
     public String lpop(String key) throws StorageAccessException {
-        String finalKey = normalizeKey(key);
+        byte[] finalKey = finalKey(key);
         Jedis jedis = jedisPool.getResource();
         try {
-            return jedis.lpop(finalKey);
+            return string(jedis.lpop(finalKey));
         } catch (Exception e) {
             throw new StorageAccessException(e);
         } finally {
@@ -325,10 +512,10 @@ public abstract class AbstractStandaloneStorage implements Storage {
 
     @Override
     public String rpop(String key) throws StorageAccessException {
-        String finalKey = normalizeKey(key);
+        byte[] finalKey = finalKey(key);
         Jedis jedis = jedisPool.getResource();
         try {
-            return jedis.rpop(finalKey);
+            return string(jedis.rpop(finalKey));
         } catch (Exception e) {
             throw new StorageAccessException(e);
         } finally {
@@ -341,7 +528,7 @@ public abstract class AbstractStandaloneStorage implements Storage {
 
     @Override
     public long scard(String key) throws StorageAccessException {
-        String finalKey = normalizeKey(key);
+        byte[] finalKey = finalKey(key);
         Jedis jedis = jedisPool.getResource();
         try {
             return jedis.scard(finalKey);
@@ -383,7 +570,7 @@ public abstract class AbstractStandaloneStorage implements Storage {
 
     @Override
     public boolean sadd(String key, Cacheable value) throws StorageAccessException {
-        return sadd(key, value);
+        return sadd(key, new Cacheable[]{value}) > 0;
     }
 
     @Override
@@ -420,13 +607,10 @@ public abstract class AbstractStandaloneStorage implements Storage {
 
     @Override
     public Set<String> sunion(String... keys) throws StorageAccessException {
-        String[] finalKeys = new String[keys.length];
-        for (int i = 0; i < keys.length; i++) {
-            finalKeys[i] = normalizeKey(keys[i]);
-        }
+        byte[][] finalKeys = finalKeys(keys);
         Jedis jedis = jedisPool.getResource();
         try {
-            return jedis.sunion(finalKeys);
+            return strings(jedis.sunion(finalKeys));
         } catch (Exception e) {
             throw new StorageAccessException(e);
         } finally {
@@ -434,120 +618,4 @@ public abstract class AbstractStandaloneStorage implements Storage {
                 jedis.close();
         }
     }
-
-
-    // ++++++++++++++++++++++++++++ handle write ++++++++++++++++++++++++++++
-
-    @Override
-    public void handleDelete(String key, Function<String, Boolean> deleteFunc) throws StorageAccessException {
-        Boolean delete = deleteFunc.apply(key);
-        if (null != delete && delete) {
-            this.delete(key);
-        }
-    }
-
-    @Override
-    public void handleDeleteAll(String[] keys, Function<Iterable<String>, Boolean> deleteAllFunc) throws StorageAccessException {
-        Boolean delete = deleteAllFunc.apply(Arrays.asList(keys));
-        if (null != delete && delete) {
-            this.delete(keys);
-        }
-    }
-
-    @Override
-    public void handleSet(String key, Function<String, Cacheable> setFunc) throws StorageAccessException {
-        // 先 write, 后写 Cache
-        Cacheable value = setFunc.apply(key);
-        if (null != value) {
-            this.set(key, value);
-        }
-    }
-
-    @Override
-    public long handleLLPush(String key, Function<String, List<? extends Cacheable>> lpushFunc) throws StorageAccessException {
-        List<? extends Cacheable> pushList = lpushFunc.apply(key);
-        if (null != pushList && !pushList.isEmpty()) {
-            Cacheable[] writeArray = new Cacheable[pushList.size()];
-            return this.lpush(key, pushList.toArray(writeArray));
-        }
-        return 0;
-    }
-
-    @Override
-    public long handleLRPush(String key, Function<String, List<? extends Cacheable>> rpushFunc) throws StorageAccessException {
-        List<? extends Cacheable> pushList = rpushFunc.apply(key);
-        if (null != pushList && !pushList.isEmpty()) {
-            Cacheable[] writeArray = new Cacheable[pushList.size()];
-            return this.rpush(key, writeArray);
-        }
-        return 0;
-    }
-
-    @Override
-    public long handleSetAdd(String key, Function<String, Set<? extends Cacheable>> addFunc) throws StorageAccessException {
-        Set<? extends Cacheable> writeValues = addFunc.apply(key);
-        if (null != writeValues && !writeValues.isEmpty()) {
-            Cacheable[] writeArray = new Cacheable[writeValues.size()];
-            return this.sadd(key, writeValues.toArray(writeArray));
-        }
-        return 0;
-    }
-
-    // ++++++++++++++++++++++++++++ handle load ++++++++++++++++++++++++++++
-
-    @Override
-    public String handleGet(String key, Function<String, Cacheable> getFunc) throws StorageAccessException {
-        // 先读
-        String value = this.get(key);
-        // Cache 中不存在 则 load, 后写 Cache
-        if (null == value) {
-            Cacheable loadValue = getFunc.apply(key);
-            if (null != loadValue) {
-                value = loadValue.getValue();
-                this.set(key, loadValue);
-            }
-        }
-        return value;
-    }
-
-    @Override
-    public List<String> handleListRange(String key, long start, long end, Function<String, List<Cacheable>> rangeFunction) throws StorageAccessException {
-        List<String> values = this.lrang(key, start, end);
-        if (null == values || values.isEmpty()) {
-            List<Cacheable> loadValues = rangeFunction.apply(key);
-            if (null != loadValues) {
-                values = new ArrayList<>(loadValues.size());
-                Cacheable[] loadArray = new Cacheable[loadValues.size()];
-                for (int i = 0, size = loadValues.size(); i < size; i++) {
-                    loadArray[i] = loadValues.get(i);
-                    values.add(loadValues.get(i).getValue());
-                }
-                // todo left operation or right operation ?
-                this.rpush(key, loadArray);
-            }
-        }
-        return values;
-    }
-
-    @Override
-    public Set<String> handleSetMembers(String key, Function<String, Set<? extends Cacheable>> setFunc) throws StorageAccessException {
-        Set<String> values = this.smembers(key);
-        if (null == values || values.isEmpty()) {
-            Set<? extends Cacheable> loadValues = setFunc.apply(key);
-            values = new HashSet<>(loadValues.size());
-            Cacheable[] loadArray = new Cacheable[loadValues.size()];
-            int index = 0;
-            for (Cacheable loadValue : loadValues) {
-                loadArray[index++] = loadValue;
-                values.add(loadValue.getKey());
-            }
-            this.sadd(key, loadArray);
-        }
-        return values;
-    }
-
-    @Override
-    public String normalizeKey(String key) {
-        return this.finalPrefix + ":" + key;
-    }
 }
@@ -0,0 +1,314 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.storage.standalone;
+
+import club.cookbean.sparrow.config.PipeliningConfiguration;
+import club.cookbean.sparrow.exception.StorageAccessException;
+import club.cookbean.sparrow.util.ThreadFactoryUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Desc: Gathers commands of many caller threads into shared pipelines.
+ * <p>
+ * Every flusher thread owns one connection borrowed from the pool. It takes the
+ * first pending command, waits up to the max delay (or until the batch is full)
+ * for others to join, sends them in one pipeline and completes every caller with
+ * its own response. Commands keep queueing while a pipeline is in flight, so under
+ * load a single round trip serves a whole batch.
+ * <p>
+ * A caller waits up to the timeout from the moment it queues its command. A command
+ * that times out while still queued is withdrawn and never sent; once sent, the caller
+ * waits for its reply, which the connection's socket timeout bounds.
+ */
+public class AutoPipeliner {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AutoPipeliner.class);
+    private static final long IDLE_POLL_MS = 100;
+
+    /**
+     * A command appended to a shared pipeline
+     */
+    public interface Command<T> {
+        Response<T> append(Pipeline pipeline);
+    }
+
+    private final JedisPool jedisPool;
+    private final BlockingQueue<PendingCommand<?>> pendingQueue = new LinkedBlockingQueue<>();
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final long timeoutMs;
+    private final List<Thread> flushers;
+
+    private volatile boolean running = true;
+
+    public AutoPipeliner(JedisPool jedisPool, PipeliningConfiguration config, String alias, long timeoutMs) {
+        this.jedisPool = jedisPool;
+        this.maxBatchSize = config.getMaxBatchSize();
+        this.maxDelayNanos = config.getMaxDelayUnit().toNanos(config.getMaxDelay());
+        this.timeoutMs = timeoutMs;
+        this.flushers = new ArrayList<>(config.getConnections());
+        ThreadFactory threadFactory = ThreadFactoryUtil.threadFactory("auto-pipeline-" + alias);
+        for (int i = 0; i < config.getConnections(); i++) {
+            Thread flusher = threadFactory.newThread(new Flusher());
+            flusher.setDaemon(true);
+            flushers.add(flusher);
+            flusher.start();
+        }
+    }
+
+    public <T> T execute(Command<T> command) throws StorageAccessException {
+        if (!running) {
+            throw new StorageAccessException("Auto pipeliner has been shut down");
+        }
+        PendingCommand<T> pending = new PendingCommand<>(command);
+        pendingQueue.offer(pending);
+        if (!running && pending.cancel()) {
+            // queued after the flushers drained the queue
+            throw new StorageAccessException("Auto pipeliner has been shut down");
+        }
+        return pending.await(timeoutMs);
+    }
+
+    /**
+     * Stop accepting commands, flush the pending ones and release the connections
+     */
+    public void shutdown() {
+        running = false;
+        boolean interrupted = false;
+        for (Thread flusher : flushers) {
+            while (flusher.isAlive()) {
+                try {
+                    flusher.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        // queued while the flushers stopped
+        StorageAccessException cause = new StorageAccessException("Auto pipeliner has been shut down");
+        PendingCommand<?> pending;
+        while (null != (pending = pendingQueue.poll())) {
+            if (pending.claim()) {
+                pending.fail(cause);
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public int getPendingCount() {
+        return pendingQueue.size();
+    }
+
+    private class Flusher implements Runnable {
+
+        private Jedis jedis;
+
+        @Override
+        public void run() {
+            List<PendingCommand<?>> batch = new ArrayList<>(maxBatchSize);
+            try {
+                while (running || !pendingQueue.isEmpty()) {
+                    PendingCommand<?> first;
+                    try {
+                        first = pendingQueue.poll(IDLE_POLL_MS, MILLISECONDS);
+                    } catch (InterruptedException e) {
+                        continue;
+                    }
+                    if (null == first) {
+                        continue;
+                    }
+                    batch.add(first);
+                    fill(batch);
+                    flush(batch);
+                    batch.clear();
+                }
+            } finally {
+                closeConnection();
+            }
+        }
+
+        private void fill(List<PendingCommand<?>> batch) {
+            long deadline = System.nanoTime() + maxDelayNanos;
+            while (batch.size() < maxBatchSize) {
+                pendingQueue.drainTo(batch, maxBatchSize - batch.size());
+                long remaining = deadline - System.nanoTime();
+                if (batch.size() >= maxBatchSize || remaining <= 0) {
+                    return;
+                }
+                try {
+                    PendingCommand<?> next = pendingQueue.poll(remaining, NANOSECONDS);
+                    if (null == next) {
+                        return;
+                    }
+                    batch.add(next);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+
+        private void flush(List<PendingCommand<?>> batch) {
+            // the commands whose callers gave up are left out
+            Iterator<PendingCommand<?>> iterator = batch.iterator();
+            while (iterator.hasNext()) {
+                if (!iterator.next().claim()) {
+                    iterator.remove();
+                }
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            try {
+                if (null == jedis) {
+                    jedis = jedisPool.getResource();
+                }
+                Pipeline pipeline = jedis.pipelined();
+                for (PendingCommand<?> pending : batch) {
+                    pending.append(pipeline);
+                }
+                pipeline.sync();
+            } catch (Exception e) {
+                LOGGER.warn("Auto pipeline of {} commands failed", batch.size(), e);
+                // the connection state is unknown, a fresh one is borrowed for the next batch
+                closeConnection();
+                for (PendingCommand<?> pending : batch) {
+                    pending.fail(e);
+                }
+                return;
+            }
+            for (PendingCommand<?> pending : batch) {
+                pending.complete();
+            }
+        }
+
+        private void closeConnection() {
+            if (null != jedis) {
+                try {
+                    jedis.close();
+                } catch (Exception e) {
+                    LOGGER.error("Auto pipeline connection close fail", e);
+                } finally {
+                    jedis = null;
+                }
+            }
+        }
+    }
+
+    private static class PendingCommand<T> {
+        private static final int QUEUED = 0;
+        private static final int SENT = 1;
+        private static final int CANCELLED = 2;
+
+        private final Command<T> command;
+        private final CountDownLatch done = new CountDownLatch(1);
+        private final AtomicInteger state = new AtomicInteger(QUEUED);
+        private final long queuedAt = System.nanoTime();
+        private Response<T> response;
+        private T result;
+        private Throwable failure;
+
+        PendingCommand(Command<T> command) {
+            this.command = command;
+        }
+
+        /**
+         * Flusher side
+         * @return false if the caller withdrew the command
+         */
+        boolean claim() {
+            return state.compareAndSet(QUEUED, SENT);
+        }
+
+        /**
+         * Caller side
+         * @return false if a flusher already took the command
+         */
+        boolean cancel() {
+            return state.compareAndSet(QUEUED, CANCELLED);
+        }
+
+        void append(Pipeline pipeline) {
+            response = command.append(pipeline);
+        }
+
+        void complete() {
+            try {
+                // a command error (e.g. WRONGTYPE) is only thrown to its own caller
+                result = response.get();
+            } catch (Exception e) {
+                failure = e;
+            }
+            done.countDown();
+        }
+
+        void fail(Throwable cause) {
+            failure = cause;
+            done.countDown();
+        }
+
+        /**
+         * Wait for the reply of a sent command, ignoring interrupts
+         */
+        private void awaitReply() {
+            while (true) {
+                try {
+                    done.await();
+                    return;
+                } catch (InterruptedException e) {
+                    // the reply is on the way
+                }
+            }
+        }
+
+        T await(long timeoutMs) throws StorageAccessException {
+            try {
+                long remaining = MILLISECONDS.toNanos(timeoutMs) - (System.nanoTime() - queuedAt);
+                if (!done.await(remaining, NANOSECONDS)) {
+                    if (cancel()) {
+                        throw new StorageAccessException("Auto pipelined command timed out after " + timeoutMs + "ms, not sent");
+                    }
+                    // sent, its reply is on the way
+                    done.await();
+                }
+            } catch (InterruptedException e) {
+                if (cancel()) {
+                    Thread.currentThread().interrupt();
+                    throw new StorageAccessException(e);
+                }
+                awaitReply();
+                Thread.currentThread().interrupt();
+            }
+            if (null != failure) {
+                throw new StorageAccessException(failure);
+            }
+            return result;
+        }
+    }
+}
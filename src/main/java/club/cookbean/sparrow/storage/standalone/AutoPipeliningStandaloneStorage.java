@@ -0,0 +1,212 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.storage.standalone;
+
+import club.cookbean.sparrow.config.ServiceConfiguration;
+import club.cookbean.sparrow.exception.StorageAccessException;
+import club.cookbean.sparrow.redis.BinaryCacheable;
+import club.cookbean.sparrow.redis.Cacheable;
+import club.cookbean.sparrow.storage.ExpiringValue;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.util.SafeEncoder;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Desc: Standalone storage whose single-key commands go through an {@link AutoPipeliner}
+ * instead of borrowing a pooled connection per call. Multi-key and push/add commands
+ * keep using the pool.
+ */
+public class AutoPipeliningStandaloneStorage extends StandaloneStorage {
+
+    private final AutoPipeliner pipeliner;
+
+    public AutoPipeliningStandaloneStorage(JedisPool jedisPool, String finalPrefix,
+                                           Collection<ServiceConfiguration<?>> serviceConfigurations,
+                                           AutoPipeliner pipeliner) {
+        super(jedisPool, finalPrefix, serviceConfigurations);
+        this.pipeliner = pipeliner;
+    }
+
+    @Override
+    public void release() {
+        pipeliner.shutdown();
+        super.release();
+    }
+
+    @Override
+    public boolean exist(String key) throws StorageAccessException {
+        final byte[] finalKey = finalKey(key);
+        Boolean result = pipeliner.execute(new AutoPipeliner.Command<Boolean>() {
+            @Override
+            public Response<Boolean> append(Pipeline pipeline) {
+                return pipeline.exists(finalKey);
+            }
+        });
+        return null != result && result;
+    }
+
+    @Override
+    public boolean expire(String key, final long millisecond) throws StorageAccessException {
+        final byte[] finalKey = finalKey(key);
+        Long result = pipeliner.execute(new AutoPipeliner.Command<Long>() {
+            @Override
+            public Response<Long> append(Pipeline pipeline) {
+                return pipeline.pexpire(finalKey, millisecond);
+            }
+        });
+        return null != result && result > 0;
+    }
+
+    @Override
+    public boolean expireAt(String key, final long timestamp) throws StorageAccessException {
+        final byte[] finalKey = finalKey(key);
+        Long result = pipeliner.execute(new AutoPipeliner.Command<Long>() {
+            @Override
+            public Response<Long> append(Pipeline pipeline) {
+                return pipeline.pexpireAt(finalKey, timestamp);
+            }
+        });
+        return null != result && result > 0;
+    }
+
+    @Override
+    public String get(String key) throws StorageAccessException {
+        final byte[] finalKey = finalKey(key);
+        return value(pipeliner.execute(new AutoPipeliner.Command<byte[]>() {
+            @Override
+            public Response<byte[]> append(Pipeline pipeline) {
+                return pipeline.get(finalKey);
+            }
+        }));
+    }
+
+    @Override
+    public byte[] getBytes(String key) throws StorageAccessException {
+        final byte[] finalKey = finalKey(key);
+        return pipeliner.execute(new AutoPipeliner.Command<byte[]>() {
+            @Override
+            public Response<byte[]> append(Pipeline pipeline) {
+                return pipeline.get(finalKey);
+            }
+        });
+    }
+
+    @Override
+    public ExpiringValue getWithTtl(String key) throws StorageAccessException {
+        final byte[] finalKey = finalKey(key);
+        final List<Response<byte[]>> value = new ArrayList<>(1);
+        // both land in the same batch, the value response is complete once the ttl one is
+        Long ttl = pipeliner.execute(new AutoPipeliner.Command<Long>() {
+            @Override
+            public Response<Long> append(Pipeline pipeline) {
+                value.add(pipeline.get(finalKey));
+                return pipeline.pttl(finalKey);
+            }
+        });
+        byte[] bytes = value.get(0).get();
+        return null == bytes ? null : new ExpiringValue(value(bytes), null == ttl ? -1 : ttl);
+    }
+
+    @Override
+    public boolean set(String key, final Cacheable value) throws StorageAccessException {
+        final byte[] finalKey = finalKey(key);
+        // PSETEX keeps value and ttl in one slot of the shared pipeline
+        String result = pipeliner.execute(new AutoPipeliner.Command<String>() {
+            @Override
+            public Response<String> append(Pipeline pipeline) {
+                if (value instanceof BinaryCacheable) {
+                    return pipeline.psetex(finalKey, value.getExpireTime(), ((BinaryCacheable) value).getBytes());
+                }
+                return pipeline.psetex(finalKey, value.getExpireTime(), SafeEncoder.encode(value.getValue()));
+            }
+        });
+        return "OK".equals(result);
+    }
+
+    @Override
+    public long llen(String key) throws StorageAccessException {
+        final String finalKey = normalizeKey(key);
+        Long result = pipeliner.execute(new AutoPipeliner.Command<Long>() {
+            @Override
+            public Response<Long> append(Pipeline pipeline) {
+                return pipeline.llen(finalKey);
+            }
+        });
+        return null != result ? result : 0;
+    }
+
+    @Override
+    public List<String> lrang(String key, final long start, final long end) throws StorageAccessException {
+        final String finalKey = normalizeKey(key);
+        return pipeliner.execute(new AutoPipeliner.Command<List<String>>() {
+            @Override
+            public Response<List<String>> append(Pipeline pipeline) {
+                return pipeline.lrange(finalKey, start, end);
+            }
+        });
+    }
+
+    @Override
+    public String lindex(String key, final long index) throws StorageAccessException {
+        final String finalKey = normalizeKey(key);
+        return pipeliner.execute(new AutoPipeliner.Command<String>() {
+            @Override
+            public Response<String> append(Pipeline pipeline) {
+                return pipeline.lindex(finalKey, index);
+            }
+        });
+    }
+
+    @Override
+    public long scard(String key) throws StorageAccessException {
+        final String finalKey = normalizeKey(key);
+        Long result = pipeliner.execute(new AutoPipeliner.Command<Long>() {
+            @Override
+            public Response<Long> append(Pipeline pipeline) {
+                return pipeline.scard(finalKey);
+            }
+        });
+        return null != result ? result : 0;
+    }
+
+    @Override
+    public boolean sismember(String key, final Cacheable value) throws StorageAccessException {
+        final String finalKey = normalizeKey(key);
+        Boolean result = pipeliner.execute(new AutoPipeliner.Command<Boolean>() {
+            @Override
+            public Response<Boolean> append(Pipeline pipeline) {
+                return pipeline.sismember(finalKey, value.getKey());
+            }
+        });
+        return null != result && result;
+    }
+
+    @Override
+    public Set<String> smembers(String key) throws StorageAccessException {
+        final String finalKey = normalizeKey(key);
+        return pipeliner.execute(new AutoPipeliner.Command<Set<String>>() {
+            @Override
+            public Response<Set<String>> append(Pipeline pipeline) {
+                return pipeline.smembers(finalKey);
+            }
+        });
+    }
+}
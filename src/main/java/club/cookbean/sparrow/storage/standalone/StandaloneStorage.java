@@ -15,25 +15,31 @@
 package club.cookbean.sparrow.storage.standalone;
 
 import club.cookbean.sparrow.annotation.ServiceDependencies;
+import club.cookbean.sparrow.config.PipeliningConfiguration;
+import club.cookbean.sparrow.config.ServiceConfiguration;
 import club.cookbean.sparrow.listener.CacheConfigurationChangeListener;
 import club.cookbean.sparrow.provider.ServiceProvider;
 import club.cookbean.sparrow.redis.RedisConnector;
 import club.cookbean.sparrow.redis.RedisResource;
 import club.cookbean.sparrow.service.Service;
 import club.cookbean.sparrow.storage.Storage;
+import club.cookbean.sparrow.storage.StorageSupport;
+import club.cookbean.sparrow.util.ServiceUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import redis.clients.jedis.HostAndPort;
 import redis.clients.jedis.JedisPool;
 import redis.clients.jedis.Protocol;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 
 public class StandaloneStorage extends AbstractStandaloneStorage {
 
-    public StandaloneStorage(JedisPool jedisPool, String finalPrefix) {
-        super(jedisPool, finalPrefix);
+    public StandaloneStorage(JedisPool jedisPool, String finalPrefix,
+                             Collection<ServiceConfiguration<?>> serviceConfigurations) {
+        super(jedisPool, finalPrefix, serviceConfigurations);
     }
 
     @Override
@@ -52,12 +58,7 @@ public class StandaloneStorage extends AbstractStandaloneStorage {
             RedisResource redisResource = storageConfig.getResource();
             RedisConnector redisConnector = storageConfig.getConnector();
 
-            String prefix = redisConnector.getPrefix();
-            String connectorName = redisConnector.getName();
-            String finalPrefix = prefix;
-            if (redisResource.isShare()) {
-                finalPrefix = finalPrefix + ":" + connectorName;
-            }
+            String finalPrefix = StorageSupport.resolveFinalPrefix(redisResource, redisConnector);
             LOGGER.info("Create a standalone with final prefix [{}]", finalPrefix);
 
             HostAndPort node = redisResource.getStandaloneNode();
@@ -66,7 +67,17 @@ public class StandaloneStorage extends AbstractStandaloneStorage {
                     redisConnector.getConnectTimeout(), redisConnector.getSocketTimeout(),
                     null, Protocol.DEFAULT_DATABASE, null, false, null, null, null);
 
-            return new StandaloneStorage(jedisPool, finalPrefix);
+            PipeliningConfiguration pipeliningConfig = ServiceUtils.findSingletonAmongst(
+                    PipeliningConfiguration.class, storageConfig.getServiceConfigurations());
+            if (null != pipeliningConfig) {
+                LOGGER.info("Auto pipelining enabled with {} connections", pipeliningConfig.getConnections());
+                long timeoutMs = redisConnector.getConnectTimeout() + redisConnector.getSocketTimeout()
+                        + pipeliningConfig.getMaxDelayUnit().toMillis(pipeliningConfig.getMaxDelay());
+                AutoPipeliner pipeliner = new AutoPipeliner(jedisPool, pipeliningConfig, finalPrefix, timeoutMs);
+                return new AutoPipeliningStandaloneStorage(jedisPool, finalPrefix,
+                        storageConfig.getServiceConfigurations(), pipeliner);
+            }
+            return new StandaloneStorage(jedisPool, finalPrefix, storageConfig.getServiceConfigurations());
         }
 
         @Override
@@ -80,8 +91,8 @@ public class StandaloneStorage extends AbstractStandaloneStorage {
         }
 
         @Override
-        public boolean choose(RedisResource.ResourceType type) {
-            return RedisResource.ResourceType.STANDALONE == type;
+        public int rank(RedisResource.ResourceType type, Collection<ServiceConfiguration<?>> serviceConfigs) {
+            return RedisResource.ResourceType.STANDALONE == type ? 1 : 0;
         }
 
         @Override
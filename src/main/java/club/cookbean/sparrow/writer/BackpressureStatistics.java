@@ -0,0 +1,51 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.writer;
+
+/**
+ * Desc: Counters of the writes that found their write behind queue full.
+ */
+public interface BackpressureStatistics {
+
+    /**
+     * @return the number of writes that waited for room
+     */
+    long getBlockedCount();
+
+    /**
+     * @return the number of writes that failed after waiting for room up to the timeout
+     */
+    long getTimeoutCount();
+
+    /**
+     * @return the number of writes that failed at once
+     */
+    long getRejectedCount();
+
+    /**
+     * @return the number of writes written through by the calling thread
+     */
+    long getCallerRunsCount();
+
+    /**
+     * @return the number of queued operations replaced by a newer operation of their key
+     */
+    long getDroppedCount();
+
+    /**
+     * @return the number of writes dropped
+     */
+    long getShedCount();
+}
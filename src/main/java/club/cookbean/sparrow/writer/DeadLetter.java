@@ -0,0 +1,60 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.writer;
+
+import club.cookbean.sparrow.operation.SingleOperation;
+
+/**
+ * Desc: A write behind operation which exhausted its attempts, or failed with an exception not worth a retry.
+ */
+public final class DeadLetter {
+
+    private final SingleOperation operation;
+    private final Exception failure;
+    private final int attempts;
+    private final long deadTime;
+
+    public DeadLetter(SingleOperation operation, Exception failure, int attempts) {
+        this.operation = operation;
+        this.failure = failure;
+        this.attempts = attempts;
+        this.deadTime = System.currentTimeMillis();
+    }
+
+    /**
+     * @return the write or delete operation, to be written again by the application
+     */
+    public SingleOperation getOperation() {
+        return operation;
+    }
+
+    /**
+     * @return the exception of the last attempt
+     */
+    public Exception getFailure() {
+        return failure;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    /**
+     * @return the time in millisecond the operation was given up
+     */
+    public long getDeadTime() {
+        return deadTime;
+    }
+}
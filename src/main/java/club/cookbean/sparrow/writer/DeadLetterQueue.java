@@ -0,0 +1,46 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.writer;
+
+import java.util.List;
+
+/**
+ * Desc: Bounded store of the write behind operations given up, the oldest ones are dropped once it is full.
+ */
+public interface DeadLetterQueue {
+
+    /**
+     * Remove and return all the dead operations, oldest first
+     * @return the dead operations
+     */
+    List<DeadLetter> drain();
+
+    /**
+     * Remove and return at most {@code maxCount} dead operations, oldest first
+     * @param maxCount maximum count to remove
+     * @return the dead operations
+     */
+    List<DeadLetter> drain(int maxCount);
+
+    /**
+     * @return the count of dead operations waiting to be drained
+     */
+    int size();
+
+    /**
+     * @return the count of dead operations dropped since the queue was full
+     */
+    long getDroppedCount();
+}
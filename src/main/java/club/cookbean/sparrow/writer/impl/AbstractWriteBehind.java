@@ -24,8 +24,15 @@ import club.cookbean.sparrow.redis.Cacheable;
 import club.cookbean.sparrow.writer.CacheWriter;
 import club.cookbean.sparrow.writer.WriteBehind;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Created by Bennett Dong <br>
@@ -34,15 +41,46 @@ import java.util.concurrent.BlockingQueue;
  * Desc:
  */
 public abstract class AbstractWriteBehind implements WriteBehind {
+    /**
+     * Sequence of the operations not journaled
+     */
+    protected static final long NOT_JOURNALED = -1;
+
+    /**
+     * Latest operation of the keys queued or being written
+     */
+    protected final ConcurrentMap<String, SingleOperation> latest = new ConcurrentHashMap<>();
+
+    /**
+     * Journal sequences of the failed operations left for the next start, by key, guarded by itself
+     */
+    private final ConcurrentMap<String, List<Long>> unwritten = new ConcurrentHashMap<>();
+
     private final CacheWriter cacheWriter;
+    private final WriteBehindJournal journal;
+    private final WriteBehindRetry retry;
+    private final WriteBehindBackpressure backpressure;
 
     public AbstractWriteBehind(CacheWriter cacheWriter) {
+        this(cacheWriter, null, null, null);
+    }
+
+    public AbstractWriteBehind(CacheWriter cacheWriter, WriteBehindJournal journal, WriteBehindRetry retry) {
+        this(cacheWriter, journal, retry, null);
+    }
+
+    public AbstractWriteBehind(CacheWriter cacheWriter, WriteBehindJournal journal, WriteBehindRetry retry,
+                               WriteBehindBackpressure backpressure) {
         this.cacheWriter = cacheWriter;
+        this.journal = journal;
+        this.retry = retry;
+        this.backpressure = backpressure;
     }
 
     @Override
     public void write(String key, Cacheable value) throws CacheWritingException {
-        addOperation(new WriteOperation(key, value));
+        WriteOperation operation = new WriteOperation(key, value);
+        enqueue(operation, journal(operation));
     }
 
     @Override
@@ -54,7 +92,8 @@ public abstract class AbstractWriteBehind implements WriteBehind {
 
     @Override
     public void delete(String key) throws CacheWritingException {
-        addOperation(new DeleteOperation(key));
+        DeleteOperation operation = new DeleteOperation(key);
+        enqueue(operation, journal(operation));
     }
 
     @Override
@@ -64,9 +103,239 @@ public abstract class AbstractWriteBehind implements WriteBehind {
         }
     }
 
-    protected abstract SingleOperation getOperation(String key);
+    protected SingleOperation getOperation(String key) {
+        return latest.get(key);
+    }
+
+    /**
+     * Queue an operation, waiting for room without limit
+     * @param operation operation to write behind
+     * @param sequence journal sequence of the operation, {@link #NOT_JOURNALED} without journal
+     */
+    protected void addOperation(SingleOperation operation, long sequence) {
+        offerOperation(operation, sequence, Long.MAX_VALUE);
+    }
+
+    /**
+     * Queue an operation
+     * @param operation operation to write behind
+     * @param sequence journal sequence of the operation, {@link #NOT_JOURNALED} without journal
+     * @param timeoutNanos maximum wait for room, 0 not to wait, {@link Long#MAX_VALUE} without limit
+     * @return false if the queue stayed full
+     */
+    protected abstract boolean offerOperation(SingleOperation operation, long sequence, long timeoutNanos);
+
+    /**
+     * Put an operation in the place of the queued operation of its key
+     * @param operation operation to write behind
+     * @param sequence journal sequence of the operation, {@link #NOT_JOURNALED} without journal
+     * @return false if no operation of the key is waiting in the queue
+     */
+    protected abstract boolean replaceOperation(SingleOperation operation, long sequence);
 
-    protected abstract void addOperation(final SingleOperation operation);
+    /**
+     * Undo the {@link #latest} update of an operation that did not make it into the queue
+     */
+    protected void restoreLatest(SingleOperation operation, SingleOperation previous) {
+        if (null == previous) {
+            latest.remove(operation.getKey(), operation);
+        } else {
+            latest.replace(operation.getKey(), operation, previous);
+        }
+    }
+
+    private void enqueue(SingleOperation operation, long sequence) throws CacheWritingException {
+        if (null == backpressure) {
+            addOperation(operation, sequence);
+            return;
+        }
+        if (offerOperation(operation, sequence, 0)) {
+            return;
+        }
+        switch (backpressure.getPolicy()) {
+            case FAIL:
+                backpressure.rejected();
+                committed(sequence);
+                throw new CacheWritingException("Write behind queue full, key '" + operation.getKey() + "' rejected");
+            case SHED:
+                backpressure.shed();
+                committed(sequence);
+                return;
+            case CALLER_RUNS:
+                if (writeThrough(operation, sequence)) {
+                    return;
+                }
+                break;
+            case DROP_OLDEST:
+                if (replaceOperation(operation, sequence)) {
+                    backpressure.dropped();
+                    return;
+                }
+                break;
+            default:
+                break;
+        }
+        backpressure.blocked();
+        if (!offerOperation(operation, sequence, backpressure.getTimeoutNanos())) {
+            backpressure.timedOut();
+            committed(sequence);
+            throw new CacheWritingException("Write behind queue full, key '" + operation.getKey() + "' not queued within "
+                    + TimeUnit.NANOSECONDS.toMillis(backpressure.getTimeoutNanos()) + "ms");
+        }
+    }
+
+    /**
+     * Write an operation in the calling thread, unless an operation of its key is still queued
+     * @return false if an operation of the key is pending
+     */
+    private boolean writeThrough(SingleOperation operation, long sequence) throws CacheWritingException {
+        if (null != latest.putIfAbsent(operation.getKey(), operation)) {
+            return false;
+        }
+        backpressure.callerRan();
+        try {
+            operation.performOperation(cacheWriter);
+            committed(operation.getKey(), sequence);
+        } catch (Exception e) {
+            throw new CacheWritingException("Write through of key '" + operation.getKey() + "' fail", e);
+        } finally {
+            latest.remove(operation.getKey(), operation);
+            // the caller gets the failure, the operation is not replayed
+            committed(sequence);
+        }
+        return true;
+    }
+
+    /**
+     * Replay the operations left in the journal by the last run
+     */
+    @Override
+    public void start() {
+        if (null == journal) {
+            return;
+        }
+        try {
+            journal.open(new WriteBehindJournal.Replay() {
+                @Override
+                public void replay(SingleOperation operation, long sequence) {
+                    addOperation(operation, sequence);
+                }
+            });
+        } catch (IOException e) {
+            throw new CacheWritingException("Open write behind journal fail", e);
+        }
+    }
+
+    /**
+     * Close the journal, to be called once the queue is drained
+     */
+    protected void closeJournal() {
+        if (null != journal) {
+            journal.close();
+        }
+    }
+
+    /**
+     * Record an operation as written, called once the cache writer succeeded
+     * @param sequence journal sequence of the operation
+     */
+    protected void committed(long sequence) {
+        if (null != journal && NOT_JOURNALED != sequence) {
+            journal.commit(sequence);
+        }
+    }
+
+    /**
+     * Record an operation as written by the cache writer, together with the failed operations
+     * of its key left in the journal, which would otherwise be replayed over it
+     * @param key key of the operation
+     * @param sequence journal sequence of the operation
+     */
+    protected void committed(String key, long sequence) {
+        committed(sequence);
+        if (NOT_JOURNALED == sequence || unwritten.isEmpty()) {
+            return;
+        }
+        List<Long> superseded = new ArrayList<>();
+        synchronized (unwritten) {
+            List<Long> sequences = unwritten.get(key);
+            if (null == sequences) {
+                return;
+            }
+            for (Iterator<Long> it = sequences.iterator(); it.hasNext(); ) {
+                Long failed = it.next();
+                if (failed < sequence) {
+                    superseded.add(failed);
+                    it.remove();
+                }
+            }
+            if (sequences.isEmpty()) {
+                unwritten.remove(key);
+            }
+        }
+        for (Long failed : superseded) {
+            committed(failed);
+        }
+    }
+
+    /**
+     * Leave a failed operation in the journal, to be written again on the next start unless
+     * a newer operation of its key gets written first
+     * @param key key of the operation
+     * @param sequence journal sequence of the operation
+     */
+    protected void uncommitted(String key, long sequence) {
+        if (null == journal || NOT_JOURNALED == sequence) {
+            return;
+        }
+        synchronized (unwritten) {
+            List<Long> sequences = unwritten.get(key);
+            if (null == sequences) {
+                sequences = new ArrayList<>(1);
+                unwritten.put(key, sequences);
+            }
+            sequences.add(sequence);
+        }
+    }
+
+    protected boolean isRetrying() {
+        return null != retry;
+    }
+
+    /**
+     * @param attempts attempts made so far
+     * @param failure exception of the last attempt
+     * @return the delay in millisecond before the next attempt, negative to give up
+     */
+    protected long retryDelay(int attempts, Exception failure) {
+        return null == retry ? -1 : retry.delayMillis(attempts, failure);
+    }
+
+    /**
+     * Give up an operation. The dead letter queue owns it from now on, so it is committed
+     * and never replayed over a newer write; without a dead letter queue it stays in the
+     * journal until a newer operation of its key is written, see {@link #uncommitted(String, long)}
+     * @param sequence journal sequence of the operation, {@link #NOT_JOURNALED} when committed by the caller
+     */
+    protected void deadLetter(SingleOperation operation, long sequence, Exception failure, int attempts) {
+        if (null != retry) {
+            retry.deadLetter(operation, failure, attempts);
+            committed(sequence);
+        } else {
+            uncommitted(operation.getKey(), sequence);
+        }
+    }
+
+    private long journal(SingleOperation operation) throws CacheWritingException {
+        if (null == journal) {
+            return NOT_JOURNALED;
+        }
+        try {
+            return journal.append(operation);
+        } catch (IOException e) {
+            throw new CacheWritingException("Journal operation of key '" + operation.getKey() + "' fail", e);
+        }
+    }
 
     protected static <T> void putUninterruptibly(BlockingQueue<T> queue, T r) {
         boolean interrupted = false;
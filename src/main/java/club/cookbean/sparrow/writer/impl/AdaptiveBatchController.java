@@ -0,0 +1,135 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.writer.impl;
+
+import club.cookbean.sparrow.config.AdaptiveBatchingConfiguration;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Desc: Tunes the batch size and max write delay of a batching write behind queue from the batches it writes. <br>
+ * Every window of batches the p99 dwell time, from the oldest operation of a batch being offered to the batch
+ * being written, is checked against the target. Above it the delay is halved and the batch size cut by a quarter.
+ * Under it the batch size keeps moving in the direction that raised the rows written per second of writer time,
+ * turning back once that drops, and the delay grows while the dwell time stays under half the target.
+ * Batches are recorded by the single drain thread only.
+ */
+class AdaptiveBatchController {
+
+    private static final int WINDOW = 32;
+    // a slow queue adjusts on time rather than waiting for a full window
+    private static final int MIN_WINDOW = 4;
+    private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final int DELAY_STEPS = 8;
+
+    private final int minBatchSize;
+    private final int maxBatchSize;
+    private final long minDelayNanos;
+    private final long maxDelayNanos;
+    private final long targetDwellNanos;
+
+    private volatile int batchSize;
+    private volatile long delayNanos;
+
+    private final long[] dwells = new long[WINDOW];
+    private int batches;
+    private long rows;
+    private long writeNanos;
+    private long windowStart;
+    private double lastThroughput = -1;
+    private boolean growing = true;
+
+    /**
+     * @param config the bounds
+     * @param batchSize the initial batch size
+     * @param delayNanos the initial max write delay
+     * @param ringLimit the operations the queue holds, a batch never gets bigger
+     */
+    AdaptiveBatchController(AdaptiveBatchingConfiguration config, int batchSize, long delayNanos, int ringLimit) {
+        this.maxBatchSize = Math.min(config.getMaxBatchSize(), ringLimit);
+        this.minBatchSize = Math.min(config.getMinBatchSize(), maxBatchSize);
+        this.minDelayNanos = config.getDelayUnit().toNanos(config.getMinDelay());
+        this.maxDelayNanos = config.getDelayUnit().toNanos(config.getMaxDelay());
+        this.targetDwellNanos = config.getTargetDwellUnit().toNanos(config.getTargetDwell());
+        this.batchSize = clampBatchSize(batchSize);
+        this.delayNanos = clampDelay(delayNanos);
+    }
+
+    int getBatchSize() {
+        return batchSize;
+    }
+
+    long getDelayNanos() {
+        return delayNanos;
+    }
+
+    /**
+     * Drain thread only
+     * @param rows the operations written
+     * @param writeNanos the time the writer took
+     * @param dwellNanos the time the oldest operation of the batch waited, until written
+     * @return true if the batch size or max write delay changed
+     */
+    boolean record(int rows, long writeNanos, long dwellNanos) {
+        long now = System.nanoTime();
+        if (0 == batches) {
+            windowStart = now;
+        }
+        dwells[batches++] = dwellNanos;
+        this.rows += rows;
+        this.writeNanos += writeNanos;
+        if (batches < WINDOW && (batches < MIN_WINDOW || now - windowStart < WINDOW_NANOS)) {
+            return false;
+        }
+        return adjust();
+    }
+
+    private boolean adjust() {
+        Arrays.sort(dwells, 0, batches);
+        long p99 = dwells[(int) Math.ceil(batches * 0.99) - 1];
+        double throughput = (double) rows / Math.max(1, writeNanos);
+        int size = batchSize;
+        long delay = delayNanos;
+
+        if (p99 > targetDwellNanos) {
+            batchSize = clampBatchSize(size - Math.max(1, size / 4));
+            delayNanos = clampDelay(delay / 2);
+            growing = false;
+        } else {
+            if (lastThroughput >= 0 && throughput < lastThroughput) {
+                growing = !growing;
+            }
+            int step = Math.max(1, size / 4);
+            batchSize = clampBatchSize(growing ? size + step : size - step);
+            if (p99 < targetDwellNanos / 2) {
+                delayNanos = clampDelay(delay + Math.max(1, (maxDelayNanos - minDelayNanos) / DELAY_STEPS));
+            }
+        }
+        lastThroughput = throughput;
+        batches = 0;
+        rows = 0;
+        writeNanos = 0;
+        return size != batchSize || delay != delayNanos;
+    }
+
+    private int clampBatchSize(int size) {
+        return Math.max(minBatchSize, Math.min(maxBatchSize, size));
+    }
+
+    private long clampDelay(long delay) {
+        return Math.max(minDelayNanos, Math.min(maxDelayNanos, delay));
+    }
+}
@@ -14,6 +14,8 @@
  */
 package club.cookbean.sparrow.writer.impl;
 
+import club.cookbean.sparrow.config.AdaptiveBatchingConfiguration;
+import club.cookbean.sparrow.config.BackpressureConfiguration;
 import club.cookbean.sparrow.config.BatchingConfiguration;
 import club.cookbean.sparrow.config.WriteBehindConfiguration;
 import club.cookbean.sparrow.operation.BatchOperation;
@@ -31,37 +33,99 @@ import org.slf4j.LoggerFactory;
 
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
 
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 
 public class BatchingWriteBehindQueue extends AbstractWriteBehind {
     private final static Logger LOGGER = LoggerFactory.getLogger(BatchingWriteBehindQueue.class);
 
+    private static final int DEFAULT_RING_SIZE = 16 * 1024;
+    private static final long FULL_RING_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
     private final CacheWriter cacheWriter;
 
-    private final ConcurrentMap<String, SingleOperation> latest = new ConcurrentHashMap<>();
+    // operations of the keys waiting in the ring, with the drop oldest policy only
+    private final ConcurrentMap<String, PendingOperation> queued;
 
-    private final BlockingQueue<Runnable> executorQueue;
+    private final MpscOperationRing ring;
     private final ExecutorService executor;
     private final ScheduledExecutorService scheduledExecutor;
 
-    private final long maxWriteDelayMs;
-    private final int batchSize;
+    private volatile long maxWriteDelayNanos;
+    private volatile int batchSize;
     private final boolean coalescing;
-
-    private volatile Batch openBatch;
+    // null when the batch size and max delay are fixed
+    private final AdaptiveBatchController adaptive;
+
+    // a drain is submitted or running, there is at most one at a time
+    private final AtomicBoolean draining = new AtomicBoolean();
+    // the max delay timer is scheduled
+    private final AtomicBoolean timerArmed = new AtomicBoolean();
+    // the timer fired, the next drain writes a partial batch
+    private volatile boolean flushRequested;
+    private volatile boolean stopping;
+    private final Runnable drainTask = new Runnable() {
+        @Override
+        public void run() {
+            drain();
+        }
+    };
+    private final Runnable flushTask = new Runnable() {
+        @Override
+        public void run() {
+            timerArmed.set(false);
+            flushRequested = true;
+            submitDrain();
+        }
+    };
 
     public BatchingWriteBehindQueue(ExecutionService executionService,
                                     String defaultThreadPool,
                                     WriteBehindConfiguration config,
                                     CacheWriter cacheWriter) {
-        super(cacheWriter);
+        this(executionService, defaultThreadPool, config, cacheWriter, null, null);
+    }
+
+    public BatchingWriteBehindQueue(ExecutionService executionService,
+                                    String defaultThreadPool,
+                                    WriteBehindConfiguration config,
+                                    CacheWriter cacheWriter,
+                                    WriteBehindJournal journal,
+                                    WriteBehindRetry retry) {
+        this(executionService, defaultThreadPool, config, cacheWriter, journal, retry, null);
+    }
+
+    public BatchingWriteBehindQueue(ExecutionService executionService,
+                                    String defaultThreadPool,
+                                    WriteBehindConfiguration config,
+                                    CacheWriter cacheWriter,
+                                    WriteBehindJournal journal,
+                                    WriteBehindRetry retry,
+                                    WriteBehindBackpressure backpressure) {
+        super(cacheWriter, journal, retry, backpressure);
         this.cacheWriter = cacheWriter;
+        this.queued = null != backpressure && backpressure.getPolicy() == BackpressureConfiguration.Policy.DROP_OLDEST
+                ? new ConcurrentHashMap<String, PendingOperation>() : null;
         BatchingConfiguration batchingConfig = config.getBatchingConfiguration();
-        this.maxWriteDelayMs = batchingConfig.getMaxDelayUnit().toMillis(batchingConfig.getMaxDelay());
+        this.maxWriteDelayNanos = batchingConfig.getMaxDelayUnit().toNanos(batchingConfig.getMaxDelay());
         this.batchSize = batchingConfig.getBatchSize();
         this.coalescing = batchingConfig.isCoalescing();
-        this.executorQueue = new LinkedBlockingQueue<>(config.getMaxQueueSize() / batchSize);
+        AdaptiveBatchingConfiguration adaptiveConfig = batchingConfig.getAdaptiveConfiguration();
+        // an unbounded queue size gets a ring of the default size rather than a huge preallocated one
+        this.ring = new MpscOperationRing(config.getMaxQueueSize() == Integer.MAX_VALUE
+                ? DEFAULT_RING_SIZE : config.getMaxQueueSize(), null != adaptiveConfig);
+        if (null == adaptiveConfig) {
+            this.adaptive = null;
+        } else {
+            this.adaptive = new AdaptiveBatchController(adaptiveConfig, batchSize, maxWriteDelayNanos, ring.limit());
+            this.batchSize = adaptive.getBatchSize();
+            this.maxWriteDelayNanos = adaptive.getDelayNanos();
+        }
+        // holds drain tasks and retries only
+        BlockingQueue<Runnable> executorQueue = new LinkedBlockingQueue<>();
         if (config.getThreadPoolAlias() == null) {
             this.executor = executionService.getOrderedExecutor(defaultThreadPool, executorQueue);
         } else {
@@ -76,100 +140,225 @@ public class BatchingWriteBehindQueue extends AbstractWriteBehind {
 
 
     @Override
-    protected SingleOperation getOperation(String key) {
-        return latest.get(key);
-    }
-
-    @Override
-    protected void addOperation(SingleOperation operation) {
-        latest.put(operation.getKey(), operation);
+    protected boolean offerOperation(SingleOperation operation, long sequence, long timeoutNanos) {
+        // before the ring, the drain may write the operation at once
+        SingleOperation previous = latest.put(operation.getKey(), operation);
+        SingleOperation queuedOperation = operation;
+        PendingOperation previousPending = null;
+        if (null != queued) {
+            PendingOperation pending = new PendingOperation(operation, sequence);
+            previousPending = queued.put(operation.getKey(), pending);
+            queuedOperation = pending;
+        }
 
-        synchronized (this) {
-            if (openBatch == null) {
-                openBatch = newBatch();
+        long start = 0;
+        while (!ring.offer(queuedOperation, sequence)) {
+            // full, wait for the drain as a full executor queue did
+            submitDrain();
+            if (0 == start) {
+                start = System.nanoTime();
             }
-            if (openBatch.add(operation)) {
-                submit(openBatch);
-                openBatch = null;
+            long remaining = timeoutNanos - (System.nanoTime() - start);
+            if (remaining <= 0) {
+                if (null != queued) {
+                    restoreQueued((PendingOperation) queuedOperation, previousPending);
+                }
+                restoreLatest(operation, previous);
+                return false;
             }
+            LockSupport.parkNanos(Math.min(FULL_RING_PARK_NANOS, remaining));
+        }
+        if (ring.size() >= batchSize) {
+            submitDrain();
+        } else if (!timerArmed.get()) {
+            armTimer();
+        }
+        return true;
+    }
+
+    /**
+     * Undo the index update of an operation that did not make it into the ring
+     */
+    private void restoreQueued(PendingOperation pending, PendingOperation previous) {
+        if (null == previous) {
+            queued.remove(pending.getKey(), pending);
+        } else {
+            // if taken meanwhile it only fails to be replaced
+            queued.replace(pending.getKey(), pending, previous);
         }
     }
 
     @Override
-    public void start() {
-        //no-op
+    protected boolean replaceOperation(SingleOperation operation, long sequence) {
+        PendingOperation pending = null == queued ? null : queued.get(operation.getKey());
+        if (null == pending) {
+            return false;
+        }
+        SingleOperation previous = latest.put(operation.getKey(), operation);
+        long replaced = pending.replace(operation, sequence);
+        if (PendingOperation.NOT_REPLACED == replaced) {
+            restoreLatest(operation, previous);
+            return false;
+        }
+        // the newer operation is journaled, the replaced one is not to be replayed
+        committed(replaced);
+        return true;
     }
 
     @Override
     public void stop() {
         try {
-            synchronized (this) {
-                if (openBatch != null) {
-                    ExecutorUtil.waitFor(submit(openBatch));
-                    openBatch = null;
-                }
-            }
+            stopping = true;
+            ExecutorUtil.waitFor(executor.submit(drainTask));
         } catch (ExecutionException e) {
             LOGGER.error("Exception running batch on shutdown", e);
         } finally {
       /*
-       * The scheduled executor should only contain cancelled tasks, but these
+       * The scheduled executor should only contain the max delay timer, but it
        * can stall a regular shutdown for up to max-write-delay.  So we just
-       * kill it now.
+       * kill it now, pending retries get one last attempt.
        */
             ExecutorUtil.shutdownNow(scheduledExecutor);
             ExecutorUtil.shutdown(executor);
+            closeJournal();
+        }
+    }
+
+    private void submitDrain() {
+        if (!draining.get() && draining.compareAndSet(false, true)) {
+            try {
+                executor.execute(drainTask);
+            } catch (RejectedExecutionException e) {
+                draining.set(false);
+                LOGGER.warn("Write behind queue stopped, {} operation(s) not written", ring.size());
+            }
+        }
+    }
+
+    private void armTimer() {
+        if (timerArmed.compareAndSet(false, true)) {
+            try {
+                scheduledExecutor.schedule(flushTask, maxWriteDelayNanos, NANOSECONDS);
+            } catch (RejectedExecutionException e) {
+                // stopping, the last drain takes everything
+                timerArmed.set(false);
+            }
+        }
+    }
+
+    /**
+     * Write the full batches of the ring, and the partial one once the max delay is over, on the executor thread
+     */
+    private void drain() {
+        try {
+            boolean flush = flushRequested || stopping;
+            flushRequested = false;
+            while (true) {
+                int available = ring.size();
+                if (0 == available) {
+                    break;
+                }
+                int size = batchSize;
+                if (available < size && !flush) {
+                    armTimer();
+                    break;
+                }
+                Batch batch = newBatch(size);
+                for (SingleOperation operation = ring.peek();
+                     null != operation && batch.size() < size;
+                     operation = ring.peek()) {
+                    long enqueued = ring.enqueueTime();
+                    long sequence = ring.remove();
+                    if (operation instanceof PendingOperation) {
+                        PendingOperation pending = (PendingOperation) operation;
+                        queued.remove(pending.getKey(), pending);
+                        operation = pending.take();
+                        sequence = pending.getSequence();
+                    }
+                    batch.add(operation, sequence, enqueued);
+                }
+                if (available < size) {
+                    flush = stopping;
+                }
+                batch.run();
+            }
+        } finally {
+            draining.set(false);
+        }
+        // operations offered while the flag was still set
+        if (ring.size() >= batchSize || (flushRequested && ring.size() > 0)) {
+            submitDrain();
+        } else if (ring.size() > 0) {
+            armTimer();
         }
     }
 
-    private Batch newBatch() {
+    private Batch newBatch(int size) {
         if (coalescing) {
-            return new CoalescingBatch(batchSize);
+            return new CoalescingBatch(size);
         } else {
-            return new SimpleBatch(batchSize);
+            return new SimpleBatch(size);
         }
     }
 
-    private Future<?> submit(Batch batch) {
-        return executor.submit(batch);
+    /**
+     * Feed a batch written at the first attempt to the adaptive batching, drain thread only
+     */
+    private void adapt(int rows, long writeNanos, long dwellNanos) {
+        if (adaptive.record(rows, writeNanos, dwellNanos)) {
+            batchSize = adaptive.getBatchSize();
+            maxWriteDelayNanos = adaptive.getDelayNanos();
+            LOGGER.debug("Write behind batch size {}, max delay {}us", batchSize, NANOSECONDS.toMicros(maxWriteDelayNanos));
+        }
+    }
+
+    /**
+     * @return the current batch size, tuned over time under adaptive batching
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * @param unit the unit of the returned delay
+     * @return the current max write delay, tuned over time under adaptive batching
+     */
+    public long getMaxWriteDelay(TimeUnit unit) {
+        return unit.convert(maxWriteDelayNanos, NANOSECONDS);
     }
 
     /**
      * Gets the best estimate for items in the queue still awaiting processing.
-     * Since the value returned is a rough estimate, it can sometimes be more than
-     * the number of items actually in the queue but not less.
      *
      * @return the amount of elements still awaiting processing.
      */
     @Override
     public long getQueueSize() {
-        Batch snapshot = openBatch;
-        return executorQueue.size() * batchSize + (snapshot == null ? 0 : snapshot.size());
+        return ring.size();
     }
-    
-    
+
+
     abstract class Batch implements Runnable {
 
         private final int batchSize;
-        private final ScheduledFuture<?> expireTask;
+        // keys of the operations in the batch by journal sequence
+        private final Map<Long, String> sequences = new LinkedHashMap<>();
+        private int added;
+        // enqueue time of the oldest operation
+        private long enqueued;
 
         Batch(int size) {
             this.batchSize = size;
-            this.expireTask = scheduledExecutor.schedule(new Runnable() {
-                @Override
-                public void run() {
-                    synchronized (BatchingWriteBehindQueue.this) {
-                        if (openBatch == Batch.this) {
-                            submit(openBatch);
-                            openBatch = null;
-                        }
-                    }
-                }
-            }, maxWriteDelayMs, MILLISECONDS);
         }
 
-        public boolean add(SingleOperation operation) {
+        public boolean add(SingleOperation operation, long sequence, long enqueued) {
+            if (0 == added++) {
+                this.enqueued = enqueued;
+            }
             internalAdd(operation);
+            if (NOT_JOURNALED != sequence) {
+                sequences.put(sequence, operation.getKey());
+            }
             return size() >= batchSize;
         }
 
@@ -181,28 +370,133 @@ public class BatchingWriteBehindQueue extends AbstractWriteBehind {
 
         @Override
         public void run() {
+            long start = System.nanoTime();
+            if (perform(createMonomorphicBatches(operations()), 1) && null != adaptive) {
+                long end = System.nanoTime();
+                adapt(size(), end - start, end - enqueued);
+            }
+        }
+
+        /**
+         * @return true if every operation got written at this attempt
+         */
+        private boolean perform(List<BatchOperation> batches, int attempts) {
+            List<BatchOperation> failed = new ArrayList<>();
+            Exception failure = null;
+            // execute the batch operations
+            for (BatchOperation batch : batches) {
+                try {
+                    batch.performOperation(cacheWriter);
+                } catch (Exception e) {
+                    failed.add(batch);
+                    failure = e;
+                    LOGGER.warn("Exception while bulk processing in write behind queue", e);
+                }
+            }
+            if (failed.isEmpty()) {
+                complete(true);
+                return true;
+            }
+            long delay = retryDelay(attempts, failure);
+            if (delay >= 0 && scheduleRetry(failed, attempts, failure, delay)) {
+                return false;
+            }
+            giveUp(failed, failure, attempts);
+            return false;
+        }
+
+        private boolean scheduleRetry(final List<BatchOperation> failed, final int attempts, final Exception failure, long delay) {
             try {
-                List<BatchOperation> batches = createMonomorphicBatches(operations());
-                // execute the batch operations
-                for (BatchOperation batch : batches) {
-                    try {
-                        batch.performOperation(cacheWriter);
-                    } catch (Exception e) {
-                        LOGGER.warn("Exception while bulk processing in write behind queue", e);
+                scheduledExecutor.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            executor.submit(new Runnable() {
+                                @Override
+                                public void run() {
+                                    perform(unsuperseded(failed), attempts + 1);
+                                }
+                            });
+                        } catch (RejectedExecutionException e) {
+                            giveUp(failed, failure, attempts);
+                        }
                     }
+                }, delay, MILLISECONDS);
+                return true;
+            } catch (RejectedExecutionException e) {
+                // stopping
+                return false;
+            }
+        }
+
+        private void giveUp(List<BatchOperation> failed, Exception failure, int attempts) {
+            for (BatchOperation batch : failed) {
+                for (SingleOperation operation : singleOperations(batch)) {
+                    deadLetter(operation, NOT_JOURNALED, failure, attempts);
                 }
-            } finally {
-                try {
-                    for (SingleOperation op : operations()) {
-                        latest.remove(op.getKey(), op);
+            }
+            // the dead letter queue owns the failed operations, without one the batch stays in the journal as a whole
+            complete(isRetrying());
+        }
+
+        private void complete(boolean written) {
+            for (Map.Entry<Long, String> sequence : sequences.entrySet()) {
+                if (written) {
+                    committed(sequence.getValue(), sequence.getKey());
+                } else {
+                    uncommitted(sequence.getValue(), sequence.getKey());
+                }
+            }
+            for (SingleOperation op : operations()) {
+                latest.remove(op.getKey(), op);
+            }
+        }
+    }
+
+    /**
+     * Drop the keys written by a newer operation while the batch was waiting for a retry
+     */
+    private List<BatchOperation> unsuperseded(List<BatchOperation> batches) {
+        List<BatchOperation> retained = new ArrayList<>(batches.size());
+        for (BatchOperation batch : batches) {
+            if (batch instanceof WriteAllOperation) {
+                List<Map.Entry<String, Cacheable>> entries = new ArrayList<>();
+                for (Map.Entry<String, Cacheable> entry : ((WriteAllOperation) batch).getEntries()) {
+                    SingleOperation latestOperation = latest.get(entry.getKey());
+                    if (latestOperation instanceof WriteOperation && ((WriteOperation) latestOperation).getValue() == entry.getValue()) {
+                        entries.add(entry);
+                    }
+                }
+                if (!entries.isEmpty()) {
+                    retained.add(new WriteAllOperation(entries));
+                }
+            } else {
+                List<String> keys = new ArrayList<>();
+                for (String key : ((DeleteAllOperation) batch).getEntries()) {
+                    if (latest.get(key) instanceof DeleteOperation) {
+                        keys.add(key);
                     }
-                } finally {
-                    LOGGER.debug("Cancelling batch expiry task");
-                    expireTask.cancel(false);
+                }
+                if (!keys.isEmpty()) {
+                    retained.add(new DeleteAllOperation(keys));
                 }
             }
         }
+        return retained;
+    }
 
+    private static List<SingleOperation> singleOperations(BatchOperation batch) {
+        List<SingleOperation> operations = new ArrayList<>();
+        if (batch instanceof WriteAllOperation) {
+            for (Map.Entry<String, Cacheable> entry : ((WriteAllOperation) batch).getEntries()) {
+                operations.add(new WriteOperation(entry.getKey(), entry.getValue()));
+            }
+        } else {
+            for (String key : ((DeleteAllOperation) batch).getEntries()) {
+                operations.add(new DeleteOperation(key));
+            }
+        }
+        return operations;
     }
 
     private class SimpleBatch extends Batch {
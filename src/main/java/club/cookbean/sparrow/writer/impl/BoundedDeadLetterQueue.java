@@ -0,0 +1,72 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.writer.impl;
+
+import club.cookbean.sparrow.writer.DeadLetter;
+import club.cookbean.sparrow.writer.DeadLetterQueue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+public class BoundedDeadLetterQueue implements DeadLetterQueue {
+    private static final Logger LOGGER = LoggerFactory.getLogger(BoundedDeadLetterQueue.class);
+
+    private final int capacity;
+    private final ArrayDeque<DeadLetter> deadLetters = new ArrayDeque<>();
+    private long droppedCount;
+
+    public BoundedDeadLetterQueue(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public synchronized void add(DeadLetter deadLetter) {
+        if (deadLetters.size() >= capacity) {
+            DeadLetter dropped = capacity == 0 ? deadLetter : deadLetters.pollFirst();
+            droppedCount++;
+            LOGGER.error("Dead letter queue full, drop operation of key '{}'", dropped.getOperation().getKey(), dropped.getFailure());
+            if (capacity == 0) {
+                return;
+            }
+        }
+        deadLetters.addLast(deadLetter);
+    }
+
+    @Override
+    public List<DeadLetter> drain() {
+        return drain(Integer.MAX_VALUE);
+    }
+
+    @Override
+    public synchronized List<DeadLetter> drain(int maxCount) {
+        List<DeadLetter> drained = new ArrayList<>(Math.min(maxCount, deadLetters.size()));
+        while (drained.size() < maxCount && !deadLetters.isEmpty()) {
+            drained.add(deadLetters.pollFirst());
+        }
+        return drained;
+    }
+
+    @Override
+    public synchronized int size() {
+        return deadLetters.size();
+    }
+
+    @Override
+    public synchronized long getDroppedCount() {
+        return droppedCount;
+    }
+}
@@ -0,0 +1,136 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.writer.impl;
+
+import club.cookbean.sparrow.operation.SingleOperation;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Desc: Bounded lock-free ring of write behind operations, offered by any thread and polled by a single consumer. <br>
+ * A producer claims a slot by a CAS on the producer index, then publishes its operation with an ordered store;
+ * the consumer waits for a claimed slot to be published, clears it and moves the consumer index. Slots are
+ * preallocated, offering an operation allocates nothing.
+ */
+class MpscOperationRing {
+
+    private final int limit;
+    private final int mask;
+    private final AtomicReferenceArray<SingleOperation> operations;
+    // written by the producer before it publishes the operation of the slot
+    private final long[] sequences;
+    // enqueue times, null when the ring is not timed
+    private final long[] timestamps;
+    private final AtomicLong producerIndex = new AtomicLong();
+    // only moved by the consumer
+    private final AtomicLong consumerIndex = new AtomicLong();
+
+    /**
+     * @param limit maximum operations in the ring
+     */
+    MpscOperationRing(int limit) {
+        this(limit, false);
+    }
+
+    /**
+     * @param limit maximum operations in the ring
+     * @param timed whether the enqueue time of the operations is kept
+     */
+    MpscOperationRing(int limit, boolean timed) {
+        int capacity = Integer.highestOneBit(limit);
+        if (capacity < limit) {
+            capacity <<= 1;
+        }
+        this.limit = limit;
+        this.mask = capacity - 1;
+        this.operations = new AtomicReferenceArray<>(capacity);
+        this.sequences = new long[capacity];
+        this.timestamps = timed ? new long[capacity] : null;
+    }
+
+    /**
+     * @return false if the ring is full
+     */
+    boolean offer(SingleOperation operation, long sequence) {
+        while (true) {
+            long index = producerIndex.get();
+            if (index - consumerIndex.get() >= limit) {
+                return false;
+            }
+            if (producerIndex.compareAndSet(index, index + 1)) {
+                int slot = (int) index & mask;
+                sequences[slot] = sequence;
+                if (null != timestamps) {
+                    timestamps[slot] = System.nanoTime();
+                }
+                operations.lazySet(slot, operation);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Consumer only
+     * @return the oldest operation, null if the ring is empty
+     */
+    SingleOperation peek() {
+        long index = consumerIndex.get();
+        if (index == producerIndex.get()) {
+            return null;
+        }
+        int slot = (int) index & mask;
+        SingleOperation operation;
+        // claimed, about to be published
+        while (null == (operation = operations.get(slot))) {
+            Thread.yield();
+        }
+        return operation;
+    }
+
+    /**
+     * Consumer only, to be called after {@link #peek()} returned an operation
+     * @return the sequence of the removed operation
+     */
+    long remove() {
+        long index = consumerIndex.get();
+        int slot = (int) index & mask;
+        long sequence = sequences[slot];
+        operations.lazySet(slot, null);
+        consumerIndex.lazySet(index + 1);
+        return sequence;
+    }
+
+    /**
+     * Consumer only, to be called after {@link #peek()} returned an operation
+     * @return the {@link System#nanoTime()} the peeked operation was offered at, 0 if the ring is not timed
+     */
+    long enqueueTime() {
+        if (null == timestamps) {
+            return 0;
+        }
+        return timestamps[(int) consumerIndex.get() & mask];
+    }
+
+    int limit() {
+        return limit;
+    }
+
+    int size() {
+        // the consumer index first, so the size is never negative
+        long consumed = consumerIndex.get();
+        return (int) (producerIndex.get() - consumed);
+    }
+}
@@ -14,6 +14,7 @@
  */
 package club.cookbean.sparrow.writer.impl;
 
+import club.cookbean.sparrow.config.BackpressureConfiguration;
 import club.cookbean.sparrow.config.WriteBehindConfiguration;
 import club.cookbean.sparrow.operation.SingleOperation;
 import club.cookbean.sparrow.service.ExecutionService;
@@ -28,56 +29,175 @@ public class NonBatchingWriteBehindQueue extends AbstractWriteBehind {
     private static final Logger LOGGER = LoggerFactory.getLogger(NonBatchingWriteBehindQueue.class);
 
     private final CacheWriter cacheWriter;
-    private final ConcurrentMap<String, SingleOperation> latest = new ConcurrentHashMap<>();
+    // operations of the keys waiting in the queue, with the drop oldest policy only
+    private final ConcurrentMap<String, PendingOperation> queued;
+    // room left for operations, retries are queued regardless
+    private final Semaphore room;
     private final BlockingQueue<Runnable> executorQueue;
     private final ExecutorService executor;
+    private final ScheduledExecutorService scheduledExecutor;
 
     public NonBatchingWriteBehindQueue(ExecutionService executionService,
                                        String defaultThreadPool,
                                        WriteBehindConfiguration config,
                                        CacheWriter cacheWriter) {
-        super(cacheWriter);
+        this(executionService, defaultThreadPool, config, cacheWriter, null, null);
+    }
+
+    public NonBatchingWriteBehindQueue(ExecutionService executionService,
+                                       String defaultThreadPool,
+                                       WriteBehindConfiguration config,
+                                       CacheWriter cacheWriter,
+                                       WriteBehindJournal journal,
+                                       WriteBehindRetry retry) {
+        this(executionService, defaultThreadPool, config, cacheWriter, journal, retry, null);
+    }
+
+    public NonBatchingWriteBehindQueue(ExecutionService executionService,
+                                       String defaultThreadPool,
+                                       WriteBehindConfiguration config,
+                                       CacheWriter cacheWriter,
+                                       WriteBehindJournal journal,
+                                       WriteBehindRetry retry,
+                                       WriteBehindBackpressure backpressure) {
+        super(cacheWriter, journal, retry, backpressure);
         this.cacheWriter = cacheWriter;
-        this.executorQueue = new LinkedBlockingQueue<>(config.getMaxQueueSize());
+        this.queued = null != backpressure && backpressure.getPolicy() == BackpressureConfiguration.Policy.DROP_OLDEST
+                ? new ConcurrentHashMap<String, PendingOperation>() : null;
+        this.room = new Semaphore(config.getMaxQueueSize());
+        this.executorQueue = new LinkedBlockingQueue<>();
         if (config.getThreadPoolAlias() == null) {
             this.executor = executionService.getOrderedExecutor(defaultThreadPool, executorQueue);
         } else {
             this.executor = executionService.getOrderedExecutor(config.getThreadPoolAlias(), executorQueue);
         }
+        if (null == retry) {
+            this.scheduledExecutor = null;
+        } else if (config.getThreadPoolAlias() == null) {
+            this.scheduledExecutor = executionService.getScheduledExecutor(defaultThreadPool);
+        } else {
+            this.scheduledExecutor = executionService.getScheduledExecutor(config.getThreadPoolAlias());
+        }
     }
 
     @Override
-    protected SingleOperation getOperation(String key) {
-        return latest.get(key);
+    protected boolean offerOperation(SingleOperation operation, long sequence, long timeoutNanos) {
+        if (!acquireRoom(timeoutNanos)) {
+            return false;
+        }
+        latest.put(operation.getKey(), operation);
+        final PendingOperation pending = new PendingOperation(operation, sequence);
+        if (null != queued) {
+            queued.put(operation.getKey(), pending);
+        }
+
+        try {
+            submit(new Runnable() {
+
+                @Override
+                public void run() {
+                    room.release();
+                    if (null != queued) {
+                        queued.remove(pending.getKey(), pending);
+                    }
+                    SingleOperation operation = pending.take();
+                    perform(operation, pending.getSequence(), 1);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            room.release();
+            throw e;
+        }
+        return true;
     }
 
     @Override
-    protected void addOperation(final SingleOperation operation) {
-        latest.put(operation.getKey(), operation);
+    protected boolean replaceOperation(SingleOperation operation, long sequence) {
+        PendingOperation pending = null == queued ? null : queued.get(operation.getKey());
+        if (null == pending) {
+            return false;
+        }
+        SingleOperation previous = latest.put(operation.getKey(), operation);
+        long replaced = pending.replace(operation, sequence);
+        if (PendingOperation.NOT_REPLACED == replaced) {
+            restoreLatest(operation, previous);
+            return false;
+        }
+        // the newer operation is journaled, the replaced one is not to be replayed
+        committed(replaced);
+        return true;
+    }
 
-        submit(new Runnable() {
+    private boolean acquireRoom(long timeoutNanos) {
+        if (Long.MAX_VALUE == timeoutNanos) {
+            room.acquireUninterruptibly();
+            return true;
+        }
+        try {
+            return room.tryAcquire(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
 
-            @Override
-            public void run() {
-                try {
-                    operation.performOperation(cacheWriter);
-                } catch (Exception e) {
-                    LOGGER.warn("Exception while processing key '{}' write behind queue : {}", operation.getKey(), e);
-                } finally {
-                    latest.remove(operation.getKey(), operation);
-                }
+    private void perform(final SingleOperation operation, final long sequence, final int attempts) {
+        if (attempts > 1 && latest.get(operation.getKey()) != operation) {
+            // superseded while waiting for the retry, the newer operation writes the key
+            committed(sequence);
+            return;
+        }
+        try {
+            operation.performOperation(cacheWriter);
+            committed(operation.getKey(), sequence);
+        } catch (final Exception e) {
+            LOGGER.warn("Exception while processing key '{}' write behind queue : {}", operation.getKey(), e);
+            long delay = retryDelay(attempts, e);
+            if (delay >= 0 && scheduleRetry(operation, sequence, attempts, e, delay)) {
+                return;
             }
-        });
+            deadLetter(operation, sequence, e, attempts);
+        }
+        latest.remove(operation.getKey(), operation);
     }
 
-    @Override
-    public void start() {
-        //no-op
+    private boolean scheduleRetry(final SingleOperation operation, final long sequence, final int attempts,
+                                  final Exception failure, long delay) {
+        try {
+            scheduledExecutor.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        submit(new Runnable() {
+                            @Override
+                            public void run() {
+                                perform(operation, sequence, attempts + 1);
+                            }
+                        });
+                    } catch (RejectedExecutionException e) {
+                        deadLetter(operation, sequence, failure, attempts);
+                        latest.remove(operation.getKey(), operation);
+                    }
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (RejectedExecutionException e) {
+            // stopping
+            return false;
+        }
     }
 
     @Override
     public void stop() {
-        ExecutorUtil.shutdown(executor);
+        try {
+            if (null != scheduledExecutor) {
+                // pending retries get one last attempt
+                ExecutorUtil.shutdownNow(scheduledExecutor);
+            }
+            ExecutorUtil.shutdown(executor);
+        } finally {
+            closeJournal();
+        }
     }
 
     private void submit(Runnable operation) {
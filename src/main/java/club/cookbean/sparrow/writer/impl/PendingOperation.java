@@ -0,0 +1,84 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.writer.impl;
+
+import club.cookbean.sparrow.operation.SingleOperation;
+import club.cookbean.sparrow.writer.CacheWriter;
+
+/**
+ * Desc: An operation waiting in a write behind queue. Until the queue takes it, a newer operation of the same key
+ * can take its place, see {@link club.cookbean.sparrow.config.BackpressureConfiguration.Policy#DROP_OLDEST}.
+ */
+final class PendingOperation implements SingleOperation {
+
+    static final long NOT_REPLACED = Long.MIN_VALUE;
+
+    private final String key;
+    // guarded by this
+    private SingleOperation operation;
+    private long sequence;
+    private boolean taken;
+
+    PendingOperation(SingleOperation operation, long sequence) {
+        this.key = operation.getKey();
+        this.operation = operation;
+        this.sequence = sequence;
+    }
+
+    /**
+     * @param newer newer operation of the key
+     * @param newerSequence journal sequence of the newer operation
+     * @return the journal sequence of the replaced operation, {@link #NOT_REPLACED} if already taken
+     */
+    synchronized long replace(SingleOperation newer, long newerSequence) {
+        if (taken) {
+            return NOT_REPLACED;
+        }
+        long replaced = sequence;
+        operation = newer;
+        sequence = newerSequence;
+        return replaced;
+    }
+
+    /**
+     * @return the operation to perform, it can no longer be replaced
+     */
+    synchronized SingleOperation take() {
+        taken = true;
+        return operation;
+    }
+
+    /**
+     * @return the journal sequence of the taken operation
+     */
+    synchronized long getSequence() {
+        return sequence;
+    }
+
+    @Override
+    public String getKey() {
+        return key;
+    }
+
+    @Override
+    public synchronized long getCreationTime() {
+        return operation.getCreationTime();
+    }
+
+    @Override
+    public void performOperation(CacheWriter cacheWriter) throws Exception {
+        take().performOperation(cacheWriter);
+    }
+}
@@ -15,13 +15,17 @@
 package club.cookbean.sparrow.writer.impl;
 
 
+import club.cookbean.sparrow.config.JournalConfiguration;
 import club.cookbean.sparrow.config.WriteBehindConfiguration;
 import club.cookbean.sparrow.exception.BulkCacheWritingException;
 import club.cookbean.sparrow.redis.Cacheable;
 import club.cookbean.sparrow.service.ExecutionService;
+import club.cookbean.sparrow.writer.BackpressureStatistics;
 import club.cookbean.sparrow.writer.CacheWriter;
+import club.cookbean.sparrow.writer.DeadLetterQueue;
 import club.cookbean.sparrow.writer.WriteBehind;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map.Entry;
@@ -34,21 +38,46 @@ public class StripedWriteBehind implements WriteBehind {
   private final ReentrantReadWriteLock.WriteLock writeLock = rwLock.writeLock();
 
   private final List<WriteBehind> stripes = new ArrayList<>();
+  private final WriteBehindRetry retry;
+  private final WriteBehindBackpressure backpressure;
 
   public StripedWriteBehind(ExecutionService executionService,
                             String defaultThreadPool,
                             WriteBehindConfiguration config,
                             CacheWriter cacheWriter) {
     int writeBehindConcurrency = config.getConcurrency();
+    JournalConfiguration journalConfig = config.getJournalConfiguration();
+    this.retry = config.getRetryConfiguration() == null ? null : new WriteBehindRetry(config.getRetryConfiguration());
+    this.backpressure = config.getBackpressureConfiguration() == null ? null : new WriteBehindBackpressure(config.getBackpressureConfiguration());
     for (int i = 0; i < writeBehindConcurrency; i++) {
+      // a key is replayed by the stripe that journaled it, keep the concurrency across restarts
+      WriteBehindJournal journal = null;
+      if (journalConfig != null) {
+        journal = new WriteBehindJournal(new File(journalConfig.getDirectory(), "stripe-" + i),
+                journalConfig.getSegmentSize(), "write-behind-journal-" + i);
+      }
       if (config.getBatchingConfiguration() == null) {
-        this.stripes.add(new NonBatchingWriteBehindQueue(executionService, defaultThreadPool, config, cacheWriter));
+        this.stripes.add(new NonBatchingWriteBehindQueue(executionService, defaultThreadPool, config, cacheWriter, journal, retry, backpressure));
       } else {
-        this.stripes.add(new BatchingWriteBehindQueue(executionService, defaultThreadPool, config, cacheWriter));
+        this.stripes.add(new BatchingWriteBehindQueue(executionService, defaultThreadPool, config, cacheWriter, journal, retry, backpressure));
       }
     }
   }
 
+  /**
+   * @return the operations given up by all the stripes, null without retry configuration
+   */
+  public DeadLetterQueue getDeadLetters() {
+    return retry == null ? null : retry.getDeadLetters();
+  }
+
+  /**
+   * @return the counters of the writes finding a full queue in any stripe, null without backpressure configuration
+   */
+  public BackpressureStatistics getBackpressureStatistics() {
+    return backpressure;
+  }
+
   private WriteBehind getStripe(final Object key) {
     return stripes.get(Math.abs(key.hashCode() % stripes.size()));
   }
@@ -56,10 +85,17 @@ public class StripedWriteBehind implements WriteBehind {
   @Override
   public void start() {
     writeLock.lock();
+    int started = 0;
     try {
       for (WriteBehind queue : stripes) {
         queue.start();
+        started++;
+      }
+    } catch (RuntimeException e) {
+      for (WriteBehind queue : stripes.subList(0, started)) {
+        queue.stop();
       }
+      throw e;
     } finally {
       writeLock.unlock();
     }
@@ -0,0 +1,107 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.writer.impl;
+
+import club.cookbean.sparrow.config.BackpressureConfiguration;
+import club.cookbean.sparrow.writer.BackpressureStatistics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Desc: Overflow policy of the write behind queues, shared by the stripes of a cache along with its counters.
+ */
+public class WriteBehindBackpressure implements BackpressureStatistics {
+
+    private final BackpressureConfiguration config;
+    private final long timeoutNanos;
+
+    private final AtomicLong blocked = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong callerRuns = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong shed = new AtomicLong();
+
+    public WriteBehindBackpressure(BackpressureConfiguration config) {
+        this.config = config;
+        this.timeoutNanos = config.getTimeout() == Long.MAX_VALUE
+                ? Long.MAX_VALUE : config.getTimeoutUnit().toNanos(config.getTimeout());
+    }
+
+    BackpressureConfiguration.Policy getPolicy() {
+        return config.getPolicy();
+    }
+
+    /**
+     * @return the maximum wait for room in nanoseconds, {@link Long#MAX_VALUE} without limit
+     */
+    long getTimeoutNanos() {
+        return timeoutNanos;
+    }
+
+    void blocked() {
+        blocked.incrementAndGet();
+    }
+
+    void timedOut() {
+        timeouts.incrementAndGet();
+    }
+
+    void rejected() {
+        rejected.incrementAndGet();
+    }
+
+    void callerRan() {
+        callerRuns.incrementAndGet();
+    }
+
+    void dropped() {
+        dropped.incrementAndGet();
+    }
+
+    void shed() {
+        shed.incrementAndGet();
+    }
+
+    @Override
+    public long getBlockedCount() {
+        return blocked.get();
+    }
+
+    @Override
+    public long getTimeoutCount() {
+        return timeouts.get();
+    }
+
+    @Override
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    @Override
+    public long getCallerRunsCount() {
+        return callerRuns.get();
+    }
+
+    @Override
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    @Override
+    public long getShedCount() {
+        return shed.get();
+    }
+}
@@ -0,0 +1,565 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.writer.impl;
+
+import club.cookbean.sparrow.operation.SingleOperation;
+import club.cookbean.sparrow.operation.impl.DeleteOperation;
+import club.cookbean.sparrow.operation.impl.WriteOperation;
+import club.cookbean.sparrow.redis.BinaryCacheable;
+import club.cookbean.sparrow.redis.Cacheable;
+import club.cookbean.sparrow.util.ThreadFactoryUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.Charset;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * Desc: Append-only journal of the operations of one write behind queue, on memory-mapped segment files. <br>
+ * {@link #append(SingleOperation)} returns once the operation is on disk; appenders arriving while a sync
+ * is running share the next one (group commit). {@link #commit(long)} records an operation as written by
+ * the {@link club.cookbean.sparrow.writer.CacheWriter}, it is not synced by itself, a lost commit only makes
+ * the operation be written once more. A segment is deleted when it and all the older ones only hold committed
+ * operations. <br>
+ * {@link #open(Replay)} hands the operations never committed to the queue again, in their original order.
+ * A record is {@code [length][crc32][type][sequence][fields]}, a torn or zeroed record ends a segment.
+ */
+public class WriteBehindJournal {
+    private static final Logger LOGGER = LoggerFactory.getLogger(WriteBehindJournal.class);
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final String SEGMENT_SUFFIX = ".segment";
+    private static final String LOCK_FILE = "journal.lock";
+    // length and crc32
+    private static final int RECORD_HEADER = 8;
+    // type and sequence
+    private static final int PAYLOAD_HEADER = 9;
+
+    private static final byte WRITE = 1;
+    private static final byte WRITE_BINARY = 2;
+    private static final byte DELETE = 3;
+    private static final byte COMMIT = 4;
+
+    /**
+     * Receiver of the operations recovered on open
+     */
+    public interface Replay {
+
+        void replay(SingleOperation operation, long sequence);
+    }
+
+    private final File directory;
+    private final int segmentSize;
+    private final String name;
+
+    // guards all the fields below, appenders wait on it for the syncer
+    private final Object lock = new Object();
+    private final ArrayDeque<Segment> segments = new ArrayDeque<>();
+    private final Map<Long, Segment> pendingSegments = new HashMap<>();
+    private final CRC32 crc = new CRC32();
+    private Segment active;
+    private long nextSequence;
+    private long nextSegmentIndex;
+    // bytes appended and bytes synced over all segments
+    private long appended;
+    private long synced;
+    private RuntimeException syncFailure;
+    private boolean running;
+    private Thread syncer;
+    private RandomAccessFile lockFile;
+    private FileLock fileLock;
+
+    public WriteBehindJournal(File directory, int segmentSize, String name) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.name = name;
+    }
+
+    /**
+     * Recover the journal and start appending to a new segment
+     * @param replay receiver of the uncommitted operations
+     * @throws IOException if the directory cannot be used
+     */
+    public void open(Replay replay) throws IOException {
+        SortedMap<Long, SingleOperation> recovered = new TreeMap<>();
+        synchronized (lock) {
+            if (running) {
+                throw new IllegalStateException("Journal " + directory + " is already open");
+            }
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                throw new IOException("Cannot create journal directory " + directory);
+            }
+            lockDirectory();
+            try {
+                recover(recovered);
+                active = newSegment(segmentSize);
+            } catch (IOException e) {
+                closeSegments();
+                throw e;
+            }
+            running = true;
+            syncer = ThreadFactoryUtil.threadFactory(name).newThread(new Syncer());
+            syncer.setDaemon(true);
+            syncer.start();
+        }
+        if (!recovered.isEmpty()) {
+            LOGGER.info("Replay {} write behind operations from journal {}", recovered.size(), directory);
+        }
+        for (Map.Entry<Long, SingleOperation> entry : recovered.entrySet()) {
+            replay.replay(entry.getValue(), entry.getKey());
+        }
+    }
+
+    /**
+     * Append an operation and wait until it is synced to disk
+     * @param operation write or delete operation
+     * @return the sequence of the operation, to {@link #commit(long)} it
+     * @throws IOException if the journal is closed or cannot be synced
+     */
+    public long append(SingleOperation operation) throws IOException {
+        byte[] payload = encode(operation);
+        boolean interrupted = false;
+        try {
+            synchronized (lock) {
+                if (!running) {
+                    throw new IOException("Journal " + directory + " is closed");
+                }
+                long sequence = nextSequence++;
+                long end = write(payload, sequence);
+                Segment segment = active;
+                pendingSegments.put(sequence, segment);
+                segment.pending++;
+                lock.notifyAll();
+                while (synced < end) {
+                    if (null != syncFailure) {
+                        // the caller fails the write, don't replay it
+                        pendingSegments.remove(sequence);
+                        segment.pending--;
+                        throw new IOException("Sync of journal " + directory + " fail", syncFailure);
+                    }
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+                return sequence;
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Record an operation as written
+     * @param sequence sequence returned by {@link #append(SingleOperation)} or handed to the {@link Replay}
+     */
+    public void commit(long sequence) {
+        synchronized (lock) {
+            if (!running) {
+                return;
+            }
+            Segment segment = pendingSegments.remove(sequence);
+            if (null == segment) {
+                return;
+            }
+            byte[] payload = new byte[PAYLOAD_HEADER];
+            payload[0] = COMMIT;
+            try {
+                write(payload, sequence);
+                lock.notifyAll();
+            } catch (IOException e) {
+                LOGGER.warn("Commit of operation {} to journal {} fail, it will be replayed", sequence, directory, e);
+            }
+            segment.pending--;
+            deleteCommittedSegments();
+        }
+    }
+
+    /**
+     * Sync what was appended and release the segments, uncommitted operations are kept for the next open
+     */
+    public void close() {
+        Thread syncerToJoin;
+        synchronized (lock) {
+            if (!running) {
+                return;
+            }
+            running = false;
+            lock.notifyAll();
+            syncerToJoin = syncer;
+        }
+        boolean interrupted = false;
+        while (syncerToJoin.isAlive()) {
+            try {
+                syncerToJoin.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        synchronized (lock) {
+            closeSegments();
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return the count of appended operations not committed yet
+     */
+    public int getPendingCount() {
+        synchronized (lock) {
+            return pendingSegments.size();
+        }
+    }
+
+    // ++++++++++++++++++++++++++++ segments ++++++++++++++++++++++++++++
+
+    private void lockDirectory() throws IOException {
+        lockFile = new RandomAccessFile(new File(directory, LOCK_FILE), "rw");
+        try {
+            fileLock = lockFile.getChannel().tryLock();
+        } catch (OverlappingFileLockException e) {
+            fileLock = null;
+        }
+        if (null == fileLock) {
+            lockFile.close();
+            throw new IOException("Journal directory " + directory + " is used by another cache");
+        }
+    }
+
+    private void recover(SortedMap<Long, SingleOperation> recovered) throws IOException {
+        File[] files = directory.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.endsWith(SEGMENT_SUFFIX);
+            }
+        });
+        SortedMap<Long, File> segmentFiles = new TreeMap<>();
+        for (File file : null == files ? new File[0] : files) {
+            String fileName = file.getName();
+            try {
+                segmentFiles.put(Long.parseLong(fileName.substring(0, fileName.length() - SEGMENT_SUFFIX.length())), file);
+            } catch (NumberFormatException e) {
+                LOGGER.warn("Ignore unknown file {} in journal {}", fileName, directory);
+            }
+        }
+
+        Map<Long, Segment> owners = new HashMap<>();
+        for (Map.Entry<Long, File> entry : segmentFiles.entrySet()) {
+            Segment segment = new Segment(entry.getValue(), entry.getValue().length());
+            segments.add(segment);
+            nextSegmentIndex = entry.getKey() + 1;
+            ByteBuffer buffer = segment.buffer;
+            while (buffer.remaining() >= RECORD_HEADER + PAYLOAD_HEADER) {
+                int length = buffer.getInt();
+                int checksum = buffer.getInt();
+                if (length < PAYLOAD_HEADER || length > buffer.remaining()) {
+                    break;
+                }
+                byte[] payload = new byte[length];
+                buffer.get(payload);
+                crc.reset();
+                crc.update(payload, 0, length);
+                if ((int) crc.getValue() != checksum) {
+                    LOGGER.warn("Torn record in journal segment {}, skip the rest of it", entry.getValue());
+                    break;
+                }
+                ByteBuffer record = ByteBuffer.wrap(payload);
+                byte type = record.get();
+                long sequence = record.getLong();
+                nextSequence = Math.max(nextSequence, sequence + 1);
+                if (COMMIT == type) {
+                    recovered.remove(sequence);
+                    owners.remove(sequence);
+                } else {
+                    recovered.put(sequence, decode(type, record));
+                    owners.put(sequence, segment);
+                }
+            }
+        }
+        for (Map.Entry<Long, Segment> owner : owners.entrySet()) {
+            pendingSegments.put(owner.getKey(), owner.getValue());
+            owner.getValue().pending++;
+        }
+        deleteCommittedSegments();
+    }
+
+    private Segment newSegment(int size) throws IOException {
+        long index = nextSegmentIndex++;
+        Segment segment = new Segment(new File(directory, String.format("%020d", index) + SEGMENT_SUFFIX), size);
+        segments.add(segment);
+        return segment;
+    }
+
+    /**
+     * Write a record to the active segment, rolling to a new one if it does not fit
+     * @return the appended position right after the record
+     */
+    private long write(byte[] payload, long sequence) throws IOException {
+        ByteBuffer.wrap(payload).putLong(1, sequence);
+        int recordSize = RECORD_HEADER + payload.length;
+        if (active.buffer.remaining() < recordSize) {
+            // the full segment is synced here, the syncer only ever syncs the active one
+            active.buffer.force();
+            synced = appended;
+            lock.notifyAll();
+            active = newSegment(Math.max(segmentSize, recordSize));
+            deleteCommittedSegments();
+        }
+        crc.reset();
+        crc.update(payload, 0, payload.length);
+        active.buffer.putInt(payload.length).putInt((int) crc.getValue()).put(payload);
+        appended += recordSize;
+        return appended;
+    }
+
+    private void deleteCommittedSegments() {
+        while (!segments.isEmpty() && segments.peekFirst() != active && 0 == segments.peekFirst().pending) {
+            segments.pollFirst().delete();
+        }
+    }
+
+    private void closeSegments() {
+        for (Segment segment : segments) {
+            segment.close();
+        }
+        segments.clear();
+        pendingSegments.clear();
+        active = null;
+        try {
+            if (null != fileLock) {
+                fileLock.release();
+            }
+            lockFile.close();
+        } catch (IOException e) {
+            LOGGER.warn("Release lock of journal {} fail", directory, e);
+        }
+    }
+
+    private class Syncer implements Runnable {
+
+        @Override
+        public void run() {
+            while (true) {
+                Segment segment;
+                long target;
+                synchronized (lock) {
+                    while (running && appended == synced) {
+                        try {
+                            lock.wait();
+                        } catch (InterruptedException e) {
+                            // check running
+                        }
+                    }
+                    if (appended == synced) {
+                        return;
+                    }
+                    segment = active;
+                    target = appended;
+                }
+                RuntimeException failure = null;
+                try {
+                    segment.buffer.force();
+                } catch (RuntimeException e) {
+                    LOGGER.error("Sync of journal {} fail", directory, e);
+                    failure = e;
+                }
+                synchronized (lock) {
+                    syncFailure = failure;
+                    if (null == failure) {
+                        synced = Math.max(synced, target);
+                    }
+                    lock.notifyAll();
+                    if (null != failure && !running) {
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    private static class Segment {
+        private final File file;
+        private final MappedByteBuffer buffer;
+        // operations appended to this segment and not committed yet
+        private int pending;
+
+        Segment(File file, long size) throws IOException {
+            this.file = file;
+            RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+            try {
+                if (randomAccessFile.length() < size) {
+                    randomAccessFile.setLength(size);
+                }
+                // the mapping stays valid once the channel is closed
+                this.buffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+            } finally {
+                randomAccessFile.close();
+            }
+        }
+
+        void close() {
+            try {
+                buffer.force();
+            } catch (RuntimeException e) {
+                LOGGER.warn("Sync of journal segment {} fail", file, e);
+            }
+        }
+
+        void delete() {
+            if (!file.delete()) {
+                LOGGER.warn("Delete journal segment {} fail", file);
+            }
+        }
+    }
+
+    // ++++++++++++++++++++++++++++ codec ++++++++++++++++++++++++++++
+
+    private static byte[] encode(SingleOperation operation) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        DataOutputStream out = new DataOutputStream(bytes);
+        if (operation instanceof WriteOperation) {
+            Cacheable value = ((WriteOperation) operation).getValue();
+            boolean binary = value instanceof BinaryCacheable;
+            out.writeByte(binary ? WRITE_BINARY : WRITE);
+            // sequence, set under the lock
+            out.writeLong(0);
+            writeString(out, operation.getKey());
+            writeString(out, value.getKey());
+            writeBytes(out, binary ? ((BinaryCacheable) value).getBytes() : toBytes(value.getValue()));
+            out.writeLong(value.getExpireTime());
+            out.writeLong(value.getCreationTime());
+        } else if (operation instanceof DeleteOperation) {
+            out.writeByte(DELETE);
+            out.writeLong(0);
+            writeString(out, operation.getKey());
+            out.writeLong(operation.getCreationTime());
+        } else {
+            throw new IllegalArgumentException("Cannot journal operation " + operation.getClass().getName());
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static SingleOperation decode(byte type, ByteBuffer record) throws IOException {
+        switch (type) {
+            case WRITE:
+            case WRITE_BINARY:
+                String key = readString(record);
+                String valueKey = readString(record);
+                byte[] value = readBytes(record);
+                long expireTime = record.getLong();
+                long creationTime = record.getLong();
+                return new WriteOperation(key, WRITE_BINARY == type
+                        ? new JournaledBinaryValue(valueKey, value, expireTime, creationTime)
+                        : new JournaledValue(valueKey, null == value ? null : new String(value, UTF_8), expireTime, creationTime));
+            case DELETE:
+                return new DeleteOperation(readString(record), record.getLong());
+            default:
+                throw new IOException("Unknown journal record type " + type);
+        }
+    }
+
+    private static byte[] toBytes(String value) {
+        return null == value ? null : value.getBytes(UTF_8);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        writeBytes(out, toBytes(value));
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] value) throws IOException {
+        if (null == value) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(value.length);
+            out.write(value);
+        }
+    }
+
+    private static String readString(ByteBuffer record) {
+        byte[] bytes = readBytes(record);
+        return null == bytes ? null : new String(bytes, UTF_8);
+    }
+
+    private static byte[] readBytes(ByteBuffer record) {
+        int length = record.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        record.get(bytes);
+        return bytes;
+    }
+
+    private static class JournaledValue implements Cacheable {
+        private final String key;
+        private final String value;
+        private final long expireTime;
+        private final long creationTime;
+
+        JournaledValue(String key, String value, long expireTime, long creationTime) {
+            this.key = key;
+            this.value = value;
+            this.expireTime = expireTime;
+            this.creationTime = creationTime;
+        }
+
+        @Override
+        public long getExpireTime() {
+            return expireTime;
+        }
+
+        @Override
+        public long getCreationTime() {
+            return creationTime;
+        }
+
+        @Override
+        public String getValue() {
+            return value;
+        }
+
+        @Override
+        public String getKey() {
+            return key;
+        }
+    }
+
+    private static class JournaledBinaryValue extends JournaledValue implements BinaryCacheable {
+        private final byte[] bytes;
+
+        JournaledBinaryValue(String key, byte[] bytes, long expireTime, long creationTime) {
+            super(key, null, expireTime, creationTime);
+            this.bytes = bytes;
+        }
+
+        @Override
+        public byte[] getBytes() {
+            return bytes;
+        }
+    }
+}
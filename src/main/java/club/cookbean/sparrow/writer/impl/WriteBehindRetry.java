@@ -0,0 +1,78 @@
+/* Copyright 2017 Bennett Dong. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package club.cookbean.sparrow.writer.impl;
+
+import club.cookbean.sparrow.config.RetryConfiguration;
+import club.cookbean.sparrow.operation.SingleOperation;
+import club.cookbean.sparrow.writer.DeadLetter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Desc: Retry policy of the write behind queues, shared by the stripes of a cache along with its dead letter queue.
+ */
+public class WriteBehindRetry {
+    private static final Logger LOGGER = LoggerFactory.getLogger(WriteBehindRetry.class);
+
+    private final RetryConfiguration config;
+    private final BoundedDeadLetterQueue deadLetters;
+
+    public WriteBehindRetry(RetryConfiguration config) {
+        this.config = config;
+        this.deadLetters = new BoundedDeadLetterQueue(config.getDeadLetterCapacity());
+    }
+
+    public BoundedDeadLetterQueue getDeadLetters() {
+        return deadLetters;
+    }
+
+    /**
+     * @param attempts attempts made so far
+     * @param failure exception of the last attempt
+     * @return the delay in millisecond before the next attempt, negative to give up
+     */
+    long delayMillis(int attempts, Exception failure) {
+        if (attempts >= config.getMaxAttempts() || !isRetryable(failure)) {
+            return -1;
+        }
+        double delay = config.getDelayUnit().toMillis(config.getInitialDelay()) * Math.pow(config.getMultiplier(), attempts - 1);
+        delay = Math.min(delay, config.getDelayUnit().toMillis(config.getMaxDelay()));
+        return (long) (delay * (1 - config.getJitter() * ThreadLocalRandom.current().nextDouble()));
+    }
+
+    void deadLetter(SingleOperation operation, Exception failure, int attempts) {
+        LOGGER.warn("Give up write behind of key '{}' after {} attempt(s)", operation.getKey(), attempts, failure);
+        deadLetters.add(new DeadLetter(operation, failure, attempts));
+    }
+
+    private boolean isRetryable(Exception failure) {
+        if (config.getRetryableExceptions().isEmpty()) {
+            return true;
+        }
+        for (Throwable cause = failure; null != cause; cause = cause.getCause()) {
+            for (Class<? extends Exception> retryable : config.getRetryableExceptions()) {
+                if (retryable.isInstance(cause)) {
+                    return true;
+                }
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,73 @@
+package club.cookbean.sparrow.test.cluster;
+
+import club.cookbean.sparrow.builder.CacheConfigurationBuilder;
+import club.cookbean.sparrow.builder.CacheManagerBuilder;
+import club.cookbean.sparrow.builder.RedisConnectorBuilder;
+import club.cookbean.sparrow.builder.RedisResourceBuilder;
+import club.cookbean.sparrow.cache.Cache;
+import club.cookbean.sparrow.cache.CacheManager;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import redis.clients.jedis.HostAndPort;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static club.cookbean.sparrow.test.db.Cacheables.newValue;
+
+/**
+ * Desc: RedisCache with cluster nodes.
+ */
+public class RedisClusterCacheTest {
+
+    private static CacheManager cacheManager;
+    private static Cache clusterCache;
+
+    @BeforeClass
+    public static void beforeClass() {
+        // cache manager
+        cacheManager = CacheManagerBuilder.newCacheManagerBuilder()
+                .build();
+        cacheManager.init();
+
+        // cluster redis nodes
+        List<HostAndPort> nodes = new ArrayList<>();
+        for (int port = 7000; port <= 7005; port++) {
+            nodes.add(new HostAndPort("127.0.0.1", port));
+        }
+        clusterCache = cacheManager.createCache("ClusterCache",
+                CacheConfigurationBuilder.newCacheConfigurationBuilder(
+                        RedisResourceBuilder.newRedisResourceBuilder().cluster(nodes, false),
+                        RedisConnectorBuilder.newRedisConnectorBuilder().cluster()
+                                .name("test")
+                                .prefix("prefix")
+                                .maxAttempts(3)
+                                .pool(20, 5, 1, 1000)
+                )
+        );
+    }
+
+    @Test
+    public void testSetAndGet() {
+        String plaintKey = "name";
+        clusterCache.set(plaintKey, newValue("{\"name\": \"Bennett\"}"));
+
+        String strValue = clusterCache.get(plaintKey);
+        Assert.assertTrue(strValue.contains("Bennett"));
+    }
+
+    @Test
+    public void testDeleteAcrossSlots() {
+        String[] keys = new String[10];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = "slot-" + i;
+            clusterCache.set(keys[i], newValue("value-" + i));
+        }
+
+        clusterCache.delete(keys);
+        for (String key : keys) {
+            Assert.assertFalse(clusterCache.exist(key));
+        }
+    }
+}
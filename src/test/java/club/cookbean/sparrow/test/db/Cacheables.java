@@ -0,0 +1,42 @@
+package club.cookbean.sparrow.test.db;
+
+import club.cookbean.sparrow.redis.Cacheable;
+
+/**
+ * Desc: Values handed to the caches and writers under test, the value doubles as the set member.
+ */
+public final class Cacheables {
+
+    public static final long DEFAULT_TTL = 3600 * 1000;
+
+    private Cacheables() {
+    }
+
+    public static Cacheable newValue(String value) {
+        return newValue(value, DEFAULT_TTL);
+    }
+
+    public static Cacheable newValue(final String value, final long ttl) {
+        return new Cacheable() {
+            @Override
+            public long getExpireTime() {
+                return ttl;
+            }
+
+            @Override
+            public long getCreationTime() {
+                return System.currentTimeMillis();
+            }
+
+            @Override
+            public String getValue() {
+                return value;
+            }
+
+            @Override
+            public String getKey() {
+                return value;
+            }
+        };
+    }
+}
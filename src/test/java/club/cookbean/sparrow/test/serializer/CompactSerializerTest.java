@@ -0,0 +1,50 @@
+package club.cookbean.sparrow.test.serializer;
+
+import club.cookbean.sparrow.exception.SerializerException;
+import club.cookbean.sparrow.serializer.impl.CompactSerializer;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * Desc: Java serialization fallback of the compact serializer, only for allowed classes.
+ */
+public class CompactSerializerTest {
+
+    @Test
+    public void testAllowedClass() {
+        CompactSerializer serializer = new CompactSerializer(getClass().getClassLoader(),
+                Collections.<Class<?>>singleton(Money.class));
+        Money money = (Money) serializer.read(serializer.serialize(new Money(42, "EUR")));
+        Assert.assertEquals(42, money.amount);
+        Assert.assertEquals("EUR", money.currency);
+        Assert.assertEquals(Arrays.asList(1, "one"), serializer.read(serializer.serialize(Arrays.asList(1, "one"))));
+    }
+
+    @Test(expected = SerializerException.class)
+    public void testNotAllowedOnRead() {
+        byte[] bytes = new CompactSerializer(getClass().getClassLoader(),
+                Collections.<Class<?>>singleton(Money.class)).serialize(new Money(42, "EUR"));
+        new CompactSerializer(getClass().getClassLoader()).read(bytes);
+    }
+
+    @Test(expected = SerializerException.class)
+    public void testNotAllowedOnWrite() {
+        new CompactSerializer().serialize(new Money(42, "EUR"));
+    }
+
+    private static class Money implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final long amount;
+        private final String currency;
+
+        Money(long amount, String currency) {
+            this.amount = amount;
+            this.currency = currency;
+        }
+    }
+}
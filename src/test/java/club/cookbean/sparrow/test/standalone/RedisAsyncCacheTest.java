@@ -0,0 +1,88 @@
+package club.cookbean.sparrow.test.standalone;
+
+import club.cookbean.sparrow.builder.CacheConfigurationBuilder;
+import club.cookbean.sparrow.builder.CacheManagerBuilder;
+import club.cookbean.sparrow.builder.RedisConnectorBuilder;
+import club.cookbean.sparrow.builder.RedisResourceBuilder;
+import club.cookbean.sparrow.cache.AsyncCache;
+import club.cookbean.sparrow.cache.CacheFuture;
+import club.cookbean.sparrow.cache.CacheManager;
+import club.cookbean.sparrow.loader.impl.SingleCacheLoader;
+import club.cookbean.sparrow.redis.Cacheable;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import redis.clients.jedis.HostAndPort;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static club.cookbean.sparrow.test.db.Cacheables.newValue;
+
+/**
+ * Desc: asynchronous view of a loader cache.
+ */
+public class RedisAsyncCacheTest {
+
+    private static CacheManager cacheManager;
+    private static AsyncCache asyncCache;
+
+    @BeforeClass
+    public static void beforeClass() {
+        // cache manager
+        cacheManager = CacheManagerBuilder.newCacheManagerBuilder()
+                .build();
+        cacheManager.init();
+
+        // standalone redis node
+        HostAndPort localNode = new HostAndPort("127.0.0.1", 7000);
+        cacheManager.createCache("AsyncCache",
+                CacheConfigurationBuilder.newCacheConfigurationBuilder(
+                        RedisResourceBuilder.newRedisResourceBuilder().standalone(localNode, false),
+                        RedisConnectorBuilder.newRedisConnectorBuilder().standalone()
+                                .name("test")
+                                .prefix("prefix")
+                                .pool(20, 5, 1, 1000)
+                ).withCacheLoader(new SingleCacheLoader() {
+                    @Override
+                    public Cacheable load(String key) throws Exception {
+                        return newValue("loaded-" + key);
+                    }
+                })
+        );
+        asyncCache = cacheManager.getAsyncCache("AsyncCache");
+    }
+
+    @Test
+    public void testSetAndGet() throws Exception {
+        final String key = "async-" + System.nanoTime();
+        Assert.assertTrue(asyncCache.set(key, newValue("value")).get(1, TimeUnit.SECONDS));
+        Assert.assertEquals("value", asyncCache.get(key).get(1, TimeUnit.SECONDS));
+        asyncCache.delete(key).get(1, TimeUnit.SECONDS);
+        Assert.assertFalse(asyncCache.exist(key).get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testGetWithLoaderListener() throws Exception {
+        final String key = "async-load-" + System.nanoTime();
+        final CountDownLatch latch = new CountDownLatch(1);
+        final AtomicReference<String> result = new AtomicReference<>();
+        CacheFuture<String> future = asyncCache.getWithLoader(key);
+        future.addListener(new CacheFuture.Listener<String>() {
+            @Override
+            public void onSuccess(String value) {
+                result.set(value);
+                latch.countDown();
+            }
+
+            @Override
+            public void onFailure(Throwable cause) {
+                latch.countDown();
+            }
+        });
+        Assert.assertTrue(latch.await(1, TimeUnit.SECONDS));
+        Assert.assertEquals("loaded-" + key, result.get());
+        Assert.assertSame(asyncCache, cacheManager.getAsyncCache("AsyncCache"));
+    }
+}
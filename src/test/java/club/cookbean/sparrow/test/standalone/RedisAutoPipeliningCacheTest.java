@@ -0,0 +1,78 @@
+package club.cookbean.sparrow.test.standalone;
+
+import club.cookbean.sparrow.builder.CacheConfigurationBuilder;
+import club.cookbean.sparrow.builder.CacheManagerBuilder;
+import club.cookbean.sparrow.builder.RedisConnectorBuilder;
+import club.cookbean.sparrow.builder.RedisResourceBuilder;
+import club.cookbean.sparrow.cache.Cache;
+import club.cookbean.sparrow.cache.CacheManager;
+import club.cookbean.sparrow.config.impl.DefaultPipeliningConfiguration;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import redis.clients.jedis.HostAndPort;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static club.cookbean.sparrow.test.db.Cacheables.newValue;
+
+/**
+ * Desc: RedisCache with auto pipelining on a standalone node.
+ */
+public class RedisAutoPipeliningCacheTest {
+
+    private static CacheManager cacheManager;
+    private static Cache standaloneCache;
+
+    @BeforeClass
+    public static void beforeClass() {
+        // cache manager
+        cacheManager = CacheManagerBuilder.newCacheManagerBuilder()
+                .build();
+        cacheManager.init();
+
+        // standalone redis node
+        HostAndPort localNode = new HostAndPort("127.0.0.1", 7000);
+        standaloneCache = cacheManager.createCache("PipelinedCache",
+                CacheConfigurationBuilder.newCacheConfigurationBuilder(
+                        RedisResourceBuilder.newRedisResourceBuilder().standalone(localNode, false),
+                        RedisConnectorBuilder.newRedisConnectorBuilder().standalone()
+                                .name("test")
+                                .prefix("prefix")
+                                .pool(20, 5, 1, 1000)
+                ).withAutoPipelining(new DefaultPipeliningConfiguration(2, 128, 50, TimeUnit.MICROSECONDS))
+        );
+    }
+
+    @Test
+    public void testConcurrentGet() throws Exception {
+        final int keyCount = 100;
+        for (int i = 0; i < keyCount; i++) {
+            standaloneCache.set("pipe-" + i, newValue("value-" + i));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(32);
+        final AtomicInteger hits = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 32; t++) {
+            futures.add(executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < keyCount; i++) {
+                        if (("value-" + i).equals(standaloneCache.get("pipe-" + i))) {
+                            hits.incrementAndGet();
+                        }
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        Assert.assertEquals(32 * keyCount, hits.get());
+    }
+}
@@ -0,0 +1,85 @@
+package club.cookbean.sparrow.test.standalone;
+
+import club.cookbean.sparrow.builder.CacheConfigurationBuilder;
+import club.cookbean.sparrow.builder.CacheManagerBuilder;
+import club.cookbean.sparrow.builder.RedisConnectorBuilder;
+import club.cookbean.sparrow.builder.RedisResourceBuilder;
+import club.cookbean.sparrow.cache.Cache;
+import club.cookbean.sparrow.cache.CacheManager;
+import club.cookbean.sparrow.config.BloomFilterConfiguration;
+import club.cookbean.sparrow.config.impl.DefaultBloomFilterConfiguration;
+import club.cookbean.sparrow.filter.KeySource;
+import club.cookbean.sparrow.loader.impl.SingleCacheLoader;
+import club.cookbean.sparrow.redis.Cacheable;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import redis.clients.jedis.HostAndPort;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static club.cookbean.sparrow.test.db.Cacheables.newValue;
+
+/**
+ * Desc: keys unknown to the bloom filter never reach the loader.
+ */
+public class RedisBloomFilterCacheTest {
+
+    private static final AtomicInteger loadCount = new AtomicInteger();
+
+    private static CacheManager cacheManager;
+    private static Cache standaloneCache;
+
+    @BeforeClass
+    public static void beforeClass() {
+        // cache manager
+        cacheManager = CacheManagerBuilder.newCacheManagerBuilder()
+                .build();
+        cacheManager.init();
+
+        // standalone redis node
+        HostAndPort localNode = new HostAndPort("127.0.0.1", 7000);
+        standaloneCache = cacheManager.createCache("BloomFilterCache",
+                CacheConfigurationBuilder.newCacheConfigurationBuilder(
+                        RedisResourceBuilder.newRedisResourceBuilder().standalone(localNode, false),
+                        RedisConnectorBuilder.newRedisConnectorBuilder().standalone()
+                                .name("test")
+                                .prefix("prefix")
+                                .pool(20, 5, 1, 1000)
+                ).withCacheLoader(new SingleCacheLoader() {
+                    @Override
+                    public Cacheable load(String key) throws Exception {
+                        return newValue("loaded-" + loadCount.incrementAndGet());
+                    }
+                }).withBloomFilter(new DefaultBloomFilterConfiguration(new KeySource() {
+                    @Override
+                    public Iterable<String> keys() throws Exception {
+                        return Arrays.asList("bloom-1", "bloom-2", "bloom-3");
+                    }
+                }, 1000, 0.01, BloomFilterConfiguration.Mode.MEMORY, 10, TimeUnit.MINUTES))
+        );
+    }
+
+    @Test
+    public void testGuard() throws Exception {
+        // initial build runs in background
+        Thread.sleep(200);
+
+        standaloneCache.delete("bloom-1");
+        Assert.assertEquals("loaded-1", standaloneCache.getWithLoader("bloom-1"));
+        Assert.assertNull(standaloneCache.getWithLoader("bloom-unknown"));
+        Assert.assertEquals(1, loadCount.get());
+    }
+
+    @Test
+    public void testSetThenGetWithLoader() throws Exception {
+        // initial build runs in background
+        Thread.sleep(200);
+
+        // a key cached directly is not in the key source, the filter must learn it
+        standaloneCache.set("bloom-set", newValue("written"));
+        Assert.assertEquals("written", standaloneCache.getWithLoader("bloom-set"));
+    }
+}
@@ -6,12 +6,18 @@ import club.cookbean.sparrow.builder.RedisConnectorBuilder;
 import club.cookbean.sparrow.builder.RedisResourceBuilder;
 import club.cookbean.sparrow.cache.Cache;
 import club.cookbean.sparrow.cache.CacheManager;
+import club.cookbean.sparrow.redis.BinaryCacheable;
 import club.cookbean.sparrow.redis.Cacheable;
 import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import redis.clients.jedis.HostAndPort;
 
+import java.nio.ByteBuffer;
+import java.util.*;
+
+import static club.cookbean.sparrow.test.db.Cacheables.newValue;
+
 /**
  * Created by Bennett Dong <br>
  * Date : 2017/7/31 <br>
@@ -73,5 +79,88 @@ public class RedisCacheTest {
         Assert.assertTrue(strValue.contains("Bennett"));
     }
 
+    @Test
+    public void testGetAll() {
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            final String value = "value-" + i;
+            standaloneCache.set("multi-" + i, new Cacheable() {
+                @Override
+                public long getExpireTime() {
+                    return 3600*1000;
+                }
+
+                @Override
+                public long getCreationTime() {
+                    return System.currentTimeMillis();
+                }
+
+                @Override
+                public String getValue() {
+                    return value;
+                }
+
+                @Override
+                public String getKey() {
+                    return null;
+                }
+            });
+            keys.add("multi-" + i);
+        }
+        keys.add("multi-absent");
+
+        Map<String, String> values = standaloneCache.getAll(keys);
+        Assert.assertEquals(keys.size(), values.size());
+        Assert.assertEquals("value-3", values.get("multi-3"));
+        Assert.assertNull(values.get("multi-absent"));
+    }
+
+    @Test
+    public void testSetAll() {
+        Map<String, Cacheable> values = new HashMap<>();
+        for (int i = 0; i < 1200; i++) {
+            values.put("bulk-" + i, newValue("bulk-value-" + i, (i + 1) * 1000));
+        }
 
+        Set<String> failedKeys = standaloneCache.setAll(values);
+        Assert.assertTrue(failedKeys.isEmpty());
+        Assert.assertEquals("bulk-value-999", standaloneCache.get("bulk-999"));
+    }
+
+    @Test
+    public void testBinaryValue() {
+        final byte[] payload = new byte[]{0, (byte) 0xff, (byte) 0xfe, 10, 13, 0};
+        standaloneCache.set("binary", new BinaryCacheable() {
+            @Override
+            public byte[] getBytes() {
+                return payload;
+            }
+
+            @Override
+            public long getExpireTime() {
+                return 3600*1000;
+            }
+
+            @Override
+            public long getCreationTime() {
+                return System.currentTimeMillis();
+            }
+
+            @Override
+            public String getValue() {
+                return null;
+            }
+
+            @Override
+            public String getKey() {
+                return null;
+            }
+        });
+
+        Assert.assertArrayEquals(payload, standaloneCache.getBytes("binary"));
+        ByteBuffer buffer = standaloneCache.getByteBuffer("binary");
+        Assert.assertEquals(payload.length, buffer.remaining());
+        Assert.assertEquals((byte) 0xff, buffer.get(1));
+        Assert.assertNull(standaloneCache.getBytes("binary-absent"));
+    }
 }
@@ -0,0 +1,100 @@
+package club.cookbean.sparrow.test.standalone;
+
+import club.cookbean.sparrow.builder.CacheConfigurationBuilder;
+import club.cookbean.sparrow.builder.CacheManagerBuilder;
+import club.cookbean.sparrow.builder.RedisConnectorBuilder;
+import club.cookbean.sparrow.builder.RedisResourceBuilder;
+import club.cookbean.sparrow.cache.Cache;
+import club.cookbean.sparrow.cache.CacheManager;
+import club.cookbean.sparrow.storage.compress.CompressionStatistics;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import redis.clients.jedis.HostAndPort;
+
+import java.util.List;
+
+import static club.cookbean.sparrow.test.db.Cacheables.newValue;
+
+/**
+ * Desc: RedisCache compressing large values, next to a cache without compression on the same keys.
+ */
+public class RedisCompressionCacheTest {
+
+    private static CacheManager cacheManager;
+    private static Cache compressedCache;
+    private static Cache plainCache;
+
+    @BeforeClass
+    public static void beforeClass() {
+        // cache manager
+        cacheManager = CacheManagerBuilder.newCacheManagerBuilder()
+                .build();
+        cacheManager.init();
+
+        // standalone redis node
+        HostAndPort localNode = new HostAndPort("127.0.0.1", 7000);
+        CacheConfigurationBuilder builder = CacheConfigurationBuilder.newCacheConfigurationBuilder(
+                RedisResourceBuilder.newRedisResourceBuilder().standalone(localNode, false),
+                RedisConnectorBuilder.newRedisConnectorBuilder().standalone()
+                        .name("test")
+                        .prefix("prefix")
+                        .pool(20, 5, 1, 1000)
+        );
+        compressedCache = cacheManager.createCache("CompressedCache", builder.withCompression(512));
+        plainCache = cacheManager.createCache("PlainCache", builder);
+    }
+
+    @Test
+    public void testGetCompressed() throws Exception {
+        String large = largeValue();
+        compressedCache.set("compress-large", newValue(large));
+        compressedCache.set("compress-small", newValue("small"));
+        Assert.assertEquals(large, compressedCache.get("compress-large"));
+        Assert.assertEquals("small", compressedCache.get("compress-small"));
+        // stored compressed, readers without compression only see the header and deflated bytes
+        Assert.assertNotEquals(large, plainCache.get("compress-large"));
+        Assert.assertEquals("small", plainCache.get("compress-small"));
+
+        CompressionStatistics statistics = cacheManager.getCompressionStatistics("CompressedCache");
+        Assert.assertTrue(statistics.getCompressedCount() > 0);
+        Assert.assertTrue(statistics.getCompressionRatio() < 0.5);
+        Assert.assertNull(cacheManager.getCompressionStatistics("PlainCache"));
+    }
+
+    @Test
+    public void testReadPlainValues() throws Exception {
+        String large = largeValue();
+        // written before compression was enabled
+        plainCache.set("compress-legacy", newValue(large));
+        plainCache.set("compress-header", newValue("\u0001not compressed"));
+        Assert.assertEquals(large, compressedCache.get("compress-legacy"));
+        Assert.assertEquals("\u0001not compressed", plainCache.get("compress-header"));
+
+        compressedCache.set("compress-header", newValue("\u0001not compressed"));
+        Assert.assertEquals("\u0001not compressed", compressedCache.get("compress-header"));
+    }
+
+    @Test
+    public void testList() throws Exception {
+        String large = largeValue();
+        compressedCache.delete("compress-list");
+        compressedCache.rpush("compress-list", newValue(large), newValue("small"));
+        plainCache.rpush("compress-list", newValue(large));
+
+        List<String> values = compressedCache.lrang("compress-list", 0, -1);
+        Assert.assertEquals(3, values.size());
+        Assert.assertEquals(large, values.get(0));
+        Assert.assertEquals("small", values.get(1));
+        Assert.assertEquals(large, values.get(2));
+        Assert.assertEquals(1, compressedCache.lrem("compress-list", 1, large));
+    }
+
+    private static String largeValue() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            builder.append("{\"id\":").append(i).append(",\"name\":\"sparrow\"}");
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,86 @@
+package club.cookbean.sparrow.test.standalone;
+
+import club.cookbean.sparrow.builder.CacheConfigurationBuilder;
+import club.cookbean.sparrow.builder.CacheManagerBuilder;
+import club.cookbean.sparrow.builder.RedisConnectorBuilder;
+import club.cookbean.sparrow.builder.RedisResourceBuilder;
+import club.cookbean.sparrow.cache.Cache;
+import club.cookbean.sparrow.cache.CacheManager;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import redis.clients.jedis.HostAndPort;
+
+import java.util.concurrent.TimeUnit;
+
+import static club.cookbean.sparrow.test.db.Cacheables.newValue;
+
+/**
+ * Desc: Near-caches of two cache managers, standing for two processes, kept in line through the invalidation channel.
+ */
+public class RedisInvalidationCacheTest {
+
+    private static CacheManager firstManager;
+    private static CacheManager secondManager;
+    private static Cache firstCache;
+    private static Cache secondCache;
+
+    @BeforeClass
+    public static void beforeClass() throws Exception {
+        firstManager = CacheManagerBuilder.newCacheManagerBuilder().build();
+        firstManager.init();
+        secondManager = CacheManagerBuilder.newCacheManagerBuilder().build();
+        secondManager.init();
+
+        // standalone redis node
+        HostAndPort localNode = new HostAndPort("127.0.0.1", 7000);
+        CacheConfigurationBuilder builder = CacheConfigurationBuilder.newCacheConfigurationBuilder(
+                RedisResourceBuilder.newRedisResourceBuilder().standalone(localNode, false),
+                RedisConnectorBuilder.newRedisConnectorBuilder().standalone()
+                        .name("test")
+                        .prefix("prefix")
+                        .pool(20, 5, 1, 1000)
+        ).withNearCache(1000, 60, TimeUnit.SECONDS)
+                .withInvalidation(100, 5, TimeUnit.MILLISECONDS);
+        firstCache = firstManager.createCache("InvalidationCache", builder);
+        secondCache = secondManager.createCache("InvalidationCache", builder);
+        // let both subscriptions settle
+        Thread.sleep(200);
+    }
+
+    @AfterClass
+    public static void afterClass() {
+        firstManager.close();
+        secondManager.close();
+    }
+
+    @Test
+    public void testSetInvalidatesOtherNearCache() throws Exception {
+        firstCache.set("invalidation-set", newValue("first"));
+        Assert.assertEquals("first", secondCache.get("invalidation-set"));
+        Assert.assertEquals("first", secondCache.get("invalidation-set"));
+
+        firstCache.set("invalidation-set", newValue("second"));
+        Assert.assertEquals("second", awaitValue(secondCache, "invalidation-set", "second"));
+    }
+
+    @Test
+    public void testDeleteInvalidatesOtherNearCache() throws Exception {
+        secondCache.set("invalidation-delete", newValue("value"));
+        Assert.assertEquals("value", firstCache.get("invalidation-delete"));
+
+        secondCache.delete("invalidation-delete");
+        Assert.assertNull(awaitValue(firstCache, "invalidation-delete", null));
+    }
+
+    private static String awaitValue(Cache cache, String key, String expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 1000;
+        String value = cache.get(key);
+        while ((null == expected ? null != value : !expected.equals(value)) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            value = cache.get(key);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,102 @@
+package club.cookbean.sparrow.test.standalone;
+
+import club.cookbean.sparrow.builder.CacheConfigurationBuilder;
+import club.cookbean.sparrow.builder.CacheManagerBuilder;
+import club.cookbean.sparrow.builder.RedisConnectorBuilder;
+import club.cookbean.sparrow.builder.RedisResourceBuilder;
+import club.cookbean.sparrow.cache.Cache;
+import club.cookbean.sparrow.cache.CacheManager;
+import club.cookbean.sparrow.loader.BulkCacheLoader;
+import club.cookbean.sparrow.redis.Cacheable;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import redis.clients.jedis.HostAndPort;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static club.cookbean.sparrow.test.db.Cacheables.newValue;
+
+/**
+ * Desc: concurrent misses of different keys are loaded in a few bulk loads.
+ */
+public class RedisLoadBatchingCacheTest {
+
+    private static final AtomicInteger loadCount = new AtomicInteger();
+
+    private static CacheManager cacheManager;
+    private static Cache standaloneCache;
+
+    @BeforeClass
+    public static void beforeClass() {
+        // cache manager
+        cacheManager = CacheManagerBuilder.newCacheManagerBuilder()
+                .build();
+        cacheManager.init();
+
+        // standalone redis node
+        HostAndPort localNode = new HostAndPort("127.0.0.1", 7000);
+        standaloneCache = cacheManager.createCache("LoadBatchingCache",
+                CacheConfigurationBuilder.newCacheConfigurationBuilder(
+                        RedisResourceBuilder.newRedisResourceBuilder().standalone(localNode, false),
+                        RedisConnectorBuilder.newRedisConnectorBuilder().standalone()
+                                .name("test")
+                                .prefix("prefix")
+                                .pool(20, 5, 1, 1000)
+                ).withCacheLoader(new BulkCacheLoader() {
+                    @Override
+                    public Map<String, Cacheable> loadAll(Iterable<String> keys) throws Exception {
+                        loadCount.incrementAndGet();
+                        Map<String, Cacheable> values = new HashMap<>();
+                        for (String key : keys) {
+                            values.put(key, newValue("loaded-" + key));
+                        }
+                        return values;
+                    }
+
+                    @Override
+                    public Cacheable load(String key) throws Exception {
+                        throw new UnsupportedOperationException();
+                    }
+
+                    @Override
+                    public Set<Cacheable> loadSet(String key) throws Exception {
+                        throw new UnsupportedOperationException();
+                    }
+
+                    @Override
+                    public List<Cacheable> loadList(String key) throws Exception {
+                        throw new UnsupportedOperationException();
+                    }
+                }).withLoadBatching(16, 20, TimeUnit.MILLISECONDS)
+        );
+    }
+
+    @Test
+    public void testConcurrentMisses() throws Exception {
+        final String prefix = "batch-" + System.nanoTime() + "-";
+
+        final int threads = 32;
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<String>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final String key = prefix + t;
+            futures.add(executor.submit(new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    start.await();
+                    return standaloneCache.getWithLoader(key);
+                }
+            }));
+        }
+        start.countDown();
+        for (int t = 0; t < threads; t++) {
+            Assert.assertEquals("loaded-" + prefix + t, futures.get(t).get());
+        }
+        executor.shutdown();
+        Assert.assertTrue("bulk loads: " + loadCount.get(), loadCount.get() < threads / 4);
+    }
+}
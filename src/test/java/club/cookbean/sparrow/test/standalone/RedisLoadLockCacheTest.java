@@ -0,0 +1,91 @@
+package club.cookbean.sparrow.test.standalone;
+
+import club.cookbean.sparrow.builder.CacheConfigurationBuilder;
+import club.cookbean.sparrow.builder.CacheManagerBuilder;
+import club.cookbean.sparrow.builder.RedisConnectorBuilder;
+import club.cookbean.sparrow.builder.RedisResourceBuilder;
+import club.cookbean.sparrow.cache.Cache;
+import club.cookbean.sparrow.cache.CacheManager;
+import club.cookbean.sparrow.config.impl.DefaultLoadLockConfiguration;
+import club.cookbean.sparrow.loader.impl.SingleCacheLoader;
+import club.cookbean.sparrow.redis.Cacheable;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import redis.clients.jedis.HostAndPort;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static club.cookbean.sparrow.test.db.Cacheables.newValue;
+
+/**
+ * Desc: two cache nodes missing the same key load it only once.
+ */
+public class RedisLoadLockCacheTest {
+
+    private static final AtomicInteger loadCount = new AtomicInteger();
+
+    private static Cache nodeA;
+    private static Cache nodeB;
+
+    @BeforeClass
+    public static void beforeClass() {
+        nodeA = createNodeCache();
+        nodeB = createNodeCache();
+    }
+
+    private static Cache createNodeCache() {
+        // every node owns its cache manager
+        CacheManager cacheManager = CacheManagerBuilder.newCacheManagerBuilder()
+                .build();
+        cacheManager.init();
+
+        HostAndPort localNode = new HostAndPort("127.0.0.1", 7000);
+        return cacheManager.createCache("LoadLockCache",
+                CacheConfigurationBuilder.newCacheConfigurationBuilder(
+                        RedisResourceBuilder.newRedisResourceBuilder().standalone(localNode, false),
+                        RedisConnectorBuilder.newRedisConnectorBuilder().standalone()
+                                .name("test")
+                                .prefix("prefix")
+                                .pool(20, 5, 1, 1000)
+                ).withCacheLoader(new SingleCacheLoader() {
+                    @Override
+                    public Cacheable load(String key) throws Exception {
+                        loadCount.incrementAndGet();
+                        Thread.sleep(200);
+                        return newValue("loaded-" + key);
+                    }
+                }).withLoadLock(new DefaultLoadLockConfiguration(2000, 2000, 20, TimeUnit.MILLISECONDS))
+        );
+    }
+
+    @Test
+    public void testCrossNodeMiss() throws Exception {
+        final String key = "lock-" + System.nanoTime();
+        nodeA.delete(key);
+
+        final int threads = 16;
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<String>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final Cache node = t % 2 == 0 ? nodeA : nodeB;
+            futures.add(executor.submit(new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    start.await();
+                    return node.getWithLoader(key);
+                }
+            }));
+        }
+        start.countDown();
+        for (Future<String> future : futures) {
+            Assert.assertEquals("loaded-" + key, future.get());
+        }
+        executor.shutdown();
+        Assert.assertEquals(1, loadCount.get());
+    }
+}
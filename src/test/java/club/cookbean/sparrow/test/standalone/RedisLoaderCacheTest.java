@@ -7,17 +7,19 @@ import club.cookbean.sparrow.builder.RedisResourceBuilder;
 import club.cookbean.sparrow.cache.Cache;
 import club.cookbean.sparrow.cache.CacheManager;
 import club.cookbean.sparrow.exception.BulkCacheLoadingException;
+import club.cookbean.sparrow.loader.BulkCacheLoader;
 import club.cookbean.sparrow.loader.CacheLoader;
 import club.cookbean.sparrow.loader.impl.SingleCacheLoader;
 import club.cookbean.sparrow.redis.Cacheable;
 import club.cookbean.sparrow.test.db.MockDB;
+import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import redis.clients.jedis.HostAndPort;
 
-import java.util.List;
-import java.util.Map;
-import java.util.Set;
+import java.util.*;
+
+import static club.cookbean.sparrow.test.db.Cacheables.newValue;
 
 /**
  * Created by Bennett Dong <br>
@@ -157,4 +159,46 @@ public class RedisLoaderCacheTest {
             System.out.println("get value="+value);
         }
     }
+
+    @Test
+    public void testGetAllWithLoader() {
+        final List<Iterable<String>> loadAllCalls = new ArrayList<>();
+        standaloneCache.set("bulk-hit", newValue("hit"));
+        standaloneCache.delete("bulk-1", "bulk-2");
+
+        Map<String, String> values = standaloneCache.getAllWithLoader(Arrays.asList("bulk-hit", "bulk-1", "bulk-2"), new BulkCacheLoader() {
+            @Override
+            public Map<String, Cacheable> loadAll(Iterable<String> keys) throws Exception {
+                loadAllCalls.add(keys);
+                Map<String, Cacheable> loaded = new HashMap<>();
+                for (String key : keys) {
+                    if (!"bulk-2".equals(key)) {
+                        loaded.put(key, newValue("loaded-" + key));
+                    }
+                }
+                return loaded;
+            }
+
+            @Override
+            public Cacheable load(String key) throws Exception {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public Set<Cacheable> loadSet(String key) throws Exception {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public List<Cacheable> loadList(String key) throws Exception {
+                throw new UnsupportedOperationException();
+            }
+        });
+
+        Assert.assertEquals("hit", values.get("bulk-hit"));
+        Assert.assertEquals("loaded-bulk-1", values.get("bulk-1"));
+        Assert.assertNull(values.get("bulk-2"));
+        Assert.assertEquals(1, loadAllCalls.size());
+        Assert.assertEquals("loaded-bulk-1", standaloneCache.get("bulk-1"));
+    }
 }
@@ -0,0 +1,123 @@
+package club.cookbean.sparrow.test.standalone;
+
+import club.cookbean.sparrow.builder.CacheConfigurationBuilder;
+import club.cookbean.sparrow.builder.CacheManagerBuilder;
+import club.cookbean.sparrow.builder.RedisConnectorBuilder;
+import club.cookbean.sparrow.builder.RedisResourceBuilder;
+import club.cookbean.sparrow.cache.AsyncCache;
+import club.cookbean.sparrow.cache.Cache;
+import club.cookbean.sparrow.cache.CacheFuture;
+import club.cookbean.sparrow.cache.CacheManager;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import redis.clients.jedis.HostAndPort;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static club.cookbean.sparrow.test.db.Cacheables.newValue;
+
+/**
+ * Desc: RedisCache on the multiplexed storage engine of a standalone node.
+ */
+public class RedisMultiplexedCacheTest {
+
+    private static CacheManager cacheManager;
+    private static Cache standaloneCache;
+
+    @BeforeClass
+    public static void beforeClass() {
+        // cache manager
+        cacheManager = CacheManagerBuilder.newCacheManagerBuilder()
+                .build();
+        cacheManager.init();
+
+        // standalone redis node
+        HostAndPort localNode = new HostAndPort("127.0.0.1", 7000);
+        standaloneCache = cacheManager.createCache("MultiplexedCache",
+                CacheConfigurationBuilder.newCacheConfigurationBuilder(
+                        RedisResourceBuilder.newRedisResourceBuilder().standalone(localNode, false),
+                        RedisConnectorBuilder.newRedisConnectorBuilder().standalone()
+                                .name("test")
+                                .prefix("prefix")
+                                .pool(20, 5, 1, 1000)
+                ).withMultiplexing(2, 256)
+        );
+    }
+
+    @Test
+    public void testConcurrentGet() throws Exception {
+        final int keyCount = 100;
+        for (int i = 0; i < keyCount; i++) {
+            standaloneCache.set("multiplex-" + i, newValue("value-" + i));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(32);
+        final AtomicInteger hits = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 32; t++) {
+            futures.add(executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < keyCount; i++) {
+                        if (("value-" + i).equals(standaloneCache.get("multiplex-" + i))) {
+                            hits.incrementAndGet();
+                        }
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        Assert.assertEquals(32 * keyCount, hits.get());
+    }
+
+    @Test
+    public void testListAndSet() throws Exception {
+        standaloneCache.delete("multiplex-list", "multiplex-set");
+        Assert.assertEquals(2, standaloneCache.rpush("multiplex-list", newValue("a"), newValue("b")));
+        Assert.assertEquals(2, standaloneCache.llen("multiplex-list"));
+        Assert.assertEquals("b", standaloneCache.lindex("multiplex-list", 1));
+        Assert.assertEquals("a", standaloneCache.lpop("multiplex-list"));
+        Assert.assertNull(standaloneCache.lindex("multiplex-list", 5));
+
+        standaloneCache.sadd("multiplex-set", newValue("m"));
+        Assert.assertTrue(standaloneCache.smembers("multiplex-set").contains("m"));
+    }
+
+    @Test
+    public void testAsyncCompletedByReply() throws Exception {
+        AsyncCache asyncCache = cacheManager.getAsyncCache("MultiplexedCache");
+        Assert.assertTrue(asyncCache.set("multiplex-async", newValue("value")).get(1, TimeUnit.SECONDS));
+
+        final CountDownLatch replied = new CountDownLatch(1);
+        final AtomicReference<String> value = new AtomicReference<>();
+        final AtomicReference<String> thread = new AtomicReference<>();
+        asyncCache.get("multiplex-async").addListener(new CacheFuture.Listener<String>() {
+            @Override
+            public void onSuccess(String result) {
+                value.set(result);
+                thread.set(Thread.currentThread().getName());
+                replied.countDown();
+            }
+
+            @Override
+            public void onFailure(Throwable cause) {
+                replied.countDown();
+            }
+        });
+        Assert.assertTrue(replied.await(1, TimeUnit.SECONDS));
+        Assert.assertEquals("value", value.get());
+        // no executor thread held, the reader of the connection completed it
+        Assert.assertTrue(thread.get(), thread.get().contains("resp-multiplexer-"));
+
+        asyncCache.delete("multiplex-async").get(1, TimeUnit.SECONDS);
+        Assert.assertNull(asyncCache.get("multiplex-async").get(1, TimeUnit.SECONDS));
+    }
+}
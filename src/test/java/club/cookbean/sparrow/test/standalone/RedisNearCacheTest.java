@@ -0,0 +1,100 @@
+package club.cookbean.sparrow.test.standalone;
+
+import club.cookbean.sparrow.builder.CacheConfigurationBuilder;
+import club.cookbean.sparrow.builder.CacheManagerBuilder;
+import club.cookbean.sparrow.builder.RedisConnectorBuilder;
+import club.cookbean.sparrow.builder.RedisResourceBuilder;
+import club.cookbean.sparrow.cache.Cache;
+import club.cookbean.sparrow.cache.CacheManager;
+import club.cookbean.sparrow.cache.NearCacheStatistics;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import redis.clients.jedis.HostAndPort;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static club.cookbean.sparrow.test.db.Cacheables.newValue;
+
+/**
+ * Desc: RedisCache with an in-process near-cache in front of redis.
+ */
+public class RedisNearCacheTest {
+
+    private static CacheManager cacheManager;
+    private static Cache nearCache;
+    private static Cache plainCache;
+
+    @BeforeClass
+    public static void beforeClass() {
+        // cache manager
+        cacheManager = CacheManagerBuilder.newCacheManagerBuilder()
+                .build();
+        cacheManager.init();
+
+        // standalone redis node
+        HostAndPort localNode = new HostAndPort("127.0.0.1", 7000);
+        CacheConfigurationBuilder builder = CacheConfigurationBuilder.newCacheConfigurationBuilder(
+                RedisResourceBuilder.newRedisResourceBuilder().standalone(localNode, false),
+                RedisConnectorBuilder.newRedisConnectorBuilder().standalone()
+                        .name("test")
+                        .prefix("prefix")
+                        .pool(20, 5, 1, 1000)
+        );
+        nearCache = cacheManager.createCache("NearCache", builder.withNearCache(1000, 10, TimeUnit.SECONDS));
+        plainCache = cacheManager.createCache("PlainCache", builder);
+    }
+
+    @Test
+    public void testHit() throws Exception {
+        NearCacheStatistics statistics = cacheManager.getNearCacheStatistics("NearCache");
+        nearCache.set("near-hit", newValue("value", 60000));
+        long hits = statistics.getHitCount();
+        Assert.assertEquals("value", nearCache.get("near-hit"));
+        Assert.assertEquals("value", nearCache.get("near-hit"));
+        Assert.assertEquals(hits + 1, statistics.getHitCount());
+
+        // written behind the near-cache's back, the local copy is served until it expires
+        plainCache.set("near-hit", newValue("other", 60000));
+        Assert.assertEquals("value", nearCache.get("near-hit"));
+        Assert.assertNull(cacheManager.getNearCacheStatistics("PlainCache"));
+    }
+
+    @Test
+    public void testInvalidate() throws Exception {
+        nearCache.set("near-invalidate", newValue("first", 60000));
+        Assert.assertEquals("first", nearCache.get("near-invalidate"));
+        nearCache.set("near-invalidate", newValue("second", 60000));
+        Assert.assertEquals("second", nearCache.get("near-invalidate"));
+        nearCache.delete("near-invalidate");
+        Assert.assertNull(nearCache.get("near-invalidate"));
+    }
+
+    @Test
+    public void testRedisTtl() throws Exception {
+        nearCache.set("near-ttl", newValue("short", 200));
+        Assert.assertEquals("short", nearCache.get("near-ttl"));
+        Thread.sleep(300);
+        // the local copy does not outlive the redis entry
+        Assert.assertNull(nearCache.get("near-ttl"));
+    }
+
+    @Test
+    public void testGetAll() throws Exception {
+        nearCache.set("near-all-1", newValue("one", 60000));
+        nearCache.set("near-all-2", newValue("two", 60000));
+        nearCache.get("near-all-1");
+        Map<String, String> values = nearCache.getAll(Arrays.asList("near-all-1", "near-all-2", "near-all-3"));
+        Assert.assertEquals("one", values.get("near-all-1"));
+        Assert.assertEquals("two", values.get("near-all-2"));
+        Assert.assertNull(values.get("near-all-3"));
+
+        // filled by getAll, the next read is local
+        NearCacheStatistics statistics = cacheManager.getNearCacheStatistics("NearCache");
+        long hits = statistics.getHitCount();
+        Assert.assertEquals("two", nearCache.get("near-all-2"));
+        Assert.assertEquals(hits + 1, statistics.getHitCount());
+    }
+}
@@ -0,0 +1,68 @@
+package club.cookbean.sparrow.test.standalone;
+
+import club.cookbean.sparrow.builder.CacheConfigurationBuilder;
+import club.cookbean.sparrow.builder.CacheManagerBuilder;
+import club.cookbean.sparrow.builder.RedisConnectorBuilder;
+import club.cookbean.sparrow.builder.RedisResourceBuilder;
+import club.cookbean.sparrow.cache.Cache;
+import club.cookbean.sparrow.cache.CacheManager;
+import club.cookbean.sparrow.loader.impl.SingleCacheLoader;
+import club.cookbean.sparrow.redis.Cacheable;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import redis.clients.jedis.HostAndPort;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Desc: keys the loader cannot find are cached as tombstones for a while.
+ */
+public class RedisNegativeCacheTest {
+
+    private static final AtomicInteger loadCount = new AtomicInteger();
+
+    private static CacheManager cacheManager;
+    private static Cache standaloneCache;
+
+    @BeforeClass
+    public static void beforeClass() {
+        // cache manager
+        cacheManager = CacheManagerBuilder.newCacheManagerBuilder()
+                .build();
+        cacheManager.init();
+
+        // standalone redis node
+        HostAndPort localNode = new HostAndPort("127.0.0.1", 7000);
+        standaloneCache = cacheManager.createCache("NegativeCache",
+                CacheConfigurationBuilder.newCacheConfigurationBuilder(
+                        RedisResourceBuilder.newRedisResourceBuilder().standalone(localNode, false),
+                        RedisConnectorBuilder.newRedisConnectorBuilder().standalone()
+                                .name("test")
+                                .prefix("prefix")
+                                .pool(20, 5, 1, 1000)
+                ).withCacheLoader(new SingleCacheLoader() {
+                    @Override
+                    public Cacheable load(String key) throws Exception {
+                        loadCount.incrementAndGet();
+                        return null;
+                    }
+                }).withNegativeCaching(500, TimeUnit.MILLISECONDS)
+        );
+    }
+
+    @Test
+    public void testAbsentKey() throws Exception {
+        final String key = "absent-" + System.nanoTime();
+        Assert.assertNull(standaloneCache.getWithLoader(key));
+        Assert.assertNull(standaloneCache.getWithLoader(key));
+        Assert.assertNull(standaloneCache.get(key));
+        Assert.assertEquals(1, loadCount.get());
+
+        // tombstone expired
+        Thread.sleep(600);
+        Assert.assertNull(standaloneCache.getWithLoader(key));
+        Assert.assertEquals(2, loadCount.get());
+    }
+}
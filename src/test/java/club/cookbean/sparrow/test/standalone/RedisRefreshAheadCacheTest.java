@@ -0,0 +1,68 @@
+package club.cookbean.sparrow.test.standalone;
+
+import club.cookbean.sparrow.builder.CacheConfigurationBuilder;
+import club.cookbean.sparrow.builder.CacheManagerBuilder;
+import club.cookbean.sparrow.builder.RedisConnectorBuilder;
+import club.cookbean.sparrow.builder.RedisResourceBuilder;
+import club.cookbean.sparrow.cache.Cache;
+import club.cookbean.sparrow.cache.CacheManager;
+import club.cookbean.sparrow.loader.impl.SingleCacheLoader;
+import club.cookbean.sparrow.redis.Cacheable;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import redis.clients.jedis.HostAndPort;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static club.cookbean.sparrow.test.db.Cacheables.newValue;
+
+/**
+ * Desc: entries past half of their TTL are served and reloaded in background.
+ */
+public class RedisRefreshAheadCacheTest {
+
+    private static final AtomicInteger loadCount = new AtomicInteger();
+
+    private static CacheManager cacheManager;
+    private static Cache standaloneCache;
+
+    @BeforeClass
+    public static void beforeClass() {
+        // cache manager
+        cacheManager = CacheManagerBuilder.newCacheManagerBuilder()
+                .build();
+        cacheManager.init();
+
+        // standalone redis node
+        HostAndPort localNode = new HostAndPort("127.0.0.1", 7000);
+        standaloneCache = cacheManager.createCache("RefreshAheadCache",
+                CacheConfigurationBuilder.newCacheConfigurationBuilder(
+                        RedisResourceBuilder.newRedisResourceBuilder().standalone(localNode, false),
+                        RedisConnectorBuilder.newRedisConnectorBuilder().standalone()
+                                .name("test")
+                                .prefix("prefix")
+                                .pool(20, 5, 1, 1000)
+                ).withCacheLoader(new SingleCacheLoader() {
+                    @Override
+                    public Cacheable load(String key) throws Exception {
+                        return newValue("loaded-" + loadCount.incrementAndGet(), 1000);
+                    }
+                }).withRefreshAhead(0.5)
+        );
+    }
+
+    @Test
+    public void testRefreshAhead() throws Exception {
+        final String key = "refresh-" + System.nanoTime();
+        Assert.assertEquals("loaded-1", standaloneCache.getWithLoader(key));
+
+        // past half of the TTL: current value served, reload scheduled
+        Thread.sleep(600);
+        Assert.assertEquals("loaded-1", standaloneCache.getWithLoader(key));
+
+        Thread.sleep(200);
+        Assert.assertEquals("loaded-2", standaloneCache.getWithLoader(key));
+        Assert.assertEquals(2, loadCount.get());
+    }
+}
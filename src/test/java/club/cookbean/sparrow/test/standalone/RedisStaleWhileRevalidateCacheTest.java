@@ -0,0 +1,96 @@
+package club.cookbean.sparrow.test.standalone;
+
+import club.cookbean.sparrow.builder.CacheConfigurationBuilder;
+import club.cookbean.sparrow.builder.CacheManagerBuilder;
+import club.cookbean.sparrow.builder.RedisConnectorBuilder;
+import club.cookbean.sparrow.builder.RedisResourceBuilder;
+import club.cookbean.sparrow.cache.Cache;
+import club.cookbean.sparrow.cache.CacheManager;
+import club.cookbean.sparrow.loader.impl.SingleCacheLoader;
+import club.cookbean.sparrow.redis.Cacheable;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import redis.clients.jedis.HostAndPort;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static club.cookbean.sparrow.test.db.Cacheables.newValue;
+
+/**
+ * Desc: logically expired entries are served while the loader is down.
+ */
+public class RedisStaleWhileRevalidateCacheTest {
+
+    private static final AtomicInteger loadCount = new AtomicInteger();
+    private static final AtomicBoolean backendDown = new AtomicBoolean();
+
+    private static CacheManager cacheManager;
+    private static Cache standaloneCache;
+
+    @BeforeClass
+    public static void beforeClass() {
+        // cache manager
+        cacheManager = CacheManagerBuilder.newCacheManagerBuilder()
+                .build();
+        cacheManager.init();
+
+        // standalone redis node
+        HostAndPort localNode = new HostAndPort("127.0.0.1", 7000);
+        standaloneCache = cacheManager.createCache("StaleWhileRevalidateCache",
+                CacheConfigurationBuilder.newCacheConfigurationBuilder(
+                        RedisResourceBuilder.newRedisResourceBuilder().standalone(localNode, false),
+                        RedisConnectorBuilder.newRedisConnectorBuilder().standalone()
+                                .name("test")
+                                .prefix("prefix")
+                                .pool(20, 5, 1, 1000)
+                ).withCacheLoader(new SingleCacheLoader() {
+                    @Override
+                    public Cacheable load(String key) throws Exception {
+                        if (backendDown.get()) {
+                            throw new IllegalStateException("backend down");
+                        }
+                        return newValue("loaded-" + loadCount.incrementAndGet(), 1000);
+                    }
+                }).withStaleWhileRevalidate(5, TimeUnit.SECONDS)
+        );
+    }
+
+    @Test
+    public void testServeStaleOnError() throws Exception {
+        final String key = "stale-" + System.nanoTime();
+        loadCount.set(0);
+        Assert.assertEquals("loaded-1", standaloneCache.getWithLoader(key));
+
+        // logically expired, revalidation fails
+        backendDown.set(true);
+        Thread.sleep(1200);
+        Assert.assertEquals("loaded-1", standaloneCache.getWithLoader(key));
+        Thread.sleep(200);
+        Assert.assertEquals("loaded-1", standaloneCache.getWithLoader(key));
+
+        // backend back, next read revalidates
+        backendDown.set(false);
+        Thread.sleep(200);
+        Assert.assertEquals("loaded-1", standaloneCache.getWithLoader(key));
+        Thread.sleep(200);
+        Assert.assertEquals("loaded-2", standaloneCache.getWithLoader(key));
+    }
+
+    @Test
+    public void testSetDuringGracePeriod() throws Exception {
+        final String key = "stale-set-" + System.nanoTime();
+        Assert.assertNotNull(standaloneCache.getWithLoader(key));
+
+        // logically expired, then overwritten before anyone revalidates
+        Thread.sleep(1200);
+        standaloneCache.set(key, newValue("written", 1000));
+        Assert.assertEquals("written", standaloneCache.getWithLoader(key));
+
+        // the old load meta must not trigger a refresh over the newer write
+        Thread.sleep(200);
+        Assert.assertEquals("written", standaloneCache.getWithLoader(key));
+    }
+}
@@ -0,0 +1,110 @@
+package club.cookbean.sparrow.test.standalone;
+
+import club.cookbean.sparrow.builder.CacheConfigurationBuilder;
+import club.cookbean.sparrow.builder.CacheManagerBuilder;
+import club.cookbean.sparrow.builder.RedisConnectorBuilder;
+import club.cookbean.sparrow.builder.RedisResourceBuilder;
+import club.cookbean.sparrow.cache.CacheManager;
+import club.cookbean.sparrow.cache.TypedCache;
+import club.cookbean.sparrow.serializer.Serializer;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import redis.clients.jedis.HostAndPort;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+
+/**
+ * Desc: typed views storing serialized domain objects.
+ */
+public class RedisTypedCacheTest {
+
+    private static CacheManager cacheManager;
+
+    @BeforeClass
+    public static void beforeClass() {
+        // cache manager
+        cacheManager = CacheManagerBuilder.newCacheManagerBuilder()
+                .build();
+        cacheManager.init();
+
+        // standalone redis node
+        HostAndPort localNode = new HostAndPort("127.0.0.1", 7000);
+        cacheManager.createCache("CompactCache",
+                CacheConfigurationBuilder.newCacheConfigurationBuilder(
+                        RedisResourceBuilder.newRedisResourceBuilder().standalone(localNode, false),
+                        RedisConnectorBuilder.newRedisConnectorBuilder().standalone()
+                                .name("test")
+                                .prefix("prefix")
+                                .pool(20, 5, 1, 1000)
+                )
+        );
+        cacheManager.createCache("PointCache",
+                CacheConfigurationBuilder.newCacheConfigurationBuilder(
+                        RedisResourceBuilder.newRedisResourceBuilder().standalone(localNode, false),
+                        RedisConnectorBuilder.newRedisConnectorBuilder().standalone()
+                                .name("test")
+                                .prefix("prefix")
+                                .pool(20, 5, 1, 1000)
+                ).withValueSerializer(Point.class, new PointSerializer())
+        );
+    }
+
+    @Test
+    public void testCompactValue() {
+        TypedCache<Object> cache = cacheManager.getTypedCache("CompactCache", Object.class);
+        Map<String, Object> user = new LinkedHashMap<>();
+        user.put("id", 42L);
+        user.put("name", "Bennett");
+        user.put("tags", Arrays.asList("a", "b"));
+        Assert.assertTrue(cache.set("typed-user", user, 60 * 1000));
+        Assert.assertEquals(user, cache.get("typed-user"));
+        Assert.assertNull(cache.get("typed-absent"));
+    }
+
+    @Test
+    public void testConfiguredSerializer() {
+        TypedCache<Point> cache = cacheManager.getTypedCache("PointCache", Point.class);
+        Map<String, Point> points = new HashMap<>();
+        points.put("typed-p1", new Point(1, 2));
+        points.put("typed-p2", new Point(-3, 4));
+        Assert.assertTrue(cache.setAll(points, 60 * 1000).isEmpty());
+        Point point = cache.get("typed-p2");
+        Assert.assertEquals(-3, point.x);
+        Assert.assertEquals(4, point.y);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSerializerTypeMismatch() {
+        cacheManager.getTypedCache("PointCache", String.class);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSerializerSuperType() {
+        cacheManager.getTypedCache("PointCache", Object.class);
+    }
+
+    private static class Point {
+        private final int x;
+        private final int y;
+
+        Point(int x, int y) {
+            this.x = x;
+            this.y = y;
+        }
+    }
+
+    private static class PointSerializer implements Serializer<Point> {
+        @Override
+        public byte[] serialize(Point object) {
+            return ByteBuffer.allocate(8).putInt(object.x).putInt(object.y).array();
+        }
+
+        @Override
+        public Point read(byte[] binary) {
+            ByteBuffer buffer = ByteBuffer.wrap(binary);
+            return new Point(buffer.getInt(), buffer.getInt());
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package club.cookbean.sparrow.test.storage;
+
+import club.cookbean.sparrow.config.impl.DefaultPipeliningConfiguration;
+import club.cookbean.sparrow.exception.StorageAccessException;
+import club.cookbean.sparrow.storage.standalone.AutoPipeliner;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.JedisPoolConfig;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.Charset;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Desc: Timeout and shutdown contract of the auto pipeliner, against a fake redis answering
+ * every command with +OK once released.
+ */
+public class AutoPipelinerTest {
+
+    private FakeRedis redis;
+    private JedisPool jedisPool;
+    private AutoPipeliner pipeliner;
+
+    @Before
+    public void before() throws Exception {
+        redis = new FakeRedis();
+        jedisPool = new JedisPool(new JedisPoolConfig(), "127.0.0.1", redis.server.getLocalPort(), 5000);
+        pipeliner = new AutoPipeliner(jedisPool, new DefaultPipeliningConfiguration(1, 16, 1, TimeUnit.MILLISECONDS),
+                "test", 200);
+    }
+
+    @After
+    public void after() throws Exception {
+        redis.release.countDown();
+        pipeliner.shutdown();
+        jedisPool.destroy();
+        redis.server.close();
+    }
+
+    @Test
+    public void testTimedOutWhileQueuedIsNotSent() throws Exception {
+        final AtomicInteger sentResults = new AtomicInteger();
+        Thread first = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    if ("OK".equals(pipeliner.execute(set("first")))) {
+                        sentResults.incrementAndGet();
+                    }
+                } catch (StorageAccessException e) {
+                    // counted out
+                }
+            }
+        });
+        first.start();
+        redis.received.await();
+
+        // queued behind the first pipeline, which waits for the fake redis
+        try {
+            pipeliner.execute(set("second"));
+            Assert.fail("timed out");
+        } catch (StorageAccessException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains("not sent"));
+        }
+        redis.release.countDown();
+        first.join();
+
+        // the first one was sent: its caller got the reply past the timeout
+        Assert.assertEquals(1, sentResults.get());
+        Assert.assertEquals("OK", pipeliner.execute(set("third")));
+        Assert.assertEquals(2, redis.commands.get());
+    }
+
+    @Test
+    public void testExecuteAfterShutdown() throws Exception {
+        redis.release.countDown();
+        Assert.assertEquals("OK", pipeliner.execute(set("before")));
+        pipeliner.shutdown();
+        try {
+            pipeliner.execute(set("after"));
+            Assert.fail("shut down");
+        } catch (StorageAccessException e) {
+            // expected
+        }
+        Assert.assertEquals(1, redis.commands.get());
+    }
+
+    private static AutoPipeliner.Command<String> set(final String key) {
+        return new AutoPipeliner.Command<String>() {
+            @Override
+            public Response<String> append(Pipeline pipeline) {
+                return pipeline.set(key, "value");
+            }
+        };
+    }
+
+    /**
+     * Counts the commands of one connection, answers them once released
+     */
+    private static class FakeRedis implements Runnable {
+        private final ServerSocket server = new ServerSocket(0);
+        private final CountDownLatch received = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private final AtomicInteger commands = new AtomicInteger();
+
+        FakeRedis() throws Exception {
+            Thread thread = new Thread(this);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        @Override
+        public void run() {
+            Charset utf8 = Charset.forName("UTF-8");
+            try (Socket socket = server.accept()) {
+                BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), utf8));
+                OutputStream out = socket.getOutputStream();
+                String line;
+                while (null != (line = reader.readLine())) {
+                    if (line.startsWith("*")) {
+                        int arguments = Integer.parseInt(line.substring(1));
+                        for (int i = 0; i < arguments * 2; i++) {
+                            reader.readLine();
+                        }
+                        commands.incrementAndGet();
+                        received.countDown();
+                        release.await();
+                        out.write("+OK\r\n".getBytes(utf8));
+                        out.flush();
+                    }
+                }
+            } catch (Exception e) {
+                // closed
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package club.cookbean.sparrow.test.storage;
+
+import club.cookbean.sparrow.storage.KeyEncoder;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.Charset;
+
+/**
+ * Desc: Final key encoding, byte for byte the final key string the client would encode.
+ */
+public class KeyEncoderTest {
+
+    private static final String PREFIX = "prefix:test";
+
+    private final KeyEncoder keyEncoder = new KeyEncoder(PREFIX);
+
+    // keeps the encoded keys reachable, so the allocations are not optimized away
+    private byte[] sink;
+
+    @Test
+    public void testEncode() {
+        Charset utf8 = Charset.forName("UTF-8");
+        String[] keys = {"", "user:10086", "用户:10086", "é:ü", "emoji:😀", "broken:\uD83D", "broken:\uDE00x"};
+        for (String key : keys) {
+            Assert.assertArrayEquals(key, (PREFIX + ":" + key).getBytes(utf8), keyEncoder.encode(key));
+            Assert.assertEquals(PREFIX + ":" + key, keyEncoder.normalize(key));
+        }
+        byte[][] encoded = keyEncoder.encode("a", "b");
+        Assert.assertEquals(2, encoded.length);
+        Assert.assertArrayEquals("prefix:test:b".getBytes(utf8), encoded[1]);
+    }
+
+    @Test
+    public void testAllocation() {
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threadBean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) threadBean;
+        Assume.assumeTrue(allocationBean.isThreadAllocatedMemorySupported());
+        allocationBean.setThreadAllocatedMemoryEnabled(true);
+
+        String key = "user:10086";
+        int calls = 100000;
+        for (int i = 0; i < calls; i++) {
+            sink = keyEncoder.encode(key);
+        }
+        long threadId = Thread.currentThread().getId();
+        long before = allocationBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < calls; i++) {
+            sink = keyEncoder.encode(key);
+        }
+        long allocated = allocationBean.getThreadAllocatedBytes(threadId) - before;
+
+        // one array of the final key per call: header and length, padded to 8 bytes
+        long arrayBytes = (16 + sink.length + 7) / 8 * 8;
+        Assert.assertEquals((PREFIX + ":" + key).length(), sink.length);
+        Assert.assertTrue("encode allocated " + allocated / calls + " bytes per call",
+                allocated <= calls * arrayBytes + 64 * 1024);
+    }
+}
@@ -0,0 +1,163 @@
+package club.cookbean.sparrow.test.storage;
+
+import club.cookbean.sparrow.config.ServiceConfiguration;
+import club.cookbean.sparrow.config.impl.DefaultMultiplexingConfiguration;
+import club.cookbean.sparrow.exception.StorageAccessException;
+import club.cookbean.sparrow.storage.ExpiringValue;
+import club.cookbean.sparrow.storage.StorageFuture;
+import club.cookbean.sparrow.storage.multiplex.MultiplexedStorage;
+import club.cookbean.sparrow.storage.multiplex.RespMultiplexer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Desc: Futures of the multiplexed storage are completed by the reader thread of the connection,
+ * against a fake redis answering once released.
+ */
+public class MultiplexedStorageAsyncTest {
+
+    private FakeRedis redis;
+    private MultiplexedStorage storage;
+
+    @Before
+    public void before() throws Exception {
+        redis = new FakeRedis();
+        RespMultiplexer multiplexer = new RespMultiplexer(new InetSocketAddress("127.0.0.1", redis.server.getLocalPort()),
+                new DefaultMultiplexingConfiguration(1, 16), 1000, 5000, "test");
+        storage = new MultiplexedStorage(multiplexer, "test", Collections.<ServiceConfiguration<?>>emptyList());
+    }
+
+    @After
+    public void after() throws Exception {
+        redis.release.countDown();
+        storage.release();
+        redis.server.close();
+    }
+
+    @Test
+    public void testReplyCompletesFuture() throws Exception {
+        final CountDownLatch replied = new CountDownLatch(1);
+        final AtomicReference<ExpiringValue> result = new AtomicReference<>();
+        final AtomicReference<Thread> completingThread = new AtomicReference<>();
+        StorageFuture<ExpiringValue> future = storage.getWithTtlAsync("key");
+        future.addCallback(new StorageFuture.Callback<ExpiringValue>() {
+            @Override
+            public void onSuccess(ExpiringValue value) {
+                result.set(value);
+                completingThread.set(Thread.currentThread());
+                replied.countDown();
+            }
+
+            @Override
+            public void onFailure(StorageAccessException cause) {
+                replied.countDown();
+            }
+        });
+
+        // sent, nobody waits for the held reply
+        Assert.assertTrue(redis.received.await(1, TimeUnit.SECONDS));
+        Assert.assertFalse(future.isDone());
+
+        redis.release.countDown();
+        Assert.assertTrue(replied.await(1, TimeUnit.SECONDS));
+        Assert.assertEquals("hello", result.get().getValue());
+        Assert.assertEquals(1000, result.get().getTtlMillis());
+        Assert.assertNotSame(Thread.currentThread(), completingThread.get());
+    }
+
+    @Test
+    public void testErrorReplyFailsFuture() throws Exception {
+        redis.release.countDown();
+        final CountDownLatch replied = new CountDownLatch(1);
+        final AtomicReference<StorageAccessException> failure = new AtomicReference<>();
+        storage.llenAsync("key").addCallback(new StorageFuture.Callback<Long>() {
+            @Override
+            public void onSuccess(Long value) {
+                replied.countDown();
+            }
+
+            @Override
+            public void onFailure(StorageAccessException cause) {
+                failure.set(cause);
+                replied.countDown();
+            }
+        });
+        Assert.assertTrue(replied.await(1, TimeUnit.SECONDS));
+        Assert.assertNotNull(failure.get());
+        Assert.assertTrue(failure.get().getMessage(), failure.get().getMessage().contains("WRONGTYPE"));
+
+        // the connection goes on after an error reply
+        Assert.assertEquals("hello", storage.get("key"));
+    }
+
+    /**
+     * Answers GET with a bulk, PTTL with an integer, LLEN with an error and the rest with +OK, once released
+     */
+    private static class FakeRedis implements Runnable {
+        private final ServerSocket server = new ServerSocket(0);
+        private final CountDownLatch received = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        FakeRedis() throws Exception {
+            Thread thread = new Thread(this);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        @Override
+        public void run() {
+            Charset utf8 = Charset.forName("UTF-8");
+            try (Socket socket = server.accept()) {
+                BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), utf8));
+                OutputStream out = socket.getOutputStream();
+                String line;
+                while (null != (line = reader.readLine())) {
+                    if (line.startsWith("*")) {
+                        int arguments = Integer.parseInt(line.substring(1));
+                        String name = null;
+                        for (int i = 0; i < arguments; i++) {
+                            reader.readLine();
+                            String argument = reader.readLine();
+                            if (0 == i) {
+                                name = argument;
+                            }
+                        }
+                        received.countDown();
+                        release.await();
+                        out.write(reply(name).getBytes(utf8));
+                        out.flush();
+                    }
+                }
+            } catch (Exception e) {
+                // closed
+            }
+        }
+
+        private static String reply(String name) {
+            switch (name) {
+                case "GET":
+                    return "$5\r\nhello\r\n";
+                case "PTTL":
+                    return ":1000\r\n";
+                case "LLEN":
+                    return "-WRONGTYPE Operation against a key holding the wrong kind of value\r\n";
+                default:
+                    return "+OK\r\n";
+            }
+        }
+    }
+}
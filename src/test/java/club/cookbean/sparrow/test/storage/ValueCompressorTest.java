@@ -0,0 +1,97 @@
+package club.cookbean.sparrow.test.storage;
+
+import club.cookbean.sparrow.config.impl.DefaultCompressionConfiguration;
+import club.cookbean.sparrow.exception.StorageAccessException;
+import club.cookbean.sparrow.storage.compress.ValueCompressor;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Desc: Stored forms of the compressed values, raw deflated bytes behind a one byte header.
+ */
+public class ValueCompressorTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+
+    private final ValueCompressor compressor = new ValueCompressor(new DefaultCompressionConfiguration(512));
+
+    @Test
+    public void testCompressValue() throws Exception {
+        String large = largeValue(200);
+        String stored = compressor.compress(large);
+        Assert.assertEquals('\u0001', stored.charAt(0));
+        // one char per deflated byte, written as bytes and read back the same way
+        byte[] bytes = stored.getBytes(ISO_8859_1);
+        Assert.assertEquals(stored, new String(bytes, ISO_8859_1));
+        Assert.assertTrue(bytes.length < large.length() / 4);
+        Assert.assertEquals(large, compressor.decompress(stored));
+        Assert.assertArrayEquals(large.getBytes(UTF_8), compressor.decompress(bytes));
+        Assert.assertEquals(1, compressor.getCompressedCount());
+        Assert.assertEquals(bytes.length, compressor.getCompressedBytes());
+    }
+
+    @Test
+    public void testCompressMember() throws Exception {
+        String large = largeValue(200);
+        String stored = compressor.compressMember(large);
+        Assert.assertEquals('\u0001', stored.charAt(0));
+        // members go through the string commands as UTF-8
+        Assert.assertEquals(large, compressor.decompress(new String(stored.getBytes(UTF_8), UTF_8)));
+    }
+
+    @Test
+    public void testCompressBinary() throws Exception {
+        byte[] large = largeValue(200).getBytes(UTF_8);
+        byte[] stored = compressor.compress(large);
+        Assert.assertEquals(1, stored[0]);
+        Assert.assertTrue(stored.length < large.length / 4);
+        Assert.assertArrayEquals(large, compressor.decompress(stored));
+
+        // random bytes do not shrink, they are stored as they are
+        byte[] random = new byte[4096];
+        new Random(7).nextBytes(random);
+        random[0] = 42;
+        Assert.assertSame(random, compressor.compress(random));
+        Assert.assertEquals(1, compressor.getIncompressibleCount());
+    }
+
+    @Test
+    public void testPlainValues() throws Exception {
+        Assert.assertSame("small", compressor.compress("small"));
+        Assert.assertEquals("small", compressor.decompress("small"));
+        String header = "\u0001not compressed";
+        Assert.assertEquals(header, compressor.decompress(compressor.compress(header)));
+        byte[] binaryHeader = {1, 2, 3};
+        Assert.assertArrayEquals(binaryHeader, compressor.decompress(compressor.compress(binaryHeader)));
+        Assert.assertNull(compressor.compress((String) null));
+        Assert.assertNull(compressor.decompress((byte[]) null));
+    }
+
+    @Test
+    public void testLargeValue() throws Exception {
+        // grows the scratch buffer past what a thread keeps
+        String huge = largeValue(20000);
+        Assert.assertEquals(huge, compressor.decompress(compressor.compress(huge)));
+        String large = largeValue(200);
+        Assert.assertEquals(large, compressor.decompress(compressor.compress(large)));
+    }
+
+    @Test(expected = StorageAccessException.class)
+    public void testCorruptValue() throws Exception {
+        byte[] stored = compressor.compress(largeValue(200).getBytes(UTF_8));
+        compressor.decompress(Arrays.copyOf(stored, stored.length / 2));
+    }
+
+    private static String largeValue(int count) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            builder.append("{\"id\":").append(i).append(",\"name\":\"sparrow\"}");
+        }
+        return builder.toString();
+    }
+}
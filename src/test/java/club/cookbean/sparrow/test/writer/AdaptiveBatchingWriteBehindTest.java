@@ -0,0 +1,119 @@
+package club.cookbean.sparrow.test.writer;
+
+import club.cookbean.sparrow.builder.WriteBehindConfigurationBuilder;
+import club.cookbean.sparrow.exception.BulkCacheWritingException;
+import club.cookbean.sparrow.redis.Cacheable;
+import club.cookbean.sparrow.service.impl.OnDemandExecutionService;
+import club.cookbean.sparrow.writer.CacheWriter;
+import club.cookbean.sparrow.writer.impl.BatchingWriteBehindQueue;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static club.cookbean.sparrow.test.db.Cacheables.newValue;
+
+/**
+ * Desc: Adaptive batching of the write behind queue: batches grow when every writeAll call costs a round trip,
+ * and the max delay shrinks when operations wait longer than the target dwell time.
+ */
+public class AdaptiveBatchingWriteBehindTest {
+
+    private static final int OPERATIONS = 2000;
+
+    @Test
+    public void testGrowsBatchesForRoundTrips() throws Exception {
+        RoundTripWriter writer = new RoundTripWriter();
+        BatchingWriteBehindQueue queue = new BatchingWriteBehindQueue(new OnDemandExecutionService(), null,
+                WriteBehindConfigurationBuilder.newBatchedWriteBehindConfiguration(10, TimeUnit.MILLISECONDS, 4)
+                        .queueSize(4096)
+                        .adaptive(1, 1024, 1, TimeUnit.SECONDS)
+                        .build(), writer);
+        writeAll(queue, writer);
+
+        Assert.assertTrue("batch size " + queue.getBatchSize(), queue.getBatchSize() > 4);
+    }
+
+    @Test
+    public void testHoldsTargetDwell() throws Exception {
+        RoundTripWriter writer = new RoundTripWriter();
+        BatchingWriteBehindQueue queue = new BatchingWriteBehindQueue(new OnDemandExecutionService(), null,
+                WriteBehindConfigurationBuilder.newBatchedWriteBehindConfiguration(80, TimeUnit.MILLISECONDS, 64)
+                        .adaptive(1, 64, 40, TimeUnit.MILLISECONDS)
+                        .build(), writer);
+        queue.start();
+        // a slow trickle, every batch is a partial one written on the max delay
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        for (int i = 0; queue.getMaxWriteDelay(TimeUnit.MILLISECONDS) > 40 && System.nanoTime() < deadline; i++) {
+            queue.write("trickle-" + i, newValue(String.valueOf(i)));
+            Thread.sleep(5);
+        }
+        queue.stop();
+
+        Assert.assertTrue("max delay " + queue.getMaxWriteDelay(TimeUnit.MILLISECONDS) + "ms",
+                queue.getMaxWriteDelay(TimeUnit.MILLISECONDS) <= 40);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBounds() {
+        WriteBehindConfigurationBuilder.newBatchedWriteBehindConfiguration(10, TimeUnit.MILLISECONDS, 4)
+                .adaptive(16, 8, 1, TimeUnit.SECONDS);
+    }
+
+    private static void writeAll(BatchingWriteBehindQueue queue, RoundTripWriter writer) throws Exception {
+        queue.start();
+        for (int i = 0; i < OPERATIONS; i++) {
+            queue.write("key-" + i, newValue(String.valueOf(i)));
+        }
+        queue.stop();
+        Assert.assertEquals(OPERATIONS, writer.count.get());
+    }
+
+    /**
+     * Every call waits for a round trip, whatever the number of rows
+     */
+    private static class RoundTripWriter implements CacheWriter {
+        private final AtomicLong count = new AtomicLong();
+        private final Map<String, String> values = new ConcurrentHashMap<>();
+
+        @Override
+        public void write(String key, Cacheable value) throws Exception {
+            roundTrip();
+            put(key, value);
+        }
+
+        @Override
+        public void writeAll(Iterable<? extends Map.Entry<String, Cacheable>> entries) throws BulkCacheWritingException, Exception {
+            roundTrip();
+            for (Map.Entry<String, Cacheable> entry : entries) {
+                put(entry.getKey(), entry.getValue());
+            }
+        }
+
+        @Override
+        public void delete(String key) throws Exception {
+            roundTrip();
+            values.remove(key);
+        }
+
+        @Override
+        public void deleteAll(Iterable<String> keys) throws BulkCacheWritingException, Exception {
+            roundTrip();
+            for (String key : keys) {
+                values.remove(key);
+            }
+        }
+
+        private void put(String key, Cacheable value) {
+            count.incrementAndGet();
+            values.put(key, value.getValue());
+        }
+
+        private static void roundTrip() throws InterruptedException {
+            Thread.sleep(1);
+        }
+    }
+}
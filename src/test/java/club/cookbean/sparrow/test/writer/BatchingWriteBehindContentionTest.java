@@ -0,0 +1,145 @@
+package club.cookbean.sparrow.test.writer;
+
+import club.cookbean.sparrow.builder.WriteBehindConfigurationBuilder;
+import club.cookbean.sparrow.exception.BulkCacheWritingException;
+import club.cookbean.sparrow.redis.Cacheable;
+import club.cookbean.sparrow.service.impl.OnDemandExecutionService;
+import club.cookbean.sparrow.writer.CacheWriter;
+import club.cookbean.sparrow.writer.impl.BatchingWriteBehindQueue;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static club.cookbean.sparrow.test.db.Cacheables.newValue;
+
+/**
+ * Desc: Producer contention on the batch assembly of the write behind queue: every operation offered by
+ * many threads reaches the writer, in order per key, and a partial batch waits no longer than the max delay.
+ */
+public class BatchingWriteBehindContentionTest {
+
+    private static final int PRODUCERS = 8;
+    private static final int OPERATIONS = 50000;
+
+    @Test
+    public void testProducerContention() throws Exception {
+        CountingWriter writer = new CountingWriter();
+        final BatchingWriteBehindQueue queue = new BatchingWriteBehindQueue(new OnDemandExecutionService(), null,
+                WriteBehindConfigurationBuilder.newBatchedWriteBehindConfiguration(10, TimeUnit.MILLISECONDS, 64)
+                        .queueSize(4096)
+                        .build(), writer);
+        queue.start();
+        produce(queue);
+        queue.stop();
+
+        Assert.assertEquals(PRODUCERS * OPERATIONS, writer.count.get());
+        for (int p = 0; p < PRODUCERS; p++) {
+            Assert.assertEquals(String.valueOf(OPERATIONS - 1), writer.values.get("producer-" + p + ":" + (OPERATIONS - 1) % 16));
+        }
+    }
+
+    @Test
+    public void testCoalescingContention() throws Exception {
+        CountingWriter writer = new CountingWriter();
+        final BatchingWriteBehindQueue queue = new BatchingWriteBehindQueue(new OnDemandExecutionService(), null,
+                WriteBehindConfigurationBuilder.newBatchedWriteBehindConfiguration(10, TimeUnit.MILLISECONDS, 64)
+                        .enableCoalescing()
+                        .build(), writer);
+        queue.start();
+        produce(queue);
+        queue.stop();
+
+        Assert.assertTrue(writer.count.get() <= PRODUCERS * OPERATIONS);
+        for (int p = 0; p < PRODUCERS; p++) {
+            for (int k = 0; k < 16; k++) {
+                int last = OPERATIONS - 16 + k;
+                Assert.assertEquals(String.valueOf(last), writer.values.get("producer-" + p + ":" + last % 16));
+            }
+        }
+    }
+
+    @Test
+    public void testMaxDelay() throws Exception {
+        CountingWriter writer = new CountingWriter();
+        BatchingWriteBehindQueue queue = new BatchingWriteBehindQueue(new OnDemandExecutionService(), null,
+                WriteBehindConfigurationBuilder.newBatchedWriteBehindConfiguration(50, TimeUnit.MILLISECONDS, 64)
+                        .build(), writer);
+        queue.start();
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            queue.write("delayed", newValue(String.valueOf(round)));
+            while (!String.valueOf(round).equals(writer.values.get("delayed"))
+                    && System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2)) {
+                Thread.sleep(1);
+            }
+            long waited = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            Assert.assertEquals(String.valueOf(round), writer.values.get("delayed"));
+            Assert.assertTrue("waited " + waited + "ms", waited >= 40 && waited < 500);
+        }
+        queue.stop();
+    }
+
+    private static void produce(final BatchingWriteBehindQueue queue) throws InterruptedException {
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> producers = new ArrayList<>();
+        for (int p = 0; p < PRODUCERS; p++) {
+            final String prefix = "producer-" + p + ":";
+            Thread producer = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < OPERATIONS; i++) {
+                        queue.write(prefix + i % 16, newValue(String.valueOf(i)));
+                    }
+                }
+            });
+            producer.start();
+            producers.add(producer);
+        }
+        start.countDown();
+        for (Thread producer : producers) {
+            producer.join();
+        }
+    }
+
+    private static class CountingWriter implements CacheWriter {
+        private final AtomicLong count = new AtomicLong();
+        private final Map<String, String> values = new ConcurrentHashMap<>();
+
+        @Override
+        public void write(String key, Cacheable value) throws Exception {
+            count.incrementAndGet();
+            values.put(key, value.getValue());
+        }
+
+        @Override
+        public void writeAll(Iterable<? extends Map.Entry<String, Cacheable>> entries) throws BulkCacheWritingException, Exception {
+            for (Map.Entry<String, Cacheable> entry : entries) {
+                write(entry.getKey(), entry.getValue());
+            }
+        }
+
+        @Override
+        public void delete(String key) throws Exception {
+            values.remove(key);
+        }
+
+        @Override
+        public void deleteAll(Iterable<String> keys) throws BulkCacheWritingException, Exception {
+            for (String key : keys) {
+                delete(key);
+            }
+        }
+    }
+}
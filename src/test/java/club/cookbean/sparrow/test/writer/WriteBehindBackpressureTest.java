@@ -0,0 +1,203 @@
+package club.cookbean.sparrow.test.writer;
+
+import club.cookbean.sparrow.builder.WriteBehindConfigurationBuilder;
+import club.cookbean.sparrow.config.BackpressureConfiguration.Policy;
+import club.cookbean.sparrow.exception.BulkCacheWritingException;
+import club.cookbean.sparrow.exception.CacheWritingException;
+import club.cookbean.sparrow.redis.Cacheable;
+import club.cookbean.sparrow.service.impl.OnDemandExecutionService;
+import club.cookbean.sparrow.writer.BackpressureStatistics;
+import club.cookbean.sparrow.writer.CacheWriter;
+import club.cookbean.sparrow.writer.impl.StripedWriteBehind;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static club.cookbean.sparrow.test.db.Cacheables.newValue;
+
+/**
+ * Desc: Overflow policies of full write behind queues, batched or not: a writer stuck on a slow key keeps
+ * a queue of two operations full.
+ */
+public class WriteBehindBackpressureTest {
+
+    @Test
+    public void testFail() throws Exception {
+        for (boolean batched : new boolean[]{false, true}) {
+            FullQueue queue = new FullQueue(batched, Policy.FAIL);
+            try {
+                queue.writeBehind.write("overflow", newValue("value"));
+                Assert.fail("queue full");
+            } catch (CacheWritingException e) {
+                // expected
+            }
+            queue.release();
+            Assert.assertEquals(1, queue.statistics().getRejectedCount());
+            Assert.assertNull(queue.writer.written.get("overflow"));
+        }
+    }
+
+    @Test
+    public void testShed() throws Exception {
+        for (boolean batched : new boolean[]{false, true}) {
+            FullQueue queue = new FullQueue(batched, Policy.SHED);
+            queue.writeBehind.write("overflow", newValue("value"));
+            queue.release();
+            Assert.assertEquals(1, queue.statistics().getShedCount());
+            Assert.assertNull(queue.writer.written.get("overflow"));
+            Assert.assertEquals("1", queue.writer.written.get("queued-1"));
+        }
+    }
+
+    @Test
+    public void testCallerRuns() throws Exception {
+        for (boolean batched : new boolean[]{false, true}) {
+            FullQueue queue = new FullQueue(batched, Policy.CALLER_RUNS);
+            queue.writeBehind.write("overflow", newValue("value"));
+            // written through before the queued keys
+            Assert.assertEquals("value", queue.writer.written.get("overflow"));
+            Assert.assertNull(queue.writer.written.get("queued-1"));
+
+            // a key still queued is not written out of order
+            try {
+                queue.writeBehind.write("queued-1", newValue("newer"));
+                Assert.fail("queue full");
+            } catch (CacheWritingException e) {
+                // expected
+            }
+            queue.release();
+            Assert.assertEquals(1, queue.statistics().getCallerRunsCount());
+            Assert.assertEquals(1, queue.statistics().getBlockedCount());
+            Assert.assertEquals(1, queue.statistics().getTimeoutCount());
+            Assert.assertEquals("1", queue.writer.written.get("queued-1"));
+        }
+    }
+
+    @Test
+    public void testDropOldest() throws Exception {
+        for (boolean batched : new boolean[]{false, true}) {
+            FullQueue queue = new FullQueue(batched, Policy.DROP_OLDEST);
+            queue.writeBehind.write("queued-1", newValue("newer"));
+            queue.writeBehind.delete("queued-2");
+            try {
+                queue.writeBehind.write("overflow", newValue("value"));
+                Assert.fail("queue full");
+            } catch (CacheWritingException e) {
+                // expected
+            }
+            queue.release();
+            Assert.assertEquals(2, queue.statistics().getDroppedCount());
+            Assert.assertEquals(1, queue.statistics().getTimeoutCount());
+            Assert.assertEquals("newer", queue.writer.written.get("queued-1"));
+            Assert.assertNull(queue.writer.written.get("queued-2"));
+            Assert.assertEquals(3, queue.writer.count.get());
+        }
+    }
+
+    @Test
+    public void testBlock() throws Exception {
+        for (boolean batched : new boolean[]{false, true}) {
+            final FullQueue queue = new FullQueue(batched, Policy.BLOCK);
+            long start = System.nanoTime();
+            try {
+                queue.writeBehind.write("overflow", newValue("value"));
+                Assert.fail("queue full");
+            } catch (CacheWritingException e) {
+                // expected
+            }
+            Assert.assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(100));
+
+            Thread releaser = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        Thread.sleep(20);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    queue.writer.release.countDown();
+                }
+            });
+            releaser.start();
+            // room is made within the timeout
+            queue.writeBehind.write("overflow", newValue("value"));
+            releaser.join();
+            queue.release();
+            Assert.assertEquals(2, queue.statistics().getBlockedCount());
+            Assert.assertEquals(1, queue.statistics().getTimeoutCount());
+            Assert.assertEquals("value", queue.writer.written.get("overflow"));
+        }
+    }
+
+    /**
+     * A queue of two operations, full of queued-1 and queued-2 while the writer is stuck on a slow key
+     */
+    private static class FullQueue {
+        private final GatedWriter writer = new GatedWriter();
+        private final StripedWriteBehind writeBehind;
+
+        FullQueue(boolean batched, Policy policy) throws Exception {
+            WriteBehindConfigurationBuilder builder = batched
+                    ? WriteBehindConfigurationBuilder.newBatchedWriteBehindConfiguration(10, TimeUnit.MILLISECONDS, 1)
+                    : WriteBehindConfigurationBuilder.newUnBatchedWriteBehindConfiguration();
+            writeBehind = new StripedWriteBehind(new OnDemandExecutionService(), null,
+                    builder.queueSize(2).backpressure(policy, 100, TimeUnit.MILLISECONDS).build(), writer);
+            writeBehind.start();
+            writeBehind.write("slow", newValue("0"));
+            writer.entered.await();
+            writeBehind.write("queued-1", newValue("1"));
+            writeBehind.write("queued-2", newValue("2"));
+        }
+
+        BackpressureStatistics statistics() {
+            return writeBehind.getBackpressureStatistics();
+        }
+
+        void release() {
+            writer.release.countDown();
+            writeBehind.stop();
+        }
+    }
+
+    private static class GatedWriter implements CacheWriter {
+        private final CountDownLatch entered = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private final AtomicInteger count = new AtomicInteger();
+        private final Map<String, String> written = new ConcurrentHashMap<>();
+
+        @Override
+        public void write(String key, Cacheable value) throws Exception {
+            if ("slow".equals(key)) {
+                entered.countDown();
+                release.await();
+            }
+            count.incrementAndGet();
+            written.put(key, value.getValue());
+        }
+
+        @Override
+        public void writeAll(Iterable<? extends Map.Entry<String, Cacheable>> entries) throws BulkCacheWritingException, Exception {
+            for (Map.Entry<String, Cacheable> entry : entries) {
+                write(entry.getKey(), entry.getValue());
+            }
+        }
+
+        @Override
+        public void delete(String key) throws Exception {
+            count.incrementAndGet();
+            written.remove(key);
+        }
+
+        @Override
+        public void deleteAll(Iterable<String> keys) throws BulkCacheWritingException, Exception {
+            for (String key : keys) {
+                delete(key);
+            }
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package club.cookbean.sparrow.test.writer;
+
+import club.cookbean.sparrow.operation.SingleOperation;
+import club.cookbean.sparrow.operation.impl.DeleteOperation;
+import club.cookbean.sparrow.operation.impl.WriteOperation;
+import club.cookbean.sparrow.redis.BinaryCacheable;
+import club.cookbean.sparrow.redis.Cacheable;
+import club.cookbean.sparrow.writer.impl.WriteBehindJournal;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static club.cookbean.sparrow.test.db.Cacheables.newValue;
+
+/**
+ * Desc: Write behind journal, replay of the operations not committed before a restart.
+ */
+public class WriteBehindJournalTest {
+
+    private File directory;
+
+    @Before
+    public void before() throws IOException {
+        directory = File.createTempFile("journal", "");
+        Assert.assertTrue(directory.delete());
+    }
+
+    @After
+    public void after() {
+        File[] files = directory.listFiles();
+        if (null != files) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void testReplayUncommitted() throws Exception {
+        WriteBehindJournal journal = new WriteBehindJournal(directory, 4096, "journal-test");
+        Assert.assertTrue(replay(journal).isEmpty());
+        long first = journal.append(new WriteOperation("key-1", newValue("value-1")));
+        journal.append(new DeleteOperation("key-2", 42));
+        journal.append(new WriteOperation("key-3", newBinaryValue(new byte[]{1, 2, 3})));
+        journal.commit(first);
+        Assert.assertEquals(2, journal.getPendingCount());
+        journal.close();
+
+        journal = new WriteBehindJournal(directory, 4096, "journal-test");
+        List<SingleOperation> replayed = replay(journal);
+        Assert.assertEquals(2, replayed.size());
+        Assert.assertTrue(replayed.get(0) instanceof DeleteOperation);
+        Assert.assertEquals("key-2", replayed.get(0).getKey());
+        Assert.assertEquals(42, replayed.get(0).getCreationTime());
+        Cacheable value = ((WriteOperation) replayed.get(1)).getValue();
+        Assert.assertTrue(value instanceof BinaryCacheable);
+        Assert.assertArrayEquals(new byte[]{1, 2, 3}, ((BinaryCacheable) value).getBytes());
+        Assert.assertEquals(3600 * 1000, value.getExpireTime());
+        journal.close();
+    }
+
+    @Test
+    public void testCommittedSegmentsDeleted() throws Exception {
+        WriteBehindJournal journal = new WriteBehindJournal(directory, 256, "journal-test");
+        replay(journal);
+        List<Long> sequences = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            sequences.add(journal.append(new WriteOperation("key-" + i, newValue("value-" + i))));
+        }
+        Assert.assertTrue(segmentCount() > 10);
+        // the oldest segment keeps all the newer ones
+        for (int i = 1; i < 100; i++) {
+            journal.commit(sequences.get(i));
+        }
+        Assert.assertTrue(segmentCount() > 10);
+        journal.commit(sequences.get(0));
+        Assert.assertEquals(1, segmentCount());
+        journal.append(new WriteOperation("key-100", newValue("value-100")));
+        journal.close();
+
+        journal = new WriteBehindJournal(directory, 256, "journal-test");
+        List<SingleOperation> replayed = replay(journal);
+        Assert.assertEquals(1, replayed.size());
+        Assert.assertEquals("value-100", ((WriteOperation) replayed.get(0)).getValue().getValue());
+        journal.close();
+    }
+
+    @Test(expected = IOException.class)
+    public void testDirectoryLocked() throws Exception {
+        WriteBehindJournal journal = new WriteBehindJournal(directory, 4096, "journal-test");
+        replay(journal);
+        try {
+            replay(new WriteBehindJournal(directory, 4096, "journal-test"));
+        } finally {
+            journal.close();
+        }
+    }
+
+    private int segmentCount() {
+        return directory.list(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.endsWith(".segment");
+            }
+        }).length;
+    }
+
+    private static List<SingleOperation> replay(WriteBehindJournal journal) throws IOException {
+        final List<SingleOperation> replayed = new ArrayList<>();
+        journal.open(new WriteBehindJournal.Replay() {
+            @Override
+            public void replay(SingleOperation operation, long sequence) {
+                replayed.add(operation);
+            }
+        });
+        return replayed;
+    }
+
+    private static BinaryCacheable newBinaryValue(final byte[] bytes) {
+        return new BinaryCacheable() {
+            @Override
+            public byte[] getBytes() {
+                return bytes;
+            }
+
+            @Override
+            public long getExpireTime() {
+                return 3600*1000;
+            }
+
+            @Override
+            public long getCreationTime() {
+                return System.currentTimeMillis();
+            }
+
+            @Override
+            public String getValue() {
+                return null;
+            }
+
+            @Override
+            public String getKey() {
+                return null;
+            }
+        };
+    }
+}
@@ -0,0 +1,261 @@
+package club.cookbean.sparrow.test.writer;
+
+import club.cookbean.sparrow.builder.RetryConfigurationBuilder;
+import club.cookbean.sparrow.builder.WriteBehindConfigurationBuilder;
+import club.cookbean.sparrow.config.WriteBehindConfiguration;
+import club.cookbean.sparrow.exception.BulkCacheWritingException;
+import club.cookbean.sparrow.redis.Cacheable;
+import club.cookbean.sparrow.service.impl.OnDemandExecutionService;
+import club.cookbean.sparrow.writer.CacheWriter;
+import club.cookbean.sparrow.writer.DeadLetter;
+import club.cookbean.sparrow.writer.impl.StripedWriteBehind;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static club.cookbean.sparrow.test.db.Cacheables.newValue;
+
+/**
+ * Desc: Write behind retries with backoff, and the dead letter queue of the operations given up.
+ */
+public class WriteBehindRetryTest {
+
+    @Test
+    public void testRetryUntilWritten() throws Exception {
+        FlakyWriter writer = new FlakyWriter(2);
+        StripedWriteBehind writeBehind = new StripedWriteBehind(new OnDemandExecutionService(), null,
+                WriteBehindConfigurationBuilder.newUnBatchedWriteBehindConfiguration()
+                        .retry(RetryConfigurationBuilder.newRetryConfiguration(5, 10, 100, TimeUnit.MILLISECONDS).build())
+                        .build(), writer);
+        writeBehind.start();
+        writeBehind.write("retry", newValue("value"));
+        awaitWritten(writer, "retry");
+        writeBehind.stop();
+        Assert.assertEquals("value", writer.written.get("retry"));
+        Assert.assertEquals(3, writer.attempts.get());
+        Assert.assertEquals(0, writeBehind.getDeadLetters().size());
+    }
+
+    @Test
+    public void testBatchRetryUntilWritten() throws Exception {
+        FlakyWriter writer = new FlakyWriter(1);
+        StripedWriteBehind writeBehind = new StripedWriteBehind(new OnDemandExecutionService(), null,
+                WriteBehindConfigurationBuilder.newBatchedWriteBehindConfiguration(50, TimeUnit.MILLISECONDS, 2)
+                        .retry(RetryConfigurationBuilder.newRetryConfiguration(3, 10, 100, TimeUnit.MILLISECONDS).build())
+                        .build(), writer);
+        writeBehind.start();
+        writeBehind.write("batch-1", newValue("one"));
+        writeBehind.write("batch-2", newValue("two"));
+        awaitWritten(writer, "batch-2");
+        writeBehind.stop();
+        Assert.assertEquals("one", writer.written.get("batch-1"));
+        Assert.assertEquals("two", writer.written.get("batch-2"));
+    }
+
+    @Test
+    public void testDeadLetter() throws Exception {
+        FlakyWriter writer = new FlakyWriter(Integer.MAX_VALUE);
+        StripedWriteBehind writeBehind = new StripedWriteBehind(new OnDemandExecutionService(), null,
+                WriteBehindConfigurationBuilder.newUnBatchedWriteBehindConfiguration()
+                        .retry(RetryConfigurationBuilder.newRetryConfiguration(3, 1, 10, TimeUnit.MILLISECONDS)
+                                .deadLetterCapacity(1)
+                                .build())
+                        .build(), writer);
+        writeBehind.start();
+        writeBehind.write("dead-1", newValue("one"));
+        writeBehind.write("dead-2", newValue("two"));
+        long deadline = System.currentTimeMillis() + 2000;
+        while (writeBehind.getDeadLetters().getDroppedCount() < 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        writeBehind.stop();
+        Assert.assertEquals(6, writer.attempts.get());
+        Assert.assertEquals(1, writeBehind.getDeadLetters().getDroppedCount());
+        List<DeadLetter> deadLetters = writeBehind.getDeadLetters().drain();
+        Assert.assertEquals(1, deadLetters.size());
+        Assert.assertEquals("dead-2", deadLetters.get(0).getOperation().getKey());
+        Assert.assertEquals(3, deadLetters.get(0).getAttempts());
+        Assert.assertTrue(deadLetters.get(0).getFailure() instanceof IOException);
+        Assert.assertEquals(0, writeBehind.getDeadLetters().size());
+    }
+
+    @Test
+    public void testNotRetryable() throws Exception {
+        FlakyWriter writer = new FlakyWriter(Integer.MAX_VALUE);
+        StripedWriteBehind writeBehind = new StripedWriteBehind(new OnDemandExecutionService(), null,
+                WriteBehindConfigurationBuilder.newUnBatchedWriteBehindConfiguration()
+                        .retry(RetryConfigurationBuilder.newRetryConfiguration(3, 1, 10, TimeUnit.MILLISECONDS)
+                                .retryOn(IllegalStateException.class)
+                                .build())
+                        .build(), writer);
+        writeBehind.start();
+        writeBehind.write("not-retryable", newValue("value"));
+        long deadline = System.currentTimeMillis() + 2000;
+        while (writeBehind.getDeadLetters().size() < 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        writeBehind.stop();
+        Assert.assertEquals(1, writer.attempts.get());
+        Assert.assertEquals(1, writeBehind.getDeadLetters().size());
+    }
+
+    @Test
+    public void testDeadLetterNotReplayed() throws Exception {
+        File directory = File.createTempFile("journal", "");
+        Assert.assertTrue(directory.delete());
+        try {
+            assertDeadLetterNotReplayed(WriteBehindConfigurationBuilder.newUnBatchedWriteBehindConfiguration()
+                    .retry(RetryConfigurationBuilder.newRetryConfiguration(2, 1, 10, TimeUnit.MILLISECONDS).build())
+                    .journal(directory.getPath())
+                    .build(), directory);
+            assertDeadLetterNotReplayed(WriteBehindConfigurationBuilder.newBatchedWriteBehindConfiguration(50, TimeUnit.MILLISECONDS, 2)
+                    .retry(RetryConfigurationBuilder.newRetryConfiguration(2, 1, 10, TimeUnit.MILLISECONDS).build())
+                    .journal(directory.getPath())
+                    .build(), directory);
+        } finally {
+            File[] files = directory.listFiles();
+            if (null != files) {
+                for (File file : files) {
+                    file.delete();
+                }
+            }
+            directory.delete();
+        }
+    }
+
+    private static void assertDeadLetterNotReplayed(WriteBehindConfiguration configuration, File directory) throws Exception {
+        StripedWriteBehind writeBehind = new StripedWriteBehind(new OnDemandExecutionService(), null,
+                configuration, new FlakyWriter(Integer.MAX_VALUE));
+        writeBehind.start();
+        writeBehind.write("dead-journaled", newValue("stale"));
+        long deadline = System.currentTimeMillis() + 2000;
+        while (writeBehind.getDeadLetters().size() < 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        writeBehind.stop();
+        Assert.assertEquals(1, writeBehind.getDeadLetters().size());
+
+        // the dead letter queue owns the operation, a restart must not write it again
+        FlakyWriter writer = new FlakyWriter(0);
+        writeBehind = new StripedWriteBehind(new OnDemandExecutionService(), null, configuration, writer);
+        writeBehind.start();
+        Thread.sleep(200);
+        writeBehind.stop();
+        Assert.assertFalse(writer.written.containsKey("dead-journaled"));
+    }
+
+    @Test
+    public void testSupersededFailureNotReplayed() throws Exception {
+        File directory = File.createTempFile("journal", "");
+        Assert.assertTrue(directory.delete());
+        try {
+            assertSupersededFailureNotReplayed(WriteBehindConfigurationBuilder.newUnBatchedWriteBehindConfiguration()
+                    .journal(directory.getPath())
+                    .build());
+            assertSupersededFailureNotReplayed(WriteBehindConfigurationBuilder.newBatchedWriteBehindConfiguration(50, TimeUnit.MILLISECONDS, 2)
+                    .journal(directory.getPath())
+                    .build());
+            Assert.assertEquals(0, countSegments(directory));
+        } finally {
+            File[] files = directory.listFiles();
+            if (null != files) {
+                for (File file : files) {
+                    file.delete();
+                }
+            }
+            directory.delete();
+        }
+    }
+
+    private static void assertSupersededFailureNotReplayed(WriteBehindConfiguration configuration) throws Exception {
+        // no retry: the failed write stays in the journal until the second write of the key succeeds
+        FlakyWriter writer = new FlakyWriter(1);
+        StripedWriteBehind writeBehind = new StripedWriteBehind(new OnDemandExecutionService(), null, configuration, writer);
+        writeBehind.start();
+        writeBehind.write("superseded", newValue("stale"));
+        long deadline = System.currentTimeMillis() + 2000;
+        while (writer.attempts.get() < 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(50);
+        writeBehind.write("superseded", newValue("fresh"));
+        awaitWritten(writer, "superseded");
+        writeBehind.stop();
+        Assert.assertEquals("fresh", writer.written.get("superseded"));
+
+        // a restart must not write the failed value over the newer one
+        FlakyWriter restarted = new FlakyWriter(0);
+        restarted.written.putAll(writer.written);
+        writeBehind = new StripedWriteBehind(new OnDemandExecutionService(), null, configuration, restarted);
+        writeBehind.start();
+        Thread.sleep(200);
+        writeBehind.stop();
+        Assert.assertEquals("fresh", restarted.written.get("superseded"));
+        Assert.assertEquals(0, restarted.attempts.get());
+    }
+
+    private static int countSegments(File directory) {
+        File[] files = directory.listFiles();
+        int segments = 0;
+        for (File file : null == files ? new File[0] : files) {
+            if (file.getName().endsWith(".segment")) {
+                segments++;
+            }
+        }
+        return segments;
+    }
+
+    private static void awaitWritten(FlakyWriter writer, String key) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 2000;
+        while (!writer.written.containsKey(key) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private static class FlakyWriter implements CacheWriter {
+        private final int failures;
+        private final AtomicInteger attempts = new AtomicInteger();
+        private final Map<String, String> written = new ConcurrentHashMap<>();
+
+        FlakyWriter(int failures) {
+            this.failures = failures;
+        }
+
+        @Override
+        public void write(String key, Cacheable value) throws Exception {
+            if (attempts.incrementAndGet() <= failures) {
+                throw new IOException("Database unavailable");
+            }
+            written.put(key, value.getValue());
+        }
+
+        @Override
+        public void writeAll(Iterable<? extends Map.Entry<String, Cacheable>> entries) throws BulkCacheWritingException, Exception {
+            if (attempts.incrementAndGet() <= failures) {
+                throw new IOException("Database unavailable");
+            }
+            for (Map.Entry<String, Cacheable> entry : entries) {
+                written.put(entry.getKey(), entry.getValue().getValue());
+            }
+        }
+
+        @Override
+        public void delete(String key) throws Exception {
+            written.remove(key);
+        }
+
+        @Override
+        public void deleteAll(Iterable<String> keys) throws BulkCacheWritingException, Exception {
+            for (String key : keys) {
+                written.remove(key);
+            }
+        }
+    }
+}